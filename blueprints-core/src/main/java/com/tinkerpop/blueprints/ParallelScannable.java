@@ -0,0 +1,27 @@
+package com.tinkerpop.blueprints;
+
+import java.util.List;
+
+/**
+ * ParallelScannable can be implemented by a graph that can split its vertices and edges into partitions that are
+ * iterated by different threads at the same time.
+ * The partitions are only guaranteed to be disjoint and complete when the graph is not mutated while they are iterated.
+ */
+public interface ParallelScannable extends Graph {
+
+    /**
+     * Split the vertices of the graph into partitions.
+     *
+     * @param partitions the number of partitions to split the vertices into
+     * @return at most the given number of disjoint iterables that together hold every vertex of the graph
+     */
+    public List<Iterable<Vertex>> getVertexPartitions(int partitions);
+
+    /**
+     * Split the edges of the graph into partitions.
+     *
+     * @param partitions the number of partitions to split the edges into
+     * @return at most the given number of disjoint iterables that together hold every edge of the graph
+     */
+    public List<Iterable<Edge>> getEdgePartitions(int partitions);
+}
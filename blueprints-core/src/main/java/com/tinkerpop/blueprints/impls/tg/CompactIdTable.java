@@ -0,0 +1,257 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps element ids to dense slots in the primitive arrays of a CompactTinkerGraph.
+ * Canonical numeric ids (the ones generated by the graph) are held in a long[] and looked up through an open-addressing
+ * hash table, only arbitrary string ids fall back to a HashMap.
+ * The slots of removed elements are reused. Every reuse of a slot increments its generation, by which a facade of a
+ * removed element tells that its slot now belongs to another element.
+ */
+class CompactIdTable {
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private long[] numericIds = new long[16];
+    private String[] stringIds = null;
+    private int[] generations = new int[16];
+    private final BitSet live = new BitSet();
+    private int[] free = new int[16];
+    private int freeCount = 0;
+    private int size = 0;
+    private int count = 0;
+
+    // open-addressing table from numeric id to slot + 1 (0 is empty, -1 is deleted)
+    private long[] hashKeys = new long[32];
+    private int[] hashSlots = new int[32];
+    private int hashUsed = 0;
+
+    private final Map<String, Integer> stringSlots = new HashMap<String, Integer>();
+
+    /**
+     * @param id the id of the new element (must not already exist)
+     * @return the slot assigned to the element
+     */
+    public int add(final String id) {
+        final int slot;
+        if (this.freeCount > 0) {
+            slot = this.free[--this.freeCount];
+            this.generations[slot]++;
+            if (null != this.stringIds)
+                this.stringIds[slot] = null;
+        } else {
+            slot = this.size++;
+            if (slot == this.numericIds.length) {
+                this.numericIds = Arrays.copyOf(this.numericIds, grow(slot));
+                this.generations = Arrays.copyOf(this.generations, this.numericIds.length);
+                if (null != this.stringIds)
+                    this.stringIds = Arrays.copyOf(this.stringIds, this.numericIds.length);
+            }
+        }
+
+        if (isNumeric(id)) {
+            final long numericId = Long.parseLong(id);
+            this.numericIds[slot] = numericId;
+            this.hashPut(numericId, slot);
+        } else {
+            if (null == this.stringIds)
+                this.stringIds = new String[this.numericIds.length];
+            this.stringIds[slot] = id;
+            this.stringSlots.put(id, slot);
+        }
+        this.live.set(slot);
+        this.count++;
+        return slot;
+    }
+
+    /**
+     * @param id the id of the element
+     * @return the slot of the element or -1 if no such element exists
+     */
+    public int slot(final String id) {
+        if (isNumeric(id)) {
+            return this.hashGet(Long.parseLong(id));
+        } else {
+            final Integer slot = this.stringSlots.get(id);
+            return null == slot ? -1 : slot;
+        }
+    }
+
+    public String id(final int slot) {
+        if (null != this.stringIds && null != this.stringIds[slot])
+            return this.stringIds[slot];
+        return Long.toString(this.numericIds[slot]);
+    }
+
+    public void remove(final int slot) {
+        if (!this.live.get(slot))
+            return;
+        this.live.clear(slot);
+        this.count--;
+        if (null != this.stringIds && null != this.stringIds[slot]) {
+            this.stringSlots.remove(this.stringIds[slot]);
+        } else {
+            this.hashRemove(this.numericIds[slot]);
+        }
+        if (this.freeCount == this.free.length)
+            this.free = Arrays.copyOf(this.free, grow(this.freeCount));
+        this.free[this.freeCount++] = slot;
+    }
+
+    public boolean isLive(final int slot) {
+        return this.live.get(slot);
+    }
+
+    /**
+     * @return the number of times the slot has been reused
+     */
+    public int generation(final int slot) {
+        return this.generations[slot];
+    }
+
+    /**
+     * @param fromSlot the slot to start searching from (inclusive)
+     * @return the next live slot or -1 if there are no more live slots
+     */
+    public int nextLive(final int fromSlot) {
+        return this.live.nextSetBit(fromSlot);
+    }
+
+    /**
+     * @return the high water mark of the slots handed out so far, which includes the free slots
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of live elements
+     */
+    public int count() {
+        return this.count;
+    }
+
+    public void clear() {
+        this.numericIds = new long[16];
+        this.stringIds = null;
+        this.generations = new int[16];
+        this.live.clear();
+        this.free = new int[16];
+        this.freeCount = 0;
+        this.size = 0;
+        this.count = 0;
+        this.hashKeys = new long[32];
+        this.hashSlots = new int[32];
+        this.hashUsed = 0;
+        this.stringSlots.clear();
+    }
+
+    public void trimToSize() {
+        this.numericIds = Arrays.copyOf(this.numericIds, Math.max(1, this.size));
+        this.generations = Arrays.copyOf(this.generations, this.numericIds.length);
+        this.free = Arrays.copyOf(this.free, this.freeCount);
+        if (null != this.stringIds)
+            this.stringIds = Arrays.copyOf(this.stringIds, this.numericIds.length);
+    }
+
+    protected static int grow(final int length) {
+        return Math.max(16, length + (length >> 1));
+    }
+
+    /**
+     * Only ids that survive a round trip through Long are stored as longs (e.g. "01" or "+1" are not numeric).
+     */
+    protected static boolean isNumeric(final String id) {
+        final int length = id.length();
+        if (length == 0 || length > 18)
+            return false;
+        int i = 0;
+        if (id.charAt(0) == '-') {
+            if (length == 1)
+                return false;
+            i = 1;
+        }
+        if (id.charAt(i) == '0' && length > i + 1)
+            return false;
+        if (id.charAt(i) == '0' && i == 1)
+            return false;
+        for (; i < length; i++) {
+            final char c = id.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(final long key) {
+        final int h = (int) (key ^ (key >>> 32));
+        return (h * 0x9E3779B9) ^ (h >>> 16);
+    }
+
+    private int hashGet(final long key) {
+        final int mask = this.hashKeys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            final int slot = this.hashSlots[index];
+            if (slot == EMPTY)
+                return -1;
+            if (slot != DELETED && this.hashKeys[index] == key)
+                return slot - 1;
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void hashPut(final long key, final int slot) {
+        if ((this.hashUsed + 1) * 2 > this.hashKeys.length)
+            this.rehash();
+        final int mask = this.hashKeys.length - 1;
+        int index = hash(key) & mask;
+        while (this.hashSlots[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        this.hashKeys[index] = key;
+        this.hashSlots[index] = slot + 1;
+        this.hashUsed++;
+    }
+
+    private void hashRemove(final long key) {
+        final int mask = this.hashKeys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            final int slot = this.hashSlots[index];
+            if (slot == EMPTY)
+                return;
+            if (slot != DELETED && this.hashKeys[index] == key) {
+                this.hashSlots[index] = DELETED;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        final long[] oldKeys = this.hashKeys;
+        final int[] oldSlots = this.hashSlots;
+        int live = 0;
+        for (final int slot : oldSlots) {
+            if (slot > 0)
+                live++;
+        }
+        int capacity = 32;
+        while (capacity < (live + 1) * 4) {
+            capacity <<= 1;
+        }
+        this.hashKeys = new long[capacity];
+        this.hashSlots = new int[capacity];
+        this.hashUsed = 0;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] > 0)
+                this.hashPut(oldKeys[i], oldSlots[i] - 1);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Columnar property storage for a CompactTinkerGraph.
+ * Each interned property key owns a column that is indexed by element slot, so an element carries no per-element map.
+ * A column starts out as a hash table of the slots that hold a value, and becomes an array indexed by slot once at least
+ * a quarter of the slots up to the highest one hold a value, so that a key that few elements hold costs no more than
+ * those elements.
+ */
+class CompactPropertyTable {
+
+    private static final Column[] EMPTY_COLUMNS = new Column[0];
+
+    private final CompactStringTable keys;
+    private Column[] columns = EMPTY_COLUMNS;
+
+    public CompactPropertyTable(final CompactStringTable keys) {
+        this.keys = keys;
+    }
+
+    public Object get(final int slot, final String key) {
+        final int keyId = this.keys.lookup(key);
+        if (keyId < 0 || keyId >= this.columns.length || null == this.columns[keyId])
+            return null;
+        return this.columns[keyId].get(slot);
+    }
+
+    public Object put(final int slot, final String key, final Object value) {
+        final int keyId = this.keys.intern(key);
+        if (keyId >= this.columns.length)
+            this.columns = Arrays.copyOf(this.columns, this.keys.size());
+
+        Column column = this.columns[keyId];
+        if (null == column) {
+            column = new Column();
+            this.columns[keyId] = column;
+        }
+        return column.put(slot, value);
+    }
+
+    public Object remove(final int slot, final String key) {
+        final int keyId = this.keys.lookup(key);
+        if (keyId < 0 || keyId >= this.columns.length || null == this.columns[keyId])
+            return null;
+        return this.columns[keyId].remove(slot);
+    }
+
+    public Set<String> getKeys(final int slot) {
+        final Set<String> keys = new HashSet<String>();
+        for (int keyId = 0; keyId < this.columns.length; keyId++) {
+            final Column column = this.columns[keyId];
+            if (null != column && null != column.get(slot))
+                keys.add(this.keys.get(keyId));
+        }
+        return keys;
+    }
+
+    public void removeAll(final int slot) {
+        for (final Column column : this.columns) {
+            if (null != column)
+                column.remove(slot);
+        }
+    }
+
+    public void clear() {
+        this.columns = EMPTY_COLUMNS;
+    }
+
+    public void trimToSize(final int size) {
+        for (final Column column : this.columns) {
+            if (null != column)
+                column.trimToSize(size);
+        }
+    }
+
+    /**
+     * The values of a key by slot, held sparsely in an open-addressing table of slot + 1 (0 is empty) until the column
+     * is dense enough to be held in an array indexed by slot.
+     */
+    private static class Column {
+
+        private static final int MIN_DENSE = 16;
+
+        private Object[] dense = null;
+        private int[] sparseSlots = new int[8];
+        private Object[] sparseValues = new Object[8];
+        private int count = 0;
+        private int maxSlot = -1;
+
+        public Object get(final int slot) {
+            if (null != this.dense)
+                return slot < this.dense.length ? this.dense[slot] : null;
+            final int index = this.indexOf(slot);
+            return index < 0 ? null : this.sparseValues[index];
+        }
+
+        public Object put(final int slot, final Object value) {
+            if (null != this.dense) {
+                if (slot >= this.dense.length)
+                    this.dense = Arrays.copyOf(this.dense, Math.max(slot + 1, CompactIdTable.grow(this.dense.length)));
+                final Object oldValue = this.dense[slot];
+                this.dense[slot] = value;
+                if (null == oldValue)
+                    this.count++;
+                return oldValue;
+            }
+
+            final int index = this.indexOf(slot);
+            if (index >= 0) {
+                final Object oldValue = this.sparseValues[index];
+                this.sparseValues[index] = value;
+                return oldValue;
+            }
+            this.count++;
+            this.maxSlot = Math.max(this.maxSlot, slot);
+            if (this.maxSlot >= MIN_DENSE && this.count * 4 >= this.maxSlot + 1) {
+                this.toDense();
+                this.dense[slot] = value;
+            } else {
+                if (this.count * 2 > this.sparseSlots.length)
+                    this.rehash(this.sparseSlots.length * 2);
+                this.insert(slot, value);
+            }
+            return null;
+        }
+
+        public Object remove(final int slot) {
+            if (null != this.dense) {
+                if (slot >= this.dense.length)
+                    return null;
+                final Object oldValue = this.dense[slot];
+                this.dense[slot] = null;
+                if (null != oldValue)
+                    this.count--;
+                return oldValue;
+            }
+
+            int index = this.indexOf(slot);
+            if (index < 0)
+                return null;
+            final Object oldValue = this.sparseValues[index];
+            this.count--;
+            // shift the following entries of the probe sequence back so that lookups need no tombstones
+            final int mask = this.sparseSlots.length - 1;
+            int next = (index + 1) & mask;
+            while (this.sparseSlots[next] != 0) {
+                final int home = hash(this.sparseSlots[next] - 1) & mask;
+                if (((next - home) & mask) >= ((next - index) & mask)) {
+                    this.sparseSlots[index] = this.sparseSlots[next];
+                    this.sparseValues[index] = this.sparseValues[next];
+                    index = next;
+                }
+                next = (next + 1) & mask;
+            }
+            this.sparseSlots[index] = 0;
+            this.sparseValues[index] = null;
+            return oldValue;
+        }
+
+        public void trimToSize(final int size) {
+            if (null != this.dense) {
+                if (this.dense.length > size)
+                    this.dense = Arrays.copyOf(this.dense, size);
+            } else {
+                int capacity = 8;
+                while (capacity < this.count * 2) {
+                    capacity <<= 1;
+                }
+                if (capacity < this.sparseSlots.length)
+                    this.rehash(capacity);
+            }
+        }
+
+        private void toDense() {
+            this.dense = new Object[CompactIdTable.grow(this.maxSlot + 1)];
+            for (int i = 0; i < this.sparseSlots.length; i++) {
+                if (this.sparseSlots[i] != 0)
+                    this.dense[this.sparseSlots[i] - 1] = this.sparseValues[i];
+            }
+            this.sparseSlots = null;
+            this.sparseValues = null;
+        }
+
+        private int indexOf(final int slot) {
+            final int mask = this.sparseSlots.length - 1;
+            int index = hash(slot) & mask;
+            while (this.sparseSlots[index] != 0) {
+                if (this.sparseSlots[index] == slot + 1)
+                    return index;
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(final int slot, final Object value) {
+            final int mask = this.sparseSlots.length - 1;
+            int index = hash(slot) & mask;
+            while (this.sparseSlots[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            this.sparseSlots[index] = slot + 1;
+            this.sparseValues[index] = value;
+        }
+
+        private void rehash(final int capacity) {
+            final int[] oldSlots = this.sparseSlots;
+            final Object[] oldValues = this.sparseValues;
+            this.sparseSlots = new int[capacity];
+            this.sparseValues = new Object[capacity];
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != 0)
+                    this.insert(oldSlots[i] - 1, oldValues[i]);
+            }
+        }
+
+        private static int hash(final int slot) {
+            final int h = slot * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
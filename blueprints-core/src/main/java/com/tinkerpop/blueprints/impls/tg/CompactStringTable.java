@@ -0,0 +1,45 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary that interns strings (edge labels and property keys) to dense int ids.
+ * Ids are never reused so that they can be safely held in primitive arrays.
+ */
+class CompactStringTable {
+
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+
+    public int intern(final String string) {
+        final Integer id = this.ids.get(string);
+        if (null != id)
+            return id;
+
+        final int newId = this.strings.size();
+        this.strings.add(string);
+        this.ids.put(string, newId);
+        return newId;
+    }
+
+    public int lookup(final String string) {
+        final Integer id = this.ids.get(string);
+        return null == id ? -1 : id;
+    }
+
+    public String get(final int id) {
+        return this.strings.get(id);
+    }
+
+    public int size() {
+        return this.strings.size();
+    }
+
+    public void clear() {
+        this.ids.clear();
+        this.strings.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.ElementHelper;
+import com.tinkerpop.blueprints.util.ExceptionFactory;
+import com.tinkerpop.blueprints.util.StringFactory;
+
+class CompactTinkerEdge extends CompactTinkerElement implements Edge {
+
+    protected CompactTinkerEdge(final int slot, final CompactTinkerGraph graph) {
+        super(slot, graph);
+    }
+
+    protected CompactPropertyTable getPropertyTable() {
+        return this.graph.edgeProperties;
+    }
+
+    protected CompactIdTable getIdTable() {
+        return this.graph.edgeIds;
+    }
+
+    public void setProperty(final String key, final Object value) {
+        ElementHelper.validateProperty(this, key, value);
+        this.checkNotRemoved();
+        final Object oldValue = this.graph.edgeProperties.put(this.slot, key, value);
+        this.graph.edgeKeyIndex.autoUpdate(key, value, oldValue, this);
+    }
+
+    public <T> T removeProperty(final String key) {
+        if (this.isRemoved())
+            return null;
+        final Object oldValue = this.graph.edgeProperties.remove(this.slot, key);
+        if (null != oldValue)
+            this.graph.edgeKeyIndex.autoRemove(key, oldValue, this);
+        return (T) oldValue;
+    }
+
+    public String getLabel() {
+        if (this.isReused())
+            throw new IllegalStateException("The label of a removed edge is not known after its slot is reused");
+        return this.graph.getEdgeLabel(this.slot);
+    }
+
+    public Vertex getVertex(final Direction direction) throws IllegalArgumentException {
+        if (this.isReused())
+            throw new IllegalStateException("The vertices of a removed edge are not known after its slot is reused");
+        if (direction.equals(Direction.IN))
+            return this.graph.getEdgeVertex(this.slot, Direction.IN);
+        else if (direction.equals(Direction.OUT))
+            return this.graph.getEdgeVertex(this.slot, Direction.OUT);
+        else
+            throw ExceptionFactory.bothIsNotSupported();
+    }
+
+    public void remove() {
+        this.graph.removeEdge(this);
+    }
+
+    public String toString() {
+        return StringFactory.edgeString(this);
+    }
+}
@@ -0,0 +1,72 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.util.ElementHelper;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A lightweight facade over an element slot of a CompactTinkerGraph.
+ * Facades hold no state of their own beyond the slot, its generation and the id, and are created on demand.
+ * Once the slot of a removed element is reused, its facades no longer read or write the slot, but keep the id they
+ * were created with, so that they can still be compared and hashed.
+ */
+abstract class CompactTinkerElement implements Element {
+
+    protected final CompactTinkerGraph graph;
+    protected final int slot;
+    protected final int generation;
+    private final String id;
+
+    protected CompactTinkerElement(final int slot, final CompactTinkerGraph graph) {
+        this.graph = graph;
+        this.slot = slot;
+        this.generation = this.getIdTable().generation(slot);
+        this.id = this.getIdTable().id(slot);
+    }
+
+    protected abstract CompactPropertyTable getPropertyTable();
+
+    protected abstract CompactIdTable getIdTable();
+
+    /**
+     * Whether the slot of the element now belongs to another element.
+     */
+    protected boolean isReused() {
+        return this.getIdTable().generation(this.slot) != this.generation;
+    }
+
+    protected boolean isRemoved() {
+        return this.isReused() || !this.getIdTable().isLive(this.slot);
+    }
+
+    protected void checkNotRemoved() {
+        if (this.isRemoved())
+            throw new IllegalStateException("The element has been removed");
+    }
+
+    public Set<String> getPropertyKeys() {
+        if (this.isReused())
+            return Collections.emptySet();
+        return this.getPropertyTable().getKeys(this.slot);
+    }
+
+    public <T> T getProperty(final String key) {
+        if (this.isReused())
+            return null;
+        return (T) this.getPropertyTable().get(this.slot, key);
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public int hashCode() {
+        return this.id.hashCode();
+    }
+
+    public boolean equals(final Object object) {
+        return ElementHelper.areEqual(this, object);
+    }
+}
@@ -0,0 +1,656 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Features;
+import com.tinkerpop.blueprints.GraphQuery;
+import com.tinkerpop.blueprints.Index;
+import com.tinkerpop.blueprints.IndexableGraph;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.ParallelScannable;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+import com.tinkerpop.blueprints.util.ExceptionFactory;
+import com.tinkerpop.blueprints.util.KeyIndexableGraphHelper;
+import com.tinkerpop.blueprints.util.StringFactory;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact, in-memory implementation of the property graph interfaces provided by Blueprints.
+ * CompactTinkerGraph holds the same data as TinkerGraph, but rather than keeping every element as a heap object with its
+ * own property map and adjacency sets, elements are dense slots in primitive arrays.
+ * Edge labels and property keys are interned to int ids, adjacency is stored as per-vertex int arrays of edge slots and
+ * properties are stored in columns (one per key) indexed by slot.
+ * The Vertex and Edge objects handed out are lightweight facades that are materialized on demand.
+ * <p/>
+ * The slots of removed elements are reused by the elements added later, and property columns of keys that few elements
+ * hold are stored sparsely. Once a graph is loaded, trimToSize() can be called to release the head room of the
+ * growable arrays.
+ */
+public class CompactTinkerGraph implements IndexableGraph, KeyIndexableGraph, ParallelScannable {
+
+    private static final int[] EMPTY_SLOTS = new int[0];
+    private static final Features FEATURES = new Features();
+
+    static {
+        FEATURES.supportsDuplicateEdges = true;
+        FEATURES.supportsSelfLoops = true;
+        FEATURES.supportsSerializableObjectProperty = true;
+        FEATURES.supportsBooleanProperty = true;
+        FEATURES.supportsDoubleProperty = true;
+        FEATURES.supportsFloatProperty = true;
+        FEATURES.supportsIntegerProperty = true;
+        FEATURES.supportsPrimitiveArrayProperty = true;
+        FEATURES.supportsUniformListProperty = true;
+        FEATURES.supportsMixedListProperty = true;
+        FEATURES.supportsLongProperty = true;
+        FEATURES.supportsMapProperty = true;
+        FEATURES.supportsStringProperty = true;
+
+        FEATURES.ignoresSuppliedIds = false;
+        FEATURES.isPersistent = false;
+        FEATURES.isRDFModel = false;
+        FEATURES.isWrapper = false;
+
+        FEATURES.supportsIndices = true;
+        FEATURES.supportsKeyIndices = true;
+        FEATURES.supportsVertexKeyIndex = true;
+        FEATURES.supportsEdgeKeyIndex = true;
+        FEATURES.supportsVertexIndex = true;
+        FEATURES.supportsEdgeIndex = true;
+        FEATURES.supportsTransactions = false;
+        FEATURES.supportsVertexIteration = true;
+        FEATURES.supportsEdgeIteration = true;
+        FEATURES.supportsEdgeRetrieval = true;
+        FEATURES.supportsVertexProperties = true;
+        FEATURES.supportsEdgeProperties = true;
+        FEATURES.supportsThreadedTransactions = false;
+    }
+
+    private long currentId = 0l;
+    private final CompactStringTable strings = new CompactStringTable();
+
+    protected final CompactIdTable vertexIds = new CompactIdTable();
+    protected final CompactIdTable edgeIds = new CompactIdTable();
+    protected final CompactPropertyTable vertexProperties = new CompactPropertyTable(this.strings);
+    protected final CompactPropertyTable edgeProperties = new CompactPropertyTable(this.strings);
+
+    // adjacency indexed by vertex slot, each array holds edge slots
+    private int[][] outEdges = new int[16][];
+    private int[][] inEdges = new int[16][];
+    private int[] outDegree = new int[16];
+    private int[] inDegree = new int[16];
+
+    // edge structure indexed by edge slot
+    private int[] edgeOut = new int[16];
+    private int[] edgeIn = new int[16];
+    private int[] edgeLabel = new int[16];
+
+    protected Map<String, TinkerIndex> indices = new HashMap<String, TinkerIndex>();
+    protected CompactKeyIndex<CompactTinkerVertex> vertexKeyIndex = new CompactKeyIndex<CompactTinkerVertex>(CompactTinkerVertex.class);
+    protected CompactKeyIndex<CompactTinkerEdge> edgeKeyIndex = new CompactKeyIndex<CompactTinkerEdge>(CompactTinkerEdge.class);
+
+    public Vertex addVertex(final Object id) {
+        final String idString;
+        if (null != id) {
+            idString = id.toString();
+            if (this.vertexIds.slot(idString) >= 0)
+                throw ExceptionFactory.vertexWithIdAlreadyExists(id);
+        } else {
+            idString = this.getNextId(this.vertexIds);
+        }
+
+        final int slot = this.vertexIds.add(idString);
+        if (slot == this.outDegree.length) {
+            final int length = CompactIdTable.grow(slot);
+            this.outEdges = Arrays.copyOf(this.outEdges, length);
+            this.inEdges = Arrays.copyOf(this.inEdges, length);
+            this.outDegree = Arrays.copyOf(this.outDegree, length);
+            this.inDegree = Arrays.copyOf(this.inDegree, length);
+        }
+        return new CompactTinkerVertex(slot, this);
+    }
+
+    public Vertex getVertex(final Object id) {
+        if (null == id)
+            throw ExceptionFactory.vertexIdCanNotBeNull();
+
+        final int slot = this.vertexIds.slot(id.toString());
+        return slot < 0 ? null : new CompactTinkerVertex(slot, this);
+    }
+
+    public void removeVertex(final Vertex vertex) {
+        final CompactTinkerVertex compactVertex = (CompactTinkerVertex) vertex;
+        if (compactVertex.isRemoved())
+            return;
+        final int slot = compactVertex.slot;
+        // the facade keeps its id once its slot is reused
+        compactVertex.getId();
+
+        for (final Edge edge : this.getIncidentEdges(slot, Direction.BOTH)) {
+            this.removeEdge(edge);
+        }
+
+        this.vertexKeyIndex.removeElement(compactVertex, this.vertexProperties);
+        for (final TinkerIndex index : this.indices.values()) {
+            if (Vertex.class.isAssignableFrom(index.getIndexClass()))
+                index.removeElement(compactVertex);
+        }
+
+        this.vertexProperties.removeAll(slot);
+        this.outEdges[slot] = null;
+        this.inEdges[slot] = null;
+        this.outDegree[slot] = 0;
+        this.inDegree[slot] = 0;
+        this.vertexIds.remove(slot);
+    }
+
+    public Iterable<Vertex> getVertices() {
+        return new SlotIterable<Vertex>(this.vertexIds, this.vertexProperties, null, null, true, 0, Integer.MAX_VALUE);
+    }
+
+    public Iterable<Vertex> getVertices(final String key, final Object value) {
+        if (this.vertexKeyIndex.getIndexedKeys().contains(key))
+            return (Iterable) this.vertexKeyIndex.get(key, value);
+        else
+            return new SlotIterable<Vertex>(this.vertexIds, this.vertexProperties, key, value, true, 0, Integer.MAX_VALUE);
+    }
+
+    public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
+        final String idString;
+        if (null != id) {
+            idString = id.toString();
+            if (this.edgeIds.slot(idString) >= 0)
+                throw ExceptionFactory.edgeWithIdAlreadyExist(id);
+        } else {
+            idString = this.getNextId(this.edgeIds);
+        }
+
+        ((CompactTinkerVertex) outVertex).checkNotRemoved();
+        ((CompactTinkerVertex) inVertex).checkNotRemoved();
+        final int outSlot = ((CompactTinkerVertex) outVertex).slot;
+        final int inSlot = ((CompactTinkerVertex) inVertex).slot;
+        final int labelId = this.strings.intern(label);
+
+        final int slot = this.edgeIds.add(idString);
+        if (slot == this.edgeOut.length) {
+            final int length = CompactIdTable.grow(slot);
+            this.edgeOut = Arrays.copyOf(this.edgeOut, length);
+            this.edgeIn = Arrays.copyOf(this.edgeIn, length);
+            this.edgeLabel = Arrays.copyOf(this.edgeLabel, length);
+        }
+        this.edgeOut[slot] = outSlot;
+        this.edgeIn[slot] = inSlot;
+        this.edgeLabel[slot] = labelId;
+
+        this.outEdges[outSlot] = append(this.outEdges[outSlot], this.outDegree[outSlot]++, slot);
+        this.inEdges[inSlot] = append(this.inEdges[inSlot], this.inDegree[inSlot]++, slot);
+
+        final CompactTinkerEdge edge = new CompactTinkerEdge(slot, this);
+        this.edgeKeyIndex.autoUpdate(StringFactory.LABEL, label, null, edge);
+        return edge;
+    }
+
+    public Edge getEdge(final Object id) {
+        if (null == id)
+            throw ExceptionFactory.edgeIdCanNotBeNull();
+
+        final int slot = this.edgeIds.slot(id.toString());
+        return slot < 0 ? null : new CompactTinkerEdge(slot, this);
+    }
+
+    public void removeEdge(final Edge edge) {
+        final CompactTinkerEdge compactEdge = (CompactTinkerEdge) edge;
+        if (compactEdge.isRemoved())
+            return;
+        final int slot = compactEdge.slot;
+        // the facade keeps its id once its slot is reused
+        compactEdge.getId();
+
+        final int outSlot = this.edgeOut[slot];
+        final int inSlot = this.edgeIn[slot];
+        this.outDegree[outSlot] = remove(this.outEdges[outSlot], this.outDegree[outSlot], slot);
+        this.inDegree[inSlot] = remove(this.inEdges[inSlot], this.inDegree[inSlot], slot);
+
+        this.edgeKeyIndex.autoRemove(StringFactory.LABEL, this.strings.get(this.edgeLabel[slot]), compactEdge);
+        this.edgeKeyIndex.removeElement(compactEdge, this.edgeProperties);
+        for (final TinkerIndex index : this.indices.values()) {
+            if (Edge.class.isAssignableFrom(index.getIndexClass()))
+                index.removeElement(compactEdge);
+        }
+
+        this.edgeProperties.removeAll(slot);
+        this.edgeIds.remove(slot);
+    }
+
+    public Iterable<Edge> getEdges() {
+        return new SlotIterable<Edge>(this.edgeIds, this.edgeProperties, null, null, false, 0, Integer.MAX_VALUE);
+    }
+
+    public Iterable<Edge> getEdges(final String key, final Object value) {
+        if (this.edgeKeyIndex.getIndexedKeys().contains(key))
+            return (Iterable) this.edgeKeyIndex.get(key, value);
+        else
+            return new SlotIterable<Edge>(this.edgeIds, this.edgeProperties, key, value, false, 0, Integer.MAX_VALUE);
+    }
+
+    public GraphQuery query() {
+        return new DefaultGraphQuery(this);
+    }
+
+    /**
+     * The vertices are split into ranges of slots.
+     */
+    public List<Iterable<Vertex>> getVertexPartitions(final int partitions) {
+        final List<Iterable<Vertex>> iterables = new ArrayList<Iterable<Vertex>>();
+        for (final int[] range : partition(this.vertexIds, partitions)) {
+            iterables.add(new SlotIterable<Vertex>(this.vertexIds, this.vertexProperties, null, null, true, range[0], range[1]));
+        }
+        return iterables;
+    }
+
+    /**
+     * The edges are split into ranges of slots.
+     */
+    public List<Iterable<Edge>> getEdgePartitions(final int partitions) {
+        final List<Iterable<Edge>> iterables = new ArrayList<Iterable<Edge>>();
+        for (final int[] range : partition(this.edgeIds, partitions)) {
+            iterables.add(new SlotIterable<Edge>(this.edgeIds, this.edgeProperties, null, null, false, range[0], range[1]));
+        }
+        return iterables;
+    }
+
+    private static List<int[]> partition(final CompactIdTable ids, final int partitions) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("The number of partitions must be positive: " + partitions);
+        final int size = (ids.size() + partitions - 1) / partitions;
+        final List<int[]> ranges = new ArrayList<int[]>();
+        for (int i = 0; i < ids.size(); i = i + size) {
+            ranges.add(new int[]{i, Math.min(i + size, ids.size())});
+        }
+        return ranges;
+    }
+
+    public <T extends Element> void createKeyIndex(final String key, final Class<T> elementClass, final Parameter... indexParameters) {
+        if (Vertex.class.isAssignableFrom(elementClass)) {
+            if (this.vertexKeyIndex.createKeyIndex(key))
+                KeyIndexableGraphHelper.reIndexElements(this, this.getVertices(), new HashSet<String>(Arrays.asList(key)));
+        } else if (Edge.class.isAssignableFrom(elementClass)) {
+            if (this.edgeKeyIndex.createKeyIndex(key))
+                KeyIndexableGraphHelper.reIndexElements(this, this.getEdges(), new HashSet<String>(Arrays.asList(key)));
+        } else {
+            throw ExceptionFactory.classIsNotIndexable(elementClass);
+        }
+    }
+
+    public <T extends Element> void dropKeyIndex(final String key, final Class<T> elementClass) {
+        if (Vertex.class.isAssignableFrom(elementClass)) {
+            this.vertexKeyIndex.dropKeyIndex(key);
+        } else if (Edge.class.isAssignableFrom(elementClass)) {
+            this.edgeKeyIndex.dropKeyIndex(key);
+        } else {
+            throw ExceptionFactory.classIsNotIndexable(elementClass);
+        }
+    }
+
+    public <T extends Element> Set<String> getIndexedKeys(final Class<T> elementClass) {
+        if (Vertex.class.isAssignableFrom(elementClass)) {
+            return this.vertexKeyIndex.getIndexedKeys();
+        } else if (Edge.class.isAssignableFrom(elementClass)) {
+            return this.edgeKeyIndex.getIndexedKeys();
+        } else {
+            throw ExceptionFactory.classIsNotIndexable(elementClass);
+        }
+    }
+
+    public <T extends Element> Index<T> createIndex(final String indexName, final Class<T> indexClass, final Parameter... indexParameters) {
+        if (this.indices.containsKey(indexName))
+            throw ExceptionFactory.indexAlreadyExists(indexName);
+
+        final TinkerIndex index = new TinkerIndex(indexName, indexClass);
+        this.indices.put(index.getIndexName(), index);
+        return index;
+    }
+
+    public <T extends Element> Index<T> getIndex(final String indexName, final Class<T> indexClass) {
+        final Index index = this.indices.get(indexName);
+        if (null == index)
+            return null;
+        if (!indexClass.isAssignableFrom(index.getIndexClass()))
+            throw ExceptionFactory.indexDoesNotSupportClass(indexName, indexClass);
+        else
+            return index;
+    }
+
+    public Iterable<Index<? extends Element>> getIndices() {
+        final List<Index<? extends Element>> list = new ArrayList<Index<? extends Element>>();
+        for (final Index index : this.indices.values()) {
+            list.add(index);
+        }
+        return list;
+    }
+
+    public void dropIndex(final String indexName) {
+        this.indices.remove(indexName);
+    }
+
+    public Features getFeatures() {
+        return FEATURES;
+    }
+
+    public void clear() {
+        this.currentId = 0l;
+        this.strings.clear();
+        this.vertexIds.clear();
+        this.edgeIds.clear();
+        this.vertexProperties.clear();
+        this.edgeProperties.clear();
+        this.outEdges = new int[16][];
+        this.inEdges = new int[16][];
+        this.outDegree = new int[16];
+        this.inDegree = new int[16];
+        this.edgeOut = new int[16];
+        this.edgeIn = new int[16];
+        this.edgeLabel = new int[16];
+        this.indices.clear();
+        this.vertexKeyIndex = new CompactKeyIndex<CompactTinkerVertex>(CompactTinkerVertex.class);
+        this.edgeKeyIndex = new CompactKeyIndex<CompactTinkerEdge>(CompactTinkerEdge.class);
+    }
+
+    /**
+     * Release the unused head room of the growable arrays backing the graph.
+     * This is typically called once after a bulk load of a read-mostly graph.
+     */
+    public void trimToSize() {
+        final int vertexSize = Math.max(1, this.vertexIds.size());
+        for (int slot = 0; slot < this.vertexIds.size(); slot++) {
+            if (null != this.outEdges[slot] && this.outEdges[slot].length > this.outDegree[slot])
+                this.outEdges[slot] = Arrays.copyOf(this.outEdges[slot], this.outDegree[slot]);
+            if (null != this.inEdges[slot] && this.inEdges[slot].length > this.inDegree[slot])
+                this.inEdges[slot] = Arrays.copyOf(this.inEdges[slot], this.inDegree[slot]);
+        }
+        this.outEdges = Arrays.copyOf(this.outEdges, vertexSize);
+        this.inEdges = Arrays.copyOf(this.inEdges, vertexSize);
+        this.outDegree = Arrays.copyOf(this.outDegree, vertexSize);
+        this.inDegree = Arrays.copyOf(this.inDegree, vertexSize);
+        this.vertexIds.trimToSize();
+        this.vertexProperties.trimToSize(vertexSize);
+
+        final int edgeSize = Math.max(1, this.edgeIds.size());
+        this.edgeOut = Arrays.copyOf(this.edgeOut, edgeSize);
+        this.edgeIn = Arrays.copyOf(this.edgeIn, edgeSize);
+        this.edgeLabel = Arrays.copyOf(this.edgeLabel, edgeSize);
+        this.edgeIds.trimToSize();
+        this.edgeProperties.trimToSize(edgeSize);
+    }
+
+    public void shutdown() {
+
+    }
+
+    public String toString() {
+        return StringFactory.graphString(this, "vertices:" + this.vertexIds.count() + " edges:" + this.edgeIds.count());
+    }
+
+    protected String getEdgeLabel(final int edgeSlot) {
+        return this.strings.get(this.edgeLabel[edgeSlot]);
+    }
+
+    protected Vertex getEdgeVertex(final int edgeSlot, final Direction direction) {
+        return new CompactTinkerVertex(direction.equals(Direction.OUT) ? this.edgeOut[edgeSlot] : this.edgeIn[edgeSlot], this);
+    }
+
+    protected Iterable<Edge> getIncidentEdges(final int vertexSlot, final Direction direction, final String... labels) {
+        int[] labelIds = null;
+        if (labels.length > 0) {
+            labelIds = new int[labels.length];
+            int known = 0;
+            for (final String label : labels) {
+                final int labelId = this.strings.lookup(label);
+                if (labelId >= 0)
+                    labelIds[known++] = labelId;
+            }
+            if (known == 0)
+                return Collections.emptyList();
+            labelIds = Arrays.copyOf(labelIds, known);
+        }
+
+        // the matching edge slots are copied so that edges can be removed while iterating
+        int[] slots = EMPTY_SLOTS;
+        int size = 0;
+        if (direction.equals(Direction.IN) || direction.equals(Direction.BOTH)) {
+            slots = this.collect(this.inEdges[vertexSlot], this.inDegree[vertexSlot], labelIds, slots, size);
+            size = slots.length;
+        }
+        if (direction.equals(Direction.OUT) || direction.equals(Direction.BOTH)) {
+            slots = this.collect(this.outEdges[vertexSlot], this.outDegree[vertexSlot], labelIds, slots, size);
+        }
+        return new EdgeSlotIterable(slots);
+    }
+
+    private int[] collect(final int[] adjacency, final int degree, final int[] labelIds, final int[] slots, final int size) {
+        if (degree == 0)
+            return slots;
+        final int[] result = Arrays.copyOf(slots, size + degree);
+        int count = size;
+        for (int i = 0; i < degree; i++) {
+            final int edgeSlot = adjacency[i];
+            if (null == labelIds || contains(labelIds, this.edgeLabel[edgeSlot]))
+                result[count++] = edgeSlot;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private String getNextId(final CompactIdTable table) {
+        String idString;
+        while (true) {
+            idString = Long.toString(this.currentId);
+            this.currentId++;
+            if (table.slot(idString) < 0 || this.currentId == Long.MAX_VALUE)
+                break;
+        }
+        return idString;
+    }
+
+    private static int[] append(int[] array, final int size, final int value) {
+        if (null == array)
+            array = new int[4];
+        else if (size == array.length)
+            array = Arrays.copyOf(array, CompactIdTable.grow(size));
+        array[size] = value;
+        return array;
+    }
+
+    private static int remove(final int[] array, final int size, final int value) {
+        for (int i = 0; i < size; i++) {
+            if (array[i] == value) {
+                System.arraycopy(array, i + 1, array, i, size - i - 1);
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+    private static boolean contains(final int[] array, final int value) {
+        for (final int temp : array) {
+            if (temp == value)
+                return true;
+        }
+        return false;
+    }
+
+    private class EdgeSlotIterable implements Iterable<Edge> {
+
+        private final int[] slots;
+
+        public EdgeSlotIterable(final int[] slots) {
+            this.slots = slots;
+        }
+
+        public Iterator<Edge> iterator() {
+            return new Iterator<Edge>() {
+                private int current = 0;
+
+                public boolean hasNext() {
+                    while (this.current < slots.length) {
+                        if (edgeIds.isLive(slots[this.current]))
+                            return true;
+                        this.current++;
+                    }
+                    return false;
+                }
+
+                public Edge next() {
+                    if (!this.hasNext())
+                        throw new NoSuchElementException();
+                    return new CompactTinkerEdge(slots[this.current++], CompactTinkerGraph.this);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates the live slots of an id table from a slot (inclusive) to a slot (exclusive), optionally filtering on a
+     * property value without materializing the elements that do not match.
+     * The size of an unfiltered iterable over all slots is known without iterating.
+     */
+    private class SlotIterable<T extends Element> extends AbstractCollection<T> implements CloseableIterable<T> {
+
+        private final CompactIdTable ids;
+        private final CompactPropertyTable properties;
+        private final String key;
+        private final Object value;
+        private final boolean forVertex;
+        private final int fromSlot;
+        private final int toSlot;
+
+        public SlotIterable(final CompactIdTable ids, final CompactPropertyTable properties, final String key, final Object value, final boolean forVertex, final int fromSlot, final int toSlot) {
+            this.ids = ids;
+            this.properties = properties;
+            this.key = key;
+            this.value = value;
+            this.forVertex = forVertex;
+            this.fromSlot = fromSlot;
+            this.toSlot = toSlot;
+        }
+
+        public int size() {
+            if (null == this.key && this.fromSlot == 0 && this.toSlot == Integer.MAX_VALUE)
+                return this.ids.count();
+            int size = 0;
+            for (final Iterator<T> itty = this.iterator(); itty.hasNext(); itty.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        public void close() {
+
+        }
+
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int nextSlot = this.advance(fromSlot);
+
+                public boolean hasNext() {
+                    if (this.nextSlot >= 0 && !ids.isLive(this.nextSlot))
+                        this.nextSlot = this.advance(this.nextSlot);
+                    return this.nextSlot >= 0;
+                }
+
+                public T next() {
+                    if (!this.hasNext())
+                        throw new NoSuchElementException();
+                    final int slot = this.nextSlot;
+                    this.nextSlot = this.advance(slot + 1);
+                    if (forVertex)
+                        return (T) new CompactTinkerVertex(slot, CompactTinkerGraph.this);
+                    else
+                        return (T) new CompactTinkerEdge(slot, CompactTinkerGraph.this);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private int advance(final int startSlot) {
+                    int slot = ids.nextLive(startSlot);
+                    if (null != key) {
+                        while (slot >= 0 && slot < toSlot) {
+                            final Object temp = properties.get(slot, key);
+                            if (null == temp ? null == value : temp.equals(value))
+                                break;
+                            slot = ids.nextLive(slot + 1);
+                        }
+                    }
+                    return slot >= toSlot ? -1 : slot;
+                }
+            };
+        }
+    }
+
+    protected class CompactKeyIndex<T extends CompactTinkerElement> extends TinkerIndex<T> {
+
+        private final Set<String> indexedKeys = new HashSet<String>();
+
+        public CompactKeyIndex(final Class<T> indexClass) {
+            super(null, indexClass);
+        }
+
+        public void autoUpdate(final String key, final Object newValue, final Object oldValue, final T element) {
+            if (this.indexedKeys.contains(key)) {
+                if (oldValue != null)
+                    this.remove(key, oldValue, element);
+                this.put(key, newValue, element);
+            }
+        }
+
+        public void autoRemove(final String key, final Object oldValue, final T element) {
+            if (this.indexedKeys.contains(key)) {
+                this.remove(key, oldValue, element);
+            }
+        }
+
+        /**
+         * Removes the element using its current property values rather than scanning every indexed value.
+         */
+        public void removeElement(final T element, final CompactPropertyTable properties) {
+            for (final String key : this.indexedKeys) {
+                final Object value = properties.get(element.slot, key);
+                if (null != value)
+                    this.remove(key, value, element);
+            }
+        }
+
+        public boolean createKeyIndex(final String key) {
+            return this.indexedKeys.add(key);
+        }
+
+        public void dropKeyIndex(final String key) {
+            if (this.indexedKeys.remove(key))
+                this.index.remove(key);
+        }
+
+        public Set<String> getIndexedKeys() {
+            return new HashSet<String>(this.indexedKeys);
+        }
+    }
+}
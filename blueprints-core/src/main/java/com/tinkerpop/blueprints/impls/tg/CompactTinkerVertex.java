@@ -0,0 +1,69 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.VertexQuery;
+import com.tinkerpop.blueprints.util.DefaultVertexQuery;
+import com.tinkerpop.blueprints.util.ElementHelper;
+import com.tinkerpop.blueprints.util.StringFactory;
+import com.tinkerpop.blueprints.util.VerticesFromEdgesIterable;
+
+import java.util.Collections;
+
+class CompactTinkerVertex extends CompactTinkerElement implements Vertex {
+
+    protected CompactTinkerVertex(final int slot, final CompactTinkerGraph graph) {
+        super(slot, graph);
+    }
+
+    protected CompactPropertyTable getPropertyTable() {
+        return this.graph.vertexProperties;
+    }
+
+    protected CompactIdTable getIdTable() {
+        return this.graph.vertexIds;
+    }
+
+    public void setProperty(final String key, final Object value) {
+        ElementHelper.validateProperty(this, key, value);
+        this.checkNotRemoved();
+        final Object oldValue = this.graph.vertexProperties.put(this.slot, key, value);
+        this.graph.vertexKeyIndex.autoUpdate(key, value, oldValue, this);
+    }
+
+    public <T> T removeProperty(final String key) {
+        if (this.isRemoved())
+            return null;
+        final Object oldValue = this.graph.vertexProperties.remove(this.slot, key);
+        if (null != oldValue)
+            this.graph.vertexKeyIndex.autoRemove(key, oldValue, this);
+        return (T) oldValue;
+    }
+
+    public Iterable<Edge> getEdges(final Direction direction, final String... labels) {
+        if (this.isRemoved())
+            return Collections.emptyList();
+        return this.graph.getIncidentEdges(this.slot, direction, labels);
+    }
+
+    public Iterable<Vertex> getVertices(final Direction direction, final String... labels) {
+        return new VerticesFromEdgesIterable(this, direction, labels);
+    }
+
+    public VertexQuery query() {
+        return new DefaultVertexQuery(this);
+    }
+
+    public Edge addEdge(final String label, final Vertex vertex) {
+        return this.graph.addEdge(null, this, vertex, label);
+    }
+
+    public void remove() {
+        this.graph.removeVertex(this);
+    }
+
+    public String toString() {
+        return StringFactory.vertexString(this);
+    }
+}
@@ -0,0 +1,24 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Vertex;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A TinkerEdge whose properties can be read and written by many threads.
+ */
+class ConcurrentTinkerEdge extends TinkerEdge {
+
+    protected ConcurrentTinkerEdge(final String id, final Vertex outVertex, final Vertex inVertex, final String label, final TinkerGraph graph) {
+        super(id, outVertex, inVertex, label, graph);
+        this.properties = new ConcurrentHashMap<String, Object>(4, 0.75f, 1);
+    }
+
+    public synchronized void setProperty(final String key, final Object value) {
+        super.setProperty(key, value);
+    }
+
+    public synchronized <T> T removeProperty(final String key) {
+        return super.removeProperty(key);
+    }
+}
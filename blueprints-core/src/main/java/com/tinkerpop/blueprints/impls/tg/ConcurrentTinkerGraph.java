@@ -0,0 +1,136 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Index;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.ExceptionFactory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, in-memory TinkerGraph.
+ * The vertex, edge and index maps are concurrent maps, element properties and adjacency are backed by concurrent
+ * structures and ids are generated from an atomic counter, so readers never block and writers only contend when they
+ * touch the same vertices.
+ * Adding an edge and removing a vertex are serialized per vertex through a striped lock so that a vertex removal
+ * can not miss an edge that is being attached to it.
+ */
+public class ConcurrentTinkerGraph extends TinkerGraph {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final AtomicLong currentId = new AtomicLong(0l);
+    private transient Object[] locks = createLocks();
+
+    public ConcurrentTinkerGraph() {
+        super();
+        this.vertices = new ConcurrentHashMap<String, Vertex>();
+        this.edges = new ConcurrentHashMap<String, Edge>();
+        this.indices = new ConcurrentHashMap<String, TinkerIndex>();
+        this.vertexCentricKeys = new ConcurrentHashMap<String, String>();
+        this.createKeyIndices();
+    }
+
+    public Vertex addVertex(final Object id) {
+        while (true) {
+            final String idString = null == id ? this.getNextId() : id.toString();
+            final Vertex vertex = new ConcurrentTinkerVertex(idString, this);
+            if (null == ((ConcurrentMap<String, Vertex>) this.vertices).putIfAbsent(idString, vertex))
+                return vertex;
+            if (null != id)
+                throw ExceptionFactory.vertexWithIdAlreadyExists(id);
+        }
+    }
+
+    public void removeVertex(final Vertex vertex) {
+        synchronized (this.locks[getStripe(vertex.getId())]) {
+            super.removeVertex(vertex);
+        }
+    }
+
+    public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
+        final int outStripe = getStripe(outVertex.getId());
+        final int inStripe = getStripe(inVertex.getId());
+        // always acquire the stripes in ascending order to avoid deadlocks
+        synchronized (this.locks[Math.min(outStripe, inStripe)]) {
+            if (outStripe == inStripe)
+                return this.addEdgeLocked(id, outVertex, inVertex, label);
+            synchronized (this.locks[Math.max(outStripe, inStripe)]) {
+                return this.addEdgeLocked(id, outVertex, inVertex, label);
+            }
+        }
+    }
+
+    private Edge addEdgeLocked(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
+        // a vertex removed before the stripes were acquired must not get the edge
+        if (this.vertices.get(outVertex.getId()) != outVertex || this.vertices.get(inVertex.getId()) != inVertex)
+            throw new IllegalStateException("The vertices of the edge must be in the graph");
+        while (true) {
+            // the edge constructor updates the label key index, so taken ids are skipped up front
+            final String idString;
+            if (null == id) {
+                idString = this.getNextId();
+                if (this.edges.containsKey(idString))
+                    continue;
+            } else {
+                idString = id.toString();
+                if (this.edges.containsKey(idString))
+                    throw ExceptionFactory.edgeWithIdAlreadyExist(id);
+            }
+            final Edge edge = new ConcurrentTinkerEdge(idString, outVertex, inVertex, label, this);
+            if (null == ((ConcurrentMap<String, Edge>) this.edges).putIfAbsent(idString, edge)) {
+                ((TinkerVertex) outVertex).addOutEdge(label, edge);
+                ((TinkerVertex) inVertex).addInEdge(label, edge);
+                return edge;
+            }
+            if (null != id)
+                throw ExceptionFactory.edgeWithIdAlreadyExist(id);
+        }
+    }
+
+    public <T extends Element> Index<T> createIndex(final String indexName, final Class<T> indexClass, final Parameter... indexParameters) {
+        final TinkerIndex index = new TinkerIndex(indexName, indexClass, true);
+        if (null != ((ConcurrentMap<String, TinkerIndex>) this.indices).putIfAbsent(indexName, index))
+            throw ExceptionFactory.indexAlreadyExists(indexName);
+        return index;
+    }
+
+    public void clear() {
+        super.clear();
+        this.currentId.set(0l);
+        this.createKeyIndices();
+    }
+
+    private void createKeyIndices() {
+        this.vertexKeyIndex = new TinkerKeyIndex<TinkerVertex>(TinkerVertex.class, this, true);
+        this.edgeKeyIndex = new TinkerKeyIndex<TinkerEdge>(TinkerEdge.class, this, true);
+    }
+
+    private String getNextId() {
+        return Long.toString(this.currentId.getAndIncrement());
+    }
+
+    private static int getStripe(final Object id) {
+        final int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private static Object[] createLocks() {
+        final Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        this.locks = createLocks();
+    }
+}
@@ -0,0 +1,71 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A TinkerVertex whose properties and adjacency can be read and written by many threads.
+ */
+class ConcurrentTinkerVertex extends TinkerVertex {
+
+    protected ConcurrentTinkerVertex(final String id, final TinkerGraph graph) {
+        super(id, graph);
+        this.properties = new ConcurrentHashMap<String, Object>(4, 0.75f, 1);
+        this.outEdges = new ConcurrentHashMap<String, Set<Edge>>(4, 0.75f, 1);
+        this.inEdges = new ConcurrentHashMap<String, Set<Edge>>(4, 0.75f, 1);
+    }
+
+    public synchronized void setProperty(final String key, final Object value) {
+        super.setProperty(key, value);
+    }
+
+    public synchronized <T> T removeProperty(final String key) {
+        return super.removeProperty(key);
+    }
+
+    protected void addOutEdge(final String label, final Edge edge) {
+        getEdgeSet(this.outEdges, label).add(edge);
+        this.sortEdge(Direction.OUT, (TinkerEdge) edge, null, ((TinkerEdge) edge).getSortValue());
+    }
+
+    protected void addInEdge(final String label, final Edge edge) {
+        getEdgeSet(this.inEdges, label).add(edge);
+        this.sortEdge(Direction.IN, (TinkerEdge) edge, null, ((TinkerEdge) edge).getSortValue());
+    }
+
+    protected synchronized void sortEdge(final Direction direction, final TinkerEdge edge, final Object oldValue, final Object newValue) {
+        super.sortEdge(direction, edge, oldValue, newValue);
+    }
+
+    protected synchronized Iterable<Edge> getSortedEdges(final Direction direction, final String label, final TinkerSortedValues.Range range) {
+        // the sorted edges are not safe for concurrent iteration, so the matching edges are copied
+        final List<Edge> edges = new ArrayList<Edge>();
+        for (final Edge edge : super.getSortedEdges(direction, label, range)) {
+            edges.add(edge);
+        }
+        return edges;
+    }
+
+    protected synchronized void unsortEdges(final String label) {
+        super.unsortEdges(label);
+    }
+
+    private static Set<Edge> getEdgeSet(final Map<String, Set<Edge>> edges, final String label) {
+        Set<Edge> set = edges.get(label);
+        if (null == set) {
+            set = Collections.newSetFromMap(new ConcurrentHashMap<Edge, Boolean>(4, 0.75f, 1));
+            final Set<Edge> existing = ((ConcurrentMap<String, Set<Edge>>) edges).putIfAbsent(label, set);
+            if (null != existing)
+                set = existing;
+        }
+        return set;
+    }
+}
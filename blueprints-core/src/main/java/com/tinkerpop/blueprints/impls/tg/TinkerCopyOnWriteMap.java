@@ -0,0 +1,240 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map whose views can be iterated while the map is being mutated, without copying the map up front.
+ * Taking a snapshot of the map, which every iterator of its views does, hands out the backing HashMap and marks it as
+ * shared. The first mutation after that replaces the backing HashMap with a copy, so snapshots never change and a
+ * HashMap is copied at most once however many snapshots of it were taken. Nothing is copied when no snapshot was taken
+ * since the last mutation.
+ * Like HashMap, the map is not safe for use by more than one thread.
+ */
+class TinkerCopyOnWriteMap<K, V> implements Map<K, V>, Serializable {
+
+    private HashMap<K, V> map;
+    // whether a snapshot may still be reading the current backing map
+    private transient boolean shared = false;
+
+    public TinkerCopyOnWriteMap() {
+        this.map = new HashMap<K, V>();
+    }
+
+    public TinkerCopyOnWriteMap(final Map<K, V> map) {
+        this.map = new HashMap<K, V>(map);
+    }
+
+    public int size() {
+        return this.map.size();
+    }
+
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
+
+    public boolean containsKey(final Object key) {
+        return this.map.containsKey(key);
+    }
+
+    public boolean containsValue(final Object value) {
+        return this.map.containsValue(value);
+    }
+
+    public V get(final Object key) {
+        return this.map.get(key);
+    }
+
+    public V put(final K key, final V value) {
+        this.beforeWrite();
+        return this.map.put(key, value);
+    }
+
+    public V remove(final Object key) {
+        if (!this.map.containsKey(key))
+            return null;
+        this.beforeWrite();
+        return this.map.remove(key);
+    }
+
+    public void putAll(final Map<? extends K, ? extends V> map) {
+        this.beforeWrite();
+        this.map.putAll(map);
+    }
+
+    public void clear() {
+        if (this.shared) {
+            this.map = new HashMap<K, V>();
+            this.shared = false;
+        } else {
+            this.map.clear();
+        }
+    }
+
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            public Iterator<K> iterator() {
+                return new SnapshotIterator<K>() {
+                    protected K get(final Entry<K, V> entry) {
+                        return entry.getKey();
+                    }
+                };
+            }
+
+            public int size() {
+                return map.size();
+            }
+
+            public boolean contains(final Object key) {
+                return map.containsKey(key);
+            }
+        };
+    }
+
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public Iterator<V> iterator() {
+                return new SnapshotIterator<V>() {
+                    protected V get(final Entry<K, V> entry) {
+                        return entry.getValue();
+                    }
+                };
+            }
+
+            public int size() {
+                return map.size();
+            }
+        };
+    }
+
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            public Iterator<Entry<K, V>> iterator() {
+                return new SnapshotIterator<Entry<K, V>>() {
+                    protected Entry<K, V> get(final Entry<K, V> entry) {
+                        return new AbstractMap.SimpleImmutableEntry<K, V>(entry);
+                    }
+                };
+            }
+
+            public int size() {
+                return map.size();
+            }
+        };
+    }
+
+    public boolean equals(final Object object) {
+        return this.map.equals(object);
+    }
+
+    public int hashCode() {
+        return this.map.hashCode();
+    }
+
+    public String toString() {
+        return this.map.toString();
+    }
+
+    /**
+     * The values of the map as they are now, unaffected by later mutations of the map.
+     */
+    public Collection<V> snapshotValues() {
+        return Collections.unmodifiableCollection(this.snapshot().values());
+    }
+
+    /**
+     * The keys of the map as they are now, unaffected by later mutations of the map.
+     */
+    public Set<K> snapshotKeySet() {
+        return Collections.unmodifiableSet(this.snapshot().keySet());
+    }
+
+    /**
+     * The values of the map as they are now if it is a TinkerCopyOnWriteMap, otherwise a view of its values.
+     */
+    public static <K, V> Collection<V> snapshotValues(final Map<K, V> map) {
+        return map instanceof TinkerCopyOnWriteMap ? ((TinkerCopyOnWriteMap<K, V>) map).snapshotValues() : map.values();
+    }
+
+    /**
+     * A set backed by a TinkerCopyOnWriteMap.
+     */
+    public static <E> Set<E> newSet() {
+        return new CopyOnWriteSet<E>();
+    }
+
+    /**
+     * The elements of the set as they are now if it was created by newSet(), otherwise the set itself.
+     */
+    public static <E> Collection<E> snapshot(final Set<E> set) {
+        return set instanceof CopyOnWriteSet ? ((CopyOnWriteSet<E>) set).map.snapshotKeySet() : set;
+    }
+
+    private HashMap<K, V> snapshot() {
+        this.shared = true;
+        return this.map;
+    }
+
+    private void beforeWrite() {
+        if (this.shared) {
+            this.map = new HashMap<K, V>(this.map);
+            this.shared = false;
+        }
+    }
+
+    private abstract class SnapshotIterator<E> implements Iterator<E> {
+
+        private final Iterator<Entry<K, V>> itty = snapshot().entrySet().iterator();
+
+        protected abstract E get(final Entry<K, V> entry);
+
+        public boolean hasNext() {
+            return this.itty.hasNext();
+        }
+
+        public E next() {
+            return this.get(this.itty.next());
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class CopyOnWriteSet<E> extends AbstractSet<E> implements Serializable {
+
+        private final TinkerCopyOnWriteMap<E, Boolean> map = new TinkerCopyOnWriteMap<E, Boolean>();
+
+        public Iterator<E> iterator() {
+            return this.map.keySet().iterator();
+        }
+
+        public int size() {
+            return this.map.size();
+        }
+
+        public boolean contains(final Object element) {
+            return this.map.containsKey(element);
+        }
+
+        public boolean add(final E element) {
+            return null == this.map.put(element, Boolean.TRUE);
+        }
+
+        public boolean remove(final Object element) {
+            return null != this.map.remove(element);
+        }
+
+        public void clear() {
+            this.map.clear();
+        }
+    }
+}
@@ -14,6 +14,8 @@ import java.io.Serializable;
  */
 class TinkerEdge extends TinkerElement implements Edge, Serializable {
 
+    private static final long serialVersionUID = 868340606500353560L;
+
     private final String label;
     private final Vertex inVertex;
     private final Vertex outVertex;
@@ -30,6 +32,35 @@ class TinkerEdge extends TinkerElement implements Edge, Serializable {
         return this.label;
     }
 
+    public void setProperty(final String key, final Object value) {
+        final Object oldValue = this.properties.get(key);
+        super.setProperty(key, value);
+        this.sortKeyChanged(key, oldValue, value);
+    }
+
+    public <T> T removeProperty(final String key) {
+        final T oldValue = super.<T>removeProperty(key);
+        // removing a key the edge does not have, including null, leaves its position unchanged
+        if (null != oldValue)
+            this.sortKeyChanged(key, oldValue, null);
+        return oldValue;
+    }
+
+    /**
+     * The value of the key of the vertex-centric index of the label, or null if the label has no such index.
+     */
+    protected Object getSortValue() {
+        final String sortKey = this.graph.vertexCentricKeys.get(this.label);
+        return null == sortKey ? null : this.properties.get(sortKey);
+    }
+
+    private void sortKeyChanged(final String key, final Object oldValue, final Object newValue) {
+        if (key.equals(this.graph.vertexCentricKeys.get(this.label)) && this == this.graph.edges.get(this.id)) {
+            ((TinkerVertex) this.outVertex).sortEdge(Direction.OUT, this, oldValue, newValue);
+            ((TinkerVertex) this.inVertex).sortEdge(Direction.IN, this, oldValue, newValue);
+        }
+    }
+
     public Vertex getVertex(final Direction direction) throws IllegalArgumentException {
         if (direction.equals(Direction.IN))
             return this.inVertex;
@@ -17,6 +17,8 @@ import java.util.Set;
  */
 abstract class TinkerElement implements Element, Serializable {
 
+    private static final long serialVersionUID = -7308092702974301388L;
+
     protected Map<String, Object> properties = new HashMap<String, Object>();
     protected final String id;
     protected final TinkerGraph graph;
@@ -41,6 +43,10 @@ abstract class TinkerElement implements Element, Serializable {
             this.graph.vertexKeyIndex.autoUpdate(key, value, oldValue, (TinkerVertex) this);
         else
             this.graph.edgeKeyIndex.autoUpdate(key, value, oldValue, (TinkerEdge) this);
+        if (null != this.graph.log) {
+            this.graph.log.setProperty(this instanceof TinkerVertex, this.id, key, value);
+            this.graph.checkpointIfNeeded();
+        }
     }
 
     public <T> T removeProperty(final String key) {
@@ -49,6 +55,10 @@ abstract class TinkerElement implements Element, Serializable {
             this.graph.vertexKeyIndex.autoRemove(key, oldValue, (TinkerVertex) this);
         else
             this.graph.edgeKeyIndex.autoRemove(key, oldValue, (TinkerEdge) this);
+        if (null != this.graph.log && null != oldValue) {
+            this.graph.log.removeProperty(this instanceof TinkerVertex, this.id, key);
+            this.graph.checkpointIfNeeded();
+        }
         return (T) oldValue;
     }
 
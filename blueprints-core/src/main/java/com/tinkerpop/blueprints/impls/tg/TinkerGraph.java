@@ -10,18 +10,16 @@ import com.tinkerpop.blueprints.Index;
 import com.tinkerpop.blueprints.IndexableGraph;
 import com.tinkerpop.blueprints.KeyIndexableGraph;
 import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.ParallelScannable;
 import com.tinkerpop.blueprints.Vertex;
-import com.tinkerpop.blueprints.util.DefaultGraphQuery;
 import com.tinkerpop.blueprints.util.ExceptionFactory;
 import com.tinkerpop.blueprints.util.KeyIndexableGraphHelper;
 import com.tinkerpop.blueprints.util.PropertyFilteredIterable;
 import com.tinkerpop.blueprints.util.StringFactory;
+import com.tinkerpop.blueprints.util.WrappingCloseableCollection;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,24 +29,62 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * An in-memory, reference implementation of the property graph interfaces provided by Blueprints.
  *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
-public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializable {
+public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, ParallelScannable, Serializable {
+
+    private static final long serialVersionUID = 4678881326407897521L;
+
+    /**
+     * The key index parameter that selects the type of a key index.
+     */
+    public static final String INDEX_TYPE = "type";
+    /**
+     * The type of a key index that keeps its values sorted.
+     */
+    public static final String SORTED_INDEX = "sorted";
 
     private Long currentId = 0l;
-    protected Map<String, Vertex> vertices = new HashMap<String, Vertex>();
-    protected Map<String, Edge> edges = new HashMap<String, Edge>();
+    protected Map<String, Vertex> vertices = new TinkerCopyOnWriteMap<String, Vertex>();
+    protected Map<String, Edge> edges = new TinkerCopyOnWriteMap<String, Edge>();
     protected Map<String, TinkerIndex> indices = new HashMap<String, TinkerIndex>();
 
+    // the key that the edges of a label are sorted by at their vertices
+    protected Map<String, String> vertexCentricKeys = new HashMap<String, String>();
+
     protected TinkerKeyIndex<TinkerVertex> vertexKeyIndex = new TinkerKeyIndex<TinkerVertex>(TinkerVertex.class, this);
     protected TinkerKeyIndex<TinkerEdge> edgeKeyIndex = new TinkerKeyIndex<TinkerEdge>(TinkerEdge.class, this);
 
     private final String directory;
     private static final String GRAPH_FILE = "/tinkergraph.dat";
+    private static final String SNAPSHOT_FILE = "/tinkergraph.bin";
+    private static final String LOG_FILE = "/tinkergraph.log";
+    private static final String COMPACTING_LOG_FILE = "/tinkergraph.log.compacting";
+    // the log is compacted into a snapshot once it is larger than both this and the last snapshot
+    private static final long MIN_COMPACTION_SIZE = 1l << 26;
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "tinkergraph-compaction");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    transient TinkerWriteAheadLog log;
+    private transient long snapshotSize = 0l;
+    private transient Future<Long> compaction = null;
 
     private static final Features FEATURES = new Features();
     private static final Features PERSISTENT_FEATURES;
@@ -91,8 +127,16 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         PERSISTENT_FEATURES.isPersistent = true;
     }
 
+    /**
+     * A TinkerGraph that is loaded from and saved to the directory.
+     * The graph is read from the binary snapshot in the directory if there is one, otherwise from the serialized
+     * graph written by previous versions, and the mutations in the write-ahead log are then replayed on top of it.
+     * Every mutation is appended to the log, which is compacted into a new snapshot as it grows and on shutdown.
+     */
     public TinkerGraph(final String directory) {
         this.directory = directory;
+        long checkpoint = 0l;
+        boolean compacting = false;
         try {
             final File file = new File(directory);
             if (!file.exists()) {
@@ -100,16 +144,28 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
                     throw new RuntimeException("Could not create directory");
                 }
             } else {
-                ObjectInputStream input = new ObjectInputStream(new FileInputStream(directory + GRAPH_FILE));
-                TinkerGraph temp = (TinkerGraph) input.readObject();
-                input.close();
-                this.currentId = temp.currentId;
-                this.vertices = temp.vertices;
-                this.edges = temp.edges;
-                this.indices = temp.indices;
-                this.vertexKeyIndex = temp.vertexKeyIndex;
-                this.edgeKeyIndex = temp.edgeKeyIndex;
+                final File snapshot = new File(directory + SNAPSHOT_FILE);
+                final File legacy = new File(directory + GRAPH_FILE);
+                TinkerSnapshot.restore(snapshot);
+                if (snapshot.exists()) {
+                    checkpoint = TinkerSnapshot.read(this, snapshot);
+                    this.snapshotSize = snapshot.length();
+                } else if (legacy.exists()) {
+                    TinkerSnapshot.readLegacy(this, legacy);
+                }
+                // a log whose compaction did not finish comes before the log that continues from it
+                final File compactingLog = new File(directory + COMPACTING_LOG_FILE);
+                if (TinkerWriteAheadLog.replay(this, compactingLog, checkpoint)) {
+                    compacting = true;
+                    checkpoint++;
+                } else if (compactingLog.exists()) {
+                    compactingLog.delete();
+                }
+                TinkerWriteAheadLog.replay(this, new File(directory + LOG_FILE), checkpoint);
             }
+            this.log = new TinkerWriteAheadLog(new File(directory + LOG_FILE), checkpoint);
+            if (compacting)
+                this.startCompaction(checkpoint - 1);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -135,14 +191,31 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         }
     }
 
+    /**
+     * Passing the parameter (INDEX_TYPE, SORTED_INDEX) creates a sorted key index, which also answers queries for a
+     * range of values (GREATER_THAN, LESS_THAN, interval, etc.) without scanning all elements.
+     */
     public <T extends Element> void createKeyIndex(final String key, final Class<T> elementClass, final Parameter... indexParameters) {
+        final boolean sorted = isSortedIndex(indexParameters);
         if (Vertex.class.isAssignableFrom(elementClass)) {
-            this.vertexKeyIndex.createKeyIndex(key);
+            this.vertexKeyIndex.createKeyIndex(key, sorted);
         } else if (Edge.class.isAssignableFrom(elementClass)) {
-            this.edgeKeyIndex.createKeyIndex(key);
+            this.edgeKeyIndex.createKeyIndex(key, sorted);
         } else {
             throw ExceptionFactory.classIsNotIndexable(elementClass);
         }
+        if (null != this.log) {
+            this.log.createKeyIndex(Vertex.class.isAssignableFrom(elementClass), key, sorted);
+            this.checkpointIfNeeded();
+        }
+    }
+
+    private static boolean isSortedIndex(final Parameter... indexParameters) {
+        for (final Parameter parameter : indexParameters) {
+            if (INDEX_TYPE.equals(parameter.getKey()) && SORTED_INDEX.equals(parameter.getValue()))
+                return true;
+        }
+        return false;
     }
 
     public <T extends Element> void dropKeyIndex(final String key, final Class<T> elementClass) {
@@ -153,6 +226,10 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         } else {
             throw ExceptionFactory.classIsNotIndexable(elementClass);
         }
+        if (null != this.log) {
+            this.log.dropKeyIndex(Vertex.class.isAssignableFrom(elementClass), key);
+            this.checkpointIfNeeded();
+        }
     }
 
     public <T extends Element> Set<String> getIndexedKeys(final Class<T> elementClass) {
@@ -165,12 +242,58 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         }
     }
 
+    /**
+     * Create a vertex-centric index, which keeps the edges with the label sorted by their value for the key at both of
+     * their vertices. Vertex queries on the label that compare the key to a value (has, interval, etc.) then only
+     * touch the matching edges.
+     * A label can only have one vertex-centric index.
+     */
+    public void createVertexCentricIndex(final String label, final String key) {
+        if (this.vertexCentricKeys.containsKey(label))
+            throw ExceptionFactory.indexAlreadyExists(label);
+        this.vertexCentricKeys.put(label, key);
+        for (final Edge edge : this.getEdges()) {
+            if (edge.getLabel().equals(label)) {
+                final Object value = edge.getProperty(key);
+                ((TinkerVertex) edge.getVertex(Direction.OUT)).sortEdge(Direction.OUT, (TinkerEdge) edge, null, value);
+                ((TinkerVertex) edge.getVertex(Direction.IN)).sortEdge(Direction.IN, (TinkerEdge) edge, null, value);
+            }
+        }
+        if (null != this.log) {
+            this.log.createVertexCentricIndex(label, key);
+            this.checkpointIfNeeded();
+        }
+    }
+
+    public void dropVertexCentricIndex(final String label) {
+        if (null == this.vertexCentricKeys.remove(label))
+            return;
+        for (final Vertex vertex : this.getVertices()) {
+            ((TinkerVertex) vertex).unsortEdges(label);
+        }
+        if (null != this.log) {
+            this.log.dropVertexCentricIndex(label);
+            this.checkpointIfNeeded();
+        }
+    }
+
+    /**
+     * The key of the vertex-centric index of the label, or null if the label has no vertex-centric index.
+     */
+    public String getVertexCentricKey(final String label) {
+        return this.vertexCentricKeys.get(label);
+    }
+
     public <T extends Element> Index<T> createIndex(final String indexName, final Class<T> indexClass, final Parameter... indexParameters) {
         if (this.indices.containsKey(indexName))
             throw ExceptionFactory.indexAlreadyExists(indexName);
 
-        final TinkerIndex index = new TinkerIndex(indexName, indexClass);
+        final TinkerIndex index = null == this.directory ? new TinkerIndex(indexName, indexClass) : new TinkerLoggedIndex(indexName, indexClass);
         this.indices.put(index.getIndexName(), index);
+        if (null != this.log) {
+            this.log.createIndex(indexName, Vertex.class.isAssignableFrom(indexClass));
+            this.checkpointIfNeeded();
+        }
         return index;
     }
 
@@ -194,6 +317,10 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
 
     public void dropIndex(final String indexName) {
         this.indices.remove(indexName);
+        if (null != this.log) {
+            this.log.dropIndex(indexName);
+            this.checkpointIfNeeded();
+        }
     }
 
 
@@ -218,6 +345,10 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
 
         vertex = new TinkerVertex(idString, this);
         this.vertices.put(vertex.getId().toString(), vertex);
+        if (null != this.log) {
+            this.log.addVertex(idString, this.currentId);
+            this.checkpointIfNeeded();
+        }
         return vertex;
 
     }
@@ -240,11 +371,11 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
 
 
     public Iterable<Vertex> getVertices() {
-        return new ArrayList<Vertex>(this.vertices.values());
+        return new WrappingCloseableCollection<Vertex>(TinkerCopyOnWriteMap.snapshotValues(this.vertices));
     }
 
     public Iterable<Edge> getEdges() {
-        return new ArrayList<Edge>(this.edges.values());
+        return new WrappingCloseableCollection<Edge>(TinkerCopyOnWriteMap.snapshotValues(this.edges));
     }
 
     public void removeVertex(final Vertex vertex) {
@@ -261,6 +392,10 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         }
 
         this.vertices.remove(vertex.getId().toString());
+        if (null != this.log) {
+            this.log.removeVertex(vertex.getId().toString());
+            this.checkpointIfNeeded();
+        }
     }
 
     public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
@@ -288,6 +423,10 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         final TinkerVertex in = (TinkerVertex) inVertex;
         out.addOutEdge(label, edge);
         in.addInEdge(label, edge);
+        if (null != this.log) {
+            this.log.addEdge(idString, out.getId(), in.getId(), label, this.currentId);
+            this.checkpointIfNeeded();
+        }
         return edge;
 
     }
@@ -296,14 +435,10 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         TinkerVertex outVertex = (TinkerVertex) edge.getVertex(Direction.OUT);
         TinkerVertex inVertex = (TinkerVertex) edge.getVertex(Direction.IN);
         if (null != outVertex && null != outVertex.outEdges) {
-            final Set<Edge> edges = outVertex.outEdges.get(edge.getLabel());
-            if (null != edges)
-                edges.remove(edge);
+            outVertex.removeOutEdge(edge.getLabel(), edge);
         }
         if (null != inVertex && null != inVertex.inEdges) {
-            final Set<Edge> edges = inVertex.inEdges.get(edge.getLabel());
-            if (null != edges)
-                edges.remove(edge);
+            inVertex.removeInEdge(edge.getLabel(), edge);
         }
 
 
@@ -316,10 +451,40 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         }
 
         this.edges.remove(edge.getId().toString());
+        if (null != this.log) {
+            this.log.removeEdge(edge.getId().toString());
+            this.checkpointIfNeeded();
+        }
     }
 
     public GraphQuery query() {
-        return new DefaultGraphQuery(this);
+        return new TinkerGraphQuery(this);
+    }
+
+    /**
+     * The vertices are split into ranges of an array that references each of them.
+     */
+    public List<Iterable<Vertex>> getVertexPartitions(final int partitions) {
+        return partition(this.vertices.values().toArray(new Vertex[this.vertices.size()]), partitions);
+    }
+
+    /**
+     * The edges are split into ranges of an array that references each of them.
+     */
+    public List<Iterable<Edge>> getEdgePartitions(final int partitions) {
+        return partition(this.edges.values().toArray(new Edge[this.edges.size()]), partitions);
+    }
+
+    private static <T> List<Iterable<T>> partition(final T[] elements, final int partitions) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("The number of partitions must be positive: " + partitions);
+        final List<T> list = Arrays.asList(elements);
+        final int size = (elements.length + partitions - 1) / partitions;
+        final List<Iterable<T>> iterables = new ArrayList<Iterable<T>>();
+        for (int i = 0; i < elements.length; i = i + size) {
+            iterables.add(list.subList(i, Math.min(i + size, elements.length)));
+        }
+        return iterables;
     }
 
 
@@ -334,27 +499,125 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         this.vertices.clear();
         this.edges.clear();
         this.indices.clear();
+        this.vertexCentricKeys.clear();
         this.currentId = 0l;
         this.vertexKeyIndex = new TinkerKeyIndex<TinkerVertex>(TinkerVertex.class, this);
         this.edgeKeyIndex = new TinkerKeyIndex<TinkerEdge>(TinkerEdge.class, this);
+        if (null != this.log) {
+            this.log.clear();
+            this.checkpointIfNeeded();
+        }
     }
 
     public void shutdown() {
         if (null != this.directory) {
             try {
-                final File file = new File(this.directory + GRAPH_FILE);
-                if (file.exists()) {
-                    file.delete();
+                // a running compaction writes the snapshot too, and the snapshot written here supersedes it
+                if (null != this.compaction) {
+                    try {
+                        this.compaction.get();
+                    } catch (ExecutionException e) {
+                        // nothing is lost, as the snapshot written here holds the whole graph
+                    } finally {
+                        this.compaction = null;
+                    }
                 }
-                ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(this.directory + GRAPH_FILE));
-                out.writeObject(this);
-                out.close();
+                long checkpoint = 0l;
+                IOException logFailure = null;
+                if (null != this.log) {
+                    checkpoint = this.log.getCheckpoint();
+                    try {
+                        this.log.close();
+                    } catch (IOException e) {
+                        logFailure = e;
+                    }
+                    this.log = null;
+                }
+                TinkerSnapshot.write(this, new File(this.directory + SNAPSHOT_FILE), checkpoint + 1);
+                for (final String name : new String[]{LOG_FILE, COMPACTING_LOG_FILE, GRAPH_FILE}) {
+                    final File file = new File(this.directory + name);
+                    if (file.exists()) {
+                        file.delete();
+                    }
+                }
+                if (null != logFailure)
+                    throw logFailure;
             } catch (Exception e) {
                 throw new RuntimeException(e.getMessage(), e);
             }
         }
     }
 
+    /**
+     * Compact the write-ahead log into a new snapshot once the log outgrows the last snapshot, so that the cost of
+     * writing snapshots is amortized over the mutations that were logged since.
+     * The log is set aside and a new log continues from the next checkpoint, so mutations go on while a background
+     * thread loads the last snapshot and the set aside log into a graph of its own and writes that graph as the
+     * snapshot at the next checkpoint. Compaction thus briefly holds a second copy of the graph in memory.
+     * A crash before the new snapshot is written leaves the set aside log in place, and it is replayed on open before
+     * the log that continues from it. A failed compaction is thrown by the next mutation and retried after that.
+     */
+    void checkpointIfNeeded() {
+        if (null != this.compaction) {
+            if (!this.compaction.isDone())
+                return;
+            this.finishCompaction();
+        }
+        if (this.log.size() <= Math.max(MIN_COMPACTION_SIZE, this.snapshotSize))
+            return;
+        try {
+            final long checkpoint = this.log.getCheckpoint();
+            if (new File(this.directory + COMPACTING_LOG_FILE).exists()) {
+                // the log set aside by a failed compaction is compacted before the log is set aside again
+                this.startCompaction(checkpoint - 1);
+                return;
+            }
+            this.log.close();
+            final File logFile = new File(this.directory + LOG_FILE);
+            if (!logFile.renameTo(new File(this.directory + COMPACTING_LOG_FILE)))
+                throw new IOException("Could not set aside " + logFile);
+            this.log = new TinkerWriteAheadLog(logFile, checkpoint + 1);
+            this.startCompaction(checkpoint);
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void startCompaction(final long checkpoint) {
+        final String directory = this.directory;
+        this.compaction = COMPACTOR.submit(new Callable<Long>() {
+            public Long call() throws Exception {
+                final TinkerGraph graph = new TinkerGraph();
+                final File snapshot = new File(directory + SNAPSHOT_FILE);
+                final File legacy = new File(directory + GRAPH_FILE);
+                TinkerSnapshot.restore(snapshot);
+                if (snapshot.exists())
+                    TinkerSnapshot.read(graph, snapshot);
+                else if (legacy.exists())
+                    TinkerSnapshot.readLegacy(graph, legacy);
+                final File compactingLog = new File(directory + COMPACTING_LOG_FILE);
+                TinkerWriteAheadLog.replay(graph, compactingLog, checkpoint);
+                TinkerSnapshot.write(graph, snapshot, checkpoint + 1);
+                compactingLog.delete();
+                legacy.delete();
+                return snapshot.length();
+            }
+        });
+    }
+
+    private void finishCompaction() {
+        try {
+            this.snapshotSize = this.compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Compacting the TinkerGraph log failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            this.compaction = null;
+        }
+    }
+
     private String getNextId() {
         String idString;
         while (true) {
@@ -366,6 +629,14 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         return idString;
     }
 
+    long getCurrentId() {
+        return this.currentId;
+    }
+
+    void setCurrentId(final long currentId) {
+        this.currentId = currentId;
+    }
+
     public Features getFeatures() {
         if (null == directory)
             return FEATURES;
@@ -373,14 +644,49 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
             return PERSISTENT_FEATURES;
     }
 
+    /**
+     * A manual index of a persistent graph, which appends its mutations to the write-ahead log.
+     */
+    protected class TinkerLoggedIndex<T extends Element> extends TinkerIndex<T> implements Serializable {
+
+        public TinkerLoggedIndex(final String indexName, final Class<T> indexClass) {
+            super(indexName, indexClass);
+        }
+
+        public void put(final String key, final Object value, final T element) {
+            super.put(key, value, element);
+            if (null != log) {
+                log.putIndex(this.indexName, key, value, element.getId().toString());
+                checkpointIfNeeded();
+            }
+        }
+
+        public void remove(final String key, final Object value, final T element) {
+            super.remove(key, value, element);
+            if (null != log) {
+                log.removeIndex(this.indexName, key, value, element.getId().toString());
+                checkpointIfNeeded();
+            }
+        }
+    }
+
     protected class TinkerKeyIndex<T extends TinkerElement> extends TinkerIndex<T> implements Serializable {
 
-        private final Set<String> indexedKeys = new HashSet<String>();
+        private static final long serialVersionUID = -9089393694678720810L;
+
+        private final Set<String> indexedKeys;
+        private final Map<String, TinkerSortedValues<T>> sortedKeys;
         private TinkerGraph graph;
 
         public TinkerKeyIndex(final Class<T> indexClass, final TinkerGraph graph) {
-            super(null, indexClass);
+            this(indexClass, graph, false);
+        }
+
+        public TinkerKeyIndex(final Class<T> indexClass, final TinkerGraph graph, final boolean concurrent) {
+            super(null, indexClass, concurrent);
             this.graph = graph;
+            this.indexedKeys = concurrent ? Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()) : new HashSet<String>();
+            this.sortedKeys = concurrent ? new ConcurrentHashMap<String, TinkerSortedValues<T>>() : new HashMap<String, TinkerSortedValues<T>>();
         }
 
         public void autoUpdate(final String key, final Object newValue, final Object oldValue, final T element) {
@@ -398,9 +704,19 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
         }
 
         public void createKeyIndex(final String key) {
+            this.createKeyIndex(key, false);
+        }
+
+        /**
+         * A sorted key index additionally keeps the values of the key in order, so that elements can be retrieved by
+         * a range of values.
+         */
+        public void createKeyIndex(final String key, final boolean sorted) {
             if (this.indexedKeys.contains(key))
                 return;
 
+            if (sorted)
+                this.sortedKeys.put(key, new TinkerSortedValues<T>(this.isConcurrent()));
             this.indexedKeys.add(key);
 
             if (TinkerVertex.class.equals(this.indexClass)) {
@@ -415,10 +731,34 @@ public class TinkerGraph implements IndexableGraph, KeyIndexableGraph, Serializa
                 return;
 
             this.indexedKeys.remove(key);
+            this.sortedKeys.remove(key);
             this.index.remove(key);
 
         }
 
+        public boolean isSorted(final String key) {
+            return this.sortedKeys.containsKey(key);
+        }
+
+        /**
+         * The elements whose value for the sorted key is in the range, in the order of their values.
+         */
+        public Iterable<T> getRange(final String key, final TinkerSortedValues.Range range) {
+            return this.sortedKeys.get(key).range(range);
+        }
+
+        protected void valueAdded(final String key, final Object value, final Set<T> elements) {
+            final TinkerSortedValues<T> values = this.sortedKeys.get(key);
+            if (null != values)
+                values.put(value, elements);
+        }
+
+        protected void valueRemoved(final String key, final Object value) {
+            final TinkerSortedValues<T> values = this.sortedKeys.get(key);
+            if (null != values)
+                values.remove(value);
+        }
+
         public Set<String> getIndexedKeys() {
             if (null != this.indexedKeys)
                 return new HashSet<String>(this.indexedKeys);
@@ -0,0 +1,40 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+
+/**
+ * A DefaultGraphQuery that retrieves the elements for a range of values from a sorted key index.
+ * A range is only used when no indexed key is compared for equality, as an equality lookup is typically more
+ * selective.
+ */
+class TinkerGraphQuery extends DefaultGraphQuery {
+
+    public TinkerGraphQuery(final TinkerGraph graph) {
+        super(graph);
+    }
+
+    protected Iterable<?> getElementIterable(final Class<? extends Element> elementClass) {
+        final TinkerGraph.TinkerKeyIndex<?> keyIndex = Vertex.class.isAssignableFrom(elementClass) ? ((TinkerGraph) this.graph).vertexKeyIndex : ((TinkerGraph) this.graph).edgeKeyIndex;
+
+        for (final HasContainer hasContainer : this.hasContainers) {
+            if (hasContainer.compare.equals(Compare.EQUAL) && null != hasContainer.value && keyIndex.getIndexedKeys().contains(hasContainer.key))
+                return super.getElementIterable(elementClass);
+        }
+
+        for (final HasContainer hasContainer : this.hasContainers) {
+            if (keyIndex.isSorted(hasContainer.key) && TinkerSortedValues.Range.isRange(hasContainer.compare, hasContainer.value)) {
+                // narrow the range of the key to the tightest bounds of the value class
+                final TinkerSortedValues.Range range = new TinkerSortedValues.Range(hasContainer.value.getClass());
+                for (final HasContainer other : this.hasContainers) {
+                    if (other.key.equals(hasContainer.key))
+                        range.add(other.compare, other.value);
+                }
+                return keyIndex.getRange(hasContainer.key, range);
+            }
+        }
+
+        return super.getElementIterable(elementClass);
+    }
+}
@@ -4,28 +4,51 @@ import com.tinkerpop.blueprints.CloseableIterable;
 import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Index;
 import com.tinkerpop.blueprints.util.StringFactory;
-import com.tinkerpop.blueprints.util.WrappingCloseableIterable;
+import com.tinkerpop.blueprints.util.WrappingCloseableCollection;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
 class TinkerIndex<T extends Element> implements Index<T>, Serializable {
 
-    protected Map<String, Map<Object, Set<T>>> index = new HashMap<String, Map<Object, Set<T>>>();
+    private static final long serialVersionUID = 539822656793902585L;
+
+    private static final int LOCK_STRIPES = 64;
+
+    protected Map<String, Map<Object, Set<T>>> index;
     protected final String indexName;
     protected final Class<T> indexClass;
+    // null unless the index is shared between threads
+    private transient Object[] locks;
 
     public TinkerIndex(final String indexName, final Class<T> indexClass) {
+        this(indexName, indexClass, false);
+    }
+
+    /**
+     * A concurrent index is backed by concurrent maps and sets so that reads never block.
+     * Mutations of the same key/value pair are serialized through a striped lock.
+     */
+    public TinkerIndex(final String indexName, final Class<T> indexClass, final boolean concurrent) {
         this.indexName = indexName;
         this.indexClass = indexClass;
+        if (concurrent) {
+            this.index = new ConcurrentHashMap<String, Map<Object, Set<T>>>();
+            this.locks = createLocks();
+        } else {
+            this.index = new HashMap<String, Map<Object, Set<T>>>();
+            this.locks = null;
+        }
     }
 
     public String getIndexName() {
@@ -37,30 +60,47 @@ class TinkerIndex<T extends Element> implements Index<T>, Serializable {
     }
 
     public void put(final String key, final Object value, final T element) {
+        if (null == this.locks) {
+            this.putUnsafe(key, value, element);
+        } else {
+            synchronized (this.getLock(key, value)) {
+                this.putUnsafe(key, value, element);
+            }
+        }
+    }
+
+    private void putUnsafe(final String key, final Object value, final T element) {
         Map<Object, Set<T>> keyMap = this.index.get(key);
         if (keyMap == null) {
-            keyMap = new HashMap<Object, Set<T>>();
-            this.index.put(key, keyMap);
+            if (null == this.locks) {
+                keyMap = new HashMap<Object, Set<T>>();
+                this.index.put(key, keyMap);
+            } else {
+                keyMap = new ConcurrentHashMap<Object, Set<T>>();
+                final Map<Object, Set<T>> existing = ((ConcurrentMap<String, Map<Object, Set<T>>>) this.index).putIfAbsent(key, keyMap);
+                if (null != existing)
+                    keyMap = existing;
+            }
         }
         Set<T> objects = keyMap.get(value);
         if (null == objects) {
-            objects = new HashSet<T>();
+            objects = null == this.locks ? TinkerCopyOnWriteMap.<T>newSet() : Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
             keyMap.put(value, objects);
+            this.valueAdded(key, value, objects);
         }
         objects.add(element);
-
     }
 
     public CloseableIterable<T> get(final String key, final Object value) {
         final Map<Object, Set<T>> keyMap = this.index.get(key);
         if (null == keyMap) {
-            return new WrappingCloseableIterable<T>((Iterable) Collections.emptyList());
+            return new WrappingCloseableCollection<T>(Collections.<T>emptySet());
         } else {
             Set<T> set = keyMap.get(value);
             if (null == set)
-                return new WrappingCloseableIterable<T>((Iterable) Collections.emptyList());
+                return new WrappingCloseableCollection<T>(Collections.<T>emptySet());
             else
-                return new WrappingCloseableIterable<T>(new ArrayList<T>(set));
+                return new WrappingCloseableCollection<T>(TinkerCopyOnWriteMap.snapshot(set));
         }
     }
 
@@ -82,6 +122,16 @@ class TinkerIndex<T extends Element> implements Index<T>, Serializable {
     }
 
     public void remove(final String key, final Object value, final T element) {
+        if (null == this.locks) {
+            this.removeUnsafe(key, value, element);
+        } else {
+            synchronized (this.getLock(key, value)) {
+                this.removeUnsafe(key, value, element);
+            }
+        }
+    }
+
+    private void removeUnsafe(final String key, final Object value, final T element) {
         final Map<Object, Set<T>> keyMap = this.index.get(key);
         if (null != keyMap) {
             Set<T> objects = keyMap.get(value);
@@ -89,11 +139,30 @@ class TinkerIndex<T extends Element> implements Index<T>, Serializable {
                 objects.remove(element);
                 if (objects.size() == 0) {
                     keyMap.remove(value);
+                    this.valueRemoved(key, value);
                 }
             }
         }
     }
 
+    protected boolean isConcurrent() {
+        return null != this.locks;
+    }
+
+    /**
+     * Called when the first element is indexed by the key/value pair.
+     * For a concurrent index this is called while holding the lock of the key/value pair.
+     */
+    protected void valueAdded(final String key, final Object value, final Set<T> elements) {
+    }
+
+    /**
+     * Called when the last element indexed by the key/value pair is removed.
+     * For a concurrent index this is called while holding the lock of the key/value pair.
+     */
+    protected void valueRemoved(final String key, final Object value) {
+    }
+
     public void removeElement(final T element) {
         if (this.indexClass.isAssignableFrom(element.getClass())) {
             for (Map<Object, Set<T>> map : index.values()) {
@@ -104,6 +173,26 @@ class TinkerIndex<T extends Element> implements Index<T>, Serializable {
         }
     }
 
+    private Object getLock(final String key, final Object value) {
+        final int hash = 31 * key.hashCode() + (null == value ? 0 : value.hashCode());
+        return this.locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static Object[] createLocks() {
+        final Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        // the locks are not serialized, a concurrent index is known by its concurrent map
+        if (this.index instanceof ConcurrentHashMap)
+            this.locks = createLocks();
+    }
+
     public String toString() {
         return StringFactory.indexString(this);
     }
@@ -0,0 +1,597 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Index;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the binary snapshot format of a persistent TinkerGraph.
+ * The snapshot is written and read sequentially through a FileChannel with a direct buffer, so neither
+ * direction goes through Java serialization of the object graph.
+ * <p/>
+ * The layout of a snapshot (all numbers big-endian) is:
+ * <pre>
+ * header:       int magic, int version, long currentId, long checkpoint
+ * string table: int count, (int length, utf-8 bytes)*        -- labels, property keys and index names
+ * key indices:  int count, (int key, byte sorted)* for vertices, then the same for edges
+ * vertex-centric indices: int count, (int label, int key)*
+ * vertices:     long count, (id, properties)*
+ * edges:        long count, (id, out vertex id, in vertex id, int label, properties)*
+ * indices:      int count, (int name, byte class, int keys, (int key, int values, (value, int elements, (id)*)*)*)*
+ * footer:       int magic
+ * </pre>
+ * where an id is a length prefixed utf-8 string, properties are an int count of (int key, value) pairs and a value is a
+ * one byte type tag followed by its primitive encoding (objects of other types are Java serialized).
+ */
+class TinkerSnapshot {
+
+    private static final int MAGIC = 0x54475342;
+    private static final int VERSION = 1;
+
+    static final byte STRING = 0;
+    static final byte INTEGER = 1;
+    static final byte LONG = 2;
+    static final byte FLOAT = 3;
+    static final byte DOUBLE = 4;
+    static final byte BOOLEAN = 5;
+    static final byte SHORT = 6;
+    static final byte BYTE = 7;
+    static final byte SERIALIZED = 8;
+
+    private static final byte VERTEX_INDEX = 0;
+    private static final byte EDGE_INDEX = 1;
+
+    /**
+     * Write the graph to the file.
+     * The snapshot is written to a temporary file that then replaces the file, so a failed write never corrupts an
+     * existing snapshot. The existing snapshot is set aside before the temporary file is renamed to the file and is only
+     * deleted once the rename is synced, so that a crash in between leaves it to be restored by restore().
+     * The checkpoint identifies the write-ahead log that continues from this snapshot.
+     */
+    public static void write(final TinkerGraph graph, final File file, final long checkpoint) throws IOException {
+        final Map<String, Integer> strings = collectStrings(graph);
+        final File temp = new File(file.getPath() + ".tmp");
+        final FileOutputStream stream = new FileOutputStream(temp);
+        try {
+            final SnapshotOutput out = new SnapshotOutput(stream.getChannel());
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(graph.getCurrentId());
+            out.putLong(checkpoint);
+
+            out.putInt(strings.size());
+            for (final String string : strings.keySet()) {
+                out.putString(string);
+            }
+
+            writeKeys(out, graph.vertexKeyIndex, strings);
+            writeKeys(out, graph.edgeKeyIndex, strings);
+
+            out.putInt(graph.vertexCentricKeys.size());
+            for (final Map.Entry<String, String> entry : graph.vertexCentricKeys.entrySet()) {
+                out.putInt(strings.get(entry.getKey()));
+                out.putInt(strings.get(entry.getValue()));
+            }
+
+            out.putLong(graph.vertices.size());
+            for (final Vertex vertex : graph.vertices.values()) {
+                out.putString(((TinkerVertex) vertex).getId());
+                writeProperties(out, ((TinkerElement) vertex).properties, strings);
+            }
+
+            out.putLong(graph.edges.size());
+            for (final Edge edge : graph.edges.values()) {
+                final TinkerEdge tinkerEdge = (TinkerEdge) edge;
+                out.putString(tinkerEdge.getId());
+                out.putString((String) tinkerEdge.getVertex(Direction.OUT).getId());
+                out.putString((String) tinkerEdge.getVertex(Direction.IN).getId());
+                out.putInt(strings.get(tinkerEdge.getLabel()));
+                writeProperties(out, tinkerEdge.properties, strings);
+            }
+
+            out.putInt(graph.indices.size());
+            for (final TinkerIndex index : graph.indices.values()) {
+                writeIndex(out, index, strings);
+            }
+
+            out.putInt(MAGIC);
+            out.flush();
+            stream.getChannel().force(false);
+        } finally {
+            stream.close();
+        }
+
+        final File previous = new File(file.getPath() + ".old");
+        if (file.exists()) {
+            if (previous.exists() && !previous.delete())
+                throw new IOException("Could not delete " + previous);
+            if (!file.renameTo(previous))
+                throw new IOException("Could not set aside " + file);
+        }
+        if (!temp.renameTo(file)) {
+            previous.renameTo(file);
+            throw new IOException("Could not rename " + temp + " to " + file);
+        }
+        syncDirectory(file.getAbsoluteFile().getParentFile());
+        previous.delete();
+    }
+
+    /**
+     * Restore the snapshot that write() set aside if a crash kept the new snapshot from taking its place, and delete it
+     * otherwise. This is to be called before the file is read.
+     */
+    public static void restore(final File file) throws IOException {
+        final File previous = new File(file.getPath() + ".old");
+        if (!previous.exists())
+            return;
+        if (file.exists()) {
+            previous.delete();
+        } else if (!previous.renameTo(file)) {
+            throw new IOException("Could not restore " + previous);
+        }
+    }
+
+    /**
+     * Sync the directory, so that the renames in it survive a crash.
+     * A directory can only be opened through java.nio.file, which is looked up at runtime as this code is compiled for
+     * Java 6, and platforms that do not open directories, like Windows, are skipped.
+     */
+    private static void syncDirectory(final File directory) throws IOException {
+        final FileChannel channel;
+        try {
+            final Class pathClass = Class.forName("java.nio.file.Path");
+            final Class openOptionClass = Class.forName("java.nio.file.OpenOption");
+            final Object options = Array.newInstance(openOptionClass, 1);
+            Array.set(options, 0, Enum.valueOf((Class) Class.forName("java.nio.file.StandardOpenOption"), "READ"));
+            final Object path = File.class.getMethod("toPath").invoke(directory);
+            channel = (FileChannel) FileChannel.class.getMethod("open", pathClass, options.getClass()).invoke(null, path, options);
+        } catch (Exception e) {
+            // java.nio.file is missing or the directory can not be opened
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read the snapshot into an empty graph.
+     *
+     * @return the checkpoint the snapshot was written at
+     */
+    public static long read(final TinkerGraph graph, final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final SnapshotInput in = new SnapshotInput(randomAccessFile.getChannel());
+            if (in.getInt() != MAGIC)
+                throw new IOException("Not a TinkerGraph snapshot: " + file);
+            final int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported TinkerGraph snapshot version: " + version);
+            graph.setCurrentId(in.getLong());
+            final long checkpoint = in.getLong();
+
+            final String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.getString();
+            }
+
+            readKeys(in, graph.vertexKeyIndex, strings);
+            readKeys(in, graph.edgeKeyIndex, strings);
+            for (int i = in.getInt(); i > 0; i--) {
+                graph.vertexCentricKeys.put(strings[in.getInt()], strings[in.getInt()]);
+            }
+
+            for (long i = in.getLong(); i > 0; i--) {
+                final TinkerVertex vertex = new TinkerVertex(in.getString(), graph);
+                readProperties(in, vertex, strings);
+                graph.vertices.put(vertex.getId(), vertex);
+            }
+
+            for (long i = in.getLong(); i > 0; i--) {
+                final String id = in.getString();
+                final TinkerVertex outVertex = (TinkerVertex) graph.vertices.get(in.getString());
+                final TinkerVertex inVertex = (TinkerVertex) graph.vertices.get(in.getString());
+                final String label = strings[in.getInt()];
+                final TinkerEdge edge = new TinkerEdge(id, outVertex, inVertex, label, graph);
+                readProperties(in, edge, strings);
+                graph.edges.put(id, edge);
+                outVertex.addOutEdge(label, edge);
+                inVertex.addInEdge(label, edge);
+            }
+
+            for (int i = in.getInt(); i > 0; i--) {
+                final String indexName = strings[in.getInt()];
+                final boolean forVertex = in.getByte() == VERTEX_INDEX;
+                final Class<? extends Element> indexClass = forVertex ? Vertex.class : Edge.class;
+                final Index index = graph.createIndex(indexName, indexClass);
+                for (int j = in.getInt(); j > 0; j--) {
+                    final String key = strings[in.getInt()];
+                    for (int k = in.getInt(); k > 0; k--) {
+                        final Object value = in.getValue();
+                        for (int l = in.getInt(); l > 0; l--) {
+                            final String id = in.getString();
+                            final Element element = forVertex ? graph.vertices.get(id) : graph.edges.get(id);
+                            if (null != element)
+                                index.put(key, value, element);
+                        }
+                    }
+                }
+            }
+
+            if (in.getInt() != MAGIC)
+                throw new IOException("Truncated TinkerGraph snapshot: " + file);
+            return checkpoint;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Read a graph that was persisted with Java serialization by previous versions into an empty graph.
+     * The elements of the deserialized graph refer to the deserialized graph instance, so they are re-created as
+     * elements of the graph being loaded.
+     */
+    public static void readLegacy(final TinkerGraph graph, final File file) throws IOException {
+        final ObjectInputStream input = new ObjectInputStream(new FileInputStream(file));
+        final TinkerGraph temp;
+        try {
+            temp = (TinkerGraph) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            input.close();
+        }
+
+        graph.setCurrentId(temp.getCurrentId());
+        for (final String key : temp.vertexKeyIndex.getIndexedKeys()) {
+            graph.vertexKeyIndex.createKeyIndex(key);
+        }
+        for (final String key : temp.edgeKeyIndex.getIndexedKeys()) {
+            graph.edgeKeyIndex.createKeyIndex(key);
+        }
+
+        for (final Vertex vertex : temp.vertices.values()) {
+            final TinkerVertex copy = new TinkerVertex(((TinkerVertex) vertex).getId(), graph);
+            copyProperties((TinkerElement) vertex, copy);
+            graph.vertices.put(copy.getId(), copy);
+        }
+        for (final Edge edge : temp.edges.values()) {
+            final TinkerEdge tinkerEdge = (TinkerEdge) edge;
+            final TinkerVertex outVertex = (TinkerVertex) graph.vertices.get(tinkerEdge.getVertex(Direction.OUT).getId());
+            final TinkerVertex inVertex = (TinkerVertex) graph.vertices.get(tinkerEdge.getVertex(Direction.IN).getId());
+            final TinkerEdge copy = new TinkerEdge(tinkerEdge.getId(), outVertex, inVertex, tinkerEdge.getLabel(), graph);
+            copyProperties(tinkerEdge, copy);
+            graph.edges.put(copy.getId(), copy);
+            outVertex.addOutEdge(copy.getLabel(), copy);
+            inVertex.addInEdge(copy.getLabel(), copy);
+        }
+
+        for (final TinkerIndex<?> index : temp.indices.values()) {
+            final boolean forVertex = Vertex.class.isAssignableFrom(index.getIndexClass());
+            final Class<? extends Element> indexClass = forVertex ? Vertex.class : Edge.class;
+            final Index copy = graph.createIndex(index.getIndexName(), indexClass);
+            for (final Map.Entry<String, ? extends Map<Object, ? extends Set<? extends Element>>> keyEntry : index.index.entrySet()) {
+                for (final Map.Entry<Object, ? extends Set<? extends Element>> valueEntry : keyEntry.getValue().entrySet()) {
+                    for (final Element element : valueEntry.getValue()) {
+                        final Element target = forVertex ? graph.vertices.get(element.getId()) : graph.edges.get(element.getId());
+                        if (null != target)
+                            copy.put(keyEntry.getKey(), valueEntry.getKey(), target);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void copyProperties(final TinkerElement from, final TinkerElement to) {
+        for (final Map.Entry<String, Object> entry : from.properties.entrySet()) {
+            to.properties.put(entry.getKey(), entry.getValue());
+            if (to instanceof TinkerVertex)
+                to.graph.vertexKeyIndex.autoUpdate(entry.getKey(), entry.getValue(), null, (TinkerVertex) to);
+            else
+                to.graph.edgeKeyIndex.autoUpdate(entry.getKey(), entry.getValue(), null, (TinkerEdge) to);
+        }
+    }
+
+    private static Map<String, Integer> collectStrings(final TinkerGraph graph) {
+        final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        for (final String key : graph.vertexKeyIndex.getIndexedKeys()) {
+            intern(strings, key);
+        }
+        for (final String key : graph.edgeKeyIndex.getIndexedKeys()) {
+            intern(strings, key);
+        }
+        for (final Map.Entry<String, String> entry : graph.vertexCentricKeys.entrySet()) {
+            intern(strings, entry.getKey());
+            intern(strings, entry.getValue());
+        }
+        for (final Vertex vertex : graph.vertices.values()) {
+            for (final String key : ((TinkerElement) vertex).properties.keySet()) {
+                intern(strings, key);
+            }
+        }
+        for (final Edge edge : graph.edges.values()) {
+            intern(strings, edge.getLabel());
+            for (final String key : ((TinkerElement) edge).properties.keySet()) {
+                intern(strings, key);
+            }
+        }
+        for (final TinkerIndex<?> index : graph.indices.values()) {
+            intern(strings, index.getIndexName());
+            for (final String key : index.index.keySet()) {
+                intern(strings, key);
+            }
+        }
+        return strings;
+    }
+
+    private static void intern(final Map<String, Integer> strings, final String string) {
+        if (!strings.containsKey(string))
+            strings.put(string, strings.size());
+    }
+
+    private static <T extends Element> void writeIndex(final SnapshotOutput out, final TinkerIndex<T> index, final Map<String, Integer> strings) throws IOException {
+        out.putInt(strings.get(index.getIndexName()));
+        out.putByte(Vertex.class.isAssignableFrom(index.getIndexClass()) ? VERTEX_INDEX : EDGE_INDEX);
+        out.putInt(index.index.size());
+        for (final Map.Entry<String, Map<Object, Set<T>>> keyEntry : index.index.entrySet()) {
+            out.putInt(strings.get(keyEntry.getKey()));
+            out.putInt(keyEntry.getValue().size());
+            for (final Map.Entry<Object, Set<T>> valueEntry : keyEntry.getValue().entrySet()) {
+                out.putValue(valueEntry.getKey());
+                final List<T> elements = new ArrayList<T>(valueEntry.getValue());
+                out.putInt(elements.size());
+                for (final T element : elements) {
+                    out.putString(element.getId().toString());
+                }
+            }
+        }
+    }
+
+    private static void writeKeys(final SnapshotOutput out, final TinkerGraph.TinkerKeyIndex<?> keyIndex, final Map<String, Integer> strings) throws IOException {
+        final Set<String> keys = keyIndex.getIndexedKeys();
+        out.putInt(keys.size());
+        for (final String key : keys) {
+            out.putInt(strings.get(key));
+            out.putByte((byte) (keyIndex.isSorted(key) ? 1 : 0));
+        }
+    }
+
+    private static void readKeys(final SnapshotInput in, final TinkerGraph.TinkerKeyIndex<?> keyIndex, final String[] strings) throws IOException {
+        for (int i = in.getInt(); i > 0; i--) {
+            final String key = strings[in.getInt()];
+            keyIndex.createKeyIndex(key, in.getByte() == 1);
+        }
+    }
+
+    private static void writeProperties(final SnapshotOutput out, final Map<String, Object> properties, final Map<String, Integer> strings) throws IOException {
+        out.putInt(properties.size());
+        for (final Map.Entry<String, Object> entry : properties.entrySet()) {
+            out.putInt(strings.get(entry.getKey()));
+            out.putValue(entry.getValue());
+        }
+    }
+
+    private static void readProperties(final SnapshotInput in, final TinkerElement element, final String[] strings) throws IOException {
+        final int count = in.getInt();
+        if (count == 0)
+            return;
+        final boolean isVertex = element instanceof TinkerVertex;
+        final Map<String, Object> properties = new HashMap<String, Object>(count * 2);
+        for (int i = 0; i < count; i++) {
+            final String key = strings[in.getInt()];
+            final Object value = in.getValue();
+            properties.put(key, value);
+            if (isVertex)
+                element.graph.vertexKeyIndex.autoUpdate(key, value, null, (TinkerVertex) element);
+            else
+                element.graph.edgeKeyIndex.autoUpdate(key, value, null, (TinkerEdge) element);
+        }
+        element.properties = properties;
+    }
+
+    /**
+     * Buffers writes to a channel.
+     */
+    private static class SnapshotOutput {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+        public SnapshotOutput(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public void putByte(final byte value) throws IOException {
+            this.ensure(1);
+            this.buffer.put(value);
+        }
+
+        public void putInt(final int value) throws IOException {
+            this.ensure(4);
+            this.buffer.putInt(value);
+        }
+
+        public void putLong(final long value) throws IOException {
+            this.ensure(8);
+            this.buffer.putLong(value);
+        }
+
+        public void putBytes(final byte[] bytes) throws IOException {
+            this.putInt(bytes.length);
+            if (bytes.length <= this.buffer.remaining()) {
+                this.buffer.put(bytes);
+            } else {
+                this.flush();
+                final ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    this.channel.write(wrapped);
+                }
+            }
+        }
+
+        public void putString(final String string) throws IOException {
+            this.putBytes(string.getBytes("UTF-8"));
+        }
+
+        public void putValue(final Object value) throws IOException {
+            if (value instanceof String) {
+                this.putByte(STRING);
+                this.putString((String) value);
+            } else if (value instanceof Integer) {
+                this.putByte(INTEGER);
+                this.putInt((Integer) value);
+            } else if (value instanceof Long) {
+                this.putByte(LONG);
+                this.putLong((Long) value);
+            } else if (value instanceof Float) {
+                this.putByte(FLOAT);
+                this.putInt(Float.floatToRawIntBits((Float) value));
+            } else if (value instanceof Double) {
+                this.putByte(DOUBLE);
+                this.putLong(Double.doubleToRawLongBits((Double) value));
+            } else if (value instanceof Boolean) {
+                this.putByte(BOOLEAN);
+                this.putByte((byte) ((Boolean) value ? 1 : 0));
+            } else if (value instanceof Short) {
+                this.putByte(SHORT);
+                this.putInt((Short) value);
+            } else if (value instanceof Byte) {
+                this.putByte(BYTE);
+                this.putByte((Byte) value);
+            } else {
+                this.putByte(SERIALIZED);
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                final ObjectOutputStream stream = new ObjectOutputStream(bytes);
+                stream.writeObject(value);
+                stream.close();
+                this.putBytes(bytes.toByteArray());
+            }
+        }
+
+        public void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        private void ensure(final int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes)
+                this.flush();
+        }
+    }
+
+    /**
+     * Buffers reads from a channel.
+     */
+    private static class SnapshotInput {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+        public SnapshotInput(final FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer.flip();
+        }
+
+        public byte getByte() throws IOException {
+            this.ensure(1);
+            return this.buffer.get();
+        }
+
+        public int getInt() throws IOException {
+            this.ensure(4);
+            return this.buffer.getInt();
+        }
+
+        public long getLong() throws IOException {
+            this.ensure(8);
+            return this.buffer.getLong();
+        }
+
+        public byte[] getBytes() throws IOException {
+            final byte[] bytes = new byte[this.getInt()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                this.ensure(1);
+                final int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+                this.buffer.get(bytes, offset, length);
+                offset = offset + length;
+            }
+            return bytes;
+        }
+
+        public String getString() throws IOException {
+            return new String(this.getBytes(), "UTF-8");
+        }
+
+        public Object getValue() throws IOException {
+            final byte type = this.getByte();
+            switch (type) {
+                case STRING:
+                    return this.getString();
+                case INTEGER:
+                    return this.getInt();
+                case LONG:
+                    return this.getLong();
+                case FLOAT:
+                    return Float.intBitsToFloat(this.getInt());
+                case DOUBLE:
+                    return Double.longBitsToDouble(this.getLong());
+                case BOOLEAN:
+                    return this.getByte() == 1;
+                case SHORT:
+                    return (short) this.getInt();
+                case BYTE:
+                    return this.getByte();
+                case SERIALIZED:
+                    final ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(this.getBytes()));
+                    try {
+                        return stream.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e.getMessage(), e);
+                    } finally {
+                        stream.close();
+                    }
+                default:
+                    throw new IOException("Unknown value type in TinkerGraph snapshot: " + type);
+            }
+        }
+
+        private void ensure(final int bytes) throws IOException {
+            if (this.buffer.remaining() >= bytes)
+                return;
+            this.buffer.compact();
+            while (this.buffer.position() < bytes) {
+                if (this.channel.read(this.buffer) < 0)
+                    throw new IOException("Unexpected end of TinkerGraph snapshot");
+            }
+            this.buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Query;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The values of a sorted key index in order, each with the set of elements that have the value.
+ * Values are ordered by class and then by their natural order, so a range only ever covers values of one class, just
+ * as values of different classes are not comparable when a query filters elements.
+ * Values that are not Comparable can not be part of a range and are not kept.
+ * <p/>
+ * A range is iterated by repeatedly seeking the value after the last one returned, so elements can be indexed and
+ * removed while a range is iterated.
+ */
+class TinkerSortedValues<T> implements Serializable {
+
+    private static final Comparator<Object> ORDER = new ValueComparator();
+
+    private final NavigableMap<Object, Set<T>> values;
+    private final boolean concurrent;
+
+    public TinkerSortedValues(final boolean concurrent) {
+        this.values = concurrent ? new ConcurrentSkipListMap<Object, Set<T>>(ORDER) : new TreeMap<Object, Set<T>>(ORDER);
+        this.concurrent = concurrent;
+    }
+
+    public void put(final Object value, final Set<T> elements) {
+        if (value instanceof Comparable)
+            this.values.put(value, elements);
+    }
+
+    public void remove(final Object value) {
+        if (value instanceof Comparable)
+            this.values.remove(value);
+    }
+
+    /**
+     * Add the element to the set of elements with the value.
+     */
+    public void add(final Object value, final T element) {
+        if (!(value instanceof Comparable))
+            return;
+        Set<T> elements = this.values.get(value);
+        if (null == elements) {
+            elements = this.concurrent ? Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>()) : TinkerCopyOnWriteMap.<T>newSet();
+            this.values.put(value, elements);
+        }
+        elements.add(element);
+    }
+
+    /**
+     * Remove the element from the set of elements with the value.
+     */
+    public void remove(final Object value, final T element) {
+        if (!(value instanceof Comparable))
+            return;
+        final Set<T> elements = this.values.get(value);
+        if (null != elements) {
+            elements.remove(element);
+            if (elements.isEmpty())
+                this.values.remove(value);
+        }
+    }
+
+    public Iterable<T> range(final Range range) {
+        return this.range(range.lower, range.lowerInclusive, range.upper, range.upperInclusive);
+    }
+
+    /**
+     * The elements with a value between the bounds, in the order of their values.
+     * A null bound leaves the range open on that side, but at least one bound must be given.
+     */
+    public Iterable<T> range(final Object lower, final boolean lowerInclusive, final Object upper, final boolean upperInclusive) {
+        final Object from = null == lower ? new ClassBound(upper.getClass(), -1) : lower;
+        final Object to = null == upper ? new ClassBound(lower.getClass(), 1) : upper;
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return new RangeIterator(from, lowerInclusive, to, upperInclusive);
+            }
+        };
+    }
+
+    /**
+     * The tightest range of values of one class that satisfies a number of comparisons.
+     */
+    public static class Range {
+
+        private final Class valueClass;
+        private Comparable lower = null;
+        private Comparable upper = null;
+        private boolean lowerInclusive = false;
+        private boolean upperInclusive = false;
+
+        public Range(final Class valueClass) {
+            this.valueClass = valueClass;
+        }
+
+        /**
+         * Whether the comparison can narrow a range.
+         */
+        public static boolean isRange(final Query.Compare compare, final Object value) {
+            return value instanceof Comparable && !compare.equals(Query.Compare.NOT_EQUAL);
+        }
+
+        /**
+         * Narrow the range by the comparison, if the value is of the class of the range.
+         */
+        public void add(final Query.Compare compare, final Object value) {
+            if (!isRange(compare, value) || !value.getClass().equals(this.valueClass))
+                return;
+            switch (compare) {
+                case EQUAL:
+                    this.lower(value, true);
+                    this.upper(value, true);
+                    break;
+                case GREATER_THAN:
+                case GREATER_THAN_EQUAL:
+                    this.lower(value, compare.equals(Query.Compare.GREATER_THAN_EQUAL));
+                    break;
+                default:
+                    this.upper(value, compare.equals(Query.Compare.LESS_THAN_EQUAL));
+                    break;
+            }
+        }
+
+        private void lower(final Object value, final boolean inclusive) {
+            final int compare = null == this.lower ? 1 : ((Comparable) value).compareTo(this.lower);
+            if (compare > 0 || (compare == 0 && !inclusive)) {
+                this.lower = (Comparable) value;
+                this.lowerInclusive = inclusive;
+            }
+        }
+
+        private void upper(final Object value, final boolean inclusive) {
+            final int compare = null == this.upper ? -1 : ((Comparable) value).compareTo(this.upper);
+            if (compare < 0 || (compare == 0 && !inclusive)) {
+                this.upper = (Comparable) value;
+                this.upperInclusive = inclusive;
+            }
+        }
+    }
+
+    private class RangeIterator implements Iterator<T> {
+
+        private final Object upper;
+        private final boolean upperInclusive;
+        private Map.Entry<Object, Set<T>> entry;
+        private Iterator<T> elements = Collections.<T>emptySet().iterator();
+
+        public RangeIterator(final Object lower, final boolean lowerInclusive, final Object upper, final boolean upperInclusive) {
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+            this.entry = this.bounded(lowerInclusive ? values.ceilingEntry(lower) : values.higherEntry(lower));
+        }
+
+        public boolean hasNext() {
+            while (!this.elements.hasNext()) {
+                if (null == this.entry)
+                    return false;
+                this.elements = this.entry.getValue().iterator();
+                this.entry = this.bounded(values.higherEntry(this.entry.getKey()));
+            }
+            return true;
+        }
+
+        public T next() {
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+            return this.elements.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private Map.Entry<Object, Set<T>> bounded(final Map.Entry<Object, Set<T>> entry) {
+            if (null == entry)
+                return null;
+            final int compare = ORDER.compare(entry.getKey(), this.upper);
+            return compare < 0 || (compare == 0 && this.upperInclusive) ? entry : null;
+        }
+    }
+
+    /**
+     * Sorts before (rank -1) or after (rank 1) every value of its class.
+     */
+    private static class ClassBound {
+
+        private final Class valueClass;
+        private final int rank;
+
+        public ClassBound(final Class valueClass, final int rank) {
+            this.valueClass = valueClass;
+            this.rank = rank;
+        }
+    }
+
+    private static class ValueComparator implements Comparator<Object>, Serializable {
+
+        public int compare(final Object a, final Object b) {
+            final int classCompare = className(a).compareTo(className(b));
+            if (classCompare != 0)
+                return classCompare;
+            if (a instanceof ClassBound)
+                return b instanceof ClassBound ? ((ClassBound) a).rank - ((ClassBound) b).rank : ((ClassBound) a).rank;
+            if (b instanceof ClassBound)
+                return -((ClassBound) b).rank;
+            return ((Comparable) a).compareTo(b);
+        }
+
+        private static String className(final Object value) {
+            return value instanceof ClassBound ? ((ClassBound) value).valueClass.getName() : value.getClass().getName();
+        }
+    }
+}
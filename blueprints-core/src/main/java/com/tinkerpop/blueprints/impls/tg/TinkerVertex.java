@@ -4,7 +4,6 @@ import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.VertexQuery;
 import com.tinkerpop.blueprints.Vertex;
-import com.tinkerpop.blueprints.util.DefaultVertexQuery;
 import com.tinkerpop.blueprints.util.MultiIterable;
 import com.tinkerpop.blueprints.util.StringFactory;
 import com.tinkerpop.blueprints.util.VerticesFromEdgesIterable;
@@ -25,8 +24,13 @@ import java.util.Set;
  */
 class TinkerVertex extends TinkerElement implements Vertex, Serializable {
 
+    private static final long serialVersionUID = 984195784027264303L;
+
     protected Map<String, Set<Edge>> outEdges = new HashMap<String, Set<Edge>>();
     protected Map<String, Set<Edge>> inEdges = new HashMap<String, Set<Edge>>();
+    // the edges of labels with a vertex-centric index, sorted by the value of the key of the index
+    protected Map<String, TinkerSortedValues<Edge>> sortedOutEdges = null;
+    protected Map<String, TinkerSortedValues<Edge>> sortedInEdges = null;
 
     protected TinkerVertex(final String id, final TinkerGraph graph) {
         super(id, graph);
@@ -99,7 +103,81 @@ class TinkerVertex extends TinkerElement implements Vertex, Serializable {
     }
 
     public VertexQuery query() {
-        return new DefaultVertexQuery(this);
+        return new TinkerVertexQuery(this);
+    }
+
+    /**
+     * The edges with the label whose value for the key of the vertex-centric index of the label is in the range.
+     */
+    protected Iterable<Edge> getSortedEdges(final Direction direction, final String label, final TinkerSortedValues.Range range) {
+        if (direction.equals(Direction.BOTH)) {
+            return new MultiIterable<Edge>(Arrays.asList(this.getSortedEdges(Direction.IN, label, range), this.getSortedEdges(Direction.OUT, label, range)));
+        }
+        final Map<String, TinkerSortedValues<Edge>> sortedEdges = direction.equals(Direction.OUT) ? this.sortedOutEdges : this.sortedInEdges;
+        final TinkerSortedValues<Edge> edges = null == sortedEdges ? null : sortedEdges.get(label);
+        if (null == edges)
+            return Collections.emptyList();
+        return edges.range(range);
+    }
+
+    /**
+     * The number of edges, without iterating them.
+     */
+    protected long countEdges(final Direction direction, final String... labels) {
+        if (direction.equals(Direction.BOTH))
+            return this.countEdges(Direction.IN, labels) + this.countEdges(Direction.OUT, labels);
+        final Map<String, Set<Edge>> edges = direction.equals(Direction.OUT) ? this.outEdges : this.inEdges;
+        long count = 0;
+        if (labels.length == 0) {
+            for (final Set<Edge> set : edges.values()) {
+                count = count + set.size();
+            }
+        } else {
+            for (final String label : labels) {
+                final Set<Edge> set = edges.get(label);
+                if (null != set)
+                    count = count + set.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Move the edge in the vertex-centric index of its label from the old to the new value of the key of the index.
+     * A null value means that the edge is not indexed under a value.
+     */
+    protected void sortEdge(final Direction direction, final TinkerEdge edge, final Object oldValue, final Object newValue) {
+        Map<String, TinkerSortedValues<Edge>> sortedEdges = direction.equals(Direction.OUT) ? this.sortedOutEdges : this.sortedInEdges;
+        if (null == sortedEdges) {
+            if (null == newValue)
+                return;
+            sortedEdges = new HashMap<String, TinkerSortedValues<Edge>>();
+            if (direction.equals(Direction.OUT))
+                this.sortedOutEdges = sortedEdges;
+            else
+                this.sortedInEdges = sortedEdges;
+        }
+        TinkerSortedValues<Edge> edges = sortedEdges.get(edge.getLabel());
+        if (null == edges) {
+            if (null == newValue)
+                return;
+            edges = new TinkerSortedValues<Edge>(false);
+            sortedEdges.put(edge.getLabel(), edges);
+        }
+        if (null != oldValue)
+            edges.remove(oldValue, edge);
+        if (null != newValue)
+            edges.add(newValue, edge);
+    }
+
+    /**
+     * Drop the vertex-centric index of the label.
+     */
+    protected void unsortEdges(final String label) {
+        if (null != this.sortedOutEdges)
+            this.sortedOutEdges.remove(label);
+        if (null != this.sortedInEdges)
+            this.sortedInEdges.remove(label);
     }
 
     public String toString() {
@@ -117,6 +195,7 @@ class TinkerVertex extends TinkerElement implements Vertex, Serializable {
             this.outEdges.put(label, edges);
         }
         edges.add(edge);
+        this.sortEdge(Direction.OUT, (TinkerEdge) edge, null, ((TinkerEdge) edge).getSortValue());
     }
 
     protected void addInEdge(final String label, final Edge edge) {
@@ -126,5 +205,20 @@ class TinkerVertex extends TinkerElement implements Vertex, Serializable {
             this.inEdges.put(label, edges);
         }
         edges.add(edge);
+        this.sortEdge(Direction.IN, (TinkerEdge) edge, null, ((TinkerEdge) edge).getSortValue());
+    }
+
+    protected void removeOutEdge(final String label, final Edge edge) {
+        final Set<Edge> edges = this.outEdges.get(label);
+        if (null != edges)
+            edges.remove(edge);
+        this.sortEdge(Direction.OUT, (TinkerEdge) edge, ((TinkerEdge) edge).getSortValue(), null);
+    }
+
+    protected void removeInEdge(final String label, final Edge edge) {
+        final Set<Edge> edges = this.inEdges.get(label);
+        if (null != edges)
+            edges.remove(edge);
+        this.sortEdge(Direction.IN, (TinkerEdge) edge, ((TinkerEdge) edge).getSortValue(), null);
     }
 }
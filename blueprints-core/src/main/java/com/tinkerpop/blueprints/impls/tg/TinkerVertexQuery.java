@@ -0,0 +1,40 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.util.DefaultVertexQuery;
+
+/**
+ * A DefaultVertexQuery that retrieves the edges of a label with a vertex-centric index by the range of values that the
+ * query compares the key of the index to, and counts edges without iterating them when there is nothing to filter.
+ */
+class TinkerVertexQuery extends DefaultVertexQuery {
+
+    public TinkerVertexQuery(final TinkerVertex vertex) {
+        super(vertex);
+    }
+
+    protected Iterable<Edge> getEdgeIterable() {
+        if (this.labels.length == 1) {
+            final String key = ((TinkerVertex) this.vertex).graph.getVertexCentricKey(this.labels[0]);
+            if (null != key) {
+                for (final HasContainer hasContainer : this.hasContainers) {
+                    if (hasContainer.key.equals(key) && TinkerSortedValues.Range.isRange(hasContainer.compare, hasContainer.value)) {
+                        final TinkerSortedValues.Range range = new TinkerSortedValues.Range(hasContainer.value.getClass());
+                        for (final HasContainer other : this.hasContainers) {
+                            if (other.key.equals(key))
+                                range.add(other.compare, other.value);
+                        }
+                        return ((TinkerVertex) this.vertex).getSortedEdges(this.direction, this.labels[0], range);
+                    }
+                }
+            }
+        }
+        return super.getEdgeIterable();
+    }
+
+    public long count() {
+        if (this.hasContainers.isEmpty())
+            return Math.min(this.limit, ((TinkerVertex) this.vertex).countEdges(this.direction, this.labels));
+        return super.count();
+    }
+}
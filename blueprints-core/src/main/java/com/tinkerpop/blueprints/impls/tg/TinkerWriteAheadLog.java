@@ -0,0 +1,647 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the mutations of a persistent TinkerGraph since its last snapshot.
+ * Mutations are buffered and group committed: the buffer is written and forced to disk every SYNC_INTERVAL
+ * milliseconds by a background thread, or as soon as it holds BATCH_SIZE bytes.
+ * <p/>
+ * A failure of the background thread is kept and thrown by the next mutation or by close, and the records it could not
+ * write stay buffered so that the next sync writes them again from the end of the last record that was written.
+ * <p/>
+ * The log starts with a header (int magic, long checkpoint) which ties it to the snapshot it continues from.
+ * Each record is framed as (int length, int crc32, payload) so that a record torn by a crash is detected and
+ * discarded on replay. Strings in a payload are written as an int length and their UTF-8 bytes.
+ */
+class TinkerWriteAheadLog {
+
+    private static final int MAGIC = 0x5447574C;
+    private static final int HEADER_SIZE = 12;
+    private static final int BATCH_SIZE = 1 << 20;
+    private static final long SYNC_INTERVAL = 100l;
+
+    private static final byte ADD_VERTEX = 0;
+    private static final byte ADD_EDGE = 1;
+    private static final byte REMOVE_VERTEX = 2;
+    private static final byte REMOVE_EDGE = 3;
+    private static final byte SET_PROPERTY = 4;
+    private static final byte REMOVE_PROPERTY = 5;
+    private static final byte CREATE_KEY_INDEX = 6;
+    private static final byte DROP_KEY_INDEX = 7;
+    private static final byte CREATE_INDEX = 8;
+    private static final byte DROP_INDEX = 9;
+    private static final byte INDEX_PUT = 10;
+    private static final byte INDEX_REMOVE = 11;
+    private static final byte CLEAR = 12;
+    private static final byte CREATE_VERTEX_CENTRIC_INDEX = 13;
+    private static final byte DROP_VERTEX_CENTRIC_INDEX = 14;
+
+    private static final ScheduledExecutorService SYNCHRONIZER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "tinkergraph-log-sync");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final long checkpoint;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ScheduledFuture<?> synchronizer;
+
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOutput = new DataOutputStream(this.record);
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOutput = new DataOutputStream(this.pending);
+    private long written;
+    private boolean dirty = false;
+    private volatile IOException failure = null;
+
+    /**
+     * Open the log for appending.
+     * The log is started anew unless it continues from the checkpoint, in which case it is appended to after its last
+     * valid record.
+     */
+    public TinkerWriteAheadLog(final File file, final long checkpoint) throws IOException {
+        this.checkpoint = checkpoint;
+        final long length = validLength(file, checkpoint);
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        if (length < HEADER_SIZE) {
+            this.file.setLength(0l);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putLong(checkpoint).flip();
+            while (header.hasRemaining()) {
+                this.channel.write(header, header.position());
+            }
+            this.written = HEADER_SIZE;
+        } else {
+            this.file.setLength(length);
+            this.written = length;
+        }
+        this.channel.position(this.written);
+        this.channel.force(false);
+        this.synchronizer = SYNCHRONIZER.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    sync();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }, SYNC_INTERVAL, SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public long getCheckpoint() {
+        return this.checkpoint;
+    }
+
+    /**
+     * The number of bytes in the log, including those not yet written.
+     */
+    public synchronized long size() {
+        return this.written + this.pending.size();
+    }
+
+    public void addVertex(final String id, final long currentId) {
+        try {
+            synchronized (this) {
+                this.beginRecord(ADD_VERTEX);
+                writeString(this.recordOutput, id);
+                this.recordOutput.writeLong(currentId);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public void addEdge(final String id, final String outId, final String inId, final String label, final long currentId) {
+        try {
+            synchronized (this) {
+                this.beginRecord(ADD_EDGE);
+                writeString(this.recordOutput, id);
+                writeString(this.recordOutput, outId);
+                writeString(this.recordOutput, inId);
+                writeString(this.recordOutput, label);
+                this.recordOutput.writeLong(currentId);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public void removeVertex(final String id) {
+        this.append(REMOVE_VERTEX, id);
+    }
+
+    public void removeEdge(final String id) {
+        this.append(REMOVE_EDGE, id);
+    }
+
+    public void setProperty(final boolean vertex, final String id, final String key, final Object value) {
+        try {
+            synchronized (this) {
+                this.beginRecord(SET_PROPERTY);
+                this.recordOutput.writeBoolean(vertex);
+                writeString(this.recordOutput, id);
+                writeString(this.recordOutput, key);
+                writeValue(this.recordOutput, value);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public void removeProperty(final boolean vertex, final String id, final String key) {
+        try {
+            synchronized (this) {
+                this.beginRecord(REMOVE_PROPERTY);
+                this.recordOutput.writeBoolean(vertex);
+                writeString(this.recordOutput, id);
+                writeString(this.recordOutput, key);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public void createKeyIndex(final boolean vertex, final String key, final boolean sorted) {
+        try {
+            synchronized (this) {
+                this.beginRecord(CREATE_KEY_INDEX);
+                this.recordOutput.writeBoolean(vertex);
+                writeString(this.recordOutput, key);
+                this.recordOutput.writeBoolean(sorted);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public void dropKeyIndex(final boolean vertex, final String key) {
+        this.append(DROP_KEY_INDEX, vertex, key);
+    }
+
+    public void createIndex(final String indexName, final boolean vertex) {
+        this.append(CREATE_INDEX, vertex, indexName);
+    }
+
+    public void dropIndex(final String indexName) {
+        this.append(DROP_INDEX, indexName);
+    }
+
+    public void createVertexCentricIndex(final String label, final String key) {
+        try {
+            synchronized (this) {
+                this.beginRecord(CREATE_VERTEX_CENTRIC_INDEX);
+                writeString(this.recordOutput, label);
+                writeString(this.recordOutput, key);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public void dropVertexCentricIndex(final String label) {
+        this.append(DROP_VERTEX_CENTRIC_INDEX, label);
+    }
+
+    public void putIndex(final String indexName, final String key, final Object value, final String id) {
+        this.appendIndex(INDEX_PUT, indexName, key, value, id);
+    }
+
+    public void removeIndex(final String indexName, final String key, final Object value, final String id) {
+        this.appendIndex(INDEX_REMOVE, indexName, key, value, id);
+    }
+
+    public void clear() {
+        try {
+            synchronized (this) {
+                this.beginRecord(CLEAR);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write the buffered records and force them to disk.
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            this.writePending();
+            if (!this.dirty)
+                return;
+            this.dirty = false;
+        }
+        try {
+            this.channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                this.dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Write and force the buffered records, then close the log.
+     * A failure of the background thread since the last mutation is thrown even if this last sync succeeds.
+     */
+    public void close() throws IOException {
+        this.synchronizer.cancel(false);
+        try {
+            this.sync();
+        } finally {
+            this.file.close();
+        }
+        this.checkFailure();
+    }
+
+    /**
+     * Apply the records of the log to the graph, if the log continues from the checkpoint.
+     * Replay stops at a record torn by a crash, and fails on a corrupt record.
+     *
+     * @return whether the log continues from the checkpoint
+     */
+    public static boolean replay(final TinkerGraph graph, final File file, final long checkpoint) throws IOException {
+        return scan(file, checkpoint, graph) > 0l;
+    }
+
+    private void append(final byte type, final String string) {
+        try {
+            synchronized (this) {
+                this.beginRecord(type);
+                writeString(this.recordOutput, string);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void append(final byte type, final boolean vertex, final String string) {
+        try {
+            synchronized (this) {
+                this.beginRecord(type);
+                this.recordOutput.writeBoolean(vertex);
+                writeString(this.recordOutput, string);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void appendIndex(final byte type, final String indexName, final String key, final Object value, final String id) {
+        try {
+            synchronized (this) {
+                this.beginRecord(type);
+                writeString(this.recordOutput, indexName);
+                writeString(this.recordOutput, key);
+                writeValue(this.recordOutput, value);
+                writeString(this.recordOutput, id);
+                this.endRecord();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void beginRecord(final byte type) throws IOException {
+        this.checkFailure();
+        // drops whatever a failed record left behind
+        this.record.reset();
+        this.recordOutput.writeByte(type);
+    }
+
+    private void endRecord() throws IOException {
+        this.recordOutput.flush();
+        final byte[] payload = this.record.toByteArray();
+        this.crc.reset();
+        this.crc.update(payload, 0, payload.length);
+        this.pendingOutput.writeInt(payload.length);
+        this.pendingOutput.writeInt((int) this.crc.getValue());
+        this.pendingOutput.write(payload);
+        if (this.pending.size() >= BATCH_SIZE)
+            this.writePending();
+    }
+
+    private void writePending() throws IOException {
+        if (this.pending.size() == 0)
+            return;
+        final ByteBuffer buffer = ByteBuffer.wrap(this.pending.toByteArray());
+        try {
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer, this.written + buffer.position());
+            }
+        } catch (IOException e) {
+            // the records stay pending and are written again after the last record that was written completely
+            try {
+                this.channel.truncate(this.written);
+            } catch (IOException ignored) {
+                // the next write overwrites the partial records anyway
+            }
+            throw e;
+        }
+        this.written = this.written + buffer.capacity();
+        this.pending.reset();
+        this.dirty = true;
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException failure = this.failure;
+        if (null != failure) {
+            this.failure = null;
+            throw new IOException("Syncing the TinkerGraph log failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private static long validLength(final File file, final long checkpoint) throws IOException {
+        return scan(file, checkpoint, null);
+    }
+
+    /**
+     * Read the records of the log and apply them to the graph, unless it is null.
+     * A record that runs past the end of the log, or that is followed by nothing but zeros, was torn by a crash and
+     * ends the log. Any other record that is malformed or fails its checksum means that the log is corrupt.
+     *
+     * @return the length of the valid part of the log, or 0 if it does not continue from the checkpoint
+     */
+    private static long scan(final File file, final long checkpoint, final TinkerGraph graph) throws IOException {
+        if (!file.exists())
+            return 0l;
+        final long fileLength = file.length();
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (!readHeader(input, checkpoint))
+                return 0l;
+            long offset = HEADER_SIZE;
+            while (offset < fileLength) {
+                if (fileLength - offset < 8)
+                    return offset;
+                final int length = input.readInt();
+                final int checksum = input.readInt();
+                if (length > fileLength - offset - 8)
+                    return offset;
+                boolean valid = length > 0;
+                if (valid) {
+                    final byte[] payload = new byte[length];
+                    input.readFully(payload);
+                    final CRC32 crc = new CRC32();
+                    crc.update(payload, 0, length);
+                    valid = (int) crc.getValue() == checksum;
+                    if (valid && null != graph)
+                        apply(graph, new DataInputStream(new ByteArrayInputStream(payload)));
+                }
+                if (!valid) {
+                    if (isZeroFrom(file, offset))
+                        return offset;
+                    throw new IOException("Corrupt record at offset " + offset + " of TinkerGraph log " + file);
+                }
+                offset = offset + 8 + length;
+            }
+            return offset;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static boolean isZeroFrom(final File file, final long offset) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            input.seek(offset);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != 0)
+                        return false;
+                }
+            }
+            return true;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static boolean readHeader(final DataInputStream input, final long checkpoint) throws IOException {
+        try {
+            return input.readInt() == MAGIC && input.readLong() == checkpoint;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Apply a record through the graph API.
+     * Mutations of elements that no longer exist, such as a property set on an element after it was removed, are
+     * skipped just as they had no lasting effect when they were logged.
+     */
+    private static void apply(final TinkerGraph graph, final DataInputStream input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+            case ADD_VERTEX:
+                graph.addVertex(readString(input));
+                graph.setCurrentId(input.readLong());
+                break;
+            case ADD_EDGE:
+                final String edgeId = readString(input);
+                final Vertex outVertex = graph.getVertex(readString(input));
+                final Vertex inVertex = graph.getVertex(readString(input));
+                graph.addEdge(edgeId, outVertex, inVertex, readString(input));
+                graph.setCurrentId(input.readLong());
+                break;
+            case REMOVE_VERTEX:
+                final Vertex vertex = graph.getVertex(readString(input));
+                if (null != vertex)
+                    graph.removeVertex(vertex);
+                break;
+            case REMOVE_EDGE:
+                final Edge edge = graph.getEdge(readString(input));
+                if (null != edge)
+                    graph.removeEdge(edge);
+                break;
+            case SET_PROPERTY:
+            case REMOVE_PROPERTY:
+                final Element element = getElement(graph, input.readBoolean(), readString(input));
+                final String key = readString(input);
+                if (type == SET_PROPERTY) {
+                    final Object value = readValue(input);
+                    if (null != element)
+                        element.setProperty(key, value);
+                } else if (null != element) {
+                    element.removeProperty(key);
+                }
+                break;
+            case CREATE_KEY_INDEX:
+                final Class<? extends Element> keyIndexClass = input.readBoolean() ? Vertex.class : Edge.class;
+                final String keyIndexKey = readString(input);
+                if (input.readBoolean())
+                    graph.createKeyIndex(keyIndexKey, keyIndexClass, new Parameter<String, String>(TinkerGraph.INDEX_TYPE, TinkerGraph.SORTED_INDEX));
+                else
+                    graph.createKeyIndex(keyIndexKey, keyIndexClass);
+                break;
+            case DROP_KEY_INDEX:
+                final Class<? extends Element> dropKeyIndexClass = input.readBoolean() ? Vertex.class : Edge.class;
+                graph.dropKeyIndex(readString(input), dropKeyIndexClass);
+                break;
+            case CREATE_INDEX:
+                final Class<? extends Element> indexClass = input.readBoolean() ? Vertex.class : Edge.class;
+                graph.createIndex(readString(input), indexClass);
+                break;
+            case DROP_INDEX:
+                graph.dropIndex(readString(input));
+                break;
+            case INDEX_PUT:
+            case INDEX_REMOVE:
+                final TinkerIndex<Element> index = (TinkerIndex<Element>) graph.getIndex(readString(input), Element.class);
+                final String indexKey = readString(input);
+                final Object indexValue = readValue(input);
+                final String id = readString(input);
+                if (null == index)
+                    break;
+                final Element indexed = getElement(graph, Vertex.class.isAssignableFrom(index.getIndexClass()), id);
+                if (null == indexed)
+                    break;
+                if (type == INDEX_PUT)
+                    index.put(indexKey, indexValue, indexed);
+                else
+                    index.remove(indexKey, indexValue, indexed);
+                break;
+            case CLEAR:
+                graph.clear();
+                break;
+            case CREATE_VERTEX_CENTRIC_INDEX:
+                graph.createVertexCentricIndex(readString(input), readString(input));
+                break;
+            case DROP_VERTEX_CENTRIC_INDEX:
+                graph.dropVertexCentricIndex(readString(input));
+                break;
+            default:
+                throw new IOException("Unknown record type in TinkerGraph log: " + type);
+        }
+    }
+
+    private static Element getElement(final TinkerGraph graph, final boolean vertex, final String id) {
+        return vertex ? graph.getVertex(id) : graph.getEdge(id);
+    }
+
+    private static void writeString(final DataOutput output, final String string) throws IOException {
+        final byte[] bytes = string.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInput input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeValue(final DataOutput output, final Object value) throws IOException {
+        if (value instanceof String) {
+            output.writeByte(TinkerSnapshot.STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(TinkerSnapshot.INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(TinkerSnapshot.LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(TinkerSnapshot.FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(TinkerSnapshot.DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(TinkerSnapshot.BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            output.writeByte(TinkerSnapshot.SHORT);
+            output.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(TinkerSnapshot.BYTE);
+            output.writeByte((Byte) value);
+        } else {
+            output.writeByte(TinkerSnapshot.SERIALIZED);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream stream = new ObjectOutputStream(bytes);
+            stream.writeObject(value);
+            stream.close();
+            output.writeInt(bytes.size());
+            output.write(bytes.toByteArray());
+        }
+    }
+
+    private static Object readValue(final DataInput input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+            case TinkerSnapshot.STRING:
+                return readString(input);
+            case TinkerSnapshot.INTEGER:
+                return input.readInt();
+            case TinkerSnapshot.LONG:
+                return input.readLong();
+            case TinkerSnapshot.FLOAT:
+                return input.readFloat();
+            case TinkerSnapshot.DOUBLE:
+                return input.readDouble();
+            case TinkerSnapshot.BOOLEAN:
+                return input.readBoolean();
+            case TinkerSnapshot.SHORT:
+                return input.readShort();
+            case TinkerSnapshot.BYTE:
+                return input.readByte();
+            case TinkerSnapshot.SERIALIZED:
+                final byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                final ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                try {
+                    return stream.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e.getMessage(), e);
+                } finally {
+                    stream.close();
+                }
+            default:
+                throw new IOException("Unknown value type in TinkerGraph log: " + type);
+        }
+    }
+}
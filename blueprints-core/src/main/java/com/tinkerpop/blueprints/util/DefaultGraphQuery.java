@@ -1,5 +1,6 @@
 package com.tinkerpop.blueprints.util;
 
+import com.tinkerpop.blueprints.CloseableIterable;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Graph;
@@ -7,7 +8,13 @@ import com.tinkerpop.blueprints.GraphQuery;
 import com.tinkerpop.blueprints.KeyIndexableGraph;
 import com.tinkerpop.blueprints.Vertex;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -19,7 +26,9 @@ import java.util.Set;
  */
 public class DefaultGraphQuery extends DefaultQuery implements GraphQuery {
 
-    private final Graph graph;
+    private static final int PROBE_SIZE = 1000;
+
+    protected final Graph graph;
 
     public DefaultGraphQuery(final Graph graph) {
         this.graph = graph;
@@ -58,12 +67,162 @@ public class DefaultGraphQuery extends DefaultQuery implements GraphQuery {
         return new DefaultGraphQueryIterable<Vertex>(true);
     }
 
+    /**
+     * The elements that the query filters. An implementation can override this to retrieve fewer candidate elements
+     * from its indices, as all has-containers are still applied to the elements that are returned.
+     * <p/>
+     * When several keys that are compared for equality are indexed, the query is driven by the most selective index
+     * and the elements are intersected with the other indices that are small enough to be held in memory.
+     */
+    protected Iterable<?> getElementIterable(final Class<? extends Element> elementClass) {
+        if (graph instanceof KeyIndexableGraph) {
+            final Set<String> keys = ((KeyIndexableGraph) graph).getIndexedKeys(elementClass);
+            final List<HasContainer> indexed = new ArrayList<HasContainer>();
+            for (final HasContainer hasContainer : hasContainers) {
+                if (hasContainer.compare.equals(Compare.EQUAL) && hasContainer.value != null && keys.contains(hasContainer.key))
+                    indexed.add(hasContainer);
+            }
+            if (indexed.size() == 1)
+                return this.getElements(elementClass, indexed.get(0).key, indexed.get(0).value);
+            else if (indexed.size() > 1)
+                return this.intersect(elementClass, indexed);
+        }
+
+        for (final HasContainer hasContainer : hasContainers) {
+            if (hasContainer.compare.equals(Compare.EQUAL)) {
+                return this.getElements(elementClass, hasContainer.key, hasContainer.value);
+            }
+        }
+
+        if (Vertex.class.isAssignableFrom(elementClass))
+            return graph.getVertices();
+        else
+            return graph.getEdges();
+    }
+
+    private Iterable<?> getElements(final Class<? extends Element> elementClass, final String key, final Object value) {
+        if (Vertex.class.isAssignableFrom(elementClass))
+            return graph.getVertices(key, value);
+        else
+            return graph.getEdges(key, value);
+    }
+
+    private Iterable<?> intersect(final Class<? extends Element> elementClass, final List<HasContainer> indexed) {
+        HasContainer driver = indexed.get(0);
+        Collection<?> driverElements = null;
+        final List<Collection<?>> collections = new ArrayList<Collection<?>>();
+        for (final HasContainer hasContainer : indexed) {
+            final Collection<?> collection = probe(this.getElements(elementClass, hasContainer.key, hasContainer.value));
+            if (null == collection)
+                continue;
+            if (collection.size() == 0)
+                return Collections.emptyList();
+            collections.add(collection);
+            if (null == driverElements || collection.size() < driverElements.size()) {
+                driver = hasContainer;
+                driverElements = collection;
+            }
+        }
+        if (null != driverElements)
+            collections.remove(collections.indexOf(driverElements));
+        if (collections.isEmpty())
+            return null == driverElements ? this.getElements(elementClass, driver.key, driver.value) : driverElements;
+
+        final Iterable<?> elements = null == driverElements ? this.getElements(elementClass, driver.key, driver.value) : driverElements;
+        return new Iterable<Object>() {
+            public Iterator<Object> iterator() {
+                return new Iterator<Object>() {
+                    private final Iterator<?> itty = elements.iterator();
+                    private Object nextElement = null;
+
+                    public boolean hasNext() {
+                        while (null == this.nextElement && this.itty.hasNext()) {
+                            final Object element = this.itty.next();
+                            boolean contained = true;
+                            for (final Collection<?> collection : collections) {
+                                if (!collection.contains(element)) {
+                                    contained = false;
+                                    break;
+                                }
+                            }
+                            if (contained)
+                                this.nextElement = element;
+                        }
+                        return null != this.nextElement;
+                    }
+
+                    public Object next() {
+                        if (!this.hasNext())
+                            throw new NoSuchElementException();
+                        final Object element = this.nextElement;
+                        this.nextElement = null;
+                        return element;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * The elements of an index lookup as a collection that can be sized and probed for membership, or null if there are
+     * more than PROBE_SIZE elements and the lookup is not a collection already.
+     */
+    private static Collection<?> probe(final Iterable<?> iterable) {
+        if (iterable instanceof Collection)
+            return (Collection<?>) iterable;
+        try {
+            final Set<Object> elements = new HashSet<Object>();
+            final Iterator<?> itty = iterable.iterator();
+            while (itty.hasNext()) {
+                if (elements.size() == PROBE_SIZE)
+                    return null;
+                elements.add(itty.next());
+            }
+            return elements;
+        } finally {
+            if (iterable instanceof CloseableIterable)
+                ((CloseableIterable) iterable).close();
+        }
+    }
+
+    /**
+     * The has-containers in the order they are best evaluated in: equality with non-indexed keys rules out the most
+     * elements, inequality the fewest, and equality with indexed keys is already ensured by the index lookup.
+     */
+    private List<HasContainer> getFilters(final Class<? extends Element> elementClass) {
+        final Set<String> keys = graph instanceof KeyIndexableGraph ? ((KeyIndexableGraph) graph).getIndexedKeys(elementClass) : Collections.<String>emptySet();
+        final List<HasContainer> filters = new ArrayList<HasContainer>(hasContainers);
+        Collections.sort(filters, new Comparator<HasContainer>() {
+            public int compare(final HasContainer a, final HasContainer b) {
+                return cost(a, keys) - cost(b, keys);
+            }
+        });
+        return filters;
+    }
+
+    private static int cost(final HasContainer hasContainer, final Set<String> indexedKeys) {
+        switch (hasContainer.compare) {
+            case EQUAL:
+                return indexedKeys.contains(hasContainer.key) ? 3 : 0;
+            case NOT_EQUAL:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
     private class DefaultGraphQueryIterable<T extends Element> implements Iterable<T> {
 
         private Iterable<T> iterable = null;
+        private final HasFilter filter;
 
         public DefaultGraphQueryIterable(final boolean forVertex) {
             this.iterable = (Iterable<T>) getElementIterable(forVertex ? Vertex.class : Edge.class);
+            this.filter = new HasFilter(getFilters(forVertex ? Vertex.class : Edge.class));
         }
 
         public Iterator<T> iterator() {
@@ -102,16 +261,7 @@ public class DefaultGraphQuery extends DefaultQuery implements GraphQuery {
                     if (count >= limit) return false;
                     while (this.itty.hasNext()) {
                         final T element = this.itty.next();
-                        boolean filter = false;
-
-                        for (final HasContainer hasContainer : hasContainers) {
-                            if (!hasContainer.isLegal(element)) {
-                                filter = true;
-                                break;
-                            }
-                        }
-
-                        if (!filter) {
+                        if (filter.isLegal(element)) {
                             this.nextElement = element;
                             this.count++;
                             return true;
@@ -122,34 +272,6 @@ public class DefaultGraphQuery extends DefaultQuery implements GraphQuery {
             };
         }
 
-        private Iterable<?> getElementIterable(Class<? extends Element> elementClass) {
-            if (graph instanceof KeyIndexableGraph) {
-                final Set<String> keys = ((KeyIndexableGraph) graph).getIndexedKeys(elementClass);
-                for (HasContainer hasContainer : hasContainers) {
-                    if (hasContainer.compare.equals(Compare.EQUAL) && hasContainer.value != null && keys.contains(hasContainer.key)) {
-                        if (Vertex.class.isAssignableFrom(elementClass))
-                            return graph.getVertices(hasContainer.key, hasContainer.value);
-                        else
-                            return graph.getEdges(hasContainer.key, hasContainer.value);
-                    }
-                }
-            }
-
-            for (final HasContainer hasContainer : hasContainers) {
-                if (hasContainer.compare.equals(Compare.EQUAL)) {
-                    if (Vertex.class.isAssignableFrom(elementClass))
-                        return graph.getVertices(hasContainer.key, hasContainer.value);
-                    else
-                        return graph.getEdges(hasContainer.key, hasContainer.value);
-                }
-            }
-
-            if (Vertex.class.isAssignableFrom(elementClass))
-                return graph.getVertices();
-            else
-                return graph.getEdges();
-        }
-
         /*private boolean containsLabel(final String label, final String[] labels) {
             if (labels.length == 0)
                 return true;
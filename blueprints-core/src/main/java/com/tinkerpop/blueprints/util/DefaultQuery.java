@@ -5,7 +5,9 @@ import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Query;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -19,19 +21,47 @@ public abstract class DefaultQuery implements Query {
     public long limit = Long.MAX_VALUE;
     public List<HasContainer> hasContainers = new ArrayList<HasContainer>();
 
+    private static final int OBJECT = 0;
+    private static final int INTEGRAL = 1;
+    private static final int DECIMAL = 2;
+
     protected class HasContainer {
         public String key;
         public Object value;
         public Compare compare;
 
+        private final int type;
+        private final long longValue;
+        private final double doubleValue;
+
         public HasContainer(final String key, final Object value, final Compare compare) {
             this.key = key;
             this.value = value;
             this.compare = compare;
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                this.type = INTEGRAL;
+                this.longValue = ((Number) value).longValue();
+                this.doubleValue = 0.0d;
+            } else if (value instanceof Double || value instanceof Float) {
+                this.type = DECIMAL;
+                this.longValue = 0l;
+                this.doubleValue = ((Number) value).doubleValue();
+            } else {
+                this.type = OBJECT;
+                this.longValue = 0l;
+                this.doubleValue = 0.0d;
+            }
         }
 
         public boolean isLegal(final Element element) {
-            final Object elementValue = element.getProperty(key);
+            return this.isLegalValue(element.getProperty(key));
+        }
+
+        /**
+         * Whether the value of the key of an element satisfies the comparison.
+         * Numbers of the class of the compared value are compared as primitives.
+         */
+        public boolean isLegalValue(final Object elementValue) {
             switch (compare) {
                 case EQUAL:
                     if (null == elementValue)
@@ -44,22 +74,77 @@ public abstract class DefaultQuery implements Query {
                 case GREATER_THAN:
                     if (null == elementValue || value == null)
                         return false;
-                    return ((Comparable) elementValue).compareTo(value) >= 1;
+                    return this.compareTo(elementValue) >= 1;
                 case LESS_THAN:
                     if (null == elementValue || value == null)
                         return false;
-                    return ((Comparable) elementValue).compareTo(value) <= -1;
+                    return this.compareTo(elementValue) <= -1;
                 case GREATER_THAN_EQUAL:
                     if (null == elementValue || value == null)
                         return false;
-                    return ((Comparable) elementValue).compareTo(value) >= 0;
+                    return this.compareTo(elementValue) >= 0;
                 case LESS_THAN_EQUAL:
                     if (null == elementValue || value == null)
                         return false;
-                    return ((Comparable) elementValue).compareTo(value) <= 0;
+                    return this.compareTo(elementValue) <= 0;
                 default:
                     throw new IllegalArgumentException("Invalid state as no valid filter was provided");
             }
         }
+
+        private int compareTo(final Object elementValue) {
+            if (this.type != OBJECT && elementValue.getClass() == value.getClass()) {
+                if (this.type == INTEGRAL) {
+                    final long elementLong = ((Number) elementValue).longValue();
+                    return elementLong < this.longValue ? -1 : (elementLong == this.longValue ? 0 : 1);
+                } else {
+                    return Double.compare(((Number) elementValue).doubleValue(), this.doubleValue);
+                }
+            }
+            return ((Comparable) elementValue).compareTo(value);
+        }
+    }
+
+    /**
+     * A list of has-containers compiled into a filter that looks up the value of each key of an element once, no matter
+     * how many has-containers compare the key, and that evaluates elements without allocating.
+     * Has-containers are evaluated in the order of the first has-container of their key in the list.
+     */
+    protected class HasFilter {
+
+        private final String[] keys;
+        private final HasContainer[][] containers;
+
+        public HasFilter(final List<HasContainer> hasContainers) {
+            final Map<String, List<HasContainer>> byKey = new LinkedHashMap<String, List<HasContainer>>();
+            for (final HasContainer hasContainer : hasContainers) {
+                List<HasContainer> list = byKey.get(hasContainer.key);
+                if (null == list) {
+                    list = new ArrayList<HasContainer>();
+                    byKey.put(hasContainer.key, list);
+                }
+                list.add(hasContainer);
+            }
+            this.keys = new String[byKey.size()];
+            this.containers = new HasContainer[byKey.size()][];
+            int i = 0;
+            for (final Map.Entry<String, List<HasContainer>> entry : byKey.entrySet()) {
+                this.keys[i] = entry.getKey();
+                this.containers[i] = entry.getValue().toArray(new HasContainer[entry.getValue().size()]);
+                i++;
+            }
+        }
+
+        public boolean isLegal(final Element element) {
+            for (int i = 0; i < this.keys.length; i++) {
+                final Object elementValue = element.getProperty(this.keys[i]);
+                final HasContainer[] keyContainers = this.containers[i];
+                for (int j = 0; j < keyContainers.length; j++) {
+                    if (!keyContainers[j].isLegalValue(elementValue))
+                        return false;
+                }
+            }
+            return true;
+        }
     }
 }
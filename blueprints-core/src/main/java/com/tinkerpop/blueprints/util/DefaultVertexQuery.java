@@ -19,7 +19,7 @@ import java.util.NoSuchElementException;
  */
 public class DefaultVertexQuery extends DefaultQuery implements VertexQuery {
 
-    private final Vertex vertex;
+    protected final Vertex vertex;
 
     public DefaultVertexQuery(final Vertex vertex) {
         this.vertex = vertex;
@@ -84,14 +84,24 @@ public class DefaultVertexQuery extends DefaultQuery implements VertexQuery {
         return list;
     }
 
+    /**
+     * The edges that the query filters. An implementation can override this to retrieve fewer candidate edges, as all
+     * has-containers are still applied to the edges that are returned.
+     */
+    protected Iterable<Edge> getEdgeIterable() {
+        return this.vertex.getEdges(this.direction, this.labels);
+    }
+
     private class DefaultVertexQueryIterable<T extends Element> implements Iterable<T> {
 
         private Iterable<Edge> iterable;
         private boolean forVertex;
+        private final HasFilter filter;
 
         public DefaultVertexQueryIterable(final boolean forVertex) {
             this.forVertex = forVertex;
-            this.iterable = vertex.getEdges(direction, labels);
+            this.iterable = getEdgeIterable();
+            this.filter = new HasFilter(hasContainers);
         }
 
         public Iterator<T> iterator() {
@@ -145,14 +155,7 @@ public class DefaultVertexQuery extends DefaultQuery implements VertexQuery {
                     if (count >= limit) return false;
                     while (this.itty.hasNext()) {
                         final Edge edge = this.itty.next();
-                        boolean filter = false;
-                        for (final HasContainer hasContainer : hasContainers) {
-                            if (!hasContainer.isLegal(edge)) {
-                                filter = true;
-                                break;
-                            }
-                        }
-                        if (!filter) {
+                        if (filter.isLegal(edge)) {
                             this.nextEdge = edge;
                             this.count++;
                             return true;
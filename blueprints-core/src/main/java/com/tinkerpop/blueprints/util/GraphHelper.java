@@ -4,6 +4,11 @@ import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.wrappers.batch.BatchGraph;
+import com.tinkerpop.blueprints.util.wrappers.batch.ParallelBatchLoader;
+import com.tinkerpop.blueprints.util.wrappers.batch.VertexIDType;
+
+import java.util.Map;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -69,4 +74,72 @@ public class GraphHelper {
             ElementHelper.copyProperties(fromEdge, toEdge);
         }
     }
+
+    /**
+     * Copy the vertex/edges of one graph over to another graph, committing after every bufferSize elements.
+     * The ids of the from graph are mapped to the ids of the to graph, so graphs that ignore supplied ids can be
+     * copied to as well.
+     * With a single thread the elements are added through a {@link BatchGraph}.
+     * With more threads they are added by a {@link ParallelBatchLoader}, for which the to graph must bind transactions
+     * to threads or, if it is not transactional, be safe for concurrent writes. The edges of the from graph are then
+     * also read with that many threads, over its partitions if it is {@link com.tinkerpop.blueprints.ParallelScannable}.
+     *
+     * @param from       the graph to copy from
+     * @param to         the graph to copy to
+     * @param bufferSize the number of elements to add before committing a transaction
+     * @param threads    the number of threads to copy with
+     */
+    public static void copyGraph(final Graph from, final Graph to, final long bufferSize, final int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Threads must be positive");
+        if (threads == 1) {
+            final BatchGraph graph = BatchGraph.wrap(to, VertexIDType.OBJECT, bufferSize);
+            for (final Vertex fromVertex : from.getVertices()) {
+                final Vertex toVertex = graph.addVertex(fromVertex.getId());
+                ElementHelper.copyProperties(fromVertex, toVertex);
+            }
+            for (final Edge fromEdge : from.getEdges()) {
+                final Vertex outVertex = graph.getVertex(fromEdge.getVertex(Direction.OUT).getId());
+                final Vertex inVertex = graph.getVertex(fromEdge.getVertex(Direction.IN).getId());
+                final Edge toEdge = graph.addEdge(fromEdge.getId(), outVertex, inVertex, fromEdge.getLabel());
+                ElementHelper.copyProperties(fromEdge, toEdge);
+            }
+            graph.commit();
+        } else {
+            final ParallelBatchLoader loader = new ParallelBatchLoader(to, VertexIDType.OBJECT, bufferSize, threads);
+            boolean done = false;
+            try {
+                for (final Vertex fromVertex : from.getVertices()) {
+                    loader.addVertex(fromVertex.getId(), ElementHelper.getProperties(fromVertex));
+                }
+                loader.finishVertices();
+                ParallelScan.reduceEdges(from, new ParallelScan.Reducer<Edge, Long>() {
+                    public Long newAccumulator() {
+                        return 0l;
+                    }
+
+                    public Long accumulate(final Long accumulator, final Edge fromEdge) {
+                        final Object outId = fromEdge.getVertex(Direction.OUT).getId();
+                        final Object inId = fromEdge.getVertex(Direction.IN).getId();
+                        final Map<String, Object> properties = ElementHelper.getProperties(fromEdge);
+                        loader.addEdge(fromEdge.getId(), outId, inId, fromEdge.getLabel(), properties);
+                        return accumulator + 1;
+                    }
+
+                    public Long combine(final Long a, final Long b) {
+                        return a + b;
+                    }
+                }, threads);
+                loader.close();
+                done = true;
+            } finally {
+                if (!done) {
+                    try {
+                        loader.close();
+                    } catch (RuntimeException e) {
+                        // the failure that stopped the copy is the one reported
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,323 @@
+package com.tinkerpop.blueprints.util;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.ParallelScannable;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ParallelScan reduces all the vertices or edges of a graph with a number of threads.
+ * A graph that is ParallelScannable is split into partitions that the threads iterate on their own.
+ * The elements of any other graph are iterated by the calling thread and handed to the threads in batches of
+ * BATCH_SIZE elements, which pays off when the work done per element outweighs the iteration.
+ * <p/>
+ * Each thread accumulates the elements it is given into an accumulator of its own, and the accumulators of all threads
+ * are combined once every element has been reduced.
+ * The graph must not be mutated while it is scanned.
+ */
+public class ParallelScan {
+
+    public static final int BATCH_SIZE = 10000;
+
+    private static final List END = new ArrayList(0);
+
+    /**
+     * A reduction of elements to a value, which can be computed piecewise on different threads.
+     */
+    public interface Reducer<E extends Element, T> {
+
+        /**
+         * @return the accumulator of a thread before it has seen any element
+         */
+        public T newAccumulator();
+
+        /**
+         * @param accumulator the accumulator of the thread
+         * @param element     the element to add to the accumulator
+         * @return the accumulator with the element added, which may be the given accumulator
+         */
+        public T accumulate(T accumulator, E element);
+
+        /**
+         * @param a the accumulator of one thread
+         * @param b the accumulator of another thread
+         * @return the accumulator of the elements of both threads, which may be one of the given accumulators
+         */
+        public T combine(T a, T b);
+    }
+
+    /**
+     * Reduce the vertices of the graph.
+     *
+     * @param graph   the graph whose vertices to reduce
+     * @param reducer the reduction to apply
+     * @param threads the number of threads to reduce with
+     * @return the accumulator of all vertices
+     */
+    public static <T> T reduceVertices(final Graph graph, final Reducer<? super Vertex, T> reducer, final int threads) {
+        if (graph instanceof ParallelScannable)
+            return reduce(((ParallelScannable) graph).getVertexPartitions(threads), null, reducer, threads);
+        else
+            return reduce(null, graph.getVertices(), reducer, threads);
+    }
+
+    /**
+     * Reduce the edges of the graph.
+     *
+     * @param graph   the graph whose edges to reduce
+     * @param reducer the reduction to apply
+     * @param threads the number of threads to reduce with
+     * @return the accumulator of all edges
+     */
+    public static <T> T reduceEdges(final Graph graph, final Reducer<? super Edge, T> reducer, final int threads) {
+        if (graph instanceof ParallelScannable)
+            return reduce(((ParallelScannable) graph).getEdgePartitions(threads), null, reducer, threads);
+        else
+            return reduce(null, graph.getEdges(), reducer, threads);
+    }
+
+    /**
+     * @return a reduction that counts elements
+     */
+    public static Reducer<Element, Long> count() {
+        return new Reducer<Element, Long>() {
+            public Long newAccumulator() {
+                return 0l;
+            }
+
+            public Long accumulate(final Long accumulator, final Element element) {
+                return accumulator + 1l;
+            }
+
+            public Long combine(final Long a, final Long b) {
+                return a + b;
+            }
+        };
+    }
+
+    /**
+     * @param direction the direction of the edges to count
+     * @param labels    the labels of the edges to count (all labels if none are given)
+     * @return a reduction of vertices to the number of vertices (value) with each degree (key)
+     */
+    public static Reducer<Vertex, Map<Long, Long>> degreeHistogram(final Direction direction, final String... labels) {
+        return new Reducer<Vertex, Map<Long, Long>>() {
+            public Map<Long, Long> newAccumulator() {
+                return new HashMap<Long, Long>();
+            }
+
+            public Map<Long, Long> accumulate(final Map<Long, Long> accumulator, final Vertex vertex) {
+                final long degree = vertex.query().direction(direction).labels(labels).count();
+                final Long count = accumulator.get(degree);
+                accumulator.put(degree, null == count ? 1l : count + 1l);
+                return accumulator;
+            }
+
+            public Map<Long, Long> combine(final Map<Long, Long> a, final Map<Long, Long> b) {
+                for (final Map.Entry<Long, Long> entry : b.entrySet()) {
+                    final Long count = a.get(entry.getKey());
+                    a.put(entry.getKey(), null == count ? entry.getValue() : count + entry.getValue());
+                }
+                return a;
+            }
+        };
+    }
+
+    /**
+     * @param key the key of the numeric property to aggregate
+     * @return a reduction of elements to the statistics of the numeric values of the property
+     */
+    public static Reducer<Element, Statistics> statistics(final String key) {
+        return new Reducer<Element, Statistics>() {
+            public Statistics newAccumulator() {
+                return new Statistics();
+            }
+
+            public Statistics accumulate(final Statistics accumulator, final Element element) {
+                final Object value = element.getProperty(key);
+                if (value instanceof Number)
+                    accumulator.add(((Number) value).doubleValue());
+                return accumulator;
+            }
+
+            public Statistics combine(final Statistics a, final Statistics b) {
+                a.add(b);
+                return a;
+            }
+        };
+    }
+
+    /**
+     * The count, sum, minimum and maximum of a number of values.
+     */
+    public static class Statistics {
+
+        private long count = 0l;
+        private double sum = 0.0d;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+
+        public void add(final double value) {
+            if (this.count == 0l || value < this.min)
+                this.min = value;
+            if (this.count == 0l || value > this.max)
+                this.max = value;
+            this.count++;
+            this.sum = this.sum + value;
+        }
+
+        public void add(final Statistics statistics) {
+            if (statistics.count == 0l)
+                return;
+            if (this.count == 0l || statistics.min < this.min)
+                this.min = statistics.min;
+            if (this.count == 0l || statistics.max > this.max)
+                this.max = statistics.max;
+            this.count = this.count + statistics.count;
+            this.sum = this.sum + statistics.sum;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public double getSum() {
+            return this.sum;
+        }
+
+        /**
+         * @return the smallest value, or NaN if there are no values
+         */
+        public double getMin() {
+            return this.min;
+        }
+
+        /**
+         * @return the largest value, or NaN if there are no values
+         */
+        public double getMax() {
+            return this.max;
+        }
+
+        /**
+         * @return the mean of the values, or NaN if there are no values
+         */
+        public double getMean() {
+            return this.count == 0l ? Double.NaN : this.sum / this.count;
+        }
+    }
+
+    private static <E extends Element, T> T reduce(final List<? extends Iterable<? extends E>> partitions, final Iterable<? extends E> elements, final Reducer<? super E, T> reducer, final int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+
+        final BlockingQueue<Iterable<? extends E>> queue = new ArrayBlockingQueue<Iterable<? extends E>>(threads * 2);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "parallel-scan");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            final List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<T>() {
+                    public T call() throws Exception {
+                        T accumulator = reducer.newAccumulator();
+                        Throwable failure = null;
+                        while (true) {
+                            final Iterable<? extends E> work = queue.take();
+                            if (work == END)
+                                break;
+                            // keep taking work after a failure so that the producer is never blocked
+                            if (null != failure)
+                                continue;
+                            try {
+                                for (final E element : work) {
+                                    accumulator = reducer.accumulate(accumulator, element);
+                                }
+                            } catch (final Throwable t) {
+                                failure = t;
+                                failed.set(true);
+                            }
+                        }
+                        if (failure instanceof Error)
+                            throw (Error) failure;
+                        else if (null != failure)
+                            throw (Exception) failure;
+                        return accumulator;
+                    }
+                }));
+            }
+
+            try {
+                if (null != partitions) {
+                    for (final Iterable<? extends E> partition : partitions) {
+                        if (failed.get())
+                            break;
+                        queue.put(partition);
+                    }
+                } else {
+                    try {
+                        List<E> batch = new ArrayList<E>(BATCH_SIZE);
+                        for (final E element : elements) {
+                            if (failed.get())
+                                break;
+                            batch.add(element);
+                            if (batch.size() == BATCH_SIZE) {
+                                queue.put(batch);
+                                batch = new ArrayList<E>(BATCH_SIZE);
+                            }
+                        }
+                        if (!batch.isEmpty())
+                            queue.put(batch);
+                    } finally {
+                        if (elements instanceof CloseableIterable)
+                            ((CloseableIterable) elements).close();
+                    }
+                }
+            } finally {
+                for (int i = 0; i < threads; i++) {
+                    queue.put(END);
+                }
+            }
+
+            T result = reducer.newAccumulator();
+            for (final Future<T> future : futures) {
+                result = reducer.combine(result, future.get());
+            }
+            return result;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            else if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            else
+                throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.tinkerpop.blueprints.util;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A read-only CloseableIterable view of a collection.
+ * Unlike WrappingCloseableIterable, the view is itself a Collection so that callers can determine its size without
+ * iterating it (e.g. via instanceof Collection).
+ * The wrapped collection is not copied, so the view reflects the current state of the collection.
+ */
+public class WrappingCloseableCollection<T> extends AbstractCollection<T> implements CloseableIterable<T> {
+
+    private final Collection<T> collection;
+
+    public WrappingCloseableCollection(final Collection<T> collection) {
+        this.collection = collection;
+    }
+
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Iterator<T> itty = collection.iterator();
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            public T next() {
+                return this.itty.next();
+            }
+
+            public boolean hasNext() {
+                return this.itty.hasNext();
+            }
+        };
+    }
+
+    public int size() {
+        return this.collection.size();
+    }
+
+    public boolean isEmpty() {
+        return this.collection.isEmpty();
+    }
+
+    public boolean contains(final Object object) {
+        return this.collection.contains(object);
+    }
+
+    public void close() {
+        if (this.collection instanceof CloseableIterable) {
+            ((CloseableIterable) this.collection).close();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.tinkerpop.blueprints.util.io.binary;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.wrappers.batch.BatchGraph;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * BinaryReader reads the binary graph format that is written by {@link BinaryWriter} into a Graph.  Blocks are
+ * inflated one at a time and their records are added to the graph as they are decoded, so no more than a block is
+ * held in memory.
+ */
+public class BinaryReader {
+
+    private final Graph graph;
+
+    /**
+     * @param graph the graph to populate with the binary data
+     */
+    public BinaryReader(final Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Input the binary stream data into the graph.
+     *
+     * @param inputStream an InputStream of binary graph data
+     * @throws IOException thrown when the data is not correctly formatted
+     */
+    public void inputGraph(final InputStream inputStream) throws IOException {
+        inputGraph(this.graph, inputStream, 1000);
+    }
+
+    /**
+     * Input the binary stream data into the graph.
+     *
+     * @param filename name of a file of binary graph data
+     * @throws IOException thrown when the data is not correctly formatted
+     */
+    public void inputGraph(final String filename) throws IOException {
+        inputGraph(this.graph, filename, 1000);
+    }
+
+    /**
+     * Input the binary stream data into the graph.
+     *
+     * @param inputStream an InputStream of binary graph data
+     * @param bufferSize  the amount of elements to hold in memory before committing a transactions (only valid for TransactionalGraphs)
+     * @throws IOException thrown when the data is not correctly formatted
+     */
+    public void inputGraph(final InputStream inputStream, final int bufferSize) throws IOException {
+        inputGraph(this.graph, inputStream, bufferSize);
+    }
+
+    /**
+     * Input the binary stream data into the graph.
+     *
+     * @param graph       the graph to populate with the binary data
+     * @param inputStream an InputStream of binary graph data
+     * @throws IOException thrown when the data is not correctly formatted
+     */
+    public static void inputGraph(final Graph graph, final InputStream inputStream) throws IOException {
+        inputGraph(graph, inputStream, 1000);
+    }
+
+    /**
+     * Input the binary stream data into the graph.
+     *
+     * @param graph      the graph to populate with the binary data
+     * @param filename   name of a file of binary graph data
+     * @param bufferSize the amount of elements to hold in memory before committing a transactions (only valid for TransactionalGraphs)
+     * @throws IOException thrown when the data is not correctly formatted
+     */
+    public static void inputGraph(final Graph graph, final String filename, final int bufferSize) throws IOException {
+        final FileInputStream fis = new FileInputStream(filename);
+        try {
+            inputGraph(graph, fis, bufferSize);
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * Input the binary stream data into the graph.
+     *
+     * @param inputGraph  the graph to populate with the binary data
+     * @param inputStream an InputStream of binary graph data
+     * @param bufferSize  the amount of elements to hold in memory before committing a transactions (only valid for TransactionalGraphs)
+     * @throws IOException thrown when the data is not correctly formatted
+     */
+    public static void inputGraph(final Graph inputGraph, final InputStream inputStream, final int bufferSize) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != BinaryTokens.MAGIC)
+            throw new IOException("The stream does not hold binary graph data");
+        final int version = in.readInt();
+        if (version != BinaryTokens.VERSION)
+            throw new IOException("The binary graph format version " + version + " is not supported");
+
+        // if this is a transactional graph then we're buffering
+        final BatchGraph graph = BatchGraph.wrap(inputGraph, bufferSize);
+        final Decoder decoder = new Decoder();
+        final Inflater inflater = new Inflater();
+        byte[] compressed = new byte[1024];
+
+        try {
+            while (true) {
+                final int length = in.readInt();
+                final int compressedLength = in.readInt();
+                if (length == 0) break;
+                if (length < 0 || compressedLength < 0) throw new IOException("Invalid block length");
+
+                if (compressed.length < compressedLength) compressed = new byte[compressedLength];
+                in.readFully(compressed, 0, compressedLength);
+                if (decoder.bytes.length < length) decoder.bytes = new byte[length];
+
+                inflater.reset();
+                inflater.setInput(compressed, 0, compressedLength);
+                try {
+                    if (inflater.inflate(decoder.bytes, 0, length) != length || !inflater.finished())
+                        throw new IOException("Block does not match its length");
+                } catch (DataFormatException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+
+                decoder.position = 0;
+                decoder.limit = length;
+                while (decoder.position < decoder.limit) {
+                    decoder.readRecord(graph);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+
+        graph.commit();
+    }
+
+    private static class Decoder {
+
+        private byte[] bytes = new byte[1024];
+        private int position;
+        private int limit;
+        private final List<String> strings = new ArrayList<String>();
+
+        public void readRecord(final Graph graph) throws IOException {
+            final byte tag = readByte();
+            if (tag == BinaryTokens.VERTEX) {
+                final Vertex vertex = graph.addVertex(readValue());
+                readProperties(vertex);
+            } else if (tag == BinaryTokens.EDGE) {
+                final Object id = readValue();
+                final Object outId = readValue();
+                final Object inId = readValue();
+                final Vertex out = graph.getVertex(outId);
+                final Vertex in = graph.getVertex(inId);
+                if (out == null || in == null)
+                    throw new IOException("Edge " + id + " refers to a vertex that has not been read");
+                final Edge edge = graph.addEdge(id, out, in, readString());
+                readProperties(edge);
+            } else {
+                throw new IOException("Unknown record type " + tag);
+            }
+        }
+
+        private void readProperties(final Element element) throws IOException {
+            for (long i = readVarLong(); i > 0; i--) {
+                final String key = readString();
+                element.setProperty(key, readValue());
+            }
+        }
+
+        private String readString() throws IOException {
+            final long index = readVarLong();
+            if (index == 0) {
+                final int length = (int) readVarLong();
+                final String string = readUTF8(length);
+                if (this.strings.size() < BinaryTokens.MAX_STRINGS && length <= BinaryTokens.MAX_STRING_LENGTH)
+                    this.strings.add(string);
+                return string;
+            }
+            if (index > this.strings.size()) throw new IOException("Unknown string reference " + index);
+            return this.strings.get((int) index - 1);
+        }
+
+        private Object readValue() throws IOException {
+            final byte type = readByte();
+            switch (type) {
+                case BinaryTokens.TYPE_NULL:
+                    return null;
+                case BinaryTokens.TYPE_STRING:
+                    return readUTF8();
+                case BinaryTokens.TYPE_INTEGER:
+                    return (int) unzigzag(readVarLong());
+                case BinaryTokens.TYPE_LONG:
+                    return unzigzag(readVarLong());
+                case BinaryTokens.TYPE_FLOAT:
+                    return Float.intBitsToFloat(readInt());
+                case BinaryTokens.TYPE_DOUBLE:
+                    return Double.longBitsToDouble(((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL));
+                case BinaryTokens.TYPE_TRUE:
+                    return Boolean.TRUE;
+                case BinaryTokens.TYPE_FALSE:
+                    return Boolean.FALSE;
+                case BinaryTokens.TYPE_LIST:
+                    final int size = (int) readVarLong();
+                    final List<Object> list = new ArrayList<Object>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                case BinaryTokens.TYPE_MAP:
+                    final int entries = (int) readVarLong();
+                    final Map<String, Object> map = new HashMap<String, Object>();
+                    for (int i = 0; i < entries; i++) {
+                        final String key = readString();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                case BinaryTokens.TYPE_NUMERIC_STRING:
+                    return Long.toString(unzigzag(readVarLong()));
+                default:
+                    throw new IOException("Unknown value type " + type);
+            }
+        }
+
+        private String readUTF8() throws IOException {
+            return readUTF8((int) readVarLong());
+        }
+
+        private String readUTF8(final int length) throws IOException {
+            if (length < 0 || length > this.limit - this.position) throw new IOException("Truncated string");
+            final String string = new String(this.bytes, this.position, length, "UTF-8");
+            this.position += length;
+            return string;
+        }
+
+        private int readInt() throws IOException {
+            return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private byte readByte() throws IOException {
+            if (this.position >= this.limit) throw new IOException("Record runs past the end of its block");
+            return this.bytes[this.position++];
+        }
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
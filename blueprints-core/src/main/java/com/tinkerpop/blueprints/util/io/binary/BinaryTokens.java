@@ -0,0 +1,42 @@
+package com.tinkerpop.blueprints.util.io.binary;
+
+/**
+ * A collection of tokens used for the binary graph format.
+ * <p/>
+ * A file starts with MAGIC and VERSION as ints, followed by blocks.  Every block is made of its uncompressed length
+ * and its compressed length as ints and the deflated records.  A block with an uncompressed length of 0 ends the file.
+ * <p/>
+ * All vertices come before all edges.  A vertex record is VERTEX, its id and its properties, an edge record is EDGE,
+ * its id, the ids of its out and in vertex, its label and its properties.  Properties are a varint count followed by
+ * the key and the value of each property.  Labels and keys are strings of the string table: a varint of 0 is followed
+ * by a new string, which is assigned the next index, and any other varint refers to the string with that index + 1.
+ * A new string is only assigned an index while the table holds fewer than MAX_STRINGS strings and if its UTF-8 form
+ * is at most MAX_STRING_LENGTH bytes long, so that keys that are data, such as the keys of map values, can not make
+ * the table grow without limit.
+ * Values start with one of the TYPE tokens.  Integers and longs are zigzag encoded varints, strings are a varint
+ * length followed by UTF-8 bytes, lists are a varint size followed by the values and maps a varint size followed by
+ * a string and a value for each entry.  Ids that are strings holding a long in its canonical form are written as
+ * TYPE_NUMERIC_STRING and a zigzag encoded varint.
+ */
+public class BinaryTokens {
+    public static final int MAGIC = 0x42504742;
+    public static final int VERSION = 1;
+
+    public static final int MAX_STRINGS = 1 << 16;
+    public static final int MAX_STRING_LENGTH = 256;
+
+    public static final byte VERTEX = 1;
+    public static final byte EDGE = 2;
+
+    public static final byte TYPE_NULL = 0;
+    public static final byte TYPE_STRING = 1;
+    public static final byte TYPE_INTEGER = 2;
+    public static final byte TYPE_LONG = 3;
+    public static final byte TYPE_FLOAT = 4;
+    public static final byte TYPE_DOUBLE = 5;
+    public static final byte TYPE_TRUE = 6;
+    public static final byte TYPE_FALSE = 7;
+    public static final byte TYPE_LIST = 8;
+    public static final byte TYPE_MAP = 9;
+    public static final byte TYPE_NUMERIC_STRING = 10;
+}
@@ -0,0 +1,313 @@
+package com.tinkerpop.blueprints.util.io.binary;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * BinaryWriter writes a Graph to an OutputStream in the binary graph format that is described by
+ * {@link BinaryTokens}.  Labels and property keys are written once and referred to by their index afterwards,
+ * numbers are written as varints and records are compressed in blocks.
+ * <p/>
+ * Property values keep their type if they are strings, integers, longs, floats, doubles, booleans, null or lists
+ * and maps of these, and arrays are written as lists.  All other values, elements among them, lose their type: they
+ * are written as the string they convert to and read back as that string.  Map keys are written as strings and must
+ * not be null.
+ */
+public class BinaryWriter {
+
+    /**
+     * Default number of uncompressed bytes in a block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private final Graph graph;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * @param graph the Graph to pull the data from
+     */
+    public BinaryWriter(final Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param blockSize the number of uncompressed bytes that are compressed together
+     */
+    public void setBlockSize(final int blockSize) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive");
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @param compressionLevel the level of {@link Deflater} to compress blocks with
+     */
+    public void setCompressionLevel(final int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Write the data in a Graph to a file.
+     *
+     * @param filename the file to write the Graph data to
+     * @throws IOException thrown if the data could not be written
+     */
+    public void outputGraph(final String filename) throws IOException {
+        final FileOutputStream fos = new FileOutputStream(filename);
+        try {
+            outputGraph(fos);
+        } finally {
+            fos.close();
+        }
+    }
+
+    /**
+     * Write the data in a Graph to an OutputStream.  The stream is flushed but not closed.
+     *
+     * @param outputStream the OutputStream to write the Graph data to
+     * @throws IOException thrown if the data could not be written
+     */
+    public void outputGraph(final OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(BinaryTokens.MAGIC);
+        out.writeInt(BinaryTokens.VERSION);
+
+        final Encoder encoder = new Encoder(out);
+        try {
+            for (final Vertex vertex : this.graph.getVertices()) {
+                encoder.block.write(BinaryTokens.VERTEX);
+                encoder.writeId(vertex.getId());
+                encoder.writeProperties(vertex);
+                encoder.endRecord();
+            }
+            for (final Edge edge : this.graph.getEdges()) {
+                encoder.block.write(BinaryTokens.EDGE);
+                encoder.writeId(edge.getId());
+                encoder.writeId(edge.getVertex(Direction.OUT).getId());
+                encoder.writeId(edge.getVertex(Direction.IN).getId());
+                encoder.writeString(edge.getLabel());
+                encoder.writeProperties(edge);
+                encoder.endRecord();
+            }
+            encoder.flushBlock();
+        } finally {
+            encoder.deflater.end();
+        }
+
+        // the end of the file
+        out.writeInt(0);
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /**
+     * Write the data in a Graph to an OutputStream.
+     *
+     * @param graph        the graph to serialize
+     * @param outputStream the OutputStream to write the Graph data to
+     * @throws IOException thrown if the data could not be written
+     */
+    public static void outputGraph(final Graph graph, final OutputStream outputStream) throws IOException {
+        new BinaryWriter(graph).outputGraph(outputStream);
+    }
+
+    /**
+     * Write the data in a Graph to a file.
+     *
+     * @param graph    the graph to serialize
+     * @param filename the file to write the Graph data to
+     * @throws IOException thrown if the data could not be written
+     */
+    public static void outputGraph(final Graph graph, final String filename) throws IOException {
+        new BinaryWriter(graph).outputGraph(filename);
+    }
+
+    private class Encoder {
+
+        private final DataOutputStream out;
+        private final Block block = new Block();
+        private final DataOutputStream data = new DataOutputStream(block);
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final Deflater deflater = new Deflater(compressionLevel);
+        private byte[] compressed = new byte[1024];
+
+        public Encoder(final DataOutputStream out) {
+            this.out = out;
+        }
+
+        public void endRecord() throws IOException {
+            if (this.block.size() >= blockSize) flushBlock();
+        }
+
+        public void flushBlock() throws IOException {
+            if (this.block.size() == 0) return;
+            this.deflater.reset();
+            this.deflater.setInput(this.block.bytes(), 0, this.block.size());
+            this.deflater.finish();
+            int length = 0;
+            while (!this.deflater.finished()) {
+                if (length == this.compressed.length) {
+                    final byte[] larger = new byte[this.compressed.length * 2];
+                    System.arraycopy(this.compressed, 0, larger, 0, length);
+                    this.compressed = larger;
+                }
+                length += this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+            }
+            this.out.writeInt(this.block.size());
+            this.out.writeInt(length);
+            this.out.write(this.compressed, 0, length);
+            this.block.reset();
+        }
+
+        public void writeProperties(final Element element) throws IOException {
+            final Set<String> keys = element.getPropertyKeys();
+            writeVarLong(keys.size());
+            for (final String key : keys) {
+                writeString(key);
+                writeValue(element.getProperty(key));
+            }
+        }
+
+        /**
+         * Writes a label or a key through the string table.  Once the table is full, or if the string is too long to
+         * be worth keeping, the string is written in full every time, so the table stays bounded on both sides.
+         */
+        public void writeString(final String string) throws IOException {
+            final Integer index = this.strings.get(string);
+            if (index == null) {
+                final byte[] bytes = string.getBytes("UTF-8");
+                if (this.strings.size() < BinaryTokens.MAX_STRINGS && bytes.length <= BinaryTokens.MAX_STRING_LENGTH)
+                    this.strings.put(string, this.strings.size());
+                writeVarLong(0);
+                writeUTF8(bytes);
+            } else {
+                writeVarLong(index + 1);
+            }
+        }
+
+        public void writeId(final Object id) throws IOException {
+            if (id instanceof String && isNumeric((String) id)) {
+                this.block.write(BinaryTokens.TYPE_NUMERIC_STRING);
+                writeVarLong(zigzag(Long.parseLong((String) id)));
+            } else {
+                writeValue(id);
+            }
+        }
+
+        public void writeValue(final Object value) throws IOException {
+            if (value == null) {
+                this.block.write(BinaryTokens.TYPE_NULL);
+            } else if (value instanceof String) {
+                this.block.write(BinaryTokens.TYPE_STRING);
+                writeUTF8((String) value);
+            } else if (value instanceof Integer) {
+                this.block.write(BinaryTokens.TYPE_INTEGER);
+                writeVarLong(zigzag((Integer) value));
+            } else if (value instanceof Long) {
+                this.block.write(BinaryTokens.TYPE_LONG);
+                writeVarLong(zigzag((Long) value));
+            } else if (value instanceof Float) {
+                this.block.write(BinaryTokens.TYPE_FLOAT);
+                this.data.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                this.block.write(BinaryTokens.TYPE_DOUBLE);
+                this.data.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                this.block.write((Boolean) value ? BinaryTokens.TYPE_TRUE : BinaryTokens.TYPE_FALSE);
+            } else if (value instanceof List) {
+                final List list = (List) value;
+                this.block.write(BinaryTokens.TYPE_LIST);
+                writeVarLong(list.size());
+                for (final Object item : list) {
+                    writeValue(item);
+                }
+            } else if (value.getClass().isArray()) {
+                final int length = Array.getLength(value);
+                this.block.write(BinaryTokens.TYPE_LIST);
+                writeVarLong(length);
+                for (int i = 0; i < length; i++) {
+                    writeValue(Array.get(value, i));
+                }
+            } else if (value instanceof Map) {
+                final Map<?, ?> map = (Map<?, ?>) value;
+                this.block.write(BinaryTokens.TYPE_MAP);
+                writeVarLong(map.size());
+                for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (entry.getKey() == null) throw new IOException("A map property can not have a null key");
+                    writeString(entry.getKey().toString());
+                    writeValue(entry.getValue());
+                }
+            } else {
+                this.block.write(BinaryTokens.TYPE_STRING);
+                writeUTF8(value.toString());
+            }
+        }
+
+        private void writeUTF8(final String string) throws IOException {
+            writeUTF8(string.getBytes("UTF-8"));
+        }
+
+        private void writeUTF8(final byte[] bytes) {
+            writeVarLong(bytes.length);
+            this.block.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                this.block.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.block.write((int) value);
+        }
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * @return true if the string is a long in the form that Long.toString gives
+     */
+    private static boolean isNumeric(final String string) {
+        final int length = string.length();
+        if (length == 0 || length > 20) return false;
+        final int start = string.charAt(0) == '-' ? 1 : 0;
+        if (start == length || (string.charAt(start) == '0' && length > start + 1) || string.equals("-0")) return false;
+        for (int i = start; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        try {
+            Long.parseLong(string);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static class Block extends ByteArrayOutputStream {
+
+        public Block() {
+            super(DEFAULT_BLOCK_SIZE + 1024);
+        }
+
+        public byte[] bytes() {
+            return this.buf;
+        }
+    }
+}
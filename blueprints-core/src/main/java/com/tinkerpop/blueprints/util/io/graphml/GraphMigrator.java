@@ -1,21 +1,340 @@
 package com.tinkerpop.blueprints.util.io.graphml;
 
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.ParallelScannable;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.ElementHelper;
+import com.tinkerpop.blueprints.util.wrappers.batch.BatchGraph;
+import com.tinkerpop.blueprints.util.wrappers.batch.VertexIDType;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * GraphMigrator takes the data in one graph and pipes it to another graph.
+ * <p/>
+ * Elements are moved directly between the graphs: reader threads copy the ids, labels and properties of the elements
+ * of the source graph into batches that are put on a bounded queue, and the calling thread adds the batches to the
+ * target graph through a {@link BatchGraph}.  All vertices are migrated before the edges.  A source graph that is
+ * {@link ParallelScannable} is read by as many reader threads as configured, any other source graph by one reader
+ * thread.  At most the configured number of batches are held in memory at any time.
+ * <p/>
+ * Source ids are supplied to the target graph and mapped to the ids of the target graph by BatchGraph, so graphs that
+ * ignore supplied ids can be migrated to.  The source ids can also be kept as properties of the migrated elements.
+ * Property values are migrated unchanged, unlike {@link #migrateGraph(Graph, Graph)} which pipes the data through
+ * GraphML and so types every value of a key alike.
  *
  * @author Alex Averbuch (alex.averbuch@gmail.com)
  */
 public class GraphMigrator {
 
+    /**
+     * Default number of elements in a batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Default number of batches that may wait on the queue
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+
+    private static final List<Record> END = new ArrayList<Record>(0);
+
+    /**
+     * Milliseconds a reader waits on a full queue before it checks whether the migration has been cancelled
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    private final Graph fromGraph;
+    private final Graph toGraph;
+
+    private long bufferSize = BatchGraph.DEFAULT_BUFFER_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int readerThreads = 1;
+    private VertexIDType vertexIdType = VertexIDType.OBJECT;
+    private String vertexIdKey = null;
+    private String edgeIdKey = null;
+    private ProgressListener progressListener = null;
+    private long progressInterval = Long.MAX_VALUE;
+
+    private long vertexCount = 0;
+    private long edgeCount = 0;
+    private long startTime = 0;
+    private long elapsedTime = 0;
+
+    /**
+     * Is told how far the migration of a graph has come.
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param vertexCount   the number of vertices migrated so far
+         * @param edgeCount     the number of edges migrated so far
+         * @param elapsedMillis the milliseconds since the migration started
+         */
+        public void progress(long vertexCount, long edgeCount, long elapsedMillis);
+    }
+
+    /**
+     * @param fromGraph the graph to take data from
+     * @param toGraph   the graph to take data to
+     */
+    public GraphMigrator(final Graph fromGraph, final Graph toGraph) {
+        this.fromGraph = fromGraph;
+        this.toGraph = toGraph;
+    }
+
+    /**
+     * @param bufferSize the amount of elements to hold in memory before committing a transactions (only valid for TransactionalGraphs)
+     */
+    public void setBufferSize(final long bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param batchSize the number of elements that are read into a batch before it is handed to the target graph
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param queueSize the number of batches that may wait to be added to the target graph
+     */
+    public void setQueueSize(final int queueSize) {
+        if (queueSize <= 0) throw new IllegalArgumentException("Queue size must be positive");
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @param readerThreads the number of threads that read a ParallelScannable source graph
+     */
+    public void setReaderThreads(final int readerThreads) {
+        if (readerThreads <= 0) throw new IllegalArgumentException("Number of reader threads must be positive");
+        this.readerThreads = readerThreads;
+    }
+
+    /**
+     * @param vertexIdType the type of the vertex ids of the source graph, which determines the id cache of BatchGraph
+     */
+    public void setVertexIdType(final VertexIDType vertexIdType) {
+        this.vertexIdType = vertexIdType;
+    }
+
+    /**
+     * @param vertexIdKey the key to keep the source ids of vertices under, or null to not keep them
+     */
+    public void setVertexIdKey(final String vertexIdKey) {
+        this.vertexIdKey = vertexIdKey;
+    }
+
+    /**
+     * @param edgeIdKey the key to keep the source ids of edges under, or null to not keep them
+     */
+    public void setEdgeIdKey(final String edgeIdKey) {
+        this.edgeIdKey = edgeIdKey;
+    }
+
+    /**
+     * @param listener the listener to tell about the progress of the migration
+     * @param interval the number of elements to migrate between calls to the listener
+     */
+    public void setProgressListener(final ProgressListener listener, final long interval) {
+        if (interval <= 0) throw new IllegalArgumentException("Interval must be positive");
+        this.progressListener = listener;
+        this.progressInterval = interval;
+    }
+
+    /**
+     * @return the number of vertices migrated by the last migration
+     */
+    public long getVertexCount() {
+        return this.vertexCount;
+    }
+
+    /**
+     * @return the number of edges migrated by the last migration
+     */
+    public long getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * @return the milliseconds the last migration took
+     */
+    public long getElapsedTime() {
+        return this.elapsedTime;
+    }
+
+    /**
+     * @return the number of elements migrated per second by the last migration
+     */
+    public double getThroughput() {
+        return this.elapsedTime == 0 ? 0.0d : (this.vertexCount + this.edgeCount) * 1000.0d / this.elapsedTime;
+    }
+
+    /**
+     * Pipe the data from the source graph to the target graph.
+     */
+    public void migrate() {
+        final BatchGraph graph = BatchGraph.wrap(this.toGraph, this.vertexIdType, this.bufferSize);
+        if (this.vertexIdKey != null) graph.setVertexIdKey(this.vertexIdKey);
+        if (this.edgeIdKey != null) graph.setEdgeIdKey(this.edgeIdKey);
+
+        this.vertexCount = 0;
+        this.edgeCount = 0;
+        this.startTime = System.currentTimeMillis();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(this.readerThreads, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "graph-migrator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            if (this.readerThreads > 1 && this.fromGraph instanceof ParallelScannable) {
+                final ParallelScannable scannable = (ParallelScannable) this.fromGraph;
+                migrate(executor, scannable.getVertexPartitions(this.readerThreads), graph);
+                migrate(executor, scannable.getEdgePartitions(this.readerThreads), graph);
+            } else {
+                migrate(executor, Collections.singletonList(this.fromGraph.getVertices()), graph);
+                migrate(executor, Collections.singletonList(this.fromGraph.getEdges()), graph);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        graph.commit();
+
+        this.elapsedTime = System.currentTimeMillis() - this.startTime;
+        // the listener is always told that the migration is done, even when it was just told the same counts
+        progress();
+    }
+
+    private void migrate(final ExecutorService executor, final List<? extends Iterable<? extends Element>> partitions,
+                         final Graph graph) {
+        final BlockingQueue<List<Record>> queue = new ArrayBlockingQueue<List<Record>>(this.queueSize);
+        // set once the calling thread stops taking batches, so that no reader waits on a full queue forever
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (final Iterable<? extends Element> partition : partitions) {
+            futures.add(executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    try {
+                        List<Record> batch = new ArrayList<Record>(batchSize);
+                        for (final Element element : partition) {
+                            batch.add(new Record(element));
+                            if (batch.size() == batchSize) {
+                                if (!put(queue, batch, cancelled)) return null;
+                                batch = new ArrayList<Record>(batchSize);
+                            }
+                        }
+                        if (!batch.isEmpty()) put(queue, batch, cancelled);
+                    } finally {
+                        if (partition instanceof CloseableIterable) ((CloseableIterable) partition).close();
+                        try {
+                            put(queue, END, cancelled);
+                        } catch (InterruptedException e) {
+                            // only the cancelled migration interrupts the readers
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        boolean done = false;
+        try {
+            int readers = futures.size();
+            while (readers > 0) {
+                final List<Record> batch = queue.take();
+                if (batch == END) {
+                    readers--;
+                    continue;
+                }
+                for (final Record record : batch) {
+                    if (record.label == null) {
+                        ElementHelper.setProperties(graph.addVertex(record.id), record.properties);
+                        this.vertexCount++;
+                    } else {
+                        final Vertex outVertex = graph.getVertex(record.outId);
+                        final Vertex inVertex = graph.getVertex(record.inId);
+                        if (outVertex == null || inVertex == null)
+                            throw new IllegalStateException("Edge " + record.id + " refers to a vertex that has not been migrated");
+                        ElementHelper.setProperties(graph.addEdge(record.id, outVertex, inVertex, record.label), record.properties);
+                        this.edgeCount++;
+                    }
+                    if ((this.vertexCount + this.edgeCount) % this.progressInterval == 0) progress();
+                }
+            }
+            // a reader that failed has still ended its partition, so its failure is thrown here
+            for (final Future<Object> future : futures) {
+                future.get();
+            }
+            done = true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            else if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            else
+                throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            if (!done) cancelled.set(true);
+        }
+    }
+
+    /**
+     * Puts the batch on the queue, unless the migration is cancelled while the queue is full.
+     *
+     * @return whether the batch was put on the queue
+     */
+    private static boolean put(final BlockingQueue<List<Record>> queue, final List<Record> batch,
+                               final AtomicBoolean cancelled) throws InterruptedException {
+        while (!queue.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (cancelled.get()) return false;
+        }
+        return true;
+    }
+
+    private void progress() {
+        if (this.progressListener != null)
+            this.progressListener.progress(this.vertexCount, this.edgeCount, System.currentTimeMillis() - this.startTime);
+    }
+
     /**
      * Pipe the data from one graph to another graph.
+     * <p/>
+     * The data is serialized as GraphML, so every value of a key is read into the target graph as the GraphML type of
+     * the key and values that GraphML has no type for are read as strings.  Use an instance of GraphMigrator to move
+     * the values unchanged in batches.
      *
      * @param fromGraph the graph to take data from
      * @param toGraph   the graph to take data to
@@ -56,4 +375,30 @@ public class GraphMigrator {
 
         GraphMLReader.inputGraph(toGraph, inPipe);
     }
-}
\ No newline at end of file
+
+    /**
+     * The id, properties and, for edges, the label and vertex ids of an element of the source graph.
+     */
+    private static class Record {
+        private final Object id;
+        private final Map<String, Object> properties;
+        private final String label;
+        private final Object outId;
+        private final Object inId;
+
+        public Record(final Element element) {
+            this.id = element.getId();
+            this.properties = ElementHelper.getProperties(element);
+            if (element instanceof Edge) {
+                final Edge edge = (Edge) element;
+                this.label = edge.getLabel();
+                this.outId = edge.getVertex(Direction.OUT).getId();
+                this.inId = edge.getVertex(Direction.IN).getId();
+            } else {
+                this.label = null;
+                this.outId = null;
+                this.inId = null;
+            }
+        }
+    }
+}
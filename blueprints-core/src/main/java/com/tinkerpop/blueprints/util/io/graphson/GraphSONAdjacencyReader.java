@@ -0,0 +1,288 @@
+package com.tinkerpop.blueprints.util.io.graphson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.wrappers.batch.BatchGraph;
+import com.tinkerpop.blueprints.util.wrappers.batch.ParallelBatchLoader;
+import com.tinkerpop.blueprints.util.wrappers.batch.VertexIDType;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * GraphSONAdjacencyReader reads the line-delimited adjacency list variant of GraphSON that is written by
+ * {@link GraphSONAdjacencyWriter}.  The edges of a vertex are added as soon as its line is read.  A vertex that an
+ * edge points to before its own line has been read is added without properties and gets its properties once its
+ * line is read, so the input is read in a single pass.
+ * <p/>
+ * The in-vertex of an edge is named by its id and usually sits on another line, so the vertices are looked up by
+ * id in the graph.  For a graph that ignores supplied ids, inputGraph wraps the graph in a BatchGraph, whose map from
+ * the ids of the file to the ids of the graph grows with the number of vertices.  The lines of a stream are read one
+ * after another by a single thread.
+ * <p/>
+ * The files that a graph is split into, at any line break, are read in parallel by
+ * {@link #inputGraph(Graph, List, long, int, GraphSONMode, ElementPropertyConfig)}, which reads each file on a
+ * thread of its own and loads the elements with a {@link ParallelBatchLoader}.  As the loader adds all vertices
+ * before the first edge, every file is read twice, first for its vertices and then for its edges, and every vertex
+ * that an edge points to must have a line in one of the files.
+ */
+public class GraphSONAdjacencyReader {
+
+    private static final JsonFactory jsonFactory = new MappingJsonFactory();
+
+    private final Graph graph;
+    private final GraphSONElementParser vertexParser;
+    private final GraphSONElementParser edgeParser;
+
+    /**
+     * @param graph the graph to add the vertices and edges to
+     * @param mode  the mode of the GraphSON
+     */
+    public GraphSONAdjacencyReader(final Graph graph, final GraphSONMode mode) {
+        this(graph, mode, ElementPropertyConfig.AllProperties);
+    }
+
+    /**
+     * @param graph  the graph to add the vertices and edges to
+     * @param mode   the mode of the GraphSON
+     * @param config the properties of vertices and edges to read
+     */
+    public GraphSONAdjacencyReader(final Graph graph, final GraphSONMode mode, final ElementPropertyConfig config) {
+        this.graph = graph;
+        this.vertexParser = new GraphSONElementParser(mode, null, config);
+        this.edgeParser = new GraphSONElementParser(mode, null, config);
+    }
+
+    /**
+     * Reads a vertex and its out edges from a single line.
+     */
+    public Vertex vertexFromJson(final String line) throws IOException {
+        final JsonParser jp = jsonFactory.createJsonParser(line);
+        try {
+            jp.nextToken();
+            return this.vertexFromJson(jp);
+        } finally {
+            jp.close();
+        }
+    }
+
+    /**
+     * Reads a vertex and its out edges from the JSON object at the current token of the parser.  The parser is
+     * left at the end of the object.
+     */
+    public Vertex vertexFromJson(final JsonParser jp) throws IOException {
+        Vertex vertex = null;
+
+        this.vertexParser.startElement();
+        while (jp.nextToken() != JsonToken.END_OBJECT) {
+            final String key = jp.getCurrentName();
+            jp.nextToken();
+            if (key.equals(GraphSONTokens._OUT_E)) {
+                if (vertex == null) vertex = getOrAddVertex(this.vertexParser.getId());
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                    this.edgeParser.readElement(jp, true);
+                    final Edge edge = this.graph.addEdge(this.edgeParser.getId(), vertex,
+                            getOrAddVertex(this.edgeParser.getInVertexId()), this.edgeParser.getLabel());
+                    this.edgeParser.setProperties(edge);
+                }
+            } else {
+                this.vertexParser.readField(key, jp, false);
+            }
+        }
+
+        if (vertex == null) vertex = getOrAddVertex(this.vertexParser.getId());
+        this.vertexParser.setProperties(vertex);
+        return vertex;
+    }
+
+    private Vertex getOrAddVertex(final Object id) throws IOException {
+        if (id == null) throw new IOException("Vertices of the adjacency list must have an " + GraphSONTokens._ID);
+        final Vertex vertex = this.graph.getVertex(id);
+        return vertex == null ? this.graph.addVertex(id) : vertex;
+    }
+
+    /**
+     * Input the adjacency list into the graph.
+     *
+     * @param graph           the graph to populate with the JSON data
+     * @param jsonInputStream an InputStream of JSON data, one vertex per line
+     * @param mode            the mode of the GraphSON
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public static void inputGraph(final Graph graph, final InputStream jsonInputStream,
+                                  final GraphSONMode mode) throws IOException {
+        inputGraph(graph, jsonInputStream, 1000, mode, ElementPropertyConfig.AllProperties);
+    }
+
+    /**
+     * Input the adjacency list into the graph.
+     *
+     * @param graph    the graph to populate with the JSON data
+     * @param filename name of a file of JSON data, one vertex per line
+     * @param mode     the mode of the GraphSON
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public static void inputGraph(final Graph graph, final String filename, final GraphSONMode mode) throws IOException {
+        final FileInputStream fis = new FileInputStream(filename);
+        try {
+            inputGraph(graph, fis, 1000, mode, ElementPropertyConfig.AllProperties);
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * Input the adjacency list into the graph.
+     *
+     * @param inputGraph      the graph to populate with the JSON data
+     * @param jsonInputStream an InputStream of JSON data, one vertex per line
+     * @param bufferSize      the amount of elements to hold in memory before committing a transactions (only valid for TransactionalGraphs)
+     * @param mode            the mode of the GraphSON
+     * @param config          the properties of vertices and edges to read
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public static void inputGraph(final Graph inputGraph, final InputStream jsonInputStream, final int bufferSize,
+                                  final GraphSONMode mode, final ElementPropertyConfig config) throws IOException {
+        final JsonParser jp = jsonFactory.createJsonParser(jsonInputStream);
+
+        // if this is a transactional graph then we're buffering
+        final BatchGraph graph = BatchGraph.wrap(inputGraph, bufferSize);
+        final GraphSONAdjacencyReader reader = new GraphSONAdjacencyReader(graph, mode, config);
+
+        while (jp.nextToken() == JsonToken.START_OBJECT) {
+            reader.vertexFromJson(jp);
+        }
+
+        jp.close();
+
+        graph.commit();
+    }
+
+    /**
+     * Input the adjacency list files into the graph in parallel, with a thread per file.
+     *
+     * @param graph      the graph to populate with the JSON data
+     * @param filenames  the names of the files of JSON data, one vertex per line
+     * @param bufferSize the number of elements each loading thread adds before committing a transaction
+     * @param threads    the number of threads to read the files and to load the elements with
+     * @param mode       the mode of the GraphSON
+     * @param config     the properties of vertices and edges to read
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public static void inputGraph(final Graph graph, final List<String> filenames, final long bufferSize,
+                                  final int threads, final GraphSONMode mode, final ElementPropertyConfig config) throws IOException {
+        final ParallelBatchLoader loader = new ParallelBatchLoader(graph, VertexIDType.OBJECT, bufferSize, threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, filenames.size())), new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "graphson-adjacency-reader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        boolean done = false;
+        try {
+            readFiles(executor, loader, filenames, false, mode, config);
+            loader.finishVertices();
+            readFiles(executor, loader, filenames, true, mode, config);
+            loader.close();
+            done = true;
+        } finally {
+            executor.shutdownNow();
+            if (!done) {
+                try {
+                    loader.close();
+                } catch (RuntimeException e) {
+                    // the failure that stopped the read is the one reported
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands either the vertices or the edges of every file to the loader and waits until all files are read.
+     */
+    private static void readFiles(final ExecutorService executor, final ParallelBatchLoader loader, final List<String> filenames,
+                                  final boolean edges, final GraphSONMode mode, final ElementPropertyConfig config) throws IOException {
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (final String filename : filenames) {
+            futures.add(executor.submit(new Callable<Object>() {
+                public Object call() throws IOException {
+                    readFile(loader, filename, edges, mode, config);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (final Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            final Throwable t = e.getCause();
+            if (t instanceof IOException) throw (IOException) t;
+            else if (t instanceof RuntimeException) throw (RuntimeException) t;
+            else if (t instanceof Error) throw (Error) t;
+            else throw new RuntimeException(t.getMessage(), t);
+        }
+    }
+
+    private static void readFile(final ParallelBatchLoader loader, final String filename, final boolean edges,
+                                 final GraphSONMode mode, final ElementPropertyConfig config) throws IOException {
+        final GraphSONElementParser vertexParser = new GraphSONElementParser(mode, null, config);
+        final GraphSONElementParser edgeParser = new GraphSONElementParser(mode, null, config);
+        final FileInputStream fis = new FileInputStream(filename);
+        try {
+            final JsonParser jp = jsonFactory.createJsonParser(fis);
+            while (jp.nextToken() == JsonToken.START_OBJECT) {
+                vertexParser.startElement();
+                while (jp.nextToken() != JsonToken.END_OBJECT) {
+                    final String key = jp.getCurrentName();
+                    jp.nextToken();
+                    if (key.equals(GraphSONTokens._OUT_E)) {
+                        if (!edges) {
+                            jp.skipChildren();
+                            continue;
+                        }
+                        final Object outId = vertexParser.getId();
+                        if (outId == null) throw new IOException("Vertices of the adjacency list must have an " + GraphSONTokens._ID);
+                        while (jp.nextToken() != JsonToken.END_ARRAY) {
+                            edgeParser.readElement(jp, true);
+                            loader.addEdge(edgeParser.getId(), outId, edgeParser.getInVertexId(), edgeParser.getLabel(),
+                                    edgeParser.getProperties());
+                        }
+                    } else if (edges && !key.equals(GraphSONTokens._ID)) {
+                        jp.skipChildren();
+                    } else {
+                        vertexParser.readField(key, jp, false);
+                    }
+                }
+                if (!edges) {
+                    if (vertexParser.getId() == null) throw new IOException("Vertices of the adjacency list must have an " + GraphSONTokens._ID);
+                    // the loader takes vertices from one thread at a time
+                    synchronized (loader) {
+                        loader.addVertex(vertexParser.getId(), vertexParser.getProperties());
+                    }
+                }
+            }
+            jp.close();
+        } finally {
+            fis.close();
+        }
+    }
+}
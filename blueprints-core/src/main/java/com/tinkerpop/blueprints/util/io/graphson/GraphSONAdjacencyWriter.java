@@ -0,0 +1,122 @@
+package com.tinkerpop.blueprints.util.io.graphson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * GraphSONAdjacencyWriter writes vertices in the line-delimited adjacency list variant of GraphSON.  Every line
+ * holds one vertex as a GraphSON element with its out edges as GraphSON elements in an array under the _outE key:
+ * <br />
+ * {"name":"marko","_id":"1","_type":"vertex","_outE":[{"weight":0.5,"_id":"7","_type":"edge","_outV":"1","_inV":"2","_label":"knows"}]}
+ * <br />
+ * As every line is a whole JSON object, a file can be appended to by writing more vertices to a stream that is
+ * opened for appending, a vertex with all of its out edges can be read from a single line, and a graph that is
+ * written to several files, or split at line breaks, can be read in parallel by GraphSONAdjacencyReader with a thread
+ * per file.  Properties are typed according
+ * to the GraphSONMode, which is not written to the file and has to be given to the GraphSONAdjacencyReader again.
+ * In GraphSONMode.COMPACT the property keys have to include _id, and _inV for edges, so that lines can refer to
+ * each other.
+ */
+public class GraphSONAdjacencyWriter {
+
+    private static final JsonFactory jsonFactory = new MappingJsonFactory();
+
+    private final JsonGenerator jg;
+    private final GraphSONUtility graphson;
+
+    /**
+     * @param jsonOutputStream the OutputStream to write the vertices to
+     * @param mode             determines the format of the GraphSON
+     */
+    public GraphSONAdjacencyWriter(final OutputStream jsonOutputStream, final GraphSONMode mode) throws IOException {
+        this(jsonOutputStream, mode, ElementPropertyConfig.AllProperties);
+    }
+
+    /**
+     * @param jsonOutputStream the OutputStream to write the vertices to
+     * @param mode             determines the format of the GraphSON
+     * @param config           the properties of vertices and edges to write
+     */
+    public GraphSONAdjacencyWriter(final OutputStream jsonOutputStream, final GraphSONMode mode,
+                                   final ElementPropertyConfig config) throws IOException {
+        this.jg = jsonFactory.createJsonGenerator(jsonOutputStream);
+        // every vertex ends its own line instead of being separated from the next one
+        this.jg.setRootValueSeparator(null);
+        this.graphson = new GraphSONUtility(mode, null, config);
+    }
+
+    /**
+     * Writes a vertex and its out edges as one line.
+     */
+    public void writeVertex(final Vertex vertex) throws IOException {
+        this.jg.writeStartObject();
+        this.graphson.writeElementFields(vertex, this.jg);
+        this.jg.writeArrayFieldStart(GraphSONTokens._OUT_E);
+        for (Edge edge : vertex.getEdges(Direction.OUT)) {
+            this.graphson.writeElement(edge, this.jg);
+        }
+        this.jg.writeEndArray();
+        this.jg.writeEndObject();
+        this.jg.writeRaw('\n');
+    }
+
+    /**
+     * Flushes the vertices that have been written and closes the OutputStream.
+     */
+    public void close() throws IOException {
+        this.jg.flush();
+        this.jg.close();
+    }
+
+    /**
+     * Write the vertices of a Graph with their out edges to an OutputStream, one vertex per line.
+     *
+     * @param graph            the graph to serialize
+     * @param jsonOutputStream the OutputStream to write the Graph data to
+     * @param mode             determines the format of the GraphSON
+     * @throws IOException thrown if there is an error generating the JSON data
+     */
+    public static void outputGraph(final Graph graph, final OutputStream jsonOutputStream,
+                                   final GraphSONMode mode) throws IOException {
+        outputGraph(graph, jsonOutputStream, mode, ElementPropertyConfig.AllProperties);
+    }
+
+    /**
+     * Write the vertices of a Graph with their out edges to an OutputStream, one vertex per line.
+     *
+     * @param graph            the graph to serialize
+     * @param jsonOutputStream the OutputStream to write the Graph data to
+     * @param mode             determines the format of the GraphSON
+     * @param config           the properties of vertices and edges to write
+     * @throws IOException thrown if there is an error generating the JSON data
+     */
+    public static void outputGraph(final Graph graph, final OutputStream jsonOutputStream,
+                                   final GraphSONMode mode, final ElementPropertyConfig config) throws IOException {
+        final GraphSONAdjacencyWriter writer = new GraphSONAdjacencyWriter(jsonOutputStream, mode, config);
+        for (Vertex vertex : graph.getVertices()) {
+            writer.writeVertex(vertex);
+        }
+        writer.close();
+    }
+
+    /**
+     * Write the vertices of a Graph with their out edges to a file, one vertex per line.
+     *
+     * @param graph    the graph to serialize
+     * @param filename the file to write the Graph data to
+     * @param mode     determines the format of the GraphSON
+     * @throws IOException thrown if there is an error generating the JSON data
+     */
+    public static void outputGraph(final Graph graph, final String filename, final GraphSONMode mode) throws IOException {
+        outputGraph(graph, new FileOutputStream(filename), mode);
+    }
+}
@@ -0,0 +1,338 @@
+package com.tinkerpop.blueprints.util.io.graphson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.tinkerpop.blueprints.util.io.graphson.ElementPropertyConfig.ElementPropertiesRule;
+
+/**
+ * Reads graph elements from GraphSON token by token, without first building a JsonNode tree for each element.
+ * Elements are read the same way as GraphSONUtility reads them from a tree.  Properties that are not included by
+ * the property keys are skipped without being parsed and the properties of an element are collected in a buffer
+ * that is reused for the next element, so a parser must not be shared between threads.
+ */
+class GraphSONElementParser {
+
+    private final ElementFactory factory;
+    private final boolean hasEmbeddedTypes;
+    private final Set<String> vertexPropertyKeys;
+    private final Set<String> edgePropertyKeys;
+    private final ElementPropertiesRule vertexPropertiesRule;
+    private final ElementPropertiesRule edgePropertiesRule;
+
+    private final List<String> keys = new ArrayList<String>();
+    private final List<Object> values = new ArrayList<Object>();
+    private Object id;
+    private Object outId;
+    private Object inId;
+    private String label;
+
+    public GraphSONElementParser(final GraphSONMode mode, final ElementFactory factory,
+                                 final Set<String> vertexPropertyKeys, final Set<String> edgePropertyKeys) {
+        this(mode, factory, ElementPropertyConfig.IncludeProperties(vertexPropertyKeys, edgePropertyKeys));
+    }
+
+    public GraphSONElementParser(final GraphSONMode mode, final ElementFactory factory,
+                                 final ElementPropertyConfig config) {
+        this.factory = factory;
+        this.hasEmbeddedTypes = mode == GraphSONMode.EXTENDED;
+        this.vertexPropertyKeys = config.getVertexPropertyKeys();
+        this.edgePropertyKeys = config.getEdgePropertyKeys();
+        this.vertexPropertiesRule = config.getVertexPropertiesRule();
+        this.edgePropertiesRule = config.getEdgePropertiesRule();
+    }
+
+    /**
+     * Creates a vertex from the JSON object at the current token of the parser.  The parser is left at the end
+     * of the object.
+     */
+    public Vertex vertexFromJson(final JsonParser jp) throws IOException {
+        readElement(jp, false);
+        final Vertex v = this.factory.createVertex(this.id);
+        setProperties(v);
+        return v;
+    }
+
+    /**
+     * Creates an edge from the JSON object at the current token of the parser.  The parser is left at the end
+     * of the object.
+     *
+     * @param graph the graph to get the out and in vertices of the edge from
+     */
+    public Edge edgeFromJson(final JsonParser jp, final Graph graph) throws IOException {
+        readElement(jp, true);
+        final Vertex in = graph.getVertex(this.inId);
+        final Vertex out = graph.getVertex(this.outId);
+        final Edge e = this.factory.createEdge(this.id, out, in, this.label);
+        setProperties(e);
+        return e;
+    }
+
+    /**
+     * Reads the JSON object at the current token of the parser without creating an element for it.  The parsed
+     * values are available from the getters until the next element is read.
+     */
+    void readElement(final JsonParser jp, final boolean isEdge) throws IOException {
+        startElement();
+        while (jp.nextToken() != JsonToken.END_OBJECT) {
+            final String key = jp.getCurrentName();
+            jp.nextToken();
+            readField(key, jp, isEdge);
+        }
+    }
+
+    /**
+     * Forgets the element that was read last, so that the fields of the next one can be read with readField.
+     */
+    void startElement() {
+        this.id = null;
+        this.outId = null;
+        this.inId = null;
+        this.label = null;
+        clearProperties();
+    }
+
+    /**
+     * Reads the value of a field of the element at the current token of the parser.
+     */
+    void readField(final String key, final JsonParser jp, final boolean isEdge) throws IOException {
+        final Set<String> propertyKeys = isEdge ? this.edgePropertyKeys : this.vertexPropertyKeys;
+        final ElementPropertiesRule rule = isEdge ? this.edgePropertiesRule : this.vertexPropertiesRule;
+
+        if (key.equals(GraphSONTokens._ID)) {
+            this.id = readValue(jp);
+        } else if (isEdge && key.equals(GraphSONTokens._OUT_V)) {
+            this.outId = readValue(jp);
+        } else if (isEdge && key.equals(GraphSONTokens._IN_V)) {
+            this.inId = readValue(jp);
+        } else if (isEdge && key.equals(GraphSONTokens._LABEL)) {
+            this.label = jp.getCurrentToken() == JsonToken.VALUE_STRING ? jp.getText() : null;
+            jp.skipChildren();
+        } else if (GraphSONUtility.isReservedKey(key) || !GraphSONUtility.includeKey(key, propertyKeys, rule)) {
+            jp.skipChildren();
+        } else {
+            this.keys.add(key);
+            this.values.add(readProperty(jp));
+        }
+    }
+
+    Object getId() {
+        return this.id;
+    }
+
+    Object getOutVertexId() {
+        return this.outId;
+    }
+
+    Object getInVertexId() {
+        return this.inId;
+    }
+
+    String getLabel() {
+        return this.label;
+    }
+
+    /**
+     * @return a copy of the properties of the element that was read last, or null if it has none
+     */
+    Map<String, Object> getProperties() {
+        if (this.keys.isEmpty()) return null;
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        for (int i = 0; i < this.keys.size(); i++) {
+            properties.put(this.keys.get(i), this.values.get(i));
+        }
+        return properties;
+    }
+
+    private void clearProperties() {
+        this.keys.clear();
+        this.values.clear();
+    }
+
+    /**
+     * Sets the properties of the element that was read last on the given element.
+     */
+    void setProperties(final Element element) {
+        for (int i = 0; i < this.keys.size(); i++) {
+            element.setProperty(this.keys.get(i), this.values.get(i));
+        }
+        clearProperties();
+    }
+
+    private Object readProperty(final JsonParser jp) throws IOException {
+        return this.hasEmbeddedTypes ? readTypedProperty(jp) : readUntypedProperty(jp);
+    }
+
+    /**
+     * Reads an id or any other value that is written without an embedded type.
+     */
+    private static Object readValue(final JsonParser jp) throws IOException {
+        final JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_ARRAY) {
+            // arrays are handed back so that they can be reprocessed to their primitive components
+            return jp.readValueAsTree();
+        } else if (token == JsonToken.START_OBJECT) {
+            jp.skipChildren();
+            return null;
+        } else {
+            return readScalar(jp);
+        }
+    }
+
+    private static Object readScalar(final JsonParser jp) throws IOException {
+        switch (jp.getCurrentToken()) {
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_FLOAT:
+                return jp.getDoubleValue();
+            case VALUE_NUMBER_INT:
+                switch (jp.getNumberType()) {
+                    case INT:
+                        return jp.getIntValue();
+                    case LONG:
+                        return jp.getLongValue();
+                    default:
+                        return null;
+                }
+            case VALUE_STRING:
+                return jp.getText();
+            default:
+                return null;
+        }
+    }
+
+    private static Object readUntypedProperty(final JsonParser jp) throws IOException {
+        final JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_ARRAY) {
+            final List list = new ArrayList();
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                list.add(readUntypedProperty(jp));
+            }
+            return list;
+        } else if (token == JsonToken.START_OBJECT) {
+            final Map<String, Object> map = new HashMap<String, Object>();
+            while (jp.nextToken() != JsonToken.END_OBJECT) {
+                final String key = jp.getCurrentName();
+                jp.nextToken();
+                map.put(key, readUntypedProperty(jp));
+            }
+            return map;
+        } else {
+            return readScalar(jp);
+        }
+    }
+
+    /**
+     * Reads a property of the form {"type":..., "value":...}.  Objects that do not start with their type are read
+     * into a tree first, as the value cannot be interpreted before the type is known.
+     */
+    private static Object readTypedProperty(final JsonParser jp) throws IOException {
+        if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+            return GraphSONUtility.readProperty((JsonNode) jp.readValueAsTree(), true);
+        }
+
+        if (jp.nextToken() == JsonToken.FIELD_NAME && jp.getCurrentName().equals(GraphSONTokens.TYPE)
+                && jp.nextToken() == JsonToken.VALUE_STRING) {
+            final String type = jp.getText();
+            Object value = null;
+            JsonNode valueNode = null;
+            boolean hasValue = false;
+            while (jp.nextToken() != JsonToken.END_OBJECT) {
+                final String key = jp.getCurrentName();
+                jp.nextToken();
+                if (key.equals(GraphSONTokens.VALUE)) {
+                    if (isStreamable(type, jp.getCurrentToken())) {
+                        value = readTypedValue(type, jp);
+                        valueNode = null;
+                    } else {
+                        valueNode = jp.readValueAsTree();
+                    }
+                    hasValue = true;
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            return hasValue && valueNode == null ? value : GraphSONUtility.readTypedProperty(type, valueNode);
+        }
+
+        final ObjectNode node = JsonNodeFactory.instance.objectNode();
+        while (jp.getCurrentToken() != JsonToken.END_OBJECT) {
+            if (jp.getCurrentToken() == JsonToken.FIELD_NAME) {
+                final String key = jp.getCurrentName();
+                jp.nextToken();
+                node.put(key, (JsonNode) jp.readValueAsTree());
+            } else {
+                // the type was not a string
+                node.put(GraphSONTokens.TYPE, (JsonNode) jp.readValueAsTree());
+            }
+            jp.nextToken();
+        }
+        return GraphSONUtility.readProperty(node, true);
+    }
+
+    /**
+     * Lists and maps are streamed when their value is an array or an object and all other types when their value
+     * is a scalar.  Anything else is left to the tree based reading.
+     */
+    private static boolean isStreamable(final String type, final JsonToken token) {
+        if (type.equals(GraphSONTokens.TYPE_LIST)) {
+            return token == JsonToken.START_ARRAY;
+        } else if (type.equals(GraphSONTokens.TYPE_MAP)) {
+            return token == JsonToken.START_OBJECT;
+        } else {
+            return token.isScalarValue();
+        }
+    }
+
+    private static Object readTypedValue(final String type, final JsonParser jp) throws IOException {
+        final JsonToken token = jp.getCurrentToken();
+        final boolean isNumber = token.isNumeric();
+
+        if (type.equals(GraphSONTokens.TYPE_BOOLEAN)) {
+            return token == JsonToken.VALUE_TRUE;
+        } else if (type.equals(GraphSONTokens.TYPE_FLOAT)) {
+            // parsed from the same text as the tree based reading, which writes numbers out again
+            return Float.parseFloat(isNumber ? String.valueOf(jp.getNumberValue()) : jp.getText());
+        } else if (type.equals(GraphSONTokens.TYPE_DOUBLE)) {
+            return isNumber ? jp.getNumberValue().doubleValue() : 0.0d;
+        } else if (type.equals(GraphSONTokens.TYPE_INTEGER)) {
+            return isNumber ? jp.getNumberValue().intValue() : 0;
+        } else if (type.equals(GraphSONTokens.TYPE_LONG)) {
+            return isNumber ? jp.getNumberValue().longValue() : 0L;
+        } else if (type.equals(GraphSONTokens.TYPE_STRING)) {
+            return token == JsonToken.VALUE_STRING ? jp.getText() : null;
+        } else if (type.equals(GraphSONTokens.TYPE_LIST)) {
+            final List list = new ArrayList();
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                list.add(readTypedProperty(jp));
+            }
+            return list;
+        } else if (type.equals(GraphSONTokens.TYPE_MAP)) {
+            final Map<String, Object> map = new HashMap<String, Object>();
+            while (jp.nextToken() != JsonToken.END_OBJECT) {
+                final String key = jp.getCurrentName();
+                jp.nextToken();
+                map.put(key, readTypedProperty(jp));
+            }
+            return map;
+        } else {
+            return null;
+        }
+    }
+}
@@ -3,10 +3,8 @@ package com.tinkerpop.blueprints.util.io.graphson;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.tinkerpop.blueprints.Graph;
-import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.util.wrappers.batch.BatchGraph;
 
 import java.io.FileInputStream;
@@ -76,6 +74,32 @@ public class GraphSONReader {
         GraphSONReader.inputGraph(this.graph, filename, bufferSize);
     }
 
+    /**
+     * Input the JSON stream data into the graph with several threads.
+     * In practice, usually the provided graph is empty.
+     *
+     * @param jsonInputStream an InputStream of JSON data
+     * @param bufferSize      the amount of elements each thread adds before committing its transaction
+     * @param threads         the number of threads to parse and load elements with
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public void inputGraph(final InputStream jsonInputStream, int bufferSize, int threads) throws IOException {
+        GraphSONReader.inputGraph(this.graph, jsonInputStream, bufferSize, threads, null, null);
+    }
+
+    /**
+     * Input the JSON file into the graph with several threads.
+     * In practice, usually the provided graph is empty.
+     *
+     * @param filename   name of a file of JSON data
+     * @param bufferSize the amount of elements each thread adds before committing its transaction
+     * @param threads    the number of threads to parse and load elements with
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public void inputGraph(final String filename, int bufferSize, int threads) throws IOException {
+        GraphSONReader.inputGraph(this.graph, filename, bufferSize, threads, null, null);
+    }
+
     /**
      * Input the JSON stream data into the graph.
      * In practice, usually the provided graph is empty.
@@ -142,7 +166,7 @@ public class GraphSONReader {
         final BatchGraph graph = BatchGraph.wrap(inputGraph, bufferSize);
 
         final ElementFactory elementFactory = new GraphElementFactory(graph);
-        GraphSONUtility graphson = new GraphSONUtility(GraphSONMode.NORMAL, elementFactory,
+        GraphSONElementParser parser = new GraphSONElementParser(GraphSONMode.NORMAL, elementFactory,
                 vertexPropertyKeys, edgePropertyKeys);
 
         while (jp.nextToken() != JsonToken.END_OBJECT) {
@@ -150,20 +174,16 @@ public class GraphSONReader {
             if (fieldname.equals(GraphSONTokens.MODE)) {
                 jp.nextToken();
                 final GraphSONMode mode = GraphSONMode.valueOf(jp.getText());
-                graphson = new GraphSONUtility(mode, elementFactory, vertexPropertyKeys, edgePropertyKeys);
+                parser = new GraphSONElementParser(mode, elementFactory, vertexPropertyKeys, edgePropertyKeys);
             } else if (fieldname.equals(GraphSONTokens.VERTICES)) {
                 jp.nextToken();
                 while (jp.nextToken() != JsonToken.END_ARRAY) {
-                    final JsonNode node = jp.readValueAsTree();
-                    graphson.vertexFromJson(node);
+                    parser.vertexFromJson(jp);
                 }
             } else if (fieldname.equals(GraphSONTokens.EDGES)) {
                 jp.nextToken();
                 while (jp.nextToken() != JsonToken.END_ARRAY) {
-                    final JsonNode node = jp.readValueAsTree();
-                    final Vertex inV = graph.getVertex(GraphSONUtility.getTypedValueFromJsonNode(node.get(GraphSONTokens._IN_V)));
-                    final Vertex outV = graph.getVertex(GraphSONUtility.getTypedValueFromJsonNode(node.get(GraphSONTokens._OUT_V)));
-                    graphson.edgeFromJson(node, outV, inV);
+                    parser.edgeFromJson(jp, graph);
                 }
             }
         }
@@ -173,5 +193,41 @@ public class GraphSONReader {
         graph.commit();;
     }
 
+    /**
+     * Input the JSON stream data into the graph with several threads.
+     * The vertices and edges arrays are cut into chunks that are parsed concurrently and the parsed elements are
+     * loaded by a {@link com.tinkerpop.blueprints.util.wrappers.batch.ParallelBatchLoader}, so the graph must either
+     * support threaded transactions, bind transactions to threads or be safe for concurrent writes.  Every vertex
+     * must have an id and the vertices must precede the edges in the JSON data.
+     *
+     * @param inputGraph         the graph to populate with the JSON data
+     * @param jsonInputStream    an InputStream of JSON data
+     * @param bufferSize         the amount of elements each thread adds before committing its transaction
+     * @param threads            the number of threads that parse elements and the number of threads that load them
+     * @param edgePropertyKeys   the keys of the edge properties to read (all if null)
+     * @param vertexPropertyKeys the keys of the vertex properties to read (all if null)
+     * @throws IOException thrown when the JSON data is not correctly formatted
+     */
+    public static void inputGraph(final Graph inputGraph, final InputStream jsonInputStream, int bufferSize, int threads,
+                                  final Set<String> edgePropertyKeys, final Set<String> vertexPropertyKeys) throws IOException {
+        new ParallelGraphSONReader(inputGraph, bufferSize, threads, ParallelGraphSONReader.DEFAULT_CHUNK_SIZE,
+                vertexPropertyKeys, edgePropertyKeys).inputGraph(jsonInputStream);
+    }
+
+    /**
+     * Input the JSON file into the graph with several threads.
+     *
+     * @see #inputGraph(com.tinkerpop.blueprints.Graph, java.io.InputStream, int, int, java.util.Set, java.util.Set)
+     */
+    public static void inputGraph(final Graph inputGraph, final String filename, int bufferSize, int threads,
+                                  final Set<String> edgePropertyKeys, final Set<String> vertexPropertyKeys) throws IOException {
+        final FileInputStream fis = new FileInputStream(filename);
+        try {
+            GraphSONReader.inputGraph(inputGraph, fis, bufferSize, threads, edgePropertyKeys, vertexPropertyKeys);
+        } finally {
+            fis.close();
+        }
+    }
+
 
 }
@@ -13,6 +13,7 @@ public class GraphSONTokens {
     public static final String _TYPE = "_type";
     public static final String _OUT_V = "_outV";
     public static final String _IN_V = "_inV";
+    public static final String _OUT_E = "_outE";
     public static final String VALUE = "value";
     public static final String TYPE = "type";
     public static final String TYPE_LIST = "list";
@@ -3,6 +3,7 @@ package com.tinkerpop.blueprints.util.io.graphson;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
@@ -249,6 +250,84 @@ public class GraphSONUtility {
         return jsonElement;
     }
 
+    /**
+     * Writes GraphSON for a single graph element straight to the generator.  The output is the same as that of
+     * writing the tree from objectNodeFromElement, but only property values that are lists, maps, arrays or
+     * elements are converted to a tree before they are written.
+     */
+    public void writeElement(final Element element, final JsonGenerator jg) throws IOException {
+        jg.writeStartObject();
+        writeElementFields(element, jg);
+        jg.writeEndObject();
+    }
+
+    /**
+     * Writes the fields of writeElement without starting and ending the object, so that further fields can follow.
+     */
+    void writeElementFields(final Element element, final JsonGenerator jg) throws IOException {
+        final boolean isEdge = element instanceof Edge;
+        final boolean showTypes = mode == GraphSONMode.EXTENDED;
+        final Set<String> propertyKeys = isEdge ? this.edgePropertyKeys : this.vertexPropertyKeys;
+        final ElementPropertiesRule elementPropertyConfig = isEdge ? this.edgePropertiesRule : this.vertexPropertiesRule;
+
+        final Map properties = createPropertyMap(element, propertyKeys, elementPropertyConfig);
+        for (Object key : properties.keySet()) {
+            // a reserved key is written once, with its reserved value, after the properties
+            if (!isWrittenReservedKey(key.toString(), isEdge)) {
+                jg.writeFieldName(key.toString());
+                writeValue(jg, properties.get(key), propertyKeys, showTypes);
+            }
+        }
+
+        if ((isEdge && this.includeReservedEdgeId) || (!isEdge && this.includeReservedVertexId)) {
+            jg.writeFieldName(GraphSONTokens._ID);
+            writeObject(jg, element.getId());
+        }
+
+        // it's important to keep the order of these straight.  check Edge first and then Vertex because there
+        // are graph implementations that have Edge extend from Vertex
+        if (element instanceof Edge) {
+            final Edge edge = (Edge) element;
+
+            if (this.includeReservedEdgeType) {
+                jg.writeStringField(GraphSONTokens._TYPE, GraphSONTokens.EDGE);
+            }
+
+            if (this.includeReservedEdgeOutV) {
+                jg.writeFieldName(GraphSONTokens._OUT_V);
+                writeObject(jg, edge.getVertex(Direction.OUT).getId());
+            }
+
+            if (this.includeReservedEdgeInV) {
+                jg.writeFieldName(GraphSONTokens._IN_V);
+                writeObject(jg, edge.getVertex(Direction.IN).getId());
+            }
+
+            if (this.includeReservedEdgeLabel) {
+                jg.writeStringField(GraphSONTokens._LABEL, edge.getLabel());
+            }
+        } else if (element instanceof Vertex) {
+            if (this.includeReservedVertexType) {
+                jg.writeStringField(GraphSONTokens._TYPE, GraphSONTokens.VERTEX);
+            }
+        }
+    }
+
+    private boolean isWrittenReservedKey(final String key, final boolean isEdge) {
+        if (key.equals(GraphSONTokens._ID)) {
+            return isEdge ? this.includeReservedEdgeId : this.includeReservedVertexId;
+        } else if (key.equals(GraphSONTokens._TYPE)) {
+            return isEdge ? this.includeReservedEdgeType : this.includeReservedVertexType;
+        } else if (isEdge && key.equals(GraphSONTokens._OUT_V)) {
+            return this.includeReservedEdgeOutV;
+        } else if (isEdge && key.equals(GraphSONTokens._IN_V)) {
+            return this.includeReservedEdgeInV;
+        } else if (isEdge && key.equals(GraphSONTokens._LABEL)) {
+            return this.includeReservedEdgeLabel;
+        }
+        return false;
+    }
+
     /**
      * Reads an individual Vertex from JSON.  The vertex must match the accepted GraphSON format.
      *
@@ -415,8 +494,8 @@ public class GraphSONUtility {
         return mode != GraphSONMode.COMPACT || includeKey(key, propertyKeys, rule);
     }
 
-    private static boolean includeKey(final String key, final Set<String> propertyKeys,
-                                      final ElementPropertiesRule rule) {
+    static boolean includeKey(final String key, final Set<String> propertyKeys,
+                              final ElementPropertiesRule rule) {
         if (propertyKeys == null) {
             // when null always include the key and shortcut this piece
             return true;
@@ -438,36 +517,16 @@ public class GraphSONUtility {
         return keySituation;
     }
 
-    private static boolean isReservedKey(final String key) {
+    static boolean isReservedKey(final String key) {
         return key.equals(GraphSONTokens._ID) || key.equals(GraphSONTokens._TYPE) || key.equals(GraphSONTokens._LABEL)
                 || key.equals(GraphSONTokens._OUT_V) || key.equals(GraphSONTokens._IN_V);
     }
 
-    private static Object readProperty(final JsonNode node, final boolean hasEmbeddedTypes) {
+    static Object readProperty(final JsonNode node, final boolean hasEmbeddedTypes) {
         final Object propertyValue;
 
         if (hasEmbeddedTypes) {
-            if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_UNKNOWN)) {
-                propertyValue = null;
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_BOOLEAN)) {
-                propertyValue = node.get(GraphSONTokens.VALUE).booleanValue();
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_FLOAT)) {
-                propertyValue = Float.parseFloat(node.get(GraphSONTokens.VALUE).asText());
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_DOUBLE)) {
-                propertyValue = node.get(GraphSONTokens.VALUE).doubleValue();
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_INTEGER)) {
-                propertyValue = node.get(GraphSONTokens.VALUE).intValue();
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_LONG)) {
-                propertyValue = node.get(GraphSONTokens.VALUE).longValue();
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_STRING)) {
-                propertyValue = node.get(GraphSONTokens.VALUE).textValue();
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_LIST)) {
-                propertyValue = readProperties(node.get(GraphSONTokens.VALUE).elements(), hasEmbeddedTypes);
-            } else if (node.get(GraphSONTokens.TYPE).textValue().equals(GraphSONTokens.TYPE_MAP)) {
-                propertyValue = readProperties(node.get(GraphSONTokens.VALUE), false, hasEmbeddedTypes);
-            } else {
-                propertyValue = node.textValue();
-            }
+            propertyValue = readTypedProperty(node.get(GraphSONTokens.TYPE).textValue(), node.get(GraphSONTokens.VALUE));
         } else {
             if (node.isNull()) {
                 propertyValue = null;
@@ -493,6 +552,37 @@ public class GraphSONUtility {
         return propertyValue;
     }
 
+    /**
+     * Reads the value of a property that was written with its type embedded.
+     */
+    static Object readTypedProperty(final String type, final JsonNode value) {
+        final Object propertyValue;
+
+        if (type.equals(GraphSONTokens.TYPE_UNKNOWN)) {
+            propertyValue = null;
+        } else if (type.equals(GraphSONTokens.TYPE_BOOLEAN)) {
+            propertyValue = value.booleanValue();
+        } else if (type.equals(GraphSONTokens.TYPE_FLOAT)) {
+            propertyValue = Float.parseFloat(value.asText());
+        } else if (type.equals(GraphSONTokens.TYPE_DOUBLE)) {
+            propertyValue = value.doubleValue();
+        } else if (type.equals(GraphSONTokens.TYPE_INTEGER)) {
+            propertyValue = value.intValue();
+        } else if (type.equals(GraphSONTokens.TYPE_LONG)) {
+            propertyValue = value.longValue();
+        } else if (type.equals(GraphSONTokens.TYPE_STRING)) {
+            propertyValue = value.textValue();
+        } else if (type.equals(GraphSONTokens.TYPE_LIST)) {
+            propertyValue = readProperties(value.elements(), true);
+        } else if (type.equals(GraphSONTokens.TYPE_MAP)) {
+            propertyValue = readProperties(value, false, true);
+        } else {
+            propertyValue = null;
+        }
+
+        return propertyValue;
+    }
+
     private static List readProperties(final Iterator<JsonNode> listOfNodes, final boolean hasEmbeddedTypes) {
         final List array = new ArrayList();
 
@@ -545,6 +635,51 @@ public class GraphSONUtility {
 
     }
 
+    /**
+     * Writes a property value the way createJSONMap and getValue would put it into a tree.
+     */
+    private static void writeValue(final JsonGenerator jg, final Object value, final Set<String> propertyKeys,
+                                   final boolean showTypes) throws IOException {
+        if (value instanceof List || value instanceof Map || value instanceof Element
+                || (value != null && value.getClass().isArray())) {
+            final Map<String, Object> map = new HashMap<String, Object>(1);
+            map.put(GraphSONTokens.VALUE, value);
+            jg.writeTree(createJSONMap(map, propertyKeys, showTypes).get(GraphSONTokens.VALUE));
+        } else if (showTypes) {
+            jg.writeStartObject();
+            jg.writeStringField(GraphSONTokens.TYPE, determineType(value));
+            jg.writeFieldName(GraphSONTokens.VALUE);
+            writeObject(jg, value);
+            jg.writeEndObject();
+        } else {
+            writeObject(jg, value);
+        }
+    }
+
+    /**
+     * Writes a value the way putObject would put it into a tree.
+     */
+    private static void writeObject(final JsonGenerator jg, final Object value) throws IOException {
+        if (value == null) {
+            jg.writeNull();
+        } else if (value instanceof Boolean) {
+            jg.writeBoolean((Boolean) value);
+        } else if (value instanceof Long) {
+            jg.writeNumber((Long) value);
+        } else if (value instanceof Integer) {
+            jg.writeNumber((Integer) value);
+        } else if (value instanceof Float) {
+            // the tree holds floats as doubles
+            jg.writeNumber((double) (Float) value);
+        } else if (value instanceof Double) {
+            jg.writeNumber((Double) value);
+        } else if (value instanceof String) {
+            jg.writeString((String) value);
+        } else {
+            jg.writeString(value.toString());
+        }
+    }
+
     private static void addObject(final ArrayNode jsonList, final Object value) {
         if (value == null) {
             jsonList.add((JsonNode) null);
@@ -11,6 +11,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * GraphSONWriter writes a Graph to a TinkerPop JSON OutputStream.
@@ -19,7 +20,24 @@ import java.util.Set;
  */
 public class GraphSONWriter {
     private static final JsonFactory jsonFactory = new MappingJsonFactory();
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private final Graph graph;
+    private boolean compressed = false;
+    private ProgressListener progressListener = null;
+    private long progressInterval = Long.MAX_VALUE;
+
+    /**
+     * Is told how far the writing of a graph has come.
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param vertexCount the number of vertices written so far
+         * @param edgeCount   the number of edges written so far
+         */
+        public void progress(long vertexCount, long edgeCount);
+    }
 
     /**
      * @param graph the Graph to pull the data from
@@ -28,6 +46,29 @@ public class GraphSONWriter {
         this.graph = graph;
     }
 
+    /**
+     * Sets whether the output is compressed with gzip.  Defaults to false.
+     *
+     * @param compressed true to compress the output
+     */
+    public void setCompressed(final boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Sets a listener that is told how many vertices and edges have been written after every interval elements.
+     * The listener is told once more when all elements are written, even if the graph is empty or the last call was
+     * for the same counts.
+     *
+     * @param listener the listener or null for none
+     * @param interval the number of elements written between calls to the listener
+     */
+    public void setProgressListener(final ProgressListener listener, final long interval) {
+        if (interval <= 0) throw new IllegalArgumentException("Interval must be positive");
+        this.progressListener = listener;
+        this.progressInterval = interval;
+    }
+
     /**
      * Write the data in a Graph to a JSON OutputStream.
      *
@@ -45,7 +86,8 @@ public class GraphSONWriter {
     }
 
     /**
-     * Write the data in a Graph to a JSON OutputStream.
+     * Write the data in a Graph to a JSON OutputStream.  The elements are written straight to the generator
+     * without building a JSON tree for each of them.
      *
      * @param jsonOutputStream   the JSON OutputStream to write the Graph data to
      * @param vertexPropertyKeys the keys of the vertex elements to write to JSON
@@ -55,23 +97,31 @@ public class GraphSONWriter {
      */
     public void outputGraph(final OutputStream jsonOutputStream, final Set<String> vertexPropertyKeys,
                             final Set<String> edgePropertyKeys, final GraphSONMode mode) throws IOException {
-        final JsonGenerator jg = jsonFactory.createJsonGenerator(jsonOutputStream);
+        final OutputStream out = this.compressed ? new GZIPOutputStream(jsonOutputStream, BUFFER_SIZE) : jsonOutputStream;
+        final JsonGenerator jg = jsonFactory.createJsonGenerator(out);
         final GraphSONUtility graphson = new GraphSONUtility(mode, null, vertexPropertyKeys, edgePropertyKeys);
 
+        long vertexCount = 0;
+        long edgeCount = 0;
+
         jg.writeStartObject();
 
         jg.writeStringField(GraphSONTokens.MODE, mode.toString());
 
         jg.writeArrayFieldStart(GraphSONTokens.VERTICES);
         for (Vertex v : this.graph.getVertices()) {
-            jg.writeTree(graphson.objectNodeFromElement(v));
+            graphson.writeElement(v, jg);
+            vertexCount++;
+            if ((vertexCount + edgeCount) % this.progressInterval == 0) progress(vertexCount, edgeCount);
         }
 
         jg.writeEndArray();
 
         jg.writeArrayFieldStart(GraphSONTokens.EDGES);
         for (Edge e : this.graph.getEdges()) {
-            jg.writeTree(graphson.objectNodeFromElement(e));
+            graphson.writeElement(e, jg);
+            edgeCount++;
+            if ((vertexCount + edgeCount) % this.progressInterval == 0) progress(vertexCount, edgeCount);
         }
         jg.writeEndArray();
 
@@ -79,6 +129,12 @@ public class GraphSONWriter {
 
         jg.flush();
         jg.close();
+
+        progress(vertexCount, edgeCount);
+    }
+
+    private void progress(final long vertexCount, final long edgeCount) {
+        if (this.progressListener != null) this.progressListener.progress(vertexCount, edgeCount);
     }
 
     /**
@@ -0,0 +1,274 @@
+package com.tinkerpop.blueprints.util.io.graphson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.util.wrappers.batch.ParallelBatchLoader;
+import com.tinkerpop.blueprints.util.wrappers.batch.VertexIDType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads GraphSON with several threads.  The calling thread only scans the input for the boundaries of the elements
+ * in the vertices and edges arrays, which is much cheaper than parsing them, and cuts the arrays into chunks of
+ * whole elements.  The chunks are parsed by a pool of threads, which hand the parsed elements to a
+ * {@link ParallelBatchLoader} in whatever order they finish.  All vertices are loaded before the first edge, so the
+ * vertices must come before the edges in the input, as GraphSONWriter writes them.
+ */
+class ParallelGraphSONReader {
+
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final JsonFactory jsonFactory = new MappingJsonFactory();
+
+    private final ParallelBatchLoader loader;
+    private final Set<String> vertexPropertyKeys;
+    private final Set<String> edgePropertyKeys;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final ExecutorService executor;
+    private final Semaphore pendingChunks;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    private GraphSONMode mode = GraphSONMode.NORMAL;
+    private boolean verticesFinished = false;
+
+    ParallelGraphSONReader(final Graph graph, final long bufferSize, final int threads, final int chunkSize,
+                           final Set<String> vertexPropertyKeys, final Set<String> edgePropertyKeys) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+        this.loader = new ParallelBatchLoader(graph, VertexIDType.OBJECT, bufferSize, threads);
+        this.vertexPropertyKeys = vertexPropertyKeys;
+        this.edgePropertyKeys = edgePropertyKeys;
+        this.chunkSize = chunkSize;
+        // a few chunks per thread keep the threads busy while bounding the memory held by chunks
+        this.maxPendingChunks = threads * 2;
+        this.pendingChunks = new Semaphore(this.maxPendingChunks);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "parallel-graphson-reader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Reads the GraphSON from the stream and waits until all elements are committed.  The stream is not closed.
+     */
+    void inputGraph(final InputStream jsonInputStream) throws IOException {
+        boolean done = false;
+        try {
+            scan(jsonInputStream);
+            finishVertices();
+            awaitChunks();
+            this.loader.close();
+            done = true;
+        } finally {
+            this.executor.shutdownNow();
+            if (!done) {
+                try {
+                    this.loader.close();
+                } catch (RuntimeException e) {
+                    // the failure that stopped the read is the one reported
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the top level object for the mode and the vertices and edges arrays, copying each element of the arrays
+     * into the current chunk.  Strings are tracked so that brackets within them are not counted.
+     */
+    private void scan(final InputStream in) throws IOException {
+        final byte[] buffer = new byte[1 << 16];
+        final ByteArrayOutputStream name = new ByteArrayOutputStream();
+        Chunk chunk = null;
+
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        boolean afterColon = false;
+        String key = null;
+        String lastString = null;
+        Boolean isEdgeArray = null;
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            int elementStart = chunk != null && depth >= 3 ? 0 : -1;
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer[i];
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                        if (depth == 1) {
+                            lastString = name.toString("UTF-8");
+                            if (afterColon && GraphSONTokens.MODE.equals(key)) {
+                                this.mode = GraphSONMode.valueOf(lastString);
+                            }
+                        }
+                    }
+                    if (inString && depth == 1) name.write(b);
+                } else if (b == '"') {
+                    inString = true;
+                    name.reset();
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                    if (depth == 2 && b == '[' && afterColon) {
+                        if (GraphSONTokens.VERTICES.equals(key)) {
+                            isEdgeArray = false;
+                        } else if (GraphSONTokens.EDGES.equals(key)) {
+                            finishVertices();
+                            isEdgeArray = true;
+                        }
+                        if (isEdgeArray != null) chunk = new Chunk(isEdgeArray);
+                    } else if (depth == 3 && b == '{' && chunk != null) {
+                        elementStart = i;
+                    }
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 2 && b == '}' && chunk != null) {
+                        chunk.write(buffer, elementStart, i + 1 - elementStart);
+                        chunk.write('\n');
+                        elementStart = -1;
+                        if (chunk.size() >= this.chunkSize) {
+                            submit(chunk);
+                            chunk = new Chunk(isEdgeArray);
+                        }
+                    } else if (depth == 1 && chunk != null) {
+                        submit(chunk);
+                        chunk = null;
+                        isEdgeArray = null;
+                    }
+                } else if (depth == 1) {
+                    if (b == ':') {
+                        key = lastString;
+                        afterColon = true;
+                    } else if (b == ',') {
+                        key = null;
+                        afterColon = false;
+                    }
+                }
+            }
+            if (elementStart != -1) chunk.write(buffer, elementStart, read - elementStart);
+        }
+    }
+
+    /**
+     * Waits until all vertices are handed to the loader and then until the loader has committed them.
+     */
+    private void finishVertices() throws IOException {
+        if (this.verticesFinished) return;
+        awaitChunks();
+        synchronized (this.loader) {
+            this.loader.finishVertices();
+        }
+        this.verticesFinished = true;
+    }
+
+    private void submit(final Chunk chunk) throws IOException {
+        checkFailure();
+        if (chunk.size() == 0) return;
+        acquire(1);
+        final GraphSONMode chunkMode = this.mode;
+        this.executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (failure.get() == null) load(chunk, chunkMode);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    pendingChunks.release();
+                }
+            }
+        });
+    }
+
+    private void load(final Chunk chunk, final GraphSONMode chunkMode) throws IOException {
+        final GraphSONElementParser parser = new GraphSONElementParser(chunkMode, null,
+                this.vertexPropertyKeys, this.edgePropertyKeys);
+        final List<Object[]> elements = new ArrayList<Object[]>();
+        final JsonParser jp = jsonFactory.createJsonParser(chunk.bytes(), 0, chunk.size());
+        try {
+            while (jp.nextToken() == JsonToken.START_OBJECT) {
+                parser.readElement(jp, chunk.isEdge);
+                if (chunk.isEdge) {
+                    elements.add(new Object[]{parser.getId(), parser.getOutVertexId(), parser.getInVertexId(),
+                            parser.getLabel(), parser.getProperties()});
+                } else {
+                    elements.add(new Object[]{parser.getId(), parser.getProperties()});
+                }
+            }
+        } finally {
+            jp.close();
+        }
+
+        // the loader takes elements from one thread at a time and only queues them for its own workers
+        synchronized (this.loader) {
+            for (final Object[] element : elements) {
+                if (chunk.isEdge) {
+                    this.loader.addEdge(element[0], element[1], element[2], (String) element[3],
+                            (Map<String, ?>) element[4]);
+                } else {
+                    this.loader.addVertex(element[0], (Map<String, ?>) element[1]);
+                }
+            }
+        }
+    }
+
+    private void awaitChunks() throws IOException {
+        acquire(this.maxPendingChunks);
+        this.pendingChunks.release(this.maxPendingChunks);
+        checkFailure();
+    }
+
+    private void acquire(final int permits) throws IOException {
+        try {
+            this.pendingChunks.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable t = this.failure.get();
+        if (t instanceof IOException) throw (IOException) t;
+        else if (t instanceof RuntimeException) throw (RuntimeException) t;
+        else if (t instanceof Error) throw (Error) t;
+        else if (t != null) throw new RuntimeException(t.getMessage(), t);
+    }
+
+    /**
+     * Whole elements of either the vertices or the edges array, separated by new lines.
+     */
+    private static class Chunk extends ByteArrayOutputStream {
+
+        private final boolean isEdge;
+
+        public Chunk(final boolean isEdge) {
+            super(1 << 16);
+            this.isEdge = isEdge;
+        }
+
+        public byte[] bytes() {
+            return this.buf;
+        }
+    }
+}
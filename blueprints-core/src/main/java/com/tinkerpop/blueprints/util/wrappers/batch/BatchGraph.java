@@ -15,7 +15,11 @@ import com.tinkerpop.blueprints.util.wrappers.WrapperGraph;
 import com.tinkerpop.blueprints.util.wrappers.batch.cache.VertexCache;
 import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
 
+import java.io.File;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -40,6 +44,11 @@ import java.util.Set;
  * BatchGraph can also automatically set the provided element ids as properties on the respective element. Use
  * {@link #setVertexIdKey(String)} and {@link #setEdgeIdKey(String)} to set the keys for the vertex and edge properties
  * respectively. This allows to make the loaded baseGraph compatible for later wrapping with {@link IdGraph}.
+ * <br />
+ * When the edges of the input are not sorted by their out vertex, BatchGraph can sort them on local disk before they are
+ * added by calling {@link #setEdgeSorting(java.io.File, int, boolean)}. Edges are then only added to the wrapped graph
+ * when the load is committed, and the vertices of consecutive edges are mostly found in a small window of recently used
+ * vertices (see {@link #setRecentVertexWindow(int)}) instead of the vertex cache.
  *
  * @author Matthias Broecheler (http://www.matthiasb.com)
  */
@@ -51,6 +60,11 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
      */
     public static final long DEFAULT_BUFFER_SIZE = 100000;
 
+    /**
+     * Default number of recently used vertices kept when edges are sorted
+     */
+    public static final int DEFAULT_RECENT_VERTEX_WINDOW = 1000;
+
 
 
     private final T baseGraph;
@@ -64,11 +78,14 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
     private long bufferSize = DEFAULT_BUFFER_SIZE;
     private long remainingBufferSize;
 
-    private BatchEdge currentEdge = null;
+    private Edge currentEdge = null;
     private Edge currentEdgeCached = null;
 
     private Object previousOutVertexId = null;
 
+    private EdgeSorter edgeSorter = null;
+    private Map<Object, Vertex> recentVertices = null;
+
     /**
      * Constructs a BatchGraph wrapping the provided baseGraph, using the specified buffer size and expecting vertex ids of
      * the specified IdType. Supplying vertex ids which do not match this type will throw exceptions.
@@ -78,8 +95,26 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
      * @param bufferSize Defines the number of vertices and edges loaded before starting a new transaction. The larger this value, the more memory is required but the faster the loading process.
      */
     public BatchGraph(final T graph, final VertexIDType type, final long bufferSize) {
-        if (graph == null) throw new IllegalArgumentException("Graph may not be null");
+        this(graph, vertexCache(type), bufferSize);
+    }
+
+    private static VertexCache vertexCache(final VertexIDType type) {
         if (type == null) throw new IllegalArgumentException("Type may not be null");
+        return type.getVertexCache();
+    }
+
+    /**
+     * Constructs a BatchGraph wrapping the provided baseGraph, using the specified buffer size and vertex cache.
+     * This allows to use a cache other than the default cache of a {@link VertexIDType}, such as the one returned by
+     * {@link VertexIDType#getOffHeapVertexCache(long, java.io.File)} for loads whose ids do not fit on the heap.
+     *
+     * @param graph      Graph to be wrapped
+     * @param cache      Cache which maps the provided vertex ids to the ids of the vertices in the wrapped graph
+     * @param bufferSize Defines the number of vertices and edges loaded before starting a new transaction. The larger this value, the more memory is required but the faster the loading process.
+     */
+    public BatchGraph(final T graph, final VertexCache cache, final long bufferSize) {
+        if (graph == null) throw new IllegalArgumentException("Graph may not be null");
+        if (cache == null) throw new IllegalArgumentException("Cache may not be null");
         if (bufferSize <= 0) throw new IllegalArgumentException("BufferSize must be positive");
         this.baseGraph = graph;
         this.bufferSize = bufferSize;
@@ -87,7 +122,7 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
         vertexIdKey = null;
         edgeIdKey = null;
 
-        cache = type.getVertexCache();
+        this.cache = cache;
 
         remainingBufferSize = this.bufferSize;
     }
@@ -127,6 +162,21 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
         else return new BatchGraph(new WritethroughGraph(graph), VertexIDType.OBJECT, buffer);
     }
 
+    /**
+     * Constructs a BatchGraph wrapping the provided baseGraph. Immediately returns the baseGraph if its a BatchGraph
+     * and wraps non-transactional graphs in an additional {@link WritethroughGraph}.
+     *
+     * @param graph  Graph to be wrapped
+     * @param type   Type of vertex id expected
+     * @param buffer Size of the buffer
+     */
+    public static BatchGraph wrap(final Graph graph, final VertexIDType type, final long buffer) {
+        if (graph instanceof BatchGraph) return (BatchGraph) graph;
+        else if (graph instanceof TransactionalGraph)
+            return new BatchGraph((TransactionalGraph) graph, type, buffer);
+        else return new BatchGraph(new WritethroughGraph(graph), type, buffer);
+    }
+
     /**
      * Sets the key to be used when setting the vertex id as a property on the respective vertex.
      * If the key is null, then no property will be set.
@@ -206,12 +256,60 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
         return loadingFromScratch;
     }
 
+    /**
+     * Sorts the edges that are added by the id of their out vertex, and by the id of their in vertex next if
+     * sortByInVertex is true, before adding them to the wrapped graph when the load is committed.
+     * Edges are sorted in runs of runSize edges in memory, which are written to temporary files in the given directory
+     * and merged. Also enables a window of {@link #DEFAULT_RECENT_VERTEX_WINDOW} recently used vertices, if no window has
+     * been set yet.
+     *
+     * @param directory      the directory of the temporary files (the default temporary directory if null)
+     * @param runSize        the number of edges to sort in memory at once
+     * @param sortByInVertex whether edges with the same out vertex are sorted by their in vertex
+     */
+    public void setEdgeSorting(final File directory, final int runSize, final boolean sortByInVertex) {
+        if (edgeSorter != null && edgeSorter.size() > 0) throw new IllegalStateException("Edge sorting cannot be changed while edges are being sorted");
+        edgeSorter = new EdgeSorter(directory, runSize, sortByInVertex);
+        if (recentVertices == null) setRecentVertexWindow(DEFAULT_RECENT_VERTEX_WINDOW);
+    }
+
+    /**
+     * Sorts the edges that are added by the id of their out vertex in runs of {@link EdgeSorter#DEFAULT_RUN_SIZE}
+     * edges in the default temporary directory.
+     *
+     * @see #setEdgeSorting(java.io.File, int, boolean)
+     */
+    public void setEdgeSorting() {
+        setEdgeSorting(null, EdgeSorter.DEFAULT_RUN_SIZE, false);
+    }
+
+    /**
+     * Sets the number of recently used vertices of the current transaction that are looked up before the vertex cache.
+     * This pays off when the edges are sorted, as consecutive edges then share their out vertex and the in vertices
+     * of edges with the same out vertex are often repeated. A size of 0 disables the window.
+     *
+     * @param size the number of vertices in the window
+     */
+    public void setRecentVertexWindow(final int size) {
+        if (size < 0) throw new IllegalArgumentException("Window size may not be negative");
+        if (size == 0) {
+            recentVertices = null;
+        } else {
+            recentVertices = new LinkedHashMap<Object, Vertex>(size * 2, 0.75f, true) {
+                protected boolean removeEldestEntry(final Map.Entry<Object, Vertex> eldest) {
+                    return size() > size;
+                }
+            };
+        }
+    }
+
     private void nextElement() {
         currentEdge = null;
         currentEdgeCached = null;
         if (remainingBufferSize <= 0) {
             baseGraph.stopTransaction(Conclusion.SUCCESS);
             cache.newTransaction();
+            if (recentVertices != null) recentVertices.clear();
             remainingBufferSize = bufferSize;
         }
         remainingBufferSize--;
@@ -237,6 +335,7 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
      */
     @Override
     public void commit() {
+        loadSortedEdges();
         currentEdge = null;
         currentEdgeCached = null;
         remainingBufferSize = 0;
@@ -253,6 +352,7 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
 
     @Override
     public void shutdown() {
+        loadSortedEdges();
         baseGraph.commit();
         baseGraph.shutdown();
         currentEdge = null;
@@ -287,11 +387,36 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
     }
 
     private Vertex getCachedVertex(final Object externalID) {
-        Vertex v = retrieveFromCache(externalID);
+        Vertex v = recentVertices == null ? null : recentVertices.get(externalID);
+        if (v != null) return v;
+        v = retrieveFromCache(externalID);
         if (v == null) throw new IllegalArgumentException("Vertex for given ID cannot be found: " + externalID);
+        if (recentVertices != null) recentVertices.put(externalID, v);
         return v;
     }
 
+    private void loadSortedEdges() {
+        if (edgeSorter == null || edgeSorter.size() == 0) return;
+        try {
+            final Iterator<EdgeSorter.EdgeRecord> records = edgeSorter.sorted();
+            while (records.hasNext()) {
+                final EdgeSorter.EdgeRecord record = records.next();
+                nextElement();
+                final Edge edge = baseGraph.addEdge(record.id, getCachedVertex(record.outVertexId), getCachedVertex(record.inVertexId), record.label);
+                if (edgeIdKey != null && record.id != null) {
+                    edge.setProperty(edgeIdKey, record.id);
+                }
+                if (record.properties != null) {
+                    for (final Map.Entry<String, Object> property : record.properties.entrySet()) {
+                        edge.setProperty(property.getKey(), property.getValue());
+                    }
+                }
+            }
+        } finally {
+            edgeSorter.clear();
+        }
+    }
+
 
 
     /**
@@ -349,6 +474,12 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
     public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
         if (!BatchVertex.class.isInstance(outVertex) || !BatchVertex.class.isInstance(inVertex))
             throw new IllegalArgumentException("Given element was not created in this baseGraph");
+        if (edgeSorter != null) {
+            currentEdgeCached = null;
+            previousOutVertexId = outVertex.getId();
+            currentEdge = new SortedBatchEdge(edgeSorter.add(id, outVertex.getId(), inVertex.getId(), label));
+            return currentEdge;
+        }
         nextElement();
 
         final Vertex ov = getCachedVertex(outVertex.getId());
@@ -535,6 +666,74 @@ public class BatchGraph<T extends TransactionalGraph> implements TransactionalGr
     }
 
 
+    /**
+     * An edge that is added once the edges are sorted. Its properties are kept with it until then.
+     */
+    private class SortedBatchEdge implements Edge {
+
+        private final EdgeSorter.EdgeRecord record;
+
+        SortedBatchEdge(final EdgeSorter.EdgeRecord record) {
+            this.record = record;
+        }
+
+        @Override
+        public Vertex getVertex(Direction direction) throws IllegalArgumentException {
+            if (direction == Direction.OUT) return new BatchVertex(record.outVertexId);
+            else if (direction == Direction.IN) return new BatchVertex(record.inVertexId);
+            else throw ExceptionFactory.bothIsNotSupported();
+        }
+
+        @Override
+        public String getLabel() {
+            return record.label;
+        }
+
+        @Override
+        public void setProperty(String key, Object value) {
+            checkScope();
+            record.setProperty(key, value);
+        }
+
+        @Override
+        public Object getId() {
+            return record.id;
+        }
+
+        @Override
+        public Object getProperty(String key) {
+            checkScope();
+            return record.getProperty(key);
+        }
+
+        @Override
+        public Set<String> getPropertyKeys() {
+            checkScope();
+            return record.properties == null ? new HashSet<String>() : new HashSet<String>(record.properties.keySet());
+        }
+
+        @Override
+        public Object removeProperty(String key) {
+            checkScope();
+            return record.removeProperty(key);
+        }
+
+        private void checkScope() {
+            if (this != currentEdge) {
+                throw new UnsupportedOperationException("This edge is no longer in scope");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return StringFactory.edgeString(this);
+        }
+
+        public void remove() {
+            removeEdge(this);
+        }
+    }
+
     private static UnsupportedOperationException retrievalNotSupported() {
         return new UnsupportedOperationException("Retrieval operations are not supported during batch loading");
     }
@@ -0,0 +1,331 @@
+package com.tinkerpop.blueprints.util.wrappers.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts edges by the id of their out vertex, and optionally by the id of their in vertex next, on local disk.
+ * Edges are collected in runs of runSize edges, each run is sorted in memory and written to a temporary file once it
+ * is full, and the runs are merged when the edges are iterated.
+ * <br />
+ * Numeric ids are ordered by their long value and before all other ids, which are ordered by their string value,
+ * so that ids that a {@link com.tinkerpop.blueprints.util.wrappers.batch.cache.VertexCache} considers equal are
+ * sorted next to each other.
+ */
+class EdgeSorter {
+
+    public static final int DEFAULT_RUN_SIZE = 500000;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte SERIALIZED = 7;
+
+    private static final Comparator<Object> ID_ORDER = new Comparator<Object>() {
+        public int compare(final Object a, final Object b) {
+            if (a instanceof Number) {
+                if (!(b instanceof Number)) return -1;
+                final long x = ((Number) a).longValue();
+                final long y = ((Number) b).longValue();
+                return x < y ? -1 : (x == y ? 0 : 1);
+            } else if (b instanceof Number) {
+                return 1;
+            } else {
+                return a.toString().compareTo(b.toString());
+            }
+        }
+    };
+
+    private final File directory;
+    private final int runSize;
+    private final Comparator<EdgeRecord> order;
+
+    private List<EdgeRecord> run = new ArrayList<EdgeRecord>();
+    private final List<File> runs = new ArrayList<File>();
+    private final List<DataInputStream> readers = new ArrayList<DataInputStream>();
+    private long size = 0;
+
+    /**
+     * @param directory      the directory of the temporary run files (the default temporary directory if null)
+     * @param runSize        the number of edges that are sorted in memory at once
+     * @param sortByInVertex whether edges with the same out vertex are sorted by their in vertex
+     */
+    public EdgeSorter(final File directory, final int runSize, final boolean sortByInVertex) {
+        if (runSize <= 0) throw new IllegalArgumentException("Run size must be positive");
+        this.directory = directory;
+        this.runSize = runSize;
+        this.order = new Comparator<EdgeRecord>() {
+            public int compare(final EdgeRecord a, final EdgeRecord b) {
+                final int compare = ID_ORDER.compare(a.outVertexId, b.outVertexId);
+                return compare != 0 || !sortByInVertex ? compare : ID_ORDER.compare(a.inVertexId, b.inVertexId);
+            }
+        };
+    }
+
+    /**
+     * Adds an edge. Its properties can be set on the returned record until the next edge is added.
+     */
+    public EdgeRecord add(final Object id, final Object outVertexId, final Object inVertexId, final String label) {
+        if (run.size() == runSize) spill();
+        final EdgeRecord record = new EdgeRecord(id, outVertexId, inVertexId, label);
+        run.add(record);
+        size++;
+        return record;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the edges that have been added, in order
+     */
+    public Iterator<EdgeRecord> sorted() {
+        if (runs.isEmpty()) {
+            Collections.sort(run, order);
+            return run.iterator();
+        }
+        if (!run.isEmpty()) spill();
+        try {
+            final PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(runs.size(), new Comparator<RunReader>() {
+                public int compare(final RunReader a, final RunReader b) {
+                    return order.compare(a.head, b.head);
+                }
+            });
+            for (final File file : runs) {
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+                readers.add(in);
+                final RunReader reader = new RunReader(in);
+                if (reader.advance()) queue.add(reader);
+            }
+            return new Iterator<EdgeRecord>() {
+                public boolean hasNext() {
+                    return !queue.isEmpty();
+                }
+
+                public EdgeRecord next() {
+                    if (queue.isEmpty()) throw new NoSuchElementException();
+                    final RunReader reader = queue.poll();
+                    final EdgeRecord record = reader.head;
+                    if (reader.advance()) queue.add(reader);
+                    return record;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read sorted edges: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes all edges and deletes the run files.
+     */
+    public void clear() {
+        for (final DataInputStream reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // the file is deleted next
+            }
+        }
+        readers.clear();
+        for (final File file : runs) {
+            if (!file.delete()) file.deleteOnExit();
+        }
+        runs.clear();
+        run = new ArrayList<EdgeRecord>();
+        size = 0;
+    }
+
+    private void spill() {
+        Collections.sort(run, order);
+        try {
+            final File file = File.createTempFile("edges", ".run", directory);
+            runs.add(file);
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            try {
+                for (final EdgeRecord record : run) {
+                    writeValue(out, record.id);
+                    writeValue(out, record.outVertexId);
+                    writeValue(out, record.inVertexId);
+                    out.writeUTF(record.label);
+                    if (record.properties == null) {
+                        out.writeInt(0);
+                    } else {
+                        out.writeInt(record.properties.size());
+                        for (final Map.Entry<String, Object> property : record.properties.entrySet()) {
+                            out.writeUTF(property.getKey());
+                            writeValue(out, property.getValue());
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write sorted edges: " + e.getMessage(), e);
+        }
+        run = new ArrayList<EdgeRecord>();
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            // writeUTF is limited to 64k bytes, so strings are written as bytes
+            final byte[] bytes = ((String) value).getBytes("UTF-8");
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(value);
+            objects.close();
+            out.writeByte(SERIALIZED);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                final byte[] string = new byte[in.readInt()];
+                in.readFully(string);
+                return new String(string, "UTF-8");
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case SERIALIZED:
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try {
+                    return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static class RunReader {
+
+        private final DataInputStream in;
+        private EdgeRecord head = null;
+
+        public RunReader(final DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next record of the run into head.
+         *
+         * @return false if the run is exhausted
+         */
+        public boolean advance() {
+            try {
+                final Object id;
+                try {
+                    id = readValue(in);
+                } catch (EOFException e) {
+                    head = null;
+                    return false;
+                }
+                head = new EdgeRecord(id, readValue(in), readValue(in), in.readUTF());
+                final int properties = in.readInt();
+                for (int i = 0; i < properties; i++) {
+                    head.setProperty(in.readUTF(), readValue(in));
+                }
+                return true;
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read sorted edges: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * An edge whose vertices are referenced by their external ids.
+     */
+    static class EdgeRecord {
+
+        final Object id;
+        final Object outVertexId;
+        final Object inVertexId;
+        final String label;
+        Map<String, Object> properties = null;
+
+        EdgeRecord(final Object id, final Object outVertexId, final Object inVertexId, final String label) {
+            this.id = id;
+            this.outVertexId = outVertexId;
+            this.inVertexId = inVertexId;
+            this.label = label;
+        }
+
+        Object getProperty(final String key) {
+            return properties == null ? null : properties.get(key);
+        }
+
+        void setProperty(final String key, final Object value) {
+            if (properties == null) properties = new HashMap<String, Object>();
+            properties.put(key, value);
+        }
+
+        Object removeProperty(final String key) {
+            return properties == null ? null : properties.remove(key);
+        }
+    }
+}
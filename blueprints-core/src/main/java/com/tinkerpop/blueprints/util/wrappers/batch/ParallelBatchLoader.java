@@ -0,0 +1,440 @@
+package com.tinkerpop.blueprints.util.wrappers.batch;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.ThreadedTransactionalGraph;
+import com.tinkerpop.blueprints.TransactionalGraph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.ExceptionFactory;
+import com.tinkerpop.blueprints.util.wrappers.batch.cache.PartitionedVertexCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ParallelBatchLoader loads a large number of vertices and edges into a graph with a pool of worker threads.
+ * It is the multi-threaded counterpart of {@link BatchGraph} for graphs that can be written to by several threads at once.
+ * <br />
+ * Loading happens in two phases. First all vertices are added with {@link #addVertex(Object, java.util.Map)}, then
+ * {@link #finishVertices()} waits until they are committed, and then all edges are added with
+ * {@link #addEdge(Object, Object, Object, String, java.util.Map)}, which several threads may call at once.
+ * {@link #close()} waits until the edges are committed. The calling threads only hand the elements to the workers in batches, each worker adds them in a transaction of
+ * its own and commits after every bufferSize elements. The external vertex ids are mapped to the loaded vertices by a
+ * {@link PartitionedVertexCache} that all workers share. Like {@link BatchGraph}, a worker caches the vertices it has
+ * not committed yet and replaces them by their ids once it has committed them, as some graphs only assign the final
+ * ids on commit.
+ * <br />
+ * How a worker gets a transaction of its own depends on the wrapped graph:
+ * - a {@link ThreadedTransactionalGraph} that supports threaded transactions hands out a new transaction per commit
+ * - any other {@link TransactionalGraph} is expected to bind transactions to threads
+ * - a graph that is not transactional must be safe for concurrent writes
+ * <br />
+ * Vertices are always dispatched by the hash of their id, so that duplicate ids are detected by the worker that adds both.
+ * Edges are dispatched according to the {@link EdgeOrdering}.
+ * A failure of a worker stops the load and is rethrown by the next call on the loader. Every worker then rolls back
+ * the elements it has not committed yet.
+ */
+public class ParallelBatchLoader {
+
+    /**
+     * Default number of elements a worker adds before it commits
+     */
+    public static final long DEFAULT_BUFFER_SIZE = 100000;
+
+    /**
+     * Number of elements handed to a worker at once
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Milliseconds the calling thread waits on a worker before it checks whether the worker has stopped
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    private static final List<Object> END = new ArrayList<Object>(0);
+
+    /**
+     * How edges are dispatched to the workers.
+     */
+    public enum EdgeOrdering {
+        /**
+         * All edges of an out vertex are added by the same worker in the order they were given, which avoids
+         * contention on the out vertex in the wrapped graph.
+         */
+        OUT_VERTEX,
+        /**
+         * Edges are dispatched to the workers in turn, which balances the load when a few vertices have most edges.
+         */
+        NONE
+    }
+
+    private final Graph graph;
+    private final boolean threaded;
+    private final long bufferSize;
+    private final PartitionedVertexCache cache;
+    private final Worker[] workers;
+    private final ExecutorService executor;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private final AtomicLong vertexCount = new AtomicLong(0l);
+    private final AtomicLong edgeCount = new AtomicLong(0l);
+
+    private String vertexIdKey = null;
+    private String edgeIdKey = null;
+    private EdgeOrdering edgeOrdering = EdgeOrdering.OUT_VERTEX;
+
+    private volatile boolean loadingEdges = false;
+    private volatile boolean closed = false;
+    private final AtomicInteger nextWorker = new AtomicInteger(0);
+
+    /**
+     * Constructs a ParallelBatchLoader for the provided graph.
+     *
+     * @param graph      Graph to load into
+     * @param type       Type of vertex id expected. This information is used to optimize the vertex cache memory footprint.
+     * @param bufferSize Defines the number of vertices and edges each worker loads before committing its transaction.
+     * @param threads    Number of worker threads
+     */
+    public ParallelBatchLoader(final Graph graph, final VertexIDType type, final long bufferSize, final int threads) {
+        if (graph == null) throw new IllegalArgumentException("Graph may not be null");
+        if (type == null) throw new IllegalArgumentException("Type may not be null");
+        if (bufferSize <= 0) throw new IllegalArgumentException("BufferSize must be positive");
+        if (threads <= 0) throw new IllegalArgumentException("Threads must be positive");
+        this.graph = graph;
+        this.threaded = graph instanceof ThreadedTransactionalGraph && graph.getFeatures().supportsThreadedTransactions;
+        this.bufferSize = bufferSize;
+        // more partitions than workers keep the workers from contending for the same partition
+        this.cache = new PartitionedVertexCache(type, threads * 16);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "parallel-batch-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            this.workers[i] = new Worker();
+            this.executor.execute(this.workers[i]);
+        }
+    }
+
+    /**
+     * Sets the key to be used when setting the vertex id as a property on the respective vertex.
+     * If the key is null, then no property will be set.
+     *
+     * @param key Key to be used.
+     */
+    public void setVertexIdKey(final String key) {
+        this.vertexIdKey = key;
+    }
+
+    public String getVertexIdKey() {
+        return vertexIdKey;
+    }
+
+    /**
+     * Sets the key to be used when setting the edge id as a property on the respective edge.
+     * If the key is null, then no property will be set.
+     *
+     * @param key Key to be used.
+     */
+    public void setEdgeIdKey(final String key) {
+        this.edgeIdKey = key;
+    }
+
+    public String getEdgeIdKey() {
+        return edgeIdKey;
+    }
+
+    /**
+     * Sets how edges are dispatched to the workers. The default is {@link EdgeOrdering#OUT_VERTEX}.
+     *
+     * @param ordering the ordering of edges
+     */
+    public void setEdgeOrdering(final EdgeOrdering ordering) {
+        if (ordering == null) throw new IllegalArgumentException("Ordering may not be null");
+        this.edgeOrdering = ordering;
+    }
+
+    public EdgeOrdering getEdgeOrdering() {
+        return edgeOrdering;
+    }
+
+    /**
+     * @return the number of vertices that have been added to the graph so far
+     */
+    public long getVertexCount() {
+        return vertexCount.get();
+    }
+
+    /**
+     * @return the number of edges that have been added to the graph so far
+     */
+    public long getEdgeCount() {
+        return edgeCount.get();
+    }
+
+    /**
+     * Adds a vertex. Must not be called after {@link #finishVertices()}.
+     *
+     * @param id         the external id of the vertex, which edges refer to
+     * @param properties the properties of the vertex (may be null)
+     */
+    public void addVertex(final Object id, final Map<String, ?> properties) {
+        if (id == null) throw ExceptionFactory.vertexIdCanNotBeNull();
+        checkState();
+        if (loadingEdges) throw new IllegalStateException("Vertices can not be added after the vertex phase is finished");
+        submit(workers[cache.partition(id) % workers.length], new Object[]{id, properties});
+    }
+
+    /**
+     * Waits until all vertices that have been added are committed. Edges can only be added after this call.
+     */
+    public void finishVertices() {
+        checkState();
+        if (!loadingEdges) {
+            commitAll();
+            loadingEdges = true;
+        }
+    }
+
+    /**
+     * Adds an edge. Must not be called before {@link #finishVertices()}. Edges may be added by several threads at once,
+     * as long as none of them is still adding edges when {@link #close()} is called.
+     *
+     * @param id          the id of the edge (may be null)
+     * @param outVertexId the external id of the out vertex
+     * @param inVertexId  the external id of the in vertex
+     * @param label       the label of the edge
+     * @param properties  the properties of the edge (may be null)
+     */
+    public void addEdge(final Object id, final Object outVertexId, final Object inVertexId, final String label, final Map<String, ?> properties) {
+        checkState();
+        if (!loadingEdges) throw new IllegalStateException("Edges can only be added after the vertex phase is finished");
+        final Worker worker;
+        if (edgeOrdering == EdgeOrdering.OUT_VERTEX) {
+            worker = workers[cache.partition(outVertexId) % workers.length];
+        } else {
+            worker = workers[(nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length];
+        }
+        submit(worker, new Object[]{id, properties, outVertexId, inVertexId, label});
+    }
+
+    /**
+     * Waits until all vertices and edges that have been added are committed and stops the workers.
+     * The wrapped graph is not shut down.
+     */
+    public void close() {
+        if (closed) return;
+        try {
+            commitAll();
+        } finally {
+            closed = true;
+            for (final Worker worker : workers) {
+                offer(worker, END);
+            }
+            executor.shutdown();
+        }
+    }
+
+    private void checkState() {
+        if (closed) throw new IllegalStateException("The loader has been closed");
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        final Throwable t = failure.get();
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        else if (t instanceof Error) throw (Error) t;
+        else if (t != null) throw new RuntimeException(t.getMessage(), t);
+    }
+
+    private void submit(final Worker worker, final Object[] element) {
+        final boolean offered;
+        synchronized (worker) {
+            worker.batch.add(element);
+            if (worker.batch.size() < BATCH_SIZE) return;
+            final List<Object> batch = worker.batch;
+            worker.batch = new ArrayList<Object>(BATCH_SIZE);
+            // handed over while the worker is locked so that its batches stay in the order they were filled
+            offered = offer(worker, batch);
+        }
+        if (!offered) checkFailure();
+    }
+
+    /**
+     * Hands each worker its partial batch followed by a latch that the worker counts down once it has committed.
+     * A worker that stopped never counts down its latch, so the wait gives up once a worker has stopped.
+     */
+    private void commitAll() {
+        final CountDownLatch latch = new CountDownLatch(workers.length);
+        for (final Worker worker : workers) {
+            final boolean offered;
+            synchronized (worker) {
+                final List<Object> batch = worker.batch;
+                worker.batch = new ArrayList<Object>(BATCH_SIZE);
+                batch.add(latch);
+                offered = offer(worker, batch);
+            }
+            if (!offered) checkFailure();
+        }
+        try {
+            while (!latch.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                for (final Worker worker : workers) {
+                    if (worker.stopped) checkFailure();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Hands the batch to the worker, unless the worker has stopped.
+     *
+     * @return whether the worker took the batch
+     */
+    private static boolean offer(final Worker worker, final List<Object> batch) {
+        try {
+            while (!worker.queue.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (worker.stopped) return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<List<Object>> queue = new ArrayBlockingQueue<List<Object>>(4);
+        // filled by the threads that add elements while they hold the lock of the worker
+        private List<Object> batch = new ArrayList<Object>(BATCH_SIZE);
+
+        private Graph transaction = null;
+        private long remainingBufferSize = bufferSize;
+        // the vertices of the transaction and their external ids, which are cached by id once they are committed
+        private final List<Vertex> uncommittedVertices = new ArrayList<Vertex>();
+        private final List<Object> uncommittedIds = new ArrayList<Object>();
+        private volatile boolean stopped = false;
+
+        public void run() {
+            try {
+                while (true) {
+                    final List<Object> work = queue.take();
+                    if (work == END) return;
+                    for (final Object element : work) {
+                        if (element instanceof CountDownLatch) {
+                            try {
+                                if (failure.get() == null) commit();
+                                else rollback();
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                                rollback();
+                            } finally {
+                                ((CountDownLatch) element).countDown();
+                            }
+                        } else if (failure.get() == null) {
+                            try {
+                                load((Object[]) element);
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                                rollback();
+                            }
+                        } else {
+                            // keep taking work after a failure so that the calling thread is never blocked, and drop
+                            // what this worker has not committed
+                            rollback();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                // a worker only stops with elements it has not committed if the load failed or was interrupted
+                rollback();
+                stopped = true;
+            }
+        }
+
+        private void load(final Object[] element) {
+            final Graph g = transaction();
+            if (element.length == 2) {
+                final Object id = element[0];
+                if (cache.contains(id)) throw ExceptionFactory.vertexWithIdAlreadyExists(id);
+                final Vertex vertex = g.addVertex(id);
+                if (vertexIdKey != null) vertex.setProperty(vertexIdKey, id);
+                setProperties(vertex, (Map<String, ?>) element[1]);
+                cache.set(vertex, id);
+                uncommittedVertices.add(vertex);
+                uncommittedIds.add(id);
+                vertexCount.incrementAndGet();
+            } else {
+                final Object id = element[0];
+                final Edge edge = g.addEdge(id, getVertex(g, element[2]), getVertex(g, element[3]), (String) element[4]);
+                if (edgeIdKey != null && id != null) edge.setProperty(edgeIdKey, id);
+                setProperties(edge, (Map<String, ?>) element[1]);
+                edgeCount.incrementAndGet();
+            }
+            if (--remainingBufferSize <= 0) commit();
+        }
+
+        private Vertex getVertex(final Graph g, final Object externalId) {
+            final Object internal = cache.getEntry(externalId);
+            final Vertex vertex = internal == null ? null : g.getVertex(internal);
+            if (vertex == null) throw new IllegalArgumentException("Vertex for given ID cannot be found: " + externalId);
+            return vertex;
+        }
+
+        private void setProperties(final Element element, final Map<String, ?> properties) {
+            if (properties == null) return;
+            for (final Map.Entry<String, ?> property : properties.entrySet()) {
+                element.setProperty(property.getKey(), property.getValue());
+            }
+        }
+
+        private Graph transaction() {
+            if (transaction == null)
+                transaction = threaded ? ((ThreadedTransactionalGraph) graph).newTransaction() : graph;
+            return transaction;
+        }
+
+        private void commit() {
+            if (transaction instanceof TransactionalGraph) ((TransactionalGraph) transaction).commit();
+            // only the vertices of this worker are replaced, as the vertices of the other workers may not be committed
+            for (int i = 0; i < uncommittedVertices.size(); i++) {
+                cache.setId(uncommittedVertices.get(i).getId(), uncommittedIds.get(i));
+            }
+            uncommittedVertices.clear();
+            uncommittedIds.clear();
+            transaction = null;
+            remainingBufferSize = bufferSize;
+        }
+
+        private void rollback() {
+            try {
+                if (transaction instanceof TransactionalGraph) ((TransactionalGraph) transaction).rollback();
+            } catch (Throwable t) {
+                // the failure that caused the rollback is the one reported
+            }
+            uncommittedVertices.clear();
+            uncommittedIds.clear();
+            transaction = null;
+        }
+    }
+}
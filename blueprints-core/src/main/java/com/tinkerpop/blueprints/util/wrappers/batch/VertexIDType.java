@@ -3,6 +3,8 @@ package com.tinkerpop.blueprints.util.wrappers.batch;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.util.wrappers.batch.cache.*;
 
+import java.io.File;
+
 /**
  * Type of vertex ids expected by BatchGraph. The default is IdType.OBJECT.
  * Use the IdType that best matches the used vertex id types in order to save memory.
@@ -28,4 +30,25 @@ public enum VertexIDType {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns a vertex cache for this type of id that keeps its mappings off the Java heap.
+     * Object ids are not supported, since they can only be compared by their equals method on the heap.
+     *
+     * @param memoryBudget the number of bytes to allocate as direct buffers before spilling to memory-mapped files
+     * @param directory    the directory of the memory-mapped files (the default temporary directory if null)
+     * @return an {@link OffHeapVertexCache} for this type of id
+     */
+    public VertexCache getOffHeapVertexCache(final long memoryBudget, final File directory) {
+        switch (this) {
+            case NUMBER:
+                return new OffHeapVertexCache(true, StringCompression.NO_COMPRESSION, memoryBudget, directory);
+            case STRING:
+                return new OffHeapVertexCache(false, StringCompression.NO_COMPRESSION, memoryBudget, directory);
+            case URL:
+                return new OffHeapVertexCache(false, new URLCompression(), memoryBudget, directory);
+            default:
+                throw new IllegalArgumentException("Off-heap caching is not supported for ID type: " + this);
+        }
+    }
+
+}
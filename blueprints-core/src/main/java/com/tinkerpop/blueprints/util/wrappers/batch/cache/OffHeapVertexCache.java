@@ -0,0 +1,383 @@
+package com.tinkerpop.blueprints.util.wrappers.batch.cache;
+
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A VertexCache that keeps its mappings off the Java heap, so that the number of vertices that can be loaded is not
+ * bounded by the heap size.
+ * <br />
+ * The mappings are kept in an open-addressing hash table of (long hash, long record) slots and an append-only log of
+ * (int key length, key, value) records. Both are made of chunks that are allocated as direct buffers as long as the
+ * memory budget allows, and as memory-mapped temporary files in the spill directory after that, so the operating system
+ * pages them out to disk when memory runs short.
+ * <br />
+ * External ids are keyed by their long value for numeric caches and by their (compressed) string value otherwise,
+ * just like {@link LongIDVertexCache} and {@link StringIDVertexCache}.
+ * Vertices that are set in the current transaction are kept on the heap until {@link #newTransaction()} turns
+ * them into their ids, all other mappings are written off the heap right away.
+ * Internal vertex ids that are not Long, Integer or String have to be Serializable.
+ */
+public class OffHeapVertexCache implements VertexCache {
+
+    /**
+     * Default number of bytes allocated as direct buffers before spilling to memory-mapped files
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256l * 1024l * 1024l;
+
+    private static final int RECORD_CHUNK_SIZE = 1 << 24;
+    private static final int TABLE_CHUNK_SIZE = 1 << 24;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte LONG = 0;
+    private static final byte INTEGER = 1;
+    private static final byte STRING = 2;
+    private static final byte SERIALIZED = 3;
+
+    private final boolean numeric;
+    private final StringCompression compression;
+    private final File directory;
+    private long remainingBudget;
+
+    private final Map<Object, Vertex> transactionVertices = new HashMap<Object, Vertex>();
+
+    private List<ByteBuffer> table;
+    // the part of the memory budget that the table uses
+    private long tableBudget;
+    private long capacity;
+    private long size = 0;
+
+    private final List<ByteBuffer> records = new ArrayList<ByteBuffer>();
+    private long recordEnd = 0;
+
+    /**
+     * @param numeric      whether the external ids are numbers, which are keyed by their long value
+     * @param compression  the compression of the string value of non-numeric external ids
+     * @param memoryBudget the number of bytes to allocate as direct buffers before spilling to memory-mapped files
+     * @param directory    the directory of the memory-mapped files (the default temporary directory if null)
+     */
+    public OffHeapVertexCache(final boolean numeric, final StringCompression compression, final long memoryBudget, final File directory) {
+        if (compression == null) throw new IllegalArgumentException("Compression expected.");
+        if (memoryBudget < 0) throw new IllegalArgumentException("Memory budget may not be negative");
+        this.numeric = numeric;
+        this.compression = compression;
+        this.remainingBudget = memoryBudget;
+        this.directory = directory;
+        this.capacity = INITIAL_CAPACITY;
+        this.table = allocate(capacity * SLOT_SIZE, TABLE_CHUNK_SIZE);
+        this.tableBudget = memoryBudget - remainingBudget;
+    }
+
+    public OffHeapVertexCache(final boolean numeric) {
+        this(numeric, StringCompression.NO_COMPRESSION, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    @Override
+    public Object getEntry(Object externalId) {
+        final Object key = key(externalId);
+        final Vertex vertex = transactionVertices.get(key);
+        if (vertex != null) return vertex;
+        final long record = find(encodeKey(key));
+        return record < 0 ? null : readValue(record);
+    }
+
+    @Override
+    public void set(Vertex vertex, Object externalId) {
+        transactionVertices.put(key(externalId), vertex);
+    }
+
+    @Override
+    public void setId(Object vertexId, Object externalId) {
+        final Object key = key(externalId);
+        transactionVertices.remove(key);
+        put(encodeKey(key), vertexId);
+    }
+
+    @Override
+    public boolean contains(Object externalId) {
+        final Object key = key(externalId);
+        return transactionVertices.containsKey(key) || find(encodeKey(key)) >= 0;
+    }
+
+    @Override
+    public void newTransaction() {
+        for (final Map.Entry<Object, Vertex> entry : transactionVertices.entrySet()) {
+            put(encodeKey(entry.getKey()), entry.getValue().getId());
+        }
+        transactionVertices.clear();
+    }
+
+    /**
+     * @return the number of mappings that have been written off the heap
+     */
+    public long size() {
+        return size;
+    }
+
+    private Object key(final Object externalId) {
+        if (numeric) {
+            if (!(externalId instanceof Number)) throw new IllegalArgumentException("Number expected.");
+            return ((Number) externalId).longValue();
+        } else {
+            return compression.compress(externalId.toString());
+        }
+    }
+
+    private byte[] encodeKey(final Object key) {
+        if (numeric) {
+            final long id = (Long) key;
+            final byte[] bytes = new byte[8];
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (id >>> (56 - 8 * i));
+            }
+            return bytes;
+        } else {
+            return utf8((String) key);
+        }
+    }
+
+    // ################### Hash table ####################
+
+    private static long hash(final byte[] key) {
+        // 64 bit FNV-1a followed by a finalizer that spreads the bits into the low bits used for the slot
+        long hash = 0xcbf29ce484222325l;
+        for (final byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3l;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdl;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * @return the offset of the record of the key, or -1 if the key is not mapped
+     */
+    private long find(final byte[] key) {
+        final long hash = hash(key);
+        long slot = hash & (capacity - 1);
+        while (true) {
+            final long record = getLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE + 8);
+            if (record == 0) return -1;
+            if (getLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE) == hash && keyEquals(record - 1, key))
+                return record - 1;
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    private void put(final byte[] key, final Object vertexId) {
+        final long hash = hash(key);
+        final long record = appendRecord(key, vertexId);
+        long slot = hash & (capacity - 1);
+        while (true) {
+            final long existing = getLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE + 8);
+            if (existing == 0) break;
+            if (getLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE) == hash && keyEquals(existing - 1, key)) {
+                // the record of the previous mapping is left behind in the log
+                putLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE + 8, record + 1);
+                return;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        putLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE, hash);
+        putLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE + 8, record + 1);
+        size++;
+        if (size * 4 > capacity * 3) grow();
+    }
+
+    private void grow() {
+        final List<ByteBuffer> oldTable = table;
+        final long oldCapacity = capacity;
+        final long oldTableBudget = tableBudget;
+        final long budget = remainingBudget;
+        capacity = capacity * 2;
+        table = allocate(capacity * SLOT_SIZE, TABLE_CHUNK_SIZE);
+        tableBudget = budget - remainingBudget;
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            final long record = getLong(oldTable, TABLE_CHUNK_SIZE, oldSlot * SLOT_SIZE + 8);
+            if (record == 0) continue;
+            final long hash = getLong(oldTable, TABLE_CHUNK_SIZE, oldSlot * SLOT_SIZE);
+            long slot = hash & (capacity - 1);
+            while (getLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE + 8) != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            putLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE, hash);
+            putLong(table, TABLE_CHUNK_SIZE, slot * SLOT_SIZE + 8, record);
+        }
+        // the direct memory of the old table is freed once it is garbage collected
+        remainingBudget += oldTableBudget;
+    }
+
+    // ################### Record log ####################
+
+    private long appendRecord(final byte[] key, final Object vertexId) {
+        final byte[] value = encodeValue(vertexId);
+        final int length = 4 + key.length + value.length;
+        if (length > RECORD_CHUNK_SIZE) throw new IllegalArgumentException("Vertex id is too large to be cached: " + vertexId);
+        if ((recordEnd % RECORD_CHUNK_SIZE) + length > RECORD_CHUNK_SIZE || recordEnd == (long) records.size() * RECORD_CHUNK_SIZE) {
+            // records do not straddle chunks
+            recordEnd = (long) records.size() * RECORD_CHUNK_SIZE;
+            records.addAll(allocate(RECORD_CHUNK_SIZE, RECORD_CHUNK_SIZE));
+        }
+        final long offset = recordEnd;
+        final ByteBuffer chunk = records.get((int) (offset / RECORD_CHUNK_SIZE));
+        int position = (int) (offset % RECORD_CHUNK_SIZE);
+        chunk.putInt(position, key.length);
+        position += 4;
+        for (final byte b : key) {
+            chunk.put(position++, b);
+        }
+        for (final byte b : value) {
+            chunk.put(position++, b);
+        }
+        recordEnd = offset + length;
+        return offset;
+    }
+
+    private boolean keyEquals(final long record, final byte[] key) {
+        final ByteBuffer chunk = records.get((int) (record / RECORD_CHUNK_SIZE));
+        int position = (int) (record % RECORD_CHUNK_SIZE);
+        if (chunk.getInt(position) != key.length) return false;
+        position += 4;
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(position + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private Object readValue(final long record) {
+        final ByteBuffer chunk = records.get((int) (record / RECORD_CHUNK_SIZE));
+        int position = (int) (record % RECORD_CHUNK_SIZE);
+        position += 4 + chunk.getInt(position);
+        final byte type = chunk.get(position++);
+        switch (type) {
+            case LONG:
+                return chunk.getLong(position);
+            case INTEGER:
+                return chunk.getInt(position);
+            default:
+                final byte[] bytes = new byte[chunk.getInt(position)];
+                position += 4;
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = chunk.get(position + i);
+                }
+                if (type == STRING) {
+                    try {
+                        return new String(bytes, "UTF-8");
+                    } catch (UnsupportedEncodingException e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                }
+                try {
+                    return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Could not read cached vertex id: " + e.getMessage(), e);
+                }
+        }
+    }
+
+    private static byte[] encodeValue(final Object vertexId) {
+        final ByteBuffer buffer;
+        if (vertexId instanceof Long) {
+            buffer = ByteBuffer.allocate(9);
+            buffer.put(LONG).putLong((Long) vertexId);
+        } else if (vertexId instanceof Integer) {
+            buffer = ByteBuffer.allocate(5);
+            buffer.put(INTEGER).putInt((Integer) vertexId);
+        } else {
+            final byte[] bytes;
+            final byte type;
+            if (vertexId instanceof String) {
+                type = STRING;
+                bytes = utf8((String) vertexId);
+            } else {
+                type = SERIALIZED;
+                try {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    final ObjectOutputStream objects = new ObjectOutputStream(out);
+                    objects.writeObject(vertexId);
+                    objects.close();
+                    bytes = out.toByteArray();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Vertex id can not be cached off the heap: " + vertexId, e);
+                }
+            }
+            buffer = ByteBuffer.allocate(5 + bytes.length);
+            buffer.put(type).putInt(bytes.length).put(bytes);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] utf8(final String string) {
+        try {
+            return string.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    // ################### Chunks ####################
+
+    private static long getLong(final List<ByteBuffer> chunks, final int chunkSize, final long offset) {
+        return chunks.get((int) (offset / chunkSize)).getLong((int) (offset % chunkSize));
+    }
+
+    private static void putLong(final List<ByteBuffer> chunks, final int chunkSize, final long offset, final long value) {
+        chunks.get((int) (offset / chunkSize)).putLong((int) (offset % chunkSize), value);
+    }
+
+    /**
+     * Allocate zeroed chunks of the given size that together hold the given number of bytes.
+     */
+    private List<ByteBuffer> allocate(final long bytes, final int chunkSize) {
+        final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        for (long allocated = 0; allocated < bytes; allocated += chunkSize) {
+            final int size = (int) Math.min(chunkSize, bytes - allocated);
+            ByteBuffer chunk = null;
+            if (size <= remainingBudget) {
+                try {
+                    chunk = ByteBuffer.allocateDirect(size);
+                    remainingBudget -= size;
+                } catch (OutOfMemoryError e) {
+                    // direct memory is exhausted before the budget is, so spill from now on
+                    remainingBudget = 0;
+                }
+            }
+            chunks.add(null == chunk ? map(size) : chunk);
+        }
+        return chunks;
+    }
+
+    private ByteBuffer map(final int size) {
+        try {
+            final File file = File.createTempFile("vertexcache", ".chunk", directory);
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                raf.close();
+                // the mapping outlives the file on most platforms, on others the file goes when the JVM does
+                if (!file.delete()) file.deleteOnExit();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not spill the vertex cache to disk: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.tinkerpop.blueprints.util.wrappers.batch.cache;
+
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.wrappers.batch.VertexIDType;
+
+/**
+ * A VertexCache that can be used by several threads at once. The external ids are hashed into a number of partitions,
+ * each of which is a VertexCache of the given {@link VertexIDType} that is locked while it is used, so threads
+ * only contend when they use ids of the same partition.
+ */
+public class PartitionedVertexCache implements VertexCache {
+
+    private final VertexIDType type;
+    private final VertexCache[] partitions;
+
+    public PartitionedVertexCache(final VertexIDType type, final int partitions) {
+        if (type == null) throw new IllegalArgumentException("Type may not be null");
+        if (partitions <= 0) throw new IllegalArgumentException("Partitions must be positive");
+        this.type = type;
+        this.partitions = new VertexCache[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = type.getVertexCache();
+        }
+    }
+
+    /**
+     * The partition of an external id, which is the same for all ids that the caches of the type consider equal.
+     *
+     * @param externalId the external id of a vertex
+     * @return the partition of the id, between 0 (inclusive) and the number of partitions (exclusive)
+     */
+    public int partition(final Object externalId) {
+        final int hash;
+        switch (type) {
+            case NUMBER:
+                if (!(externalId instanceof Number)) throw new IllegalArgumentException("Number expected.");
+                final long id = ((Number) externalId).longValue();
+                hash = (int) (id ^ (id >>> 32));
+                break;
+            case OBJECT:
+                hash = externalId.hashCode();
+                break;
+            default:
+                hash = externalId.toString().hashCode();
+                break;
+        }
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    @Override
+    public Object getEntry(Object externalId) {
+        final VertexCache partition = partitions[partition(externalId)];
+        synchronized (partition) {
+            return partition.getEntry(externalId);
+        }
+    }
+
+    @Override
+    public void set(Vertex vertex, Object externalId) {
+        final VertexCache partition = partitions[partition(externalId)];
+        synchronized (partition) {
+            partition.set(vertex, externalId);
+        }
+    }
+
+    @Override
+    public void setId(Object vertexId, Object externalId) {
+        final VertexCache partition = partitions[partition(externalId)];
+        synchronized (partition) {
+            partition.setId(vertexId, externalId);
+        }
+    }
+
+    @Override
+    public boolean contains(Object externalId) {
+        final VertexCache partition = partitions[partition(externalId)];
+        synchronized (partition) {
+            return partition.contains(externalId);
+        }
+    }
+
+    @Override
+    public void newTransaction() {
+        for (final VertexCache partition : partitions) {
+            synchronized (partition) {
+                partition.newTransaction();
+            }
+        }
+    }
+}
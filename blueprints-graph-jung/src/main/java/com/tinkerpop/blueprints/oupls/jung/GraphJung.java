@@ -157,11 +157,16 @@ public class GraphJung<T extends Graph> implements DirectedGraph<Vertex, Edge>,
     }
 
     public int getEdgeCount() {
-        int count = 0;
-        for (final Edge edge : this.graph.getEdges()) {
-            count++;
+        final Iterable<Edge> itty = this.graph.getEdges();
+        if (itty instanceof Collection) {
+            return ((Collection) itty).size();
+        } else {
+            int count = 0;
+            for (final Edge edge : itty) {
+                count++;
+            }
+            return count;
         }
-        return count;
     }
 
     public Collection<Edge> getEdges() {
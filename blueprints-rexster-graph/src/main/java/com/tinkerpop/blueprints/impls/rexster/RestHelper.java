@@ -2,17 +2,11 @@ package com.tinkerpop.blueprints.impls.rexster;
 
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
-import org.codehaus.jettison.json.JSONTokener;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
+
 import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -21,51 +15,59 @@ import java.net.URLEncoder;
 final class RestHelper {
 
     public static RexsterAuthentication Authentication;
+    private static final String GET = "GET";
+    private static final String POST = "POST";
     private static final String PUT = "PUT";
     private static final String DELETE = "DELETE";
 
-    static JSONObject get(final String uri) {
-        try {
-            final URLConnection connection = createConnection(uri, null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON);
-            connection.connect();
-            return new JSONObject(new JSONTokener(convertStreamToString(connection.getInputStream())));
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+    static JSONObject get(final RexsterTransport transport, final String uri) {
+        return transport.request(GET, safeUri(uri), headers(null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON), null);
+    }
+
+    /**
+     * Sends a GET without waiting for its response, so that several can be in flight at once.
+     */
+    static Future<JSONObject> getAsync(final RexsterTransport transport, final String uri) {
+        return transport.submit(GET, safeUri(uri), headers(null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON), null);
     }
 
-    static JSONArray getResultArray(final String uri) {
-        return RestHelper.get(safeUri(uri)).optJSONArray(RexsterTokens.RESULTS);
+    static JSONArray getResultArray(final RexsterTransport transport, final String uri) {
+        return RestHelper.get(transport, safeUri(uri)).optJSONArray(RexsterTokens.RESULTS);
     }
 
-    static JSONObject getResultObject(final String uri) {
-        return RestHelper.get(safeUri(uri)).optJSONObject(RexsterTokens.RESULTS);
+    static JSONObject getResultObject(final RexsterTransport transport, final String uri) {
+        return RestHelper.get(transport, safeUri(uri)).optJSONObject(RexsterTokens.RESULTS);
     }
 
-    static JSONArray postResultArray(final String uri, final JSONObject json) {
-        return post(uri, json.toString(), RexsterTokens.APPLICATION_JSON,
-                RexsterTokens.APPLICATION_JSON, false).optJSONArray(RexsterTokens.RESULTS);
+    static JSONArray postResultArray(final RexsterTransport transport, final String uri, final JSONObject json) {
+        return post(transport, uri, json.toString(), RexsterTokens.APPLICATION_JSON,
+                RexsterTokens.APPLICATION_JSON).optJSONArray(RexsterTokens.RESULTS);
     }
 
-    static JSONObject postResultObject(final String uri) {
-        return post(uri, postData(uri), null, RexsterTokens.APPLICATION_JSON, false).optJSONObject(RexsterTokens.RESULTS);
+    static JSONObject postResultObject(final RexsterTransport transport, final String uri) {
+        return post(transport, uri, postData(uri), null, RexsterTokens.APPLICATION_JSON).optJSONObject(RexsterTokens.RESULTS);
     }
 
-    static JSONObject postResultObject(final String uri, final JSONObject json) {
-        return post(uri, json.toString(), RexsterTokens.APPLICATION_REXSTER_TYPED_JSON,
-                RexsterTokens.APPLICATION_REXSTER_TYPED_JSON, false).optJSONObject(RexsterTokens.RESULTS);
+    static JSONObject postResultObject(final RexsterTransport transport, final String uri, final JSONObject json) {
+        return post(transport, uri, json.toString(), RexsterTokens.APPLICATION_REXSTER_TYPED_JSON,
+                RexsterTokens.APPLICATION_REXSTER_TYPED_JSON).optJSONObject(RexsterTokens.RESULTS);
     }
 
-    static void post(final String uri) {
-        post(uri, postData(uri), null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON, false);
+    static JSONObject postObject(final RexsterTransport transport, final String uri, final JSONObject json) {
+        return post(transport, uri, json.toString(), RexsterTokens.APPLICATION_REXSTER_TYPED_JSON,
+                RexsterTokens.APPLICATION_REXSTER_TYPED_JSON);
     }
 
-    static void delete(final String uri) {
-        act(uri, DELETE, null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON);
+    static void post(final RexsterTransport transport, final String uri) {
+        post(transport, uri, postData(uri), null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON);
     }
 
-    static void put(final String uri) {
-        act(uri, PUT, null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON);
+    static void delete(final RexsterTransport transport, final String uri) {
+        transport.request(DELETE, safeUri(uri), headers(null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON), null);
+    }
+
+    static void put(final RexsterTransport transport, final String uri) {
+        transport.request(PUT, safeUri(uri), headers(null, RexsterTokens.APPLICATION_REXSTER_TYPED_JSON), null);
     }
 
     static Object typeCast(final String type, final Object value) {
@@ -108,54 +110,27 @@ final class RestHelper {
             return id.toString();
     }
 
-    private static void act(final String uri, final String verb, final String contentType,
-                            final String accept) {
-        try {
-            final HttpURLConnection connection = createConnection(uri, contentType, accept);
-            connection.setRequestMethod(verb);
-            new InputStreamReader(connection.getInputStream()).close();
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
-    }
-
-    private static HttpURLConnection createConnection(final String uri, final String contentType,
-                                                      final String accept) throws IOException {
-        final URL url = new URL(safeUri(uri));
-        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    private static Map<String, String> headers(final String contentType, final String accept) {
+        final Map<String, String> headers = new HashMap<String, String>();
         if (contentType != null) {
-            connection.setRequestProperty("Content-Type", contentType);
+            headers.put("Content-Type", contentType);
         }
 
         if (accept != null) {
-            connection.setRequestProperty(RexsterTokens.ACCEPT, accept);
+            headers.put(RexsterTokens.ACCEPT, accept);
         }
 
         if (Authentication.isAuthenticationEnabled()) {
-            connection.setRequestProperty(RexsterTokens.AUTHORIZATION, Authentication.getAuthenticationHeaderValue());
-        }
-        return connection;
-    }
-
-    private static JSONObject post(final String uri, final String postData, final String contentType,
-                                   final String accept, final boolean noResult) {
-        try {
-            final HttpURLConnection connection = createConnection(uri, contentType, accept);
-            connection.setDoOutput(true);
-
-            final OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream());
-            writer.write(postData); // post data with Content-Length automatically set
-            writer.close();
-
-            if (noResult) {
-                new InputStreamReader(connection.getInputStream()).close();
-                return null;
-            } else {
-                return new JSONObject(new JSONTokener(convertStreamToString(connection.getInputStream())));
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage(), e);
+            headers.put(RexsterTokens.AUTHORIZATION, Authentication.getAuthenticationHeaderValue());
         }
+        return headers;
+    }
+
+    private static JSONObject post(final RexsterTransport transport, final String uri, final String postData, final String contentType,
+                                   final String accept) {
+        // without a content type the parameters of the uri are posted as form data
+        final JSONObject json = transport.request(POST, safeUri(uri), headers(contentType == null ? "application/x-www-form-urlencoded" : contentType, accept), postData);
+        return json == null ? new JSONObject() : json;
     }
 
     private static String postUri(final String uri) {
@@ -185,15 +160,4 @@ final class RestHelper {
         // todo: make this way more safe
         return uri.replace(" ", "%20");
     }
-
-    private static String convertStreamToString(final InputStream is) throws Exception {
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-        final StringBuilder sb = new StringBuilder();
-        String line = null;
-        while ((line = reader.readLine()) != null) {
-            sb.append(line + "\n");
-        }
-        is.close();
-        return sb.toString();
-    }
-}
\ No newline at end of file
+}
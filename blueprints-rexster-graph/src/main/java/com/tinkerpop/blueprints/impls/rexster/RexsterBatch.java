@@ -0,0 +1,155 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.tinkerpop.blueprints.Direction;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The mutations of a RexsterGraph in batch mode, which are sent to the batch extension of Rexster in one request per
+ * batchSize mutations.
+ * The properties set on an element that is created in the same batch are sent with its creation.
+ * The mutations are only dropped once Rexster has taken them, so that a batch that could not be sent is sent again by
+ * the next flush, unless it is cleared first. If Rexster returns the elements it created under results, in the order
+ * of their creation, the elements that were handed out for them take on the ids that Rexster gave them. If it does not,
+ * the elements keep the ids the client gave them, which is only right when the graph behind Rexster keeps supplied ids,
+ * so a flush that created elements in a graph that may ignore them fails once Rexster has taken the batch.
+ */
+class RexsterBatch {
+
+    private final RexsterGraph graph;
+    private final String uri;
+    private final int batchSize;
+    private final List<Map<String, Object>> mutations = new ArrayList<Map<String, Object>>();
+    private final Map<Object, Map<String, Object>> createdVertices = new HashMap<Object, Map<String, Object>>();
+    private final Map<Object, Map<String, Object>> createdEdges = new HashMap<Object, Map<String, Object>>();
+    private final List<RexsterElement> created = new ArrayList<RexsterElement>();
+
+    public RexsterBatch(final RexsterGraph graph, final int batchSize) {
+        this.graph = graph;
+        this.uri = graph.getGraphURI() + RexsterTokens.SLASH_BATCH_TX;
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public synchronized void addVertex(final RexsterVertex vertex) {
+        final Map<String, Object> mutation = mutation(RexsterTokens.VERTEX, vertex.getId(), RexsterTokens.CREATE);
+        this.createdVertices.put(vertex.getId(), mutation);
+        this.created.add(vertex);
+        this.add(mutation);
+    }
+
+    public synchronized void addEdge(final RexsterEdge edge) {
+        final Map<String, Object> mutation = mutation(RexsterTokens.EDGE, edge.getId(), RexsterTokens.CREATE);
+        mutation.put(RexsterTokens._OUTV, edge.getVertexId(Direction.OUT));
+        mutation.put(RexsterTokens._INV, edge.getVertexId(Direction.IN));
+        mutation.put(RexsterTokens._LABEL, edge.getLabel());
+        this.createdEdges.put(edge.getId(), mutation);
+        this.created.add(edge);
+        this.add(mutation);
+    }
+
+    public synchronized void setProperty(final boolean vertex, final Object id, final String key, final Object value) {
+        Map<String, Object> mutation = (vertex ? this.createdVertices : this.createdEdges).get(id);
+        if (null == mutation) {
+            mutation = mutation(vertex ? RexsterTokens.VERTEX : RexsterTokens.EDGE, id, RexsterTokens.UPDATE);
+            mutation.put(key, RestHelper.uriCast(value));
+            this.add(mutation);
+        } else {
+            mutation.put(key, RestHelper.uriCast(value));
+        }
+    }
+
+    public synchronized void removeProperty(final boolean vertex, final Object id, final String key) {
+        final Map<String, Object> created = (vertex ? this.createdVertices : this.createdEdges).get(id);
+        if (null != created) {
+            created.remove(key);
+        } else {
+            final Map<String, Object> mutation = mutation(vertex ? RexsterTokens.VERTEX : RexsterTokens.EDGE, id, RexsterTokens.DELETE);
+            final List<String> keys = new ArrayList<String>();
+            keys.add(key);
+            mutation.put(RexsterTokens._KEYS, new JSONArray(keys));
+            this.add(mutation);
+        }
+    }
+
+    public synchronized void remove(final boolean vertex, final Object id) {
+        (vertex ? this.createdVertices : this.createdEdges).remove(id);
+        this.add(mutation(vertex ? RexsterTokens.VERTEX : RexsterTokens.EDGE, id, RexsterTokens.DELETE));
+    }
+
+    /**
+     * Sends the buffered mutations to Rexster.
+     *
+     * @throws IllegalStateException when Rexster took the batch, but the ids of the elements it created can not be
+     *                               reconciled with the ids of the elements that were handed out for them
+     */
+    public synchronized void flush() {
+        if (this.mutations.isEmpty())
+            return;
+
+        final List<JSONObject> tx = new ArrayList<JSONObject>(this.mutations.size());
+        for (final Map<String, Object> mutation : this.mutations) {
+            tx.add(new JSONObject(mutation));
+        }
+
+        final Map<String, Object> data = new HashMap<String, Object>();
+        data.put(RexsterTokens.TX, new JSONArray(tx));
+        final JSONObject result = RestHelper.postObject(this.graph.getTransport(), this.uri, new JSONObject(data));
+        if (null == result || !result.optBoolean(RexsterTokens.SUCCESS))
+            throw new RuntimeException("Could not commit the batch: " + (null == result ? "no response" : result.optString(RexsterTokens.MESSAGE)));
+
+        final List<RexsterElement> sent = new ArrayList<RexsterElement>(this.created);
+        this.clear();
+        if (sent.isEmpty())
+            return;
+
+        final JSONArray results = result.optJSONArray(RexsterTokens.RESULTS);
+        if (null == results) {
+            if (!this.graph.keepsSuppliedIds())
+                throw new IllegalStateException("Rexster did not return the " + sent.size() + " elements the batch created and the graph may ignore supplied ids, so their ids are unknown");
+            return;
+        }
+        if (results.length() != sent.size())
+            throw new IllegalStateException("Rexster returned " + results.length() + " elements for the " + sent.size() + " elements the batch created, so their ids are unknown");
+        for (int i = 0; i < sent.size(); i++) {
+            final JSONObject rawElement = results.optJSONObject(i);
+            if (null == rawElement || !rawElement.has(RexsterTokens._ID))
+                throw new IllegalStateException("Rexster did not return the id of created element " + i + " of the batch");
+        }
+        for (int i = 0; i < sent.size(); i++) {
+            sent.get(i).resolve(results.optJSONObject(i));
+        }
+    }
+
+    /**
+     * Drops the buffered mutations.
+     */
+    public synchronized void clear() {
+        this.mutations.clear();
+        this.createdVertices.clear();
+        this.createdEdges.clear();
+        this.created.clear();
+    }
+
+    private void add(final Map<String, Object> mutation) {
+        this.mutations.add(mutation);
+        if (this.mutations.size() >= this.batchSize)
+            this.flush();
+    }
+
+    private static Map<String, Object> mutation(final String type, final Object id, final String action) {
+        final Map<String, Object> mutation = new HashMap<String, Object>();
+        mutation.put(RexsterTokens._TYPE, type);
+        mutation.put(RexsterTokens._ID, id);
+        mutation.put(RexsterTokens._ACTION, action);
+        return mutation;
+    }
+}
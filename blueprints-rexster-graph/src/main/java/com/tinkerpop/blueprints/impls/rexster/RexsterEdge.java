@@ -13,8 +13,8 @@ import org.codehaus.jettison.json.JSONObject;
 public class RexsterEdge extends RexsterElement implements Edge {
 
     private final String label;
-    private final Object outVertex;
-    private final Object inVertex;
+    private Object outVertex;
+    private Object inVertex;
 
 
     protected RexsterEdge(final JSONObject rawEdge, final RexsterGraph graph) {
@@ -24,11 +24,26 @@ public class RexsterEdge extends RexsterElement implements Edge {
         this.inVertex = rawEdge.opt(RexsterTokens._INV);
     }
 
+    void resolve(final JSONObject rawEdge) {
+        super.resolve(rawEdge);
+        if (rawEdge.has(RexsterTokens._OUTV))
+            this.outVertex = rawEdge.opt(RexsterTokens._OUTV);
+        if (rawEdge.has(RexsterTokens._INV))
+            this.inVertex = rawEdge.opt(RexsterTokens._INV);
+    }
+
     public Vertex getVertex(final Direction direction) {
+        return new RexsterVertex(RestHelper.getResultObject(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getVertexId(direction))), this.graph);
+    }
+
+    /**
+     * The id of a vertex of the edge, which is known without a request.
+     */
+    Object getVertexId(final Direction direction) {
         if (direction.equals(Direction.OUT))
-            return new RexsterVertex(RestHelper.getResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.outVertex)), this.graph);
+            return this.outVertex;
         else if (direction.equals(Direction.IN))
-            return new RexsterVertex(RestHelper.getResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.inVertex)), this.graph);
+            return this.inVertex;
         else
             throw ExceptionFactory.bothIsNotSupported();
     }
@@ -43,7 +58,7 @@ public class RexsterEdge extends RexsterElement implements Edge {
     }
 
     public JSONObject getRawEdge() {
-        return RestHelper.getResultObject(graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + this.getId());
+        return RestHelper.getResultObject(graph.getTransport(), graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + this.getId());
     }
 
 }
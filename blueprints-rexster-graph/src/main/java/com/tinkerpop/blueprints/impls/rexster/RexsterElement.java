@@ -10,7 +10,6 @@ import org.codehaus.jettison.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,40 +19,34 @@ import java.util.Set;
  */
 abstract class RexsterElement implements Element {
 
-    protected final Object id;
+    protected Object id;
     protected final RexsterGraph graph;
 
     public RexsterElement(final JSONObject rawElement, final RexsterGraph graph) {
         this.id = rawElement.opt(RexsterTokens._ID);
         this.graph = graph;
+        if (this.graph.getElementCache().isEnabled())
+            this.graph.getElementCache().put(this instanceof Vertex, this.id, rawElement);
     }
 
     public Object getId() {
         return this.id;
     }
 
-    public Set<String> getPropertyKeys() {
-        JSONObject rawElement;
-
-        if (this instanceof Vertex)
-            rawElement = RestHelper.getResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()));
-        else
-            rawElement = RestHelper.getResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()));
-
-        Set<String> keys = new HashSet<String>();
-        Iterator keyIterator = rawElement.keys();
-        while (keyIterator.hasNext()) {
-            keys.add((String) keyIterator.next());
+    /**
+     * Takes on the id that Rexster gave the element when it created it from a batch, which differs from the id the
+     * client generated if the graph of Rexster ignores supplied ids.
+     */
+    void resolve(final JSONObject rawElement) {
+        final Object resolvedId = rawElement.opt(RexsterTokens._ID);
+        if (null != resolvedId && !resolvedId.equals(this.id)) {
+            this.graph.getElementCache().remove(this instanceof Vertex, this.id);
+            this.id = resolvedId;
         }
+    }
 
-        keys.remove(RexsterTokens._TYPE);
-        keys.remove(RexsterTokens._LABEL);
-        keys.remove(RexsterTokens._ID);
-        keys.remove(RexsterTokens._OUTE);
-        keys.remove(RexsterTokens._INE);
-        keys.remove(RexsterTokens._OUTV);
-        keys.remove(RexsterTokens._INV);
-        return keys;
+    public Set<String> getPropertyKeys() {
+        return new HashSet<String>(this.getProperties().keySet());
     }
 
     public void remove() {
@@ -64,17 +57,7 @@ abstract class RexsterElement implements Element {
     }
 
     public <T> T getProperty(final String key) {
-        JSONObject rawElement;
-        if (this instanceof Vertex)
-            rawElement = RestHelper.getResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RexsterTokens.REXSTER_SHOW_TYPES_EQUALS_TRUE);
-        else
-            rawElement = RestHelper.getResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RexsterTokens.REXSTER_SHOW_TYPES_EQUALS_TRUE);
-
-        JSONObject typedProperty = rawElement.optJSONObject(key);
-        if (null != typedProperty)
-            return (T) RestHelper.typeCast(typedProperty.optString(RexsterTokens.TYPE), typedProperty.opt(RexsterTokens.VALUE));
-        else
-            return null;
+        return (T) this.getProperties().get(key);
     }
 
     public void setProperty(final String key, final Object value) {
@@ -82,15 +65,29 @@ abstract class RexsterElement implements Element {
         if (key.startsWith(RexsterTokens.UNDERSCORE))
             throw new RuntimeException("RexsterGraph does not support property keys that start with underscore");
 
+        final RexsterBatch batch = this.graph.getBatch();
+        if (null != batch) {
+            batch.setProperty(this instanceof Vertex, this.id, key, value);
+            this.graph.getElementCache().setProperty(this instanceof Vertex, this.id, key, value);
+            return;
+        }
+
         final Map<String, Object> data = new HashMap<String, Object>();
         data.put(key, RestHelper.uriCast(value));
         final JSONObject json = new JSONObject(data);
 
+        final JSONObject rawElement;
         if (this instanceof Vertex) {
-            RestHelper.postResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()), json);
+            rawElement = RestHelper.postResultObject(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()), json);
         } else {
-            RestHelper.postResultObject(this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()), json);
+            rawElement = RestHelper.postResultObject(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()), json);
         }
+
+        // the updated element holds the value as Rexster stored it
+        if (null != rawElement)
+            this.graph.getElementCache().put(this instanceof Vertex, this.id, rawElement);
+        else
+            this.graph.getElementCache().remove(this instanceof Vertex, this.id);
     }
 
     public int hashCode() {
@@ -101,14 +98,35 @@ abstract class RexsterElement implements Element {
 
         Object object = this.getProperty(key);
 
-        if (this instanceof Vertex)
-            RestHelper.delete(this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RestHelper.encode(key));
+        final RexsterBatch batch = this.graph.getBatch();
+        if (null != batch)
+            batch.removeProperty(this instanceof Vertex, this.id, key);
+        else if (this instanceof Vertex)
+            RestHelper.delete(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RestHelper.encode(key));
         else
-            RestHelper.delete(this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RestHelper.encode(key));
+            RestHelper.delete(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RestHelper.encode(key));
 
+        this.graph.getElementCache().removeProperty(this instanceof Vertex, this.id, key);
         return (T) object;
     }
 
+    /**
+     * @return the cached properties of the element, fetched from Rexster if they are not cached or stale
+     */
+    private Map<String, Object> getProperties() {
+        final boolean vertex = this instanceof Vertex;
+        final Map<String, Object> properties = this.graph.getElementCache().get(vertex, this.id);
+        if (null != properties)
+            return properties;
+
+        final JSONObject rawElement;
+        if (vertex)
+            rawElement = RestHelper.getResultObject(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RexsterTokens.REXSTER_SHOW_TYPES_EQUALS_TRUE);
+        else
+            rawElement = RestHelper.getResultObject(this.graph.getTransport(), this.graph.getGraphURI() + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(this.getId()) + RexsterTokens.QUESTION + RexsterTokens.REXSTER_SHOW_TYPES_EQUALS_TRUE);
+        return this.graph.getElementCache().put(vertex, this.id, rawElement);
+    }
+
     public boolean equals(final Object object) {
         return ElementHelper.areEqual(this, object);
     }
@@ -0,0 +1,163 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The properties of the vertices and edges most recently read from or written to Rexster.
+ * The cache holds nothing until it is given a positive maxSize.
+ * Entries are evicted least recently used once there are more than maxSize of them and are stale once they are older
+ * than timeToLive milliseconds.
+ * Every JSON element returned by Rexster carries all its properties, so an element is cached whenever it is returned,
+ * which lets the elements of an iteration answer getProperty() without a request of their own.
+ */
+class RexsterElementCache {
+
+    private static final Set<String> RESERVED_KEYS = new HashSet<String>();
+
+    static {
+        RESERVED_KEYS.add(RexsterTokens._TYPE);
+        RESERVED_KEYS.add(RexsterTokens._LABEL);
+        RESERVED_KEYS.add(RexsterTokens._ID);
+        RESERVED_KEYS.add(RexsterTokens._OUTE);
+        RESERVED_KEYS.add(RexsterTokens._INE);
+        RESERVED_KEYS.add(RexsterTokens._OUTV);
+        RESERVED_KEYS.add(RexsterTokens._INV);
+    }
+
+    private final Map<Object, Entry> vertices;
+    private final Map<Object, Entry> edges;
+    private int maxSize;
+    private long timeToLive;
+
+    public RexsterElementCache(final int maxSize, final long timeToLive) {
+        this.vertices = new Lru();
+        this.edges = new Lru();
+        this.setLimits(maxSize, timeToLive);
+    }
+
+    /**
+     * @param maxSize    the number of vertices and the number of edges to hold, 0 disables the cache
+     * @param timeToLive the milliseconds an entry is used for
+     */
+    public synchronized void setLimits(final int maxSize, final long timeToLive) {
+        if (maxSize < 0) throw new IllegalArgumentException("Max size can not be negative");
+        if (timeToLive < 0) throw new IllegalArgumentException("Time to live can not be negative");
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.vertices.clear();
+        this.edges.clear();
+    }
+
+    public synchronized boolean isEnabled() {
+        return this.maxSize > 0;
+    }
+
+    /**
+     * @return the properties of the element, or null if they are not cached or stale
+     */
+    public synchronized Map<String, Object> get(final boolean vertex, final Object id) {
+        final Map<Object, Entry> map = vertex ? this.vertices : this.edges;
+        final Entry entry = map.get(id);
+        if (null == entry)
+            return null;
+        if (System.currentTimeMillis() - entry.loaded > this.timeToLive) {
+            map.remove(id);
+            return null;
+        }
+        return entry.properties;
+    }
+
+    /**
+     * Caches the properties of a JSON element returned by Rexster, replacing what was cached for it.
+     *
+     * @return the properties of the element
+     */
+    public synchronized Map<String, Object> put(final boolean vertex, final Object id, final JSONObject rawElement) {
+        final Map<String, Object> properties = properties(rawElement);
+        if (this.maxSize > 0)
+            (vertex ? this.vertices : this.edges).put(id, new Entry(properties));
+        return properties;
+    }
+
+    /**
+     * Sets a property of the element if the element is cached. Only strings and numbers are sent with a type that
+     * Rexster returns them with again, so for any other value the element is removed from the cache instead, and read
+     * from Rexster the next time.
+     */
+    public synchronized void setProperty(final boolean vertex, final Object id, final String key, final Object value) {
+        final Map<Object, Entry> map = vertex ? this.vertices : this.edges;
+        final Entry entry = map.get(id);
+        if (null != entry) {
+            if (value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double)
+                entry.properties.put(key, value);
+            else
+                map.remove(id);
+        }
+    }
+
+    /**
+     * Removes a property from the element if the element is cached.
+     */
+    public synchronized void removeProperty(final boolean vertex, final Object id, final String key) {
+        final Entry entry = (vertex ? this.vertices : this.edges).get(id);
+        if (null != entry)
+            entry.properties.remove(key);
+    }
+
+    public synchronized void remove(final boolean vertex, final Object id) {
+        (vertex ? this.vertices : this.edges).remove(id);
+    }
+
+    public synchronized void clearEdges() {
+        this.edges.clear();
+    }
+
+    public synchronized void clear() {
+        this.vertices.clear();
+        this.edges.clear();
+    }
+
+    private static Map<String, Object> properties(final JSONObject rawElement) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        final Iterator keyIterator = rawElement.keys();
+        while (keyIterator.hasNext()) {
+            final String key = (String) keyIterator.next();
+            if (RESERVED_KEYS.contains(key))
+                continue;
+
+            final JSONObject typedProperty = rawElement.optJSONObject(key);
+            if (null != typedProperty && typedProperty.has(RexsterTokens.TYPE))
+                properties.put(key, RestHelper.typeCast(typedProperty.optString(RexsterTokens.TYPE), typedProperty.opt(RexsterTokens.VALUE)));
+            else
+                properties.put(key, rawElement.opt(key));
+        }
+        return properties;
+    }
+
+    private static class Entry {
+        private final Map<String, Object> properties;
+        private final long loaded = System.currentTimeMillis();
+
+        public Entry(final Map<String, Object> properties) {
+            this.properties = properties;
+        }
+    }
+
+    private class Lru extends LinkedHashMap<Object, Entry> {
+        public Lru() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Object, Entry> eldest) {
+            return this.size() > maxSize;
+        }
+    }
+}
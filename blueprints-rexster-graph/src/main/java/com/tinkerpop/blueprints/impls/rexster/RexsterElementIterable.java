@@ -2,20 +2,40 @@ package com.tinkerpop.blueprints.impls.rexster;
 
 import com.tinkerpop.blueprints.CloseableIterable;
 import com.tinkerpop.blueprints.Element;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
-import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
+ * Iterates the elements of a uri in pages.
+ * <p/>
+ * Once half of a page is consumed, the next page is fetched in the background, so that iteration does not wait on the
+ * network when consuming the rest of a page takes longer than fetching one, while an iteration that stops early does
+ * not fetch a page it never reads. The first page holds the buffer size of the graph.
+ * Whenever the iteration had to wait for a page, the page size doubles, up to MAX_PAGE_SIZE, to spread the latency of
+ * a request over more elements, unless the page took longer than MAX_PAGE_MILLIS, because the elements are large or
+ * the server is slow, in which case the page size halves, down to the buffer size.
+ * Closing the iterable cancels the pages that are being fetched. The iterable does not keep its iterators from being
+ * garbage collected, so an iterator that is dropped before it is exhausted costs at most the page it was fetching.
+ *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
 abstract class RexsterElementIterable<T extends Element> implements CloseableIterable<T> {
 
+    static final int MAX_PAGE_SIZE = 10000;
+    static final long MAX_PAGE_MILLIS = 2000;
+
     protected final RexsterGraph graph;
     protected final String uri;
+    private final Set<PageIterator> iterators = Collections.newSetFromMap(new WeakHashMap<PageIterator, Boolean>());
 
     public RexsterElementIterable(final String uri, final RexsterGraph graph) {
         this.graph = graph;
@@ -23,60 +43,14 @@ abstract class RexsterElementIterable<T extends Element> implements CloseableIte
     }
 
     public Iterator<T> iterator() {
-        return new Iterator<T>() {
-
-            private final Queue<T> queue = new LinkedList<T>();
-            private int start = 0;
-            private int end = graph.getBufferSize();
-
-            public boolean hasNext() {
-                if (!queue.isEmpty())
-                    return true;
-                else {
-                    if (end > start) {
-                        // last buffer if start == end
-                        fillBuffer(queue, start, end);
-                        this.update();
-                    }
-                    return !queue.isEmpty();
-                }
-            }
-
-
-            public void remove() {
-                throw new NotImplementedException();
-            }
-
-            public T next() {
-                if (!queue.isEmpty()) {
-                    return queue.remove();
-                } else {
-                    if (end > start) {
-                        // last buffer if start == end
-                        fillBuffer(queue, start, end);
-                        this.update();
-                    }
-
-                    if (!queue.isEmpty()) {
-                        return queue.remove();
-                    } else
-                        throw new NoSuchElementException();
-                }
-            }
-
-            private void update() {
-                final int bufferSize = graph.getBufferSize();
-                if (this.queue.size() == bufferSize) { // next buffer if full
-                    this.start = this.start + bufferSize;
-                    this.end = this.end + bufferSize;
-                } else { // last buffer
-                    this.start = this.end;
-                }
-            }
-        };
+        final PageIterator iterator = new PageIterator();
+        synchronized (this.iterators) {
+            this.iterators.add(iterator);
+        }
+        return iterator;
     }
 
-    protected abstract void fillBuffer(final Queue<T> queue, final int start, final int end);
+    protected abstract T createElement(final JSONObject rawElement);
 
     protected String createSeparator() {
         if (this.uri.contains(RexsterTokens.QUESTION))
@@ -86,5 +60,105 @@ abstract class RexsterElementIterable<T extends Element> implements CloseableIte
     }
 
     public void close() {
+        synchronized (this.iterators) {
+            for (final PageIterator iterator : this.iterators) {
+                iterator.cancel();
+            }
+            this.iterators.clear();
+        }
+    }
+
+    private class PageIterator implements Iterator<T> {
+
+        private final int minPageSize = Math.max(1, graph.getBufferSize());
+        private int pageSize = this.minPageSize;
+        private int start = 0;
+        private boolean exhausted = false;
+
+        private JSONArray page = null;
+        private int index = 0;
+
+        private Future<JSONObject> nextPage = null;
+        private int nextPageSize = 0;
+        private long nextPageRequested = 0;
+
+        public boolean hasNext() {
+            if (null != this.page && this.index < this.page.length())
+                return true;
+            this.fetch();
+            return null != this.page && this.index < this.page.length();
+        }
+
+        public T next() {
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+            final T element = createElement(this.page.optJSONObject(this.index++));
+            if (null == this.nextPage && !this.exhausted && this.index * 2 >= this.page.length())
+                this.request();
+            return element;
+        }
+
+        public void remove() {
+            throw new NotImplementedException();
+        }
+
+        private void fetch() {
+            this.page = null;
+            this.index = 0;
+            if (this.exhausted)
+                return;
+            if (null == this.nextPage)
+                this.request();
+
+            final boolean waited = !this.nextPage.isDone();
+            final JSONObject object;
+            try {
+                object = this.nextPage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+            }
+            final long millis = System.currentTimeMillis() - this.nextPageRequested;
+            final int requested = this.nextPageSize;
+            this.nextPage = null;
+
+            this.page = object.optJSONArray(RexsterTokens.RESULTS);
+            if (null == this.page || this.page.length() < requested) {
+                // last page if it is not full
+                this.exhausted = true;
+                synchronized (iterators) {
+                    iterators.remove(this);
+                }
+                return;
+            }
+
+            // a page that was ready before it was needed says nothing about the time it took
+            if (waited) {
+                if (millis > MAX_PAGE_MILLIS)
+                    this.pageSize = Math.max(this.minPageSize, this.pageSize / 2);
+                else
+                    this.pageSize = Math.min(MAX_PAGE_SIZE, this.pageSize * 2);
+            }
+        }
+
+        private void request() {
+            final int end = this.start + this.pageSize;
+            this.nextPage = RestHelper.getAsync(graph.getTransport(), uri + createSeparator() + RexsterTokens.REXSTER_OFFSET_START + RexsterTokens.EQUALS + this.start + RexsterTokens.AND + RexsterTokens.REXSTER_OFFSET_END + RexsterTokens.EQUALS + end);
+            this.nextPageSize = this.pageSize;
+            this.nextPageRequested = System.currentTimeMillis();
+            this.start = end;
+        }
+
+        private void cancel() {
+            this.exhausted = true;
+            if (null != this.nextPage) {
+                this.nextPage.cancel(true);
+                this.nextPage = null;
+            }
+        }
     }
 }
@@ -10,7 +10,6 @@ import com.tinkerpop.blueprints.KeyIndexableGraph;
 import com.tinkerpop.blueprints.MetaGraph;
 import com.tinkerpop.blueprints.Parameter;
 import com.tinkerpop.blueprints.Vertex;
-import com.tinkerpop.blueprints.util.DefaultGraphQuery;
 import com.tinkerpop.blueprints.util.ExceptionFactory;
 import com.tinkerpop.blueprints.util.StringFactory;
 import org.codehaus.jettison.json.JSONArray;
@@ -23,17 +22,38 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * A Blueprints implementation of the RESTful API of Rexster (http://rexster.tinkerpop.com).
+ * <p/>
+ * By default every mutation is sent to Rexster when it is made. In batch mode, see {@link #setBatchSize(int)}, the
+ * mutations are buffered and sent to the batch extension of Rexster in one request per batchSize mutations and on
+ * {@link #commit()}, while {@link #rollback()} drops the mutations that have not been sent yet.
+ * <p/>
+ * RexsterGraph does not support transactions, so it is not a TransactionalGraph: a batch that has been sent can not be
+ * rolled back. Outside batch mode every mutation has already been sent, so commit() has nothing to do and rollback()
+ * throws an IllegalStateException. Wrappers that commit a TransactionalGraph, like BatchGraph, do not commit a
+ * RexsterGraph, so the mutations buffered in batch mode must then be sent with commit() or shutdown().
  *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
 public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGraph<JSONObject> {
 
     public static final int DEFAULT_BUFFER_SIZE = 100;
+    /**
+     * The element cache is off unless it is turned on with {@link #setElementCache(int, long)}
+     */
+    public static final int DEFAULT_ELEMENT_CACHE_SIZE = 0;
+    public static final long DEFAULT_ELEMENT_CACHE_TIME_TO_LIVE = 10000l;
     private final String graphURI;
     private int bufferSize;
+    private volatile RexsterTransport transport = new RexsterHttpTransport();
+    private volatile boolean ownsTransport = true;
+    private RexsterBatch batch = null;
+    private volatile boolean gremlinAvailable = true;
+    private volatile Boolean keepsSuppliedIds = null;
+    private final RexsterElementCache elementCache = new RexsterElementCache(DEFAULT_ELEMENT_CACHE_SIZE, DEFAULT_ELEMENT_CACHE_TIME_TO_LIVE);
 
     private static final Features FEATURES = new Features();
 
@@ -111,10 +131,96 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
     }
 
     /**
-     * This method does nothing. To shutdown a RexsterGraph, it must be shutdown locally on the Rexster server.
+     * This method only sends the buffered mutations of batch mode and shuts down the transport the graph created for
+     * itself, a transport set with {@link #setTransport(RexsterTransport)} is left to its owner. To shutdown a
+     * RexsterGraph, it must be shutdown locally on the Rexster server.
      */
     public void shutdown() {
+        try {
+            this.commit();
+        } finally {
+            if (this.ownsTransport)
+                this.transport.shutdown();
+        }
+    }
+
+    /**
+     * Sends the mutations buffered in batch mode to Rexster. Does nothing when not in batch mode, as every
+     * mutation has then already been sent.
+     */
+    public void commit() {
+        if (null != this.batch)
+            this.batch.flush();
+    }
+
+    /**
+     * Drops the mutations buffered in batch mode that have not been sent yet.
+     *
+     * @throws IllegalStateException when not in batch mode, as every mutation has already been sent
+     */
+    public void rollback() {
+        if (null == this.batch)
+            throw new IllegalStateException("Can not rollback outside batch mode, every mutation has already been sent");
+        this.batch.clear();
+        this.elementCache.clear();
+    }
+
+    /**
+     * Switches batch mode on or off, sending the mutations buffered so far.
+     * In batch mode, vertices and edges added without an id are given a random id by the client, because the batch
+     * extension does not return the ids of the elements it creates. Should the graph behind Rexster not report that it
+     * keeps supplied ids, a batch that created elements fails with an IllegalStateException once it has been sent,
+     * unless Rexster returned the created elements, whose ids are then taken on. Buffered mutations are not seen by reads until
+     * they are sent, unless the element cache is turned on, which the properties of buffered elements are then read
+     * from.
+     *
+     * @param batchSize the number of mutations to send in one request, 0 to send every mutation when it is made
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("Batch size can not be negative");
+        this.commit();
+        this.batch = batchSize == 0 ? null : new RexsterBatch(this, batchSize);
+    }
+
+    public int getBatchSize() {
+        return null == this.batch ? 0 : this.batch.getBatchSize();
+    }
+
+    RexsterBatch getBatch() {
+        return this.batch;
+    }
+
+    /**
+     * @return whether the graph behind Rexster reports that it keeps the ids supplied for new elements
+     */
+    boolean keepsSuppliedIds() {
+        if (null == this.keepsSuppliedIds) {
+            final JSONObject rawGraph = this.getRawGraph();
+            final JSONObject features = null == rawGraph ? null : rawGraph.optJSONObject(RexsterTokens.FEATURES);
+            if (null == features || !features.has(RexsterTokens.IGNORES_SUPPLIED_IDS))
+                return false;
+            this.keepsSuppliedIds = !features.optBoolean(RexsterTokens.IGNORES_SUPPLIED_IDS);
+        }
+        return this.keepsSuppliedIds;
+    }
+
+    /**
+     * @return whether graph queries are sent to the Gremlin extension, which stops once Rexster said it does not have it
+     */
+    public boolean isGremlinAvailable() {
+        return this.gremlinAvailable;
+    }
 
+    void setGremlinUnavailable() {
+        this.gremlinAvailable = false;
+    }
+
+    /**
+     * Sends graph queries to the Gremlin extension again, for instance after it has been added to Rexster.
+     */
+    public void resetGremlinAvailable() {
+        this.gremlinAvailable = true;
     }
 
     /**
@@ -135,19 +241,79 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
         this.bufferSize = bufferSize;
     }
 
+    /**
+     * Sets the transport that sends the requests of this graph to Rexster, which is a {@link RexsterHttpTransport} of
+     * its own by default. A transport may be shared by several graphs, and is not shut down by their
+     * {@link #shutdown()}, so it must be shut down by the caller once no graph uses it anymore.
+     *
+     * @param transport the transport to send requests with
+     */
+    public void setTransport(final RexsterTransport transport) {
+        if (null == transport)
+            throw new IllegalArgumentException("Transport may not be null");
+        this.commit();
+        final RexsterTransport previous = this.transport;
+        final boolean ownedPrevious = this.ownsTransport;
+        this.transport = transport;
+        this.ownsTransport = false;
+        if (ownedPrevious)
+            previous.shutdown();
+    }
+
+    /**
+     * @return the transport that this graph sends its requests with
+     */
+    public RexsterTransport getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Turns on the caching of the properties of the vertices and edges returned by Rexster, so that reading them does
+     * not cost a request per read. The cache is off by default, so that every read sees the graph as it is on Rexster.
+     * Changes made through this graph are written through to the cache, changes made by other clients are only seen
+     * once the cached properties are older than the time to live.
+     *
+     * @param maxSize    the number of vertices and the number of edges to cache the properties of, 0 disables the cache
+     * @param timeToLive the milliseconds cached properties are used for
+     */
+    public void setElementCache(final int maxSize, final long timeToLive) {
+        this.elementCache.setLimits(maxSize, timeToLive);
+    }
+
+    /**
+     * Forget all cached properties, for instance after the graph has been changed by another client.
+     */
+    public void clearElementCache() {
+        this.elementCache.clear();
+    }
+
+    RexsterElementCache getElementCache() {
+        return this.elementCache;
+    }
+
     public Iterable<Vertex> getVertices() {
         return new RexsterVertexIterable(this.graphURI + RexsterTokens.SLASH_VERTICES, this);
     }
 
     public Iterable<Vertex> getVertices(final String key, final Object value) {
-        return new RexsterVertexIterable(this.graphURI + RexsterTokens.SLASH_VERTICES + RexsterTokens.QUESTION + RexsterTokens.KEY_EQUALS + key + RexsterTokens.AND + RexsterTokens.VALUE_EQUALS + RestHelper.uriCast(value), this);
+        return new RexsterVertexIterable(this.graphURI + RexsterTokens.SLASH_VERTICES + RexsterTokens.QUESTION + RexsterTokens.KEY_EQUALS + RestHelper.encode(key) + RexsterTokens.AND + RexsterTokens.VALUE_EQUALS + RestHelper.encode(RestHelper.uriCast(value)), this);
     }
 
     public Vertex addVertex(final Object id) {
+        if (null != this.batch) {
+            final Object vertexId = null == id ? UUID.randomUUID().toString() : id;
+            final Map<String, Object> data = new HashMap<String, Object>();
+            data.put(RexsterTokens._ID, vertexId);
+            data.put(RexsterTokens._TYPE, RexsterTokens.VERTEX);
+            final RexsterVertex vertex = new RexsterVertex(new JSONObject(data), this);
+            this.batch.addVertex(vertex);
+            return vertex;
+        }
+
         if (null == id)
-            return new RexsterVertex(RestHelper.postResultObject(this.graphURI + RexsterTokens.SLASH_VERTICES), this);
+            return new RexsterVertex(RestHelper.postResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_VERTICES), this);
         else
-            return new RexsterVertex(RestHelper.postResultObject(this.graphURI + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(id)), this);
+            return new RexsterVertex(RestHelper.postResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(id)), this);
     }
 
     public Vertex getVertex(final Object id) {
@@ -155,7 +321,7 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
             throw ExceptionFactory.vertexIdCanNotBeNull();
 
         try {
-            return new RexsterVertex(RestHelper.getResultObject(this.graphURI + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(id)), this);
+            return new RexsterVertex(RestHelper.getResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(id)), this);
         } catch (Exception e) {
             return null;
         }
@@ -166,7 +332,7 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
             throw ExceptionFactory.edgeIdCanNotBeNull();
 
         try {
-            return new RexsterEdge(RestHelper.getResultObject(this.graphURI + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(id)), this);
+            return new RexsterEdge(RestHelper.getResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(id)), this);
         } catch (Exception e) {
             return null;
         }
@@ -177,7 +343,7 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
     }
 
     public Iterable<Edge> getEdges(final String key, final Object value) {
-        return new RexsterEdgeIterable(this.graphURI + RexsterTokens.SLASH_EDGES + RexsterTokens.QUESTION + RexsterTokens.KEY_EQUALS + key + RexsterTokens.AND + RexsterTokens.VALUE_EQUALS + RestHelper.uriCast(value), this);
+        return new RexsterEdgeIterable(this.graphURI + RexsterTokens.SLASH_EDGES + RexsterTokens.QUESTION + RexsterTokens.KEY_EQUALS + RestHelper.encode(key) + RexsterTokens.AND + RexsterTokens.VALUE_EQUALS + RestHelper.encode(RestHelper.uriCast(value)), this);
     }
 
     public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
@@ -185,29 +351,49 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
         data.put(RexsterTokens._OUTV, outVertex.getId());
         data.put(RexsterTokens._INV, inVertex.getId());
         data.put(RexsterTokens._LABEL, label);
+
+        if (null != this.batch) {
+            final Object edgeId = null == id ? UUID.randomUUID().toString() : id;
+            data.put(RexsterTokens._ID, edgeId);
+            data.put(RexsterTokens._TYPE, RexsterTokens.EDGE);
+            final RexsterEdge edge = new RexsterEdge(new JSONObject(data), this);
+            this.batch.addEdge(edge);
+            return edge;
+        }
+
         final JSONObject json = new JSONObject(data);
 
         if (null == id)
-            return new RexsterEdge(RestHelper.postResultObject(this.graphURI + RexsterTokens.SLASH_EDGES, json), this);
+            return new RexsterEdge(RestHelper.postResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_EDGES, json), this);
         else
-            return new RexsterEdge(RestHelper.postResultObject(this.graphURI + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(id), json), this);
+            return new RexsterEdge(RestHelper.postResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(id), json), this);
     }
 
     public void removeEdge(final Edge edge) {
-        RestHelper.delete(this.graphURI + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(edge.getId()));
+        if (null != this.batch)
+            this.batch.remove(false, edge.getId());
+        else
+            RestHelper.delete(this.transport, this.graphURI + RexsterTokens.SLASH_EDGES_SLASH + RestHelper.encode(edge.getId()));
+        this.elementCache.remove(false, edge.getId());
     }
 
     public void removeVertex(final Vertex vertex) {
-        RestHelper.delete(this.graphURI + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(vertex.getId()));
+        if (null != this.batch)
+            this.batch.remove(true, vertex.getId());
+        else
+            RestHelper.delete(this.transport, this.graphURI + RexsterTokens.SLASH_VERTICES_SLASH + RestHelper.encode(vertex.getId()));
+        this.elementCache.remove(true, vertex.getId());
+        // the edges of the vertex are removed with it
+        this.elementCache.clearEdges();
     }
 
     public void dropIndex(final String indexName) {
-        RestHelper.delete(this.graphURI + RexsterTokens.SLASH_INDICES_SLASH + RestHelper.encode(indexName));
+        RestHelper.delete(this.transport, this.graphURI + RexsterTokens.SLASH_INDICES_SLASH + RestHelper.encode(indexName));
     }
 
     public Iterable<Index<? extends Element>> getIndices() {
         List<Index<? extends Element>> indices = new ArrayList<Index<? extends Element>>();
-        JSONArray json = RestHelper.getResultArray(this.graphURI + RexsterTokens.SLASH_INDICES);
+        JSONArray json = RestHelper.getResultArray(this.transport, this.graphURI + RexsterTokens.SLASH_INDICES);
 
         for (int ix = 0; ix < json.length(); ix++) {
             JSONObject index = json.optJSONObject(ix);
@@ -246,7 +432,7 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
         data.put(RexsterTokens.CLASS, c);
         final JSONObject json = new JSONObject(data);
 
-        final JSONObject index = RestHelper.postResultObject(this.graphURI + RexsterTokens.SLASH_INDICES_SLASH + RestHelper.encode(indexName), json);
+        final JSONObject index = RestHelper.postResultObject(this.transport, this.graphURI + RexsterTokens.SLASH_INDICES_SLASH + RestHelper.encode(indexName), json);
         if (!index.opt(RexsterTokens.NAME).equals(indexName))
             throw new RuntimeException("Could not create index: " + index.optString(RexsterTokens.MESSAGE));
 
@@ -254,14 +440,14 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
     }
 
     public String toString() {
-        final String graphName = RestHelper.get(graphURI).optString(RexsterTokens.GRAPH);
+        final String graphName = RestHelper.get(this.transport, graphURI).optString(RexsterTokens.GRAPH);
         return StringFactory.graphString(this, this.graphURI + "[" + graphName + "]");
     }
 
     public JSONObject getRawGraph() {
         JSONObject rawGraph;
         try {
-            rawGraph = RestHelper.get(this.graphURI);
+            rawGraph = RestHelper.get(this.transport, this.graphURI);
         } catch (Exception e) {
             rawGraph = null;
         }
@@ -274,17 +460,17 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
 
     public <T extends Element> void dropKeyIndex(String key, Class<T> elementClass) {
         final String c = getKeyIndexClass(elementClass);
-        RestHelper.delete(this.graphURI + RexsterTokens.SLASH_KEY_INDICES_SLASH + c + RexsterTokens.SLASH + key);
+        RestHelper.delete(this.transport, this.graphURI + RexsterTokens.SLASH_KEY_INDICES_SLASH + c + RexsterTokens.SLASH + key);
     }
 
     public <T extends Element> void createKeyIndex(String key, Class<T> elementClass, final Parameter... indexParameters) {
         final String c = getKeyIndexClass(elementClass);
-        RestHelper.post(this.graphURI + RexsterTokens.SLASH_KEY_INDICES_SLASH + c + RexsterTokens.SLASH + key);
+        RestHelper.post(this.transport, this.graphURI + RexsterTokens.SLASH_KEY_INDICES_SLASH + c + RexsterTokens.SLASH + key);
     }
 
     public <T extends Element> Set<String> getIndexedKeys(Class<T> elementClass) {
         final String c = getKeyIndexClass(elementClass);
-        final JSONArray jsonArray = RestHelper.getResultArray(this.graphURI + RexsterTokens.SLASH_KEY_INDICES_SLASH + c);
+        final JSONArray jsonArray = RestHelper.getResultArray(this.transport, this.graphURI + RexsterTokens.SLASH_KEY_INDICES_SLASH + c);
 
         final HashSet<String> keys = new HashSet<String>();
         for (int ix = 0; ix < jsonArray.length(); ix++) {
@@ -319,7 +505,9 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
             scriptArgs.put("params", scriptParams);
         }
 
-        return RestHelper.postResultArray(this.graphURI + RexsterTokens.SLASH_GREMLIN, new JSONObject(scriptArgs));
+        // the script may change any element
+        this.elementCache.clear();
+        return RestHelper.postResultArray(this.transport, this.graphURI + RexsterTokens.SLASH_GREMLIN, new JSONObject(scriptArgs));
     }
 
     private static <T extends Element> String getKeyIndexClass(Class<T> elementClass) {
@@ -332,7 +520,7 @@ public class RexsterGraph implements IndexableGraph, KeyIndexableGraph, MetaGrap
     }
 
     public GraphQuery query() {
-        return new DefaultGraphQuery(this);
+        return new RexsterGraphQuery(this);
     }
 
 }
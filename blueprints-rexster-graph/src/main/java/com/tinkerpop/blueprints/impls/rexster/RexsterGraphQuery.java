@@ -0,0 +1,128 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+
+import java.util.Iterator;
+
+/**
+ * A DefaultGraphQuery that has Rexster evaluate the query, so that only the matching elements are sent.
+ * <p/>
+ * A query with a single equality and no limit uses the key/value lookup of Rexster. Any other query is sent as a
+ * Gremlin script to the Gremlin extension of Rexster, and the matching elements are paged through like any other
+ * elements of the graph. The keys and values of the has-containers are not written into the script but sent as its
+ * params, and the script converts each value back to its class from its string form, which keeps every value of
+ * the class exact. A has-container with a value that has no such conversion, such as null or a value that is not a
+ * string, number or boolean, is left out of the script, as is the limit in that case. All has-containers and the
+ * limit are still applied to the elements that are returned.
+ * <p/>
+ * If the first request to the Gremlin extension fails, the query falls back to the key/value lookup and filters the
+ * elements locally. Only when Rexster does not have the extension, that is when it answers with a 404 or says that
+ * the extension was not found, does the graph stop sending queries to the extension, until
+ * {@link RexsterGraph#resetGremlinAvailable()} is called. Any other failure only affects the query that ran into it.
+ */
+class RexsterGraphQuery extends DefaultGraphQuery {
+
+    private static final String COMPARE = "com.tinkerpop.blueprints.Query.Compare.";
+
+    public RexsterGraphQuery(final RexsterGraph graph) {
+        super(graph);
+    }
+
+    protected Iterable<?> getElementIterable(final Class<? extends Element> elementClass) {
+        final RexsterGraph rexsterGraph = (RexsterGraph) this.graph;
+        if (!rexsterGraph.isGremlinAvailable() || (this.limit == Long.MAX_VALUE && this.hasContainers.size() == 1 && this.hasContainers.get(0).compare.equals(Compare.EQUAL) && null != this.hasContainers.get(0).value))
+            return super.getElementIterable(elementClass);
+
+        final StringBuilder script = new StringBuilder("g.query()");
+        final StringBuilder params = new StringBuilder();
+        boolean all = true;
+        int index = 0;
+        for (final HasContainer hasContainer : this.hasContainers) {
+            final String value = conversion(hasContainer.value, "v" + index);
+            if (null == value) {
+                all = false;
+                continue;
+            }
+            script.append(".has(k").append(index).append(".toString()").append(RexsterTokens.COMMA).append(COMPARE).append(hasContainer.compare.name()).append(RexsterTokens.COMMA).append(value).append(")");
+            params.append(RexsterTokens.AND).append(RexsterTokens.PARAMS_DOT).append("k").append(index).append(RexsterTokens.EQUALS).append(RestHelper.encode(hasContainer.key));
+            params.append(RexsterTokens.AND).append(RexsterTokens.PARAMS_DOT).append("v").append(index).append(RexsterTokens.EQUALS).append(RestHelper.encode(hasContainer.value.toString()));
+            index++;
+        }
+        // a limit on the server would count the elements that the local filter may still drop
+        if (all && this.limit != Long.MAX_VALUE) {
+            script.append(".limit(").append(this.limit).append("L)");
+        } else if (index == 0) {
+            return super.getElementIterable(elementClass);
+        }
+
+        final boolean forVertex = Vertex.class.isAssignableFrom(elementClass);
+        script.append(forVertex ? ".vertices()" : ".edges()");
+        final String uri = rexsterGraph.getGraphURI() + RexsterTokens.SLASH_GREMLIN + RexsterTokens.QUESTION + RexsterTokens.SCRIPT_EQUALS + RestHelper.encode(script.toString()) + params + RexsterTokens.AND + RexsterTokens.REXSTER_SHOW_TYPES_EQUALS_TRUE;
+        return new GremlinIterable(forVertex ? new RexsterVertexIterable(uri, rexsterGraph) : new RexsterEdgeIterable(uri, rexsterGraph), elementClass);
+    }
+
+    /**
+     * The Groovy expression that converts the param of the given name, which holds the string form of the value, back
+     * to the class of the value, or null if there is none.
+     */
+    static String conversion(final Object value, final String param) {
+        if (value instanceof String)
+            return param + ".toString()";
+        else if (value instanceof Integer)
+            return "Integer.valueOf(" + param + ".toString())";
+        else if (value instanceof Long)
+            return "Long.valueOf(" + param + ".toString())";
+        else if (value instanceof Float)
+            return "Float.valueOf(" + param + ".toString())";
+        else if (value instanceof Double)
+            return "Double.valueOf(" + param + ".toString())";
+        else if (value instanceof Boolean)
+            return "Boolean.valueOf(" + param + ".toString())";
+        else
+            return null;
+    }
+
+    /**
+     * The elements the Gremlin extension returns, or those of the key/value lookup if its first request fails.
+     */
+    private class GremlinIterable implements Iterable<Object> {
+
+        private final Iterable<?> gremlin;
+        private final Class<? extends Element> elementClass;
+
+        public GremlinIterable(final Iterable<?> gremlin, final Class<? extends Element> elementClass) {
+            this.gremlin = gremlin;
+            this.elementClass = elementClass;
+        }
+
+        public Iterator<Object> iterator() {
+            final RexsterGraph rexsterGraph = (RexsterGraph) graph;
+            if (rexsterGraph.isGremlinAvailable()) {
+                final Iterator<?> iterator = this.gremlin.iterator();
+                try {
+                    // the first page is requested here, so a failure is known before any element is returned
+                    iterator.hasNext();
+                    return (Iterator<Object>) iterator;
+                } catch (RuntimeException e) {
+                    if (isExtensionMissing(e))
+                        rexsterGraph.setGremlinUnavailable();
+                }
+            }
+            return (Iterator<Object>) RexsterGraphQuery.super.getElementIterable(this.elementClass).iterator();
+        }
+    }
+
+    private static boolean isExtensionMissing(final Throwable failure) {
+        for (Throwable t = failure; null != t; t = t.getCause()) {
+            final String message = t.getMessage();
+            if (null == message)
+                continue;
+            final String lowerCase = message.toLowerCase();
+            if (lowerCase.contains("response code: 404") || (lowerCase.contains("extension") && lowerCase.contains("not found")))
+                return true;
+        }
+        return false;
+    }
+}
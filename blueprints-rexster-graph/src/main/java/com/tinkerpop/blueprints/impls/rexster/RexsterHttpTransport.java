@@ -0,0 +1,245 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default RexsterTransport, which sends requests with HttpURLConnection.
+ * <p/>
+ * Every response, including the body of an error, is read to its end, which lets HttpURLConnection keep the
+ * connection alive and reuse it for a later request to the same server. How many idle connections are kept per
+ * server is up to HttpURLConnection, and can be raised with the http.maxConnections system property, which does not
+ * bound how many connections are open at once. Responses are parsed as they are read from the connection, and can be
+ * requested gzip compressed.
+ * <p/>
+ * Requests sent with request() are sent by the calling thread, requests sent with submit() by a pool of threads. At
+ * most maxConcurrentRequests requests of a transport are in flight at once, so it never has more connections open;
+ * a request waits until one of them is done.
+ */
+public class RexsterHttpTransport implements RexsterTransport {
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    static {
+        // the stream is read to its end and closed after parsing, to keep the connection alive
+        jsonFactory.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+    }
+
+    private final int maxConcurrentRequests;
+    private final Semaphore inFlight;
+    private boolean gzip = false;
+    private int connectTimeout = 0;
+    private int readTimeout = 0;
+    private ExecutorService executor = null;
+
+    public RexsterHttpTransport() {
+        this(DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * @param maxConcurrentRequests the number of requests that may be in flight at once
+     */
+    public RexsterHttpTransport(final int maxConcurrentRequests) {
+        if (maxConcurrentRequests <= 0) throw new IllegalArgumentException("Max concurrent requests must be positive");
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.inFlight = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    /**
+     * @param gzip whether to ask Rexster to compress its responses
+     */
+    public void setGzip(final boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * @param connectTimeout the milliseconds to wait for a connection, 0 to wait indefinitely
+     * @param readTimeout    the milliseconds to wait for a response, 0 to wait indefinitely
+     */
+    public void setTimeouts(final int connectTimeout, final int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return this.maxConcurrentRequests;
+    }
+
+    public JSONObject request(final String method, final String uri, final Map<String, String> headers, final String body) {
+        try {
+            this.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to send a request to " + uri, e);
+        }
+        try {
+            return this.send(method, uri, headers, body);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            this.inFlight.release();
+        }
+    }
+
+    public Future<JSONObject> submit(final String method, final String uri, final Map<String, String> headers, final String body) {
+        return this.getExecutor().submit(new Callable<JSONObject>() {
+            public JSONObject call() {
+                return request(method, uri, headers, body);
+            }
+        });
+    }
+
+    public synchronized void shutdown() {
+        if (null != this.executor) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (null == this.executor) {
+            this.executor = Executors.newFixedThreadPool(this.maxConcurrentRequests, new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "rexster-transport");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return this.executor;
+    }
+
+    private JSONObject send(final String method, final String uri, final Map<String, String> headers, final String body) throws IOException, JSONException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(this.connectTimeout);
+        connection.setReadTimeout(this.readTimeout);
+        if (null != headers) {
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        if (this.gzip)
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        if (null != body) {
+            final byte[] bytes = body.getBytes("UTF-8");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(bytes.length);
+            final OutputStream out = connection.getOutputStream();
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+        }
+
+        final int status = connection.getResponseCode();
+        if (status >= 400) {
+            // the error body is read so that the connection can be kept alive
+            drain(connection.getErrorStream());
+            throw new IOException("Server returned HTTP response code: " + status + " for URL: " + uri);
+        }
+
+        InputStream in = connection.getInputStream();
+        try {
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding()))
+                in = new GZIPInputStream(in);
+            return parse(in);
+        } finally {
+            drain(in);
+        }
+    }
+
+    private static void drain(final InputStream in) throws IOException {
+        if (null == in)
+            return;
+        try {
+            final byte[] buffer = new byte[4096];
+            while (in.read(buffer) != -1) {
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the JSON object of a response straight from the stream, without reading the response into a String first.
+     */
+    static JSONObject parse(final InputStream in) throws IOException, JSONException {
+        final JsonParser jp = jsonFactory.createJsonParser(in);
+        try {
+            final JsonToken token = jp.nextToken();
+            if (null == token)
+                return null;
+            if (token != JsonToken.START_OBJECT)
+                throw new IOException("Expected a JSON object in the response");
+            return readObject(jp);
+        } finally {
+            jp.close();
+        }
+    }
+
+    private static JSONObject readObject(final JsonParser jp) throws IOException, JSONException {
+        final JSONObject object = new JSONObject();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = jp.getCurrentName();
+            object.put(key, readValue(jp, jp.nextToken()));
+        }
+        return object;
+    }
+
+    private static JSONArray readArray(final JsonParser jp) throws IOException, JSONException {
+        final JSONArray array = new JSONArray();
+        JsonToken token;
+        while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+            array.put(readValue(jp, token));
+        }
+        return array;
+    }
+
+    private static Object readValue(final JsonParser jp, final JsonToken token) throws IOException, JSONException {
+        switch (token) {
+            case START_OBJECT:
+                return readObject(jp);
+            case START_ARRAY:
+                return readArray(jp);
+            case VALUE_STRING:
+                return jp.getText();
+            case VALUE_NUMBER_INT:
+                return jp.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return jp.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return JSONObject.NULL;
+            default:
+                throw new IOException("Unexpected JSON token " + token);
+        }
+    }
+}
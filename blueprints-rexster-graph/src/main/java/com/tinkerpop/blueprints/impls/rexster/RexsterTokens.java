@@ -16,6 +16,8 @@ class RexsterTokens {
     public static final String _INV = "_inV";
     public static final String _LIMIT = "_limit";
     public static final String _PROPERTIES = "_properties";
+    public static final String _ACTION = "_action";
+    public static final String _KEYS = "_keys";
     public static final String UNDERSCORE = "_";
     public static final String NULL = "null";
 
@@ -51,9 +53,10 @@ class RexsterTokens {
 
     public static final String SLASH_OUTIDS = "/outIds";
     public static final String SLASH_INIDS = "/inIds";
-    public static final String SLASH_BOTHIDS = "/bothv";
+    public static final String SLASH_BOTHIDS = "/bothIds";
 
     public static final String SLASH_GREMLIN = "/tp/gremlin";
+    public static final String SLASH_BATCH_TX = "/tp/batch/tx";
 
     public static final String AND = "&";
     public static final String COMMA = ",";
@@ -75,6 +78,15 @@ class RexsterTokens {
     public static final String NAME = "name";
     public static final String TOTAL_SIZE = "totalSize";
     public static final String _LABEL_EQUALS = "_label=";
+    public static final String SCRIPT_EQUALS = "script=";
+    public static final String PARAMS_DOT = "params.";
+    public static final String TX = "tx";
+    public static final String SUCCESS = "success";
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String FEATURES = "features";
+    public static final String IGNORES_SUPPLIED_IDS = "ignoresSuppliedIds";
 
     public static final String REXSTER_OFFSET_END = "rexster.offset.end";
     public static final String REXSTER_OFFSET_START = "rexster.offset.start";
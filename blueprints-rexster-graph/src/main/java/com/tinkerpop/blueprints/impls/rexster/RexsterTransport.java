@@ -0,0 +1,36 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Sends the HTTP requests of a RexsterGraph to Rexster.
+ * Implementations must be safe to use from several threads at once.
+ */
+public interface RexsterTransport {
+
+    /**
+     * Send a request and wait for its response.
+     *
+     * @param method  the HTTP method
+     * @param uri     the uri to request
+     * @param headers the request headers
+     * @param body    the request body, or null to send none
+     * @return the JSON object of the response, or null if the response is empty
+     */
+    public JSONObject request(String method, String uri, Map<String, String> headers, String body);
+
+    /**
+     * Send a request without waiting for its response, so that several requests can be in flight at once.
+     *
+     * @return the JSON object of the response, or null if the response is empty
+     */
+    public Future<JSONObject> submit(String method, String uri, Map<String, String> headers, String body);
+
+    /**
+     * Release the resources of the transport. Requests may not be sent afterwards.
+     */
+    public void shutdown();
+}
@@ -80,7 +80,7 @@ public class RexsterVertex extends RexsterElement implements Vertex {
     }
 
     public JSONObject getRawVertex() {
-        return RestHelper.getResultObject(graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + this.getId());
+        return RestHelper.getResultObject(graph.getTransport(), graph.getGraphURI() + RexsterTokens.SLASH_VERTICES_SLASH + this.getId());
     }
 
 }
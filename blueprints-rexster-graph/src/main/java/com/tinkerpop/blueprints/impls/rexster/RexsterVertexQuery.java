@@ -2,29 +2,30 @@ package com.tinkerpop.blueprints.impls.rexster;
 
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
-import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.VertexQuery;
+import com.tinkerpop.blueprints.util.DefaultQuery;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 
 /**
  * RexsterQuery makes no requests until edges(), vertices(), count() or vertexIds() is called.
+ * <p/>
+ * The direction, the labels, the has-containers and the limit are evaluated by Rexster, so that only the matching
+ * elements are sent. A has-container that Rexster can not evaluate, because its value is null, is not a string or
+ * number, or is a string that the list syntax of Rexster can not hold, is evaluated on the edges that Rexster returns
+ * instead, and so is the limit in that case. The same goes for labels that the list syntax can not hold.
  *
  * @author Stephen Mallette (http://stephen.genoprime.com)
  */
-public class RexsterVertexQuery implements VertexQuery {
+public class RexsterVertexQuery extends DefaultQuery implements VertexQuery {
 
-    private static final String[] EMPTY_LABELS = new String[]{};
-
-    public Direction direction = Direction.BOTH;
-    public String[] labels = EMPTY_LABELS;
-    public long limit = Long.MAX_VALUE;
-    public List<HasContainer> hasContainers = new ArrayList<HasContainer>();
     public final String baseUri;
     public final RexsterGraph graph;
 
@@ -69,32 +70,46 @@ public class RexsterVertexQuery implements VertexQuery {
     }
 
     public Iterable<Edge> edges() {
-        final String directionReturnToken;
-        if (this.direction == Direction.IN) {
-            directionReturnToken = RexsterTokens.SLASH_INE;
-        } else if (this.direction == Direction.OUT) {
-            directionReturnToken = RexsterTokens.SLASH_OUTE;
-        } else {
-            directionReturnToken = RexsterTokens.SLASH_BOTHE;
-        }
+        if (this.isEvaluatedByRexster())
+            return new RexsterEdgeIterable(buildUri(getEdgesToken(this.direction)), graph);
 
-        return new RexsterEdgeIterable(buildUri(directionReturnToken), graph);
+        return new LocalIterable<Edge>(this.direction) {
+            protected Edge map(final RexsterEdge edge, final Direction direction) {
+                return edge;
+            }
+        };
     }
 
     public Iterable<Vertex> vertices() {
-        final String directionReturnToken;
-        if (this.direction == Direction.IN) {
-            directionReturnToken = RexsterTokens.SLASH_IN;
-        } else if (this.direction == Direction.OUT) {
-            directionReturnToken = RexsterTokens.SLASH_OUT;
-        } else {
-            directionReturnToken = RexsterTokens.SLASH_BOTH;
+        if (this.isEvaluatedByRexster()) {
+            final String directionReturnToken;
+            if (this.direction == Direction.IN) {
+                directionReturnToken = RexsterTokens.SLASH_IN;
+            } else if (this.direction == Direction.OUT) {
+                directionReturnToken = RexsterTokens.SLASH_OUT;
+            } else {
+                directionReturnToken = RexsterTokens.SLASH_BOTH;
+            }
+
+            return new RexsterVertexIterable(buildUri(directionReturnToken), graph);
         }
 
-        return new RexsterVertexIterable(buildUri(directionReturnToken), graph);
+        return new LocalIterable<Vertex>(this.getDirections()) {
+            protected Vertex map(final RexsterEdge edge, final Direction direction) {
+                return edge.getVertex(direction.opposite());
+            }
+        };
     }
 
     public long count() {
+        if (!this.isEvaluatedByRexster()) {
+            long count = 0;
+            for (final Edge edge : this.edges()) {
+                count++;
+            }
+            return count;
+        }
+
         final String directionReturnToken;
         if (this.direction == Direction.IN) {
             directionReturnToken = RexsterTokens.SLASH_INCOUNT;
@@ -104,13 +119,26 @@ public class RexsterVertexQuery implements VertexQuery {
             directionReturnToken = RexsterTokens.SLASH_BOTHCOUNT;
         }
 
-        final JSONObject jsonObject = RestHelper.get(buildUri(directionReturnToken));
+        final JSONObject jsonObject = RestHelper.get(this.graph.getTransport(), buildUri(directionReturnToken));
         final long count = jsonObject.optLong(RexsterTokens.TOTAL_SIZE);
 
         return count;
     }
 
     public Object vertexIds() {
+        final List<Object> list = new ArrayList<Object>();
+        if (!this.isEvaluatedByRexster()) {
+            // the ids of the vertices are known from the edges, without a request per vertex
+            for (final Object id : new LocalIterable<Object>(this.getDirections()) {
+                protected Object map(final RexsterEdge edge, final Direction direction) {
+                    return edge.getVertexId(direction.opposite());
+                }
+            }) {
+                list.add(id);
+            }
+            return list;
+        }
+
         final String directionReturnToken;
         if (this.direction == Direction.IN) {
             directionReturnToken = RexsterTokens.SLASH_INIDS;
@@ -120,9 +148,8 @@ public class RexsterVertexQuery implements VertexQuery {
             directionReturnToken = RexsterTokens.SLASH_BOTHIDS;
         }
 
-        final JSONArray jsonArray = RestHelper.getResultArray(buildUri(directionReturnToken));
+        final JSONArray jsonArray = RestHelper.getResultArray(this.graph.getTransport(), buildUri(directionReturnToken));
 
-        final List<Object> list = new ArrayList<Object>();
         for (int ix = 0; ix < jsonArray.length(); ix++) {
             list.add(jsonArray.opt(ix));
         }
@@ -130,19 +157,81 @@ public class RexsterVertexQuery implements VertexQuery {
         return list;
     }
 
+    /**
+     * Whether Rexster can evaluate every has-container and label of the query.
+     */
+    boolean isEvaluatedByRexster() {
+        for (final HasContainer hasContainer : this.hasContainers) {
+            if (!isEvaluatedByRexster(hasContainer))
+                return false;
+        }
+        return this.areLabelsEvaluatedByRexster();
+    }
+
+    private static boolean isEvaluatedByRexster(final HasContainer hasContainer) {
+        if (hasContainer.value instanceof String)
+            return isListable((String) hasContainer.value);
+        return hasContainer.value instanceof Integer || hasContainer.value instanceof Long
+                || hasContainer.value instanceof Float || hasContainer.value instanceof Double;
+    }
+
+    private boolean areLabelsEvaluatedByRexster() {
+        for (final String label : this.labels) {
+            if (!isListable(label))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isListable(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case '[':
+                case ']':
+                case '(':
+                case ')':
+                case ',':
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private Direction[] getDirections() {
+        // the adjacent vertex of an edge is only known for the direction the edge was retrieved by
+        if (this.direction == Direction.BOTH)
+            return new Direction[]{Direction.OUT, Direction.IN};
+        else
+            return new Direction[]{this.direction};
+    }
+
+    private static String getEdgesToken(final Direction direction) {
+        if (direction == Direction.IN) {
+            return RexsterTokens.SLASH_INE;
+        } else if (direction == Direction.OUT) {
+            return RexsterTokens.SLASH_OUTE;
+        } else {
+            return RexsterTokens.SLASH_BOTHE;
+        }
+    }
+
+    /**
+     * The uri that has Rexster evaluate what it can of the query, which is everything if isEvaluatedByRexster().
+     */
     private String buildUri(final String directionReturnToken) {
+        final boolean evaluatedByRexster = this.isEvaluatedByRexster();
         final StringBuilder sb = new StringBuilder(this.baseUri + directionReturnToken + RexsterTokens.QUESTION);
         sb.append(RexsterTokens._LIMIT);
         sb.append(RexsterTokens.EQUALS);
-        sb.append(this.limit);
+        sb.append(evaluatedByRexster ? this.limit : Long.MAX_VALUE);
 
-        if (this.labels != null && this.labels.length > 0) {
+        if (this.labels != null && this.labels.length > 0 && this.areLabelsEvaluatedByRexster()) {
             sb.append(RexsterTokens.AND);
             sb.append(RexsterTokens._LABEL_EQUALS);
 
             sb.append(RexsterTokens.LEFT_SQUARE_BRACKET);
             for (String label : labels) {
-                sb.append(label);
+                sb.append(RestHelper.encode(label));
                 sb.append(RexsterTokens.COMMA);
             }
 
@@ -150,21 +239,27 @@ public class RexsterVertexQuery implements VertexQuery {
             sb.append(RexsterTokens.RIGHT_SQUARE_BRACKET);
         }
 
-        if (this.hasContainers.size() > 0) {
+        final List<HasContainer> evaluated = new ArrayList<HasContainer>();
+        for (final HasContainer hasContainer : this.hasContainers) {
+            if (isEvaluatedByRexster(hasContainer))
+                evaluated.add(hasContainer);
+        }
+
+        if (evaluated.size() > 0) {
             sb.append(RexsterTokens.AND);
             sb.append(RexsterTokens._PROPERTIES);
             sb.append(RexsterTokens.EQUALS);
             sb.append(RexsterTokens.LEFT_SQUARE_BRACKET);
 
-            for (HasContainer hasContainer : this.hasContainers) {
+            for (HasContainer hasContainer : evaluated) {
                 sb.append(RexsterTokens.LEFT_SQUARE_BRACKET);
-                sb.append(hasContainer.key);
+                sb.append(RestHelper.encode(hasContainer.key));
 
                 sb.append(RexsterTokens.COMMA);
-                sb.append(getCompareString(hasContainer.compare));
+                sb.append(RestHelper.encode(getCompareString(hasContainer.compare)));
                 sb.append(RexsterTokens.COMMA);
 
-                sb.append(RestHelper.uriCast(hasContainer.value));
+                sb.append(RestHelper.encode(RestHelper.uriCast(hasContainer.value)));
 
                 sb.append(RexsterTokens.RIGHT_SQUARE_BRACKET);
 
@@ -172,10 +267,7 @@ public class RexsterVertexQuery implements VertexQuery {
             }
 
             sb.deleteCharAt(sb.length() - 1);
-
-            if (this.hasContainers.size() > 0) {
-                sb.append(RexsterTokens.RIGHT_SQUARE_BRACKET);
-            }
+            sb.append(RexsterTokens.RIGHT_SQUARE_BRACKET);
         }
 
         return sb.toString();
@@ -199,48 +291,70 @@ public class RexsterVertexQuery implements VertexQuery {
         throw new RuntimeException("Invalid comparator");
     }
 
-    private class HasContainer {
-        public String key;
-        public Object value;
-        public Compare compare;
-
-        public HasContainer(final String key, final Object value, final Compare compare) {
-            this.key = key;
-            this.value = value;
-            this.compare = compare;
-        }
-
-        public boolean isLegal(final Element element) {
-            final Object elementValue = element.getProperty(key);
-            switch (compare) {
-                case EQUAL:
-                    if (null == elementValue)
-                        return value == null;
-                    return elementValue.equals(value);
-                case NOT_EQUAL:
-                    if (null == elementValue)
-                        return value != null;
-                    return !elementValue.equals(value);
-                case GREATER_THAN:
-                    if (null == elementValue || value == null)
-                        return false;
-                    return ((Comparable) elementValue).compareTo(value) >= 1;
-                case LESS_THAN:
-                    if (null == elementValue || value == null)
-                        return false;
-                    return ((Comparable) elementValue).compareTo(value) <= -1;
-                case GREATER_THAN_EQUAL:
-                    if (null == elementValue || value == null)
-                        return false;
-                    return ((Comparable) elementValue).compareTo(value) >= 0;
-                case LESS_THAN_EQUAL:
-                    if (null == elementValue || value == null)
+    /**
+     * The edges of the directions that Rexster returns for what it can evaluate of the query, filtered by the rest of
+     * the query and limited, and mapped to what the query returns.
+     */
+    private abstract class LocalIterable<T> implements Iterable<T> {
+
+        private final Direction[] directions;
+        private final HasFilter filter = new HasFilter(hasContainers);
+
+        public LocalIterable(final Direction... directions) {
+            this.directions = directions;
+        }
+
+        protected abstract T map(final RexsterEdge edge, final Direction direction);
+
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int index = -1;
+                private Iterator<Edge> edges = null;
+                private T next = null;
+                private long count = 0;
+
+                public boolean hasNext() {
+                    if (null != this.next)
+                        return true;
+                    if (this.count >= limit)
                         return false;
-                    return ((Comparable) elementValue).compareTo(value) <= 0;
-                default:
-                    throw new IllegalArgumentException("Invalid state as no valid filter was provided");
+                    while (true) {
+                        while (null == this.edges || !this.edges.hasNext()) {
+                            if (++this.index == directions.length)
+                                return false;
+                            this.edges = new RexsterEdgeIterable(buildUri(getEdgesToken(directions[this.index])), graph).iterator();
+                        }
+                        final RexsterEdge edge = (RexsterEdge) this.edges.next();
+                        if (filter.isLegal(edge) && hasLabel(edge)) {
+                            this.next = map(edge, directions[this.index]);
+                            this.count++;
+                            return true;
+                        }
+                    }
+                }
+
+                public T next() {
+                    if (!this.hasNext())
+                        throw new NoSuchElementException();
+                    final T temp = this.next;
+                    this.next = null;
+                    return temp;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        private boolean hasLabel(final Edge edge) {
+            if (labels.length == 0)
+                return true;
+            for (final String label : labels) {
+                if (label.equals(edge.getLabel()))
+                    return true;
             }
+            return false;
         }
     }
 }
-
@@ -0,0 +1,316 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.wrappers.batch.BatchGraph;
+import com.tinkerpop.blueprints.util.wrappers.batch.VertexIDType;
+import junit.framework.TestCase;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs batch mode against a stub batch extension in the test process.
+ */
+public class RexsterBatchTest extends TestCase {
+
+    private HttpServer server;
+    private String uri;
+    private final List<JSONArray> transactions = Collections.synchronizedList(new ArrayList<JSONArray>());
+    private volatile int failures = 0;
+    private volatile boolean renumber = false;
+    private volatile boolean dropResult = false;
+    private volatile boolean ignoresSuppliedIds = false;
+
+    public void setUp() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/graphs/test/tp/batch/tx", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    final JSONArray tx = new JSONObject(read(exchange.getRequestBody())).getJSONArray("tx");
+                    if (failures > 0) {
+                        failures--;
+                        exchange.sendResponseHeaders(500, -1);
+                        return;
+                    }
+                    transactions.add(tx);
+                    final JSONObject response = new JSONObject();
+                    response.put("success", true);
+                    response.put("txProcessed", tx.length());
+                    if (renumber) {
+                        // the created elements with the ids a graph that ignores supplied ids would give them
+                        final JSONArray results = new JSONArray();
+                        for (int i = 0; i < tx.length(); i++) {
+                            final JSONObject mutation = tx.getJSONObject(i);
+                            if (!mutation.getString("_action").equals("create"))
+                                continue;
+                            final JSONObject element = new JSONObject();
+                            element.put("_id", "server-" + mutation.getString("_id"));
+                            if (mutation.has("_outV")) {
+                                element.put("_outV", "server-" + mutation.getString("_outV"));
+                                element.put("_inV", "server-" + mutation.getString("_inV"));
+                            }
+                            results.put(element);
+                        }
+                        if (dropResult) {
+                            // the last created element is missing from the results
+                            final JSONArray shortResults = new JSONArray();
+                            for (int i = 0; i < results.length() - 1; i++) {
+                                shortResults.put(results.get(i));
+                            }
+                            response.put("results", shortResults);
+                        } else {
+                            response.put("results", results);
+                        }
+                    }
+                    final byte[] body = response.toString().getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    final OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } catch (Exception e) {
+                    exchange.sendResponseHeaders(500, -1);
+                }
+            }
+        });
+        this.server.createContext("/graphs/test", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    final JSONObject features = new JSONObject();
+                    features.put("ignoresSuppliedIds", ignoresSuppliedIds);
+                    final JSONObject graph = new JSONObject();
+                    graph.put("name", "test");
+                    graph.put("features", features);
+                    final byte[] body = graph.toString().getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    final OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } catch (Exception e) {
+                    exchange.sendResponseHeaders(500, -1);
+                }
+            }
+        });
+        this.server.start();
+        this.uri = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/graphs/test";
+    }
+
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    public void testBufferUntilCommit() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        // the properties of buffered elements are read from the cache
+        graph.setElementCache(100, RexsterGraph.DEFAULT_ELEMENT_CACHE_TIME_TO_LIVE);
+        graph.setBatchSize(100);
+        final Vertex marko = graph.addVertex("1");
+        marko.setProperty("name", "marko");
+        marko.setProperty("age", 29);
+        final Vertex vadas = graph.addVertex(null);
+        final Edge knows = graph.addEdge(null, marko, vadas, "knows");
+        knows.setProperty("weight", 0.5f);
+        assertEquals("marko", marko.getProperty("name"));
+        assertNotNull(vadas.getId());
+        assertEquals(0, this.transactions.size());
+
+        graph.commit();
+        assertEquals(1, this.transactions.size());
+        final JSONArray tx = this.transactions.get(0);
+        assertEquals(3, tx.length());
+        assertEquals("create", tx.getJSONObject(0).getString("_action"));
+        assertEquals("1", tx.getJSONObject(0).getString("_id"));
+        assertEquals("(string,marko)", tx.getJSONObject(0).getString("name"));
+        assertEquals("(integer,29)", tx.getJSONObject(0).getString("age"));
+        assertEquals(vadas.getId(), tx.getJSONObject(1).getString("_id"));
+        assertEquals("edge", tx.getJSONObject(2).getString("_type"));
+        assertEquals(knows.getId(), tx.getJSONObject(2).getString("_id"));
+        assertEquals(vadas.getId(), tx.getJSONObject(2).getString("_inV"));
+        assertEquals("(float,0.5)", tx.getJSONObject(2).getString("weight"));
+
+        // properties of elements that are already sent are updated
+        marko.setProperty("age", 30);
+        marko.removeProperty("name");
+        graph.rollback();
+        graph.commit();
+        assertEquals(1, this.transactions.size());
+        marko.setProperty("age", 30);
+        graph.commit();
+        assertEquals("update", this.transactions.get(1).getJSONObject(0).getString("_action"));
+    }
+
+    public void testFlushEveryBatchSizeMutations() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        final BatchGraph batchGraph = BatchGraph.wrap(graph, VertexIDType.NUMBER, 1000);
+        graph.setBatchSize(10);
+        for (int i = 0; i < 25; i++) {
+            batchGraph.addVertex(i);
+        }
+        assertEquals(2, this.transactions.size());
+        // a RexsterGraph is not transactional, so the batch graph does not commit it
+        batchGraph.commit();
+        assertEquals(2, this.transactions.size());
+        graph.commit();
+        assertEquals(3, this.transactions.size());
+        assertEquals(5, this.transactions.get(2).length());
+    }
+
+    public void testFailedBatchIsKept() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        graph.setBatchSize(100);
+        graph.addVertex("1");
+        graph.addVertex("2");
+        this.failures = 1;
+        try {
+            graph.commit();
+            fail();
+        } catch (RuntimeException e) {
+        }
+        assertEquals(0, this.transactions.size());
+
+        graph.commit();
+        assertEquals(1, this.transactions.size());
+        assertEquals(2, this.transactions.get(0).length());
+        graph.commit();
+        assertEquals(1, this.transactions.size());
+    }
+
+    public void testElementsTakeOnReturnedIds() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        graph.setBatchSize(100);
+        this.renumber = true;
+        final Vertex marko = graph.addVertex("1");
+        final Vertex vadas = graph.addVertex(null);
+        final Object vadasId = vadas.getId();
+        final Edge knows = graph.addEdge("7", marko, vadas, "knows");
+        graph.commit();
+        assertEquals("server-1", marko.getId());
+        assertEquals("server-" + vadasId, vadas.getId());
+        assertEquals("server-7", knows.getId());
+        assertEquals("server-1", ((RexsterEdge) knows).getVertexId(Direction.OUT));
+        assertEquals("server-" + vadasId, ((RexsterEdge) knows).getVertexId(Direction.IN));
+
+        // later mutations refer to the elements by the returned ids
+        graph.addEdge("8", vadas, marko, "knows");
+        graph.commit();
+        assertEquals("server-" + vadasId, this.transactions.get(1).getJSONObject(0).getString("_outV"));
+        assertEquals("server-1", this.transactions.get(1).getJSONObject(0).getString("_inV"));
+    }
+
+    public void testUnknownIdsFail() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        graph.setBatchSize(100);
+        this.ignoresSuppliedIds = true;
+        graph.addVertex(null);
+        try {
+            graph.commit();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        // the batch was taken, so it is not sent again
+        assertEquals(1, this.transactions.size());
+        graph.commit();
+        assertEquals(1, this.transactions.size());
+
+        // a batch that only changes elements has no ids to reconcile
+        graph.removeVertex(new RexsterVertex(new JSONObject("{\"_id\":\"1\",\"_type\":\"vertex\"}"), graph));
+        graph.commit();
+        assertEquals(2, this.transactions.size());
+    }
+
+    public void testMissingResultFails() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        graph.setBatchSize(100);
+        this.renumber = true;
+        this.dropResult = true;
+        final Vertex marko = graph.addVertex("1");
+        graph.addVertex("2");
+        try {
+            graph.commit();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        // no element takes on an id unless all of them can
+        assertEquals("1", marko.getId());
+    }
+
+    public void testRollbackOutsideBatchMode() {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        graph.commit();
+        try {
+            graph.rollback();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testTransportBelongsToGraph() throws Exception {
+        final RexsterGraph first = new RexsterGraph(this.uri);
+        final RexsterGraph second = new RexsterGraph(this.uri);
+        assertNotSame(first.getTransport(), second.getTransport());
+
+        // shutting down one graph leaves the transport of the other alone
+        first.shutdown();
+        second.setBatchSize(10);
+        second.addVertex("1");
+        second.commit();
+        assertEquals(1, this.transactions.size());
+
+        // a transport that is set is shared, and shut down by its owner only
+        final CountingTransport shared = new CountingTransport();
+        second.setTransport(shared);
+        final RexsterGraph third = new RexsterGraph(this.uri);
+        third.setTransport(shared);
+        second.addVertex("2");
+        second.shutdown();
+        assertEquals(2, this.transactions.size());
+        assertEquals(1, shared.requests);
+        assertEquals(0, shared.shutdowns);
+        third.setBatchSize(10);
+        third.addVertex("3");
+        third.commit();
+        assertEquals(3, this.transactions.size());
+        // the batch and the features of the graph, which the third graph had not asked for yet
+        assertEquals(3, shared.requests);
+        shared.shutdown();
+    }
+
+    private static class CountingTransport extends RexsterHttpTransport {
+        private volatile int requests = 0;
+        private volatile int shutdowns = 0;
+
+        public JSONObject request(final String method, final String uri, final Map<String, String> headers, final String body) {
+            this.requests++;
+            return super.request(method, uri, headers, body);
+        }
+
+        public void shutdown() {
+            this.shutdowns++;
+            super.shutdown();
+        }
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        in.close();
+        return bytes.toString("UTF-8");
+    }
+}
@@ -0,0 +1,62 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import junit.framework.TestCase;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.Map;
+
+public class RexsterElementCacheTest extends TestCase {
+
+    public void testPutTypedProperties() throws Exception {
+        final RexsterElementCache cache = new RexsterElementCache(10, 60000);
+        final Map<String, Object> properties = cache.put(true, "1", new JSONObject("{\"_id\":\"1\",\"_type\":\"vertex\",\"name\":{\"type\":\"string\",\"value\":\"marko\"},\"age\":{\"type\":\"integer\",\"value\":29}}"));
+        assertEquals(2, properties.size());
+        assertEquals("marko", properties.get("name"));
+        assertEquals(29, properties.get("age"));
+        assertSame(properties, cache.get(true, "1"));
+        assertNull(cache.get(false, "1"));
+
+        cache.removeProperty(true, "1", "age");
+        assertNull(cache.get(true, "1").get("age"));
+        cache.remove(true, "1");
+        assertNull(cache.get(true, "1"));
+    }
+
+    public void testSetProperty() throws Exception {
+        final RexsterElementCache cache = new RexsterElementCache(10, 60000);
+        cache.put(true, "1", new JSONObject("{\"_id\":\"1\",\"name\":{\"type\":\"string\",\"value\":\"marko\"}}"));
+        cache.setProperty(true, "1", "age", 29l);
+        assertEquals(29l, cache.get(true, "1").get("age"));
+
+        // a value that is not sent with its type is read from Rexster again
+        cache.setProperty(true, "1", "flag", true);
+        assertNull(cache.get(true, "1"));
+        cache.setProperty(true, "1", "name", "josh");
+        assertNull(cache.get(true, "1"));
+    }
+
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        final RexsterElementCache cache = new RexsterElementCache(2, 60000);
+        cache.put(false, "1", new JSONObject("{\"_id\":\"1\"}"));
+        cache.put(false, "2", new JSONObject("{\"_id\":\"2\"}"));
+        cache.get(false, "1");
+        cache.put(false, "3", new JSONObject("{\"_id\":\"3\"}"));
+        assertNotNull(cache.get(false, "1"));
+        assertNull(cache.get(false, "2"));
+        assertNotNull(cache.get(false, "3"));
+    }
+
+    public void testDisabledAndStale() throws Exception {
+        assertFalse(new RexsterGraph("http://127.0.0.1:1/graphs/test").getElementCache().isEnabled());
+
+        final RexsterElementCache cache = new RexsterElementCache(0, 60000);
+        assertFalse(cache.isEnabled());
+        assertEquals(1, cache.put(true, "1", new JSONObject("{\"_id\":\"1\",\"name\":{\"type\":\"string\",\"value\":\"marko\"}}")).size());
+        assertNull(cache.get(true, "1"));
+
+        cache.setLimits(10, 0);
+        cache.put(true, "1", new JSONObject("{\"_id\":\"1\"}"));
+        Thread.sleep(5);
+        assertNull(cache.get(true, "1"));
+    }
+}
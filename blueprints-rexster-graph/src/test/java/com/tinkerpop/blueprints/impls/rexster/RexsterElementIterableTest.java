@@ -0,0 +1,125 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Pages through the vertices of a stub server in the test process.
+ */
+public class RexsterElementIterableTest extends TestCase {
+
+    private static final int VERTICES = 1234;
+
+    private HttpServer server;
+    private String uri;
+    private final List<Integer> pageSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+    public void setUp() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/graphs/test/vertices", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                int start = 0;
+                int end = 0;
+                for (final String parameter : exchange.getRequestURI().getQuery().split("&")) {
+                    final String[] pair = parameter.split("=");
+                    if (pair[0].equals("rexster.offset.start")) start = Integer.parseInt(pair[1]);
+                    else if (pair[0].equals("rexster.offset.end")) end = Integer.parseInt(pair[1]);
+                }
+                pageSizes.add(end - start);
+
+                final StringBuilder json = new StringBuilder("{\"results\":[");
+                for (int i = start; i < Math.min(end, VERTICES); i++) {
+                    if (i > start) json.append(",");
+                    json.append("{\"_id\":\"").append(i).append("\",\"_type\":\"vertex\",\"index\":{\"type\":\"integer\",\"value\":").append(i).append("}}");
+                }
+                json.append("]}");
+                final byte[] body = json.toString().getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+        this.uri = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/graphs/test";
+    }
+
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    public void testIterateAllPages() {
+        final RexsterGraph graph = new RexsterGraph(this.uri, 10);
+        // the properties are read from the cached pages, as single vertices are not served
+        graph.setElementCache(VERTICES, RexsterGraph.DEFAULT_ELEMENT_CACHE_TIME_TO_LIVE);
+        int count = 0;
+        for (final Vertex vertex : graph.getVertices()) {
+            assertEquals(String.valueOf(count), vertex.getId());
+            assertEquals(count, ((Integer) vertex.getProperty("index")).intValue());
+            count++;
+        }
+        assertEquals(VERTICES, count);
+
+        // the iteration waits for every page, so the pages grow
+        assertEquals(10, this.pageSizes.get(0).intValue());
+        assertTrue(this.pageSizes.get(this.pageSizes.size() - 1) > 10);
+        assertTrue(this.pageSizes.size() < VERTICES / 10);
+    }
+
+    public void testCloseStopsFetching() {
+        final RexsterGraph graph = new RexsterGraph(this.uri, 10);
+        final RexsterVertexIterable vertices = (RexsterVertexIterable) graph.getVertices();
+        final Iterator<Vertex> iterator = vertices.iterator();
+        assertEquals("0", iterator.next().getId());
+        vertices.close();
+        for (int i = 1; i < 10; i++) {
+            assertEquals(String.valueOf(i), iterator.next().getId());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    public void testPrefetchOnceHalfAPageIsConsumed() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri, 10);
+        final Iterator<Vertex> iterator = graph.getVertices().iterator();
+        for (int i = 0; i < 4; i++) {
+            iterator.next();
+        }
+        Thread.sleep(100);
+        assertEquals(1, this.pageSizes.size());
+
+        iterator.next();
+        for (int i = 0; i < 50 && this.pageSizes.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, this.pageSizes.size());
+    }
+
+    public void testDroppedIteratorIsCollected() throws Exception {
+        final RexsterGraph graph = new RexsterGraph(this.uri, 10);
+        final RexsterVertexIterable vertices = (RexsterVertexIterable) graph.getVertices();
+        Iterator<Vertex> iterator = vertices.iterator();
+        iterator.next();
+        final WeakReference<Iterator<Vertex>> reference = new WeakReference<Iterator<Vertex>>(iterator);
+        iterator = null;
+        for (int i = 0; i < 50 && null != reference.get(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        vertices.close();
+    }
+}
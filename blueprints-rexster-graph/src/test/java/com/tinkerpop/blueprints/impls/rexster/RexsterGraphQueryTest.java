@@ -0,0 +1,233 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Query;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks which parts of graph and vertex queries are sent to a stub server in the test process.
+ */
+public class RexsterGraphQueryTest extends TestCase {
+
+    private static final String VERTICES = "[{\"_id\":\"1\",\"_type\":\"vertex\",\"age\":{\"type\":\"integer\",\"value\":30}},{\"_id\":\"2\",\"_type\":\"vertex\",\"age\":{\"type\":\"integer\",\"value\":25}}]";
+    private static final String EDGES = "[{\"_id\":\"7\",\"_type\":\"edge\",\"_outV\":\"1\",\"_inV\":\"2\",\"_label\":\"knows\",\"weight\":{\"type\":\"integer\",\"value\":1},\"strong\":{\"type\":\"boolean\",\"value\":true}},{\"_id\":\"8\",\"_type\":\"edge\",\"_outV\":\"1\",\"_inV\":\"3\",\"_label\":\"knows\",\"weight\":{\"type\":\"integer\",\"value\":1},\"strong\":{\"type\":\"boolean\",\"value\":false}}]";
+
+    private HttpServer server;
+    private String uri;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> rawRequests = Collections.synchronizedList(new ArrayList<String>());
+    private volatile boolean gremlin = true;
+    private volatile int gremlinStatus = 404;
+
+    public void setUp() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/graphs/test", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String path = exchange.getRequestURI().getPath();
+                final String query = exchange.getRequestURI().getQuery();
+                requests.add(path + (null == query ? "" : "?" + query));
+                rawRequests.add(path + "?" + exchange.getRequestURI().getRawQuery());
+
+                if (path.endsWith("/tp/gremlin") && !gremlin) {
+                    exchange.sendResponseHeaders(gremlinStatus, -1);
+                    exchange.close();
+                    return;
+                }
+                final String results;
+                if (path.contains("/keyindices/") || (null != query && query.contains("rexster.offset.start=") && !query.contains("rexster.offset.start=0&")))
+                    results = "[]";
+                else if (path.endsWith("/tp/gremlin") || path.endsWith("/vertices"))
+                    results = VERTICES;
+                else
+                    results = EDGES;
+                final byte[] body = ("{\"results\":" + results + "}").getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+        this.uri = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/graphs/test";
+    }
+
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    public void testGraphQuerySendsScript() {
+        final RexsterGraph graph = this.newGraph();
+        final List<Object> ids = new ArrayList<Object>();
+        for (final Vertex vertex : graph.query().has("age", Query.Compare.GREATER_THAN, 29).has("name", "it's").limit(2).vertices()) {
+            ids.add(vertex.getId());
+        }
+        // the returned vertices are still filtered
+        assertEquals(0, ids.size());
+
+        final String request = this.getRequest("/graphs/test/tp/gremlin");
+        assertTrue(request.contains("script=g.query().has(k0.toString(),com.tinkerpop.blueprints.Query.Compare.GREATER_THAN,Integer.valueOf(v0.toString())).has(k1.toString(),com.tinkerpop.blueprints.Query.Compare.EQUAL,v1.toString()).limit(2L).vertices()&"));
+        assertTrue(request.contains("&params.k0=age&params.v0=29&params.k1=name&params.v1=it's&"));
+        assertTrue(request.contains("rexster.showTypes=true"));
+    }
+
+    public void testGraphQuerySendsValuesAsParams() {
+        final RexsterGraph graph = this.newGraph();
+        final String value = "a$b ${c} \\u0041 \u00e9\u0000'\"&=";
+        for (final Vertex vertex : graph.query().has("key$\u0000", value).limit(1).vertices()) {
+        }
+
+        // nothing of the key or the value is written into the script
+        assertTrue(this.getRequest("/graphs/test/tp/gremlin").contains("script=g.query().has(k0.toString(),com.tinkerpop.blueprints.Query.Compare.EQUAL,v0.toString()).limit(1L).vertices()&"));
+        String rawRequest = null;
+        synchronized (this.rawRequests) {
+            for (final String request : this.rawRequests) {
+                if (request.startsWith("/graphs/test/tp/gremlin?"))
+                    rawRequest = request;
+            }
+        }
+        assertTrue(rawRequest.contains("&params.k0=" + RestHelper.encode("key$\u0000") + "&params.v0=" + RestHelper.encode(value) + "&"));
+    }
+
+    public void testGraphQueryFallsBackWithoutGremlin() {
+        this.gremlin = false;
+        final RexsterGraph graph = this.newGraph();
+        for (int i = 0; i < 2; i++) {
+            final List<Object> ids = new ArrayList<Object>();
+            for (final Vertex vertex : graph.query().has("age", Query.Compare.GREATER_THAN, 26).limit(1).vertices()) {
+                ids.add(vertex.getId());
+            }
+            assertEquals(Arrays.<Object>asList("1"), ids);
+        }
+        // the extension is only asked once
+        assertEquals(1, this.countGremlinRequests());
+        assertFalse(graph.isGremlinAvailable());
+        assertNotNull(this.getRequest("/graphs/test/vertices"));
+
+        this.gremlin = true;
+        graph.resetGremlinAvailable();
+        for (final Vertex vertex : graph.query().has("age", Query.Compare.GREATER_THAN, 26).limit(1).vertices()) {
+        }
+        assertEquals(2, this.countGremlinRequests());
+        assertTrue(graph.isGremlinAvailable());
+    }
+
+    public void testGraphQueryFallsBackOnceOnError() {
+        this.gremlin = false;
+        this.gremlinStatus = 500;
+        final RexsterGraph graph = this.newGraph();
+        for (int i = 0; i < 2; i++) {
+            final List<Object> ids = new ArrayList<Object>();
+            for (final Vertex vertex : graph.query().has("age", Query.Compare.GREATER_THAN, 26).limit(1).vertices()) {
+                ids.add(vertex.getId());
+            }
+            assertEquals(Arrays.<Object>asList("1"), ids);
+        }
+        // an error that is not a missing extension only affects the query that ran into it
+        assertEquals(2, this.countGremlinRequests());
+        assertTrue(graph.isGremlinAvailable());
+    }
+
+    private int countGremlinRequests() {
+        int gremlinRequests = 0;
+        synchronized (this.requests) {
+            for (final String request : this.requests) {
+                if (request.startsWith("/graphs/test/tp/gremlin?"))
+                    gremlinRequests++;
+            }
+        }
+        return gremlinRequests;
+    }
+
+    public void testGraphQueryKeepsLimitWithLocalPredicate() {
+        final RexsterGraph graph = this.newGraph();
+        final List<Object> ids = new ArrayList<Object>();
+        for (final Vertex vertex : graph.query().has("age", Query.Compare.GREATER_THAN, 29).has("nickname", null).limit(1).vertices()) {
+            ids.add(vertex.getId());
+        }
+        assertEquals(Arrays.<Object>asList("1"), ids);
+
+        final String request = this.getRequest("/graphs/test/tp/gremlin");
+        assertTrue(request.contains("script=g.query().has(k0.toString(),com.tinkerpop.blueprints.Query.Compare.GREATER_THAN,Integer.valueOf(v0.toString())).vertices()&"));
+        assertTrue(request.contains("&params.k0=age&params.v0=29&"));
+        assertFalse(request.contains("nickname"));
+    }
+
+    public void testGraphQueryUsesKeyLookupForEquality() {
+        final RexsterGraph graph = this.newGraph();
+        final List<Edge> edges = new ArrayList<Edge>();
+        for (final Edge edge : graph.query().has("weight", 0.5d).edges()) {
+            edges.add(edge);
+        }
+        assertEquals(0, edges.size());
+        assertNotNull(this.getRequest("/graphs/test/edges"));
+        assertTrue(this.getRequest("/graphs/test/edges").contains("key=weight&value=(double,0.5)"));
+    }
+
+    public void testConversion() {
+        assertEquals("v0.toString()", RexsterGraphQuery.conversion("a", "v0"));
+        assertEquals("Long.valueOf(v1.toString())", RexsterGraphQuery.conversion(Long.MIN_VALUE, "v1"));
+        assertEquals("Float.valueOf(v2.toString())", RexsterGraphQuery.conversion(0.5f, "v2"));
+        assertEquals("Boolean.valueOf(v3.toString())", RexsterGraphQuery.conversion(true, "v3"));
+        assertNull(RexsterGraphQuery.conversion(null, "v4"));
+        assertNull(RexsterGraphQuery.conversion(new Object(), "v5"));
+    }
+
+    public void testVertexQueryEvaluatedByRexster() {
+        final RexsterGraph graph = this.newGraph();
+        final RexsterVertexQuery query = new RexsterVertexQuery(this.uri + "/vertices/1", graph);
+        query.direction(Direction.OUT).labels("knows", "created").has("weight", Query.Compare.GREATER_THAN, 0.5d).limit(1);
+        assertTrue(query.isEvaluatedByRexster());
+        assertEquals(2, ((List) query.vertexIds()).size());
+
+        final String request = this.getRequest("/graphs/test/vertices/1/outIds");
+        assertTrue(request.contains("_limit=1"));
+        assertTrue(request.contains("_label=[knows,created]"));
+        assertTrue(request.contains("_properties=[[weight,>,(double,0.5)]]"));
+    }
+
+    public void testVertexQueryFiltersLocally() {
+        final RexsterGraph graph = this.newGraph();
+        final RexsterVertexQuery query = new RexsterVertexQuery(this.uri + "/vertices/1", graph);
+        query.direction(Direction.OUT).has("strong", true).has("weight", Query.Compare.LESS_THAN, 2).limit(5);
+        assertFalse(query.isEvaluatedByRexster());
+        assertEquals(Arrays.<Object>asList("2"), query.vertexIds());
+        assertEquals(1, query.count());
+
+        final String request = this.getRequest("/graphs/test/vertices/1/outE");
+        assertTrue(request.contains("_limit=" + Long.MAX_VALUE));
+        assertTrue(request.contains("_properties=[[weight,<,(integer,2)]]"));
+        assertFalse(request.contains("strong"));
+    }
+
+    private RexsterGraph newGraph() {
+        final RexsterGraph graph = new RexsterGraph(this.uri);
+        // the returned elements are filtered by their cached properties, as single elements are not served
+        graph.setElementCache(100, RexsterGraph.DEFAULT_ELEMENT_CACHE_TIME_TO_LIVE);
+        return graph;
+    }
+
+    private String getRequest(final String path) {
+        synchronized (this.requests) {
+            for (final String request : this.requests) {
+                if (request.startsWith(path + "?"))
+                    return request;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,181 @@
+package com.tinkerpop.blueprints.impls.rexster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs the transport against a stub HTTP server in the test process.
+ */
+public class RexsterHttpTransportTest extends TestCase {
+
+    private static final String ELEMENT = "{\"results\":{\"_id\":\"1\",\"_type\":\"vertex\",\"name\":{\"type\":\"string\",\"value\":\"marko\"},\"age\":{\"type\":\"integer\",\"value\":29},\"weights\":[0.5,1,null,true]}}";
+
+    private HttpServer server;
+    private String uri;
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger maxInFlight = new AtomicInteger(0);
+    private volatile String lastBody;
+
+    public void setUp() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                final int current = inFlight.incrementAndGet();
+                synchronized (maxInFlight) {
+                    if (current > maxInFlight.get()) maxInFlight.set(current);
+                }
+                try {
+                    lastBody = read(exchange.getRequestBody());
+                    final String path = exchange.getRequestURI().getPath();
+                    if (path.equals("/missing")) {
+                        respond(exchange, 404, "{\"message\":\"not found\"}".getBytes("UTF-8"));
+                    } else if (path.equals("/slow")) {
+                        Thread.sleep(50);
+                        respond(exchange, 200, ELEMENT.getBytes("UTF-8"));
+                    } else if (path.equals("/empty")) {
+                        respond(exchange, 200, new byte[0]);
+                    } else if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        final GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+                        gzip.write(ELEMENT.getBytes("UTF-8"));
+                        gzip.close();
+                        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                        respond(exchange, 200, bytes.toByteArray());
+                    } else {
+                        respond(exchange, 200, ELEMENT.getBytes("UTF-8"));
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e.getMessage());
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+        this.uri = "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    public void testRequestParsesResponse() throws Exception {
+        final RexsterHttpTransport transport = new RexsterHttpTransport();
+        final JSONObject element = transport.request("GET", this.uri + "/vertices/1", null, null).optJSONObject("results");
+        assertEquals("1", element.optString("_id"));
+        assertEquals("marko", element.optJSONObject("name").optString("value"));
+        assertEquals(29, element.optJSONObject("age").optInt("value"));
+        final JSONArray weights = element.optJSONArray("weights");
+        assertEquals(4, weights.length());
+        assertEquals(0.5d, weights.optDouble(0));
+        assertEquals(1, weights.optInt(1));
+        assertTrue(weights.isNull(2));
+        assertTrue(weights.optBoolean(3));
+        assertNull(transport.request("DELETE", this.uri + "/empty", null, null));
+    }
+
+    public void testRequestSendsBody() throws Exception {
+        final RexsterHttpTransport transport = new RexsterHttpTransport();
+        transport.request("POST", this.uri + "/edges", null, "{\"_label\":\"knows\"}");
+        assertEquals("{\"_label\":\"knows\"}", this.lastBody);
+    }
+
+    public void testRequestGzip() throws Exception {
+        final RexsterHttpTransport transport = new RexsterHttpTransport();
+        transport.setGzip(true);
+        assertEquals("marko", transport.request("GET", this.uri + "/vertices/1", null, null).optJSONObject("results").optJSONObject("name").optString("value"));
+    }
+
+    public void testRequestKeepsConnectionAlive() throws Exception {
+        final RexsterHttpTransport transport = new RexsterHttpTransport();
+        for (int i = 0; i < 20; i++) {
+            transport.request("GET", this.uri + "/vertices/1", null, null);
+        }
+        try {
+            transport.request("GET", this.uri + "/missing", null, null);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("404"));
+        }
+        transport.request("GET", this.uri + "/vertices/1", null, null);
+        assertEquals(1, this.clientPorts.size());
+    }
+
+    public void testSubmitBoundsConcurrentRequests() throws Exception {
+        final RexsterHttpTransport transport = new RexsterHttpTransport(3);
+        final List<Future<JSONObject>> futures = new ArrayList<Future<JSONObject>>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(transport.submit("GET", this.uri + "/slow", null, null));
+        }
+        for (Future<JSONObject> future : futures) {
+            assertEquals("1", future.get().optJSONObject("results").optString("_id"));
+        }
+        transport.shutdown();
+        assertTrue(this.maxInFlight.get() > 1);
+        assertTrue(this.maxInFlight.get() <= 3);
+    }
+
+    public void testRequestBoundsConcurrentRequests() throws Exception {
+        final RexsterHttpTransport transport = new RexsterHttpTransport(3);
+        final List<Thread> threads = new ArrayList<Thread>();
+        final AtomicInteger succeeded = new AtomicInteger(0);
+        for (int i = 0; i < 12; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    if ("1".equals(transport.request("GET", uri + "/slow", null, null).optJSONObject("results").optString("_id")))
+                        succeeded.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(12, succeeded.get());
+        assertTrue(this.maxInFlight.get() > 1);
+        assertTrue(this.maxInFlight.get() <= 3);
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        in.close();
+        return bytes.toString("UTF-8");
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        final OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+}
@@ -0,0 +1,224 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.EdgeTestSuite;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.GraphTestSuite;
+import com.tinkerpop.blueprints.IndexTestSuite;
+import com.tinkerpop.blueprints.IndexableGraphTestSuite;
+import com.tinkerpop.blueprints.KeyIndexableGraphTestSuite;
+import com.tinkerpop.blueprints.QueryTestSuite;
+import com.tinkerpop.blueprints.TestSuite;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.VertexTestSuite;
+import com.tinkerpop.blueprints.impls.GraphTest;
+import com.tinkerpop.blueprints.util.io.gml.GMLReaderTestSuite;
+import com.tinkerpop.blueprints.util.io.graphml.GraphMLReaderTestSuite;
+import com.tinkerpop.blueprints.util.io.graphson.GraphSONReaderTestSuite;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class CompactTinkerGraphTest extends GraphTest {
+
+    public void testGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GraphTestSuite(this));
+        printTestPerformance("GraphTestSuite", this.stopWatch());
+    }
+
+    public void testVertexTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new VertexTestSuite(this));
+        printTestPerformance("VertexTestSuite", this.stopWatch());
+    }
+
+    public void testEdgeTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new EdgeTestSuite(this));
+        printTestPerformance("EdgeTestSuite", this.stopWatch());
+    }
+
+    public void testQueryTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new QueryTestSuite(this));
+        printTestPerformance("QueryTestSuite", this.stopWatch());
+    }
+
+    public void testKeyIndexableGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new KeyIndexableGraphTestSuite(this));
+        printTestPerformance("KeyIndexableGraphTestSuite", this.stopWatch());
+    }
+
+    public void testIndexableGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new IndexableGraphTestSuite(this));
+        printTestPerformance("IndexableGraphTestSuite", this.stopWatch());
+    }
+
+    public void testIndexTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new IndexTestSuite(this));
+        printTestPerformance("IndexTestSuite", this.stopWatch());
+    }
+
+    public void testGraphMLReaderTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GraphMLReaderTestSuite(this));
+        printTestPerformance("GraphMLReaderTestSuite", this.stopWatch());
+    }
+
+    public void testGraphSONReaderTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GraphSONReaderTestSuite(this));
+        printTestPerformance("GraphSONReaderTestSuite", this.stopWatch());
+    }
+
+    public void testGMLReaderTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GMLReaderTestSuite(this));
+        printTestPerformance("GMLReaderTestSuite", this.stopWatch());
+    }
+
+    @Override
+    public Graph generateGraph() {
+        return new CompactTinkerGraph();
+    }
+
+    @Override
+    public Graph generateGraph(final String graphDirectoryName) {
+        return new CompactTinkerGraph();
+    }
+
+    @Override
+    public void doTestSuite(final TestSuite testSuite) throws Exception {
+        for (Method method : testSuite.getClass().getDeclaredMethods()) {
+            if (method.getName().startsWith("test")) {
+                System.out.println("Testing " + method.getName() + "...");
+                method.invoke(testSuite);
+            }
+        }
+    }
+
+    public void testNumericAndStringIdsCoexist() {
+        CompactTinkerGraph graph = new CompactTinkerGraph();
+        Vertex a = graph.addVertex("1");
+        Vertex b = graph.addVertex("marko");
+        Vertex c = graph.addVertex("01");
+        Vertex d = graph.addVertex(null);
+        assertEquals("1", a.getId());
+        assertEquals("marko", b.getId());
+        assertEquals("01", c.getId());
+        assertFalse(d.getId().equals(a.getId()));
+        assertEquals(a, graph.getVertex(1));
+        assertEquals(b, graph.getVertex("marko"));
+        assertEquals(c, graph.getVertex("01"));
+        assertEquals(d, graph.getVertex(d.getId()));
+        assertNull(graph.getVertex("-1"));
+
+        graph.removeVertex(c);
+        assertNull(graph.getVertex("01"));
+        assertEquals(3, count(graph.getVertices()));
+    }
+
+    public void testAdjacencyAfterRemovalAndTrim() {
+        CompactTinkerGraph graph = new CompactTinkerGraph();
+        Vertex a = graph.addVertex(null);
+        for (int i = 0; i < 100; i++) {
+            Edge edge = graph.addEdge(null, a, graph.addVertex(null), i % 2 == 0 ? "even" : "odd");
+            edge.setProperty("weight", i);
+        }
+        graph.addEdge(null, a, a, "self");
+        assertEquals(101, count(a.getEdges(Direction.OUT)));
+        assertEquals(102, count(a.getEdges(Direction.BOTH)));
+        assertEquals(50, count(a.getEdges(Direction.OUT, "even")));
+        assertEquals(51, count(a.getEdges(Direction.OUT, "odd", "self")));
+        assertEquals(0, count(a.getEdges(Direction.OUT, "unknown")));
+
+        for (Edge edge : a.getEdges(Direction.OUT, "even")) {
+            graph.removeEdge(edge);
+        }
+        graph.trimToSize();
+        assertEquals(51, count(a.getEdges(Direction.OUT)));
+        assertEquals(51, count(graph.getEdges()));
+        for (Edge edge : a.getEdges(Direction.OUT, "odd")) {
+            assertEquals(1, ((Integer) edge.getProperty("weight")) % 2);
+            assertEquals(1, count(edge.getVertex(Direction.IN).getEdges(Direction.IN)));
+        }
+
+        graph.removeVertex(a);
+        assertEquals(0, count(graph.getEdges()));
+        assertEquals(100, count(graph.getVertices()));
+    }
+
+    public void testSlotsOfRemovedElementsAreReused() {
+        CompactTinkerGraph graph = new CompactTinkerGraph();
+        Vertex a = graph.addVertex("a");
+        Vertex b = graph.addVertex("b");
+        a.setProperty("name", "marko");
+        Edge edge = graph.addEdge("e", a, b, "knows");
+        graph.removeVertex(a);
+        assertEquals("a", a.getId());
+
+        Vertex c = graph.addVertex("c");
+        Edge other = graph.addEdge("f", b, c, "created");
+        assertEquals(2, graph.vertexIds.size());
+        assertEquals(1, graph.edgeIds.size());
+
+        // the facades of the removed elements do not see the elements that reuse their slots
+        assertEquals("a", a.getId());
+        assertNull(a.getProperty("name"));
+        assertEquals(0, a.getPropertyKeys().size());
+        assertEquals(0, count(a.getEdges(Direction.BOTH)));
+        // the edge was removed through another facade, which does not change the id of this one
+        assertEquals("e", edge.getId());
+        assertFalse(edge.equals(other));
+        final Set<Element> removed = new HashSet<Element>(Arrays.<Element>asList(a, edge));
+        assertTrue(removed.contains(a));
+        assertTrue(removed.contains(edge));
+        assertFalse(a.equals(c));
+        try {
+            a.setProperty("name", "josh");
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        graph.removeVertex(a);
+        assertEquals(c, graph.getVertex("c"));
+        assertEquals("created", other.getLabel());
+        assertEquals(1, count(c.getEdges(Direction.IN)));
+        assertNull(c.getProperty("name"));
+    }
+
+    public void testSparseAndDenseProperties() {
+        CompactTinkerGraph graph = new CompactTinkerGraph();
+        for (int i = 0; i < 1000; i++) {
+            Vertex vertex = graph.addVertex(null);
+            vertex.setProperty("all", i);
+            if (i % 100 == 0)
+                vertex.setProperty("sparse", i);
+            if (i % 3 == 0)
+                vertex.setProperty("dense", i);
+        }
+        for (int i = 0; i < 1000; i = i + 2) {
+            Vertex vertex = graph.getVertex(i);
+            if (i % 200 == 0)
+                vertex.removeProperty("sparse");
+            vertex.removeProperty("dense");
+        }
+        graph.trimToSize();
+        for (int i = 0; i < 1000; i++) {
+            Vertex vertex = graph.getVertex(i);
+            assertEquals(i, ((Integer) vertex.getProperty("all")).intValue());
+            assertEquals(i % 100 == 0 && i % 200 != 0 ? Integer.valueOf(i) : null, vertex.getProperty("sparse"));
+            assertEquals(i % 2 == 1 && i % 3 == 0 ? Integer.valueOf(i) : null, vertex.getProperty("dense"));
+        }
+        assertEquals(1, count(graph.getVertices("sparse", 100)));
+        assertEquals(0, count(graph.getVertices("sparse", 200)));
+        assertEquals(1, count(graph.getVertices("dense", 3)));
+    }
+}
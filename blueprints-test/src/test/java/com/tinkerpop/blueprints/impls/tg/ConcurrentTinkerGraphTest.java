@@ -0,0 +1,207 @@
+package com.tinkerpop.blueprints.impls.tg;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.EdgeTestSuite;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.GraphTestSuite;
+import com.tinkerpop.blueprints.IndexTestSuite;
+import com.tinkerpop.blueprints.IndexableGraphTestSuite;
+import com.tinkerpop.blueprints.KeyIndexableGraphTestSuite;
+import com.tinkerpop.blueprints.QueryTestSuite;
+import com.tinkerpop.blueprints.TestSuite;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.VertexTestSuite;
+import com.tinkerpop.blueprints.impls.GraphTest;
+import com.tinkerpop.blueprints.util.io.gml.GMLReaderTestSuite;
+import com.tinkerpop.blueprints.util.io.graphml.GraphMLReaderTestSuite;
+import com.tinkerpop.blueprints.util.io.graphson.GraphSONReaderTestSuite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentTinkerGraphTest extends GraphTest {
+
+    public void testGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GraphTestSuite(this));
+        printTestPerformance("GraphTestSuite", this.stopWatch());
+    }
+
+    public void testVertexTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new VertexTestSuite(this));
+        printTestPerformance("VertexTestSuite", this.stopWatch());
+    }
+
+    public void testEdgeTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new EdgeTestSuite(this));
+        printTestPerformance("EdgeTestSuite", this.stopWatch());
+    }
+
+    public void testQueryTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new QueryTestSuite(this));
+        printTestPerformance("QueryTestSuite", this.stopWatch());
+    }
+
+    public void testKeyIndexableGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new KeyIndexableGraphTestSuite(this));
+        printTestPerformance("KeyIndexableGraphTestSuite", this.stopWatch());
+    }
+
+    public void testIndexableGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new IndexableGraphTestSuite(this));
+        printTestPerformance("IndexableGraphTestSuite", this.stopWatch());
+    }
+
+    public void testIndexTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new IndexTestSuite(this));
+        printTestPerformance("IndexTestSuite", this.stopWatch());
+    }
+
+    public void testGraphMLReaderTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GraphMLReaderTestSuite(this));
+        printTestPerformance("GraphMLReaderTestSuite", this.stopWatch());
+    }
+
+    public void testGraphSONReaderTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GraphSONReaderTestSuite(this));
+        printTestPerformance("GraphSONReaderTestSuite", this.stopWatch());
+    }
+
+    public void testGMLReaderTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new GMLReaderTestSuite(this));
+        printTestPerformance("GMLReaderTestSuite", this.stopWatch());
+    }
+
+    @Override
+    public Graph generateGraph() {
+        return new ConcurrentTinkerGraph();
+    }
+
+    @Override
+    public Graph generateGraph(final String graphDirectoryName) {
+        return new ConcurrentTinkerGraph();
+    }
+
+    @Override
+    public void doTestSuite(final TestSuite testSuite) throws Exception {
+        for (Method method : testSuite.getClass().getDeclaredMethods()) {
+            if (method.getName().startsWith("test")) {
+                System.out.println("Testing " + method.getName() + "...");
+                method.invoke(testSuite);
+            }
+        }
+    }
+
+    public void testConcurrentMutations() throws Exception {
+        final ConcurrentTinkerGraph graph = new ConcurrentTinkerGraph();
+        graph.createKeyIndex("thread", Vertex.class);
+        final Vertex hub = graph.addVertex("hub");
+        final int threads = 8;
+        final int verticesPerThread = 500;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    Vertex previous = hub;
+                    for (int i = 0; i < verticesPerThread; i++) {
+                        final Vertex vertex = graph.addVertex(null);
+                        vertex.setProperty("thread", thread);
+                        graph.addEdge(null, hub, vertex, "spoke");
+                        graph.addEdge(null, previous, vertex, "chain");
+                        previous = vertex;
+                        // readers run alongside the writers
+                        count(hub.getEdges(Direction.OUT, "spoke"));
+                    }
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * verticesPerThread + 1, count(graph.getVertices()));
+        assertEquals(threads * verticesPerThread * 2, count(graph.getEdges()));
+        assertEquals(threads * verticesPerThread, count(hub.getEdges(Direction.OUT, "spoke")));
+        assertEquals(threads, count(hub.getEdges(Direction.OUT, "chain")));
+        for (int t = 0; t < threads; t++) {
+            assertEquals(verticesPerThread, count(graph.getVertices("thread", t)));
+        }
+
+        graph.removeVertex(hub);
+        assertEquals(threads * verticesPerThread * 2 - (threads * verticesPerThread + threads), count(graph.getEdges()));
+    }
+
+    public void testDuplicateIdsAreRejected() {
+        final ConcurrentTinkerGraph graph = new ConcurrentTinkerGraph();
+        final Vertex a = graph.addVertex("1");
+        try {
+            graph.addVertex("1");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+        graph.addEdge("e", a, a, "self");
+        try {
+            graph.addEdge("e", a, a, "self");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+        assertNotNull(graph.addVertex(null));
+        assertEquals(2, count(graph.getVertices()));
+    }
+
+    public void testEdgeToRemovedVertexIsRejected() {
+        final ConcurrentTinkerGraph graph = new ConcurrentTinkerGraph();
+        final Vertex a = graph.addVertex("a");
+        final Vertex b = graph.addVertex("b");
+        graph.removeVertex(b);
+        try {
+            graph.addEdge(null, a, b, "knows");
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(true);
+        }
+        assertEquals(0, count(graph.getEdges()));
+        assertEquals(0, count(a.getEdges(Direction.BOTH)));
+    }
+
+    public void testLocksAreRestoredAfterDeserialization() throws Exception {
+        final ConcurrentTinkerGraph graph = new ConcurrentTinkerGraph();
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.createIndex("index", Vertex.class);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(graph);
+        out.close();
+        final ConcurrentTinkerGraph copy = (ConcurrentTinkerGraph) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        copy.addEdge(null, copy.getVertex("a"), copy.getVertex("b"), "knows");
+        copy.removeVertex(copy.getVertex("b"));
+        copy.getIndex("index", Vertex.class).put("name", "a", copy.getVertex("a"));
+        assertEquals(1, count(copy.getIndex("index", Vertex.class).get("name", "a")));
+        assertEquals(0, count(copy.getEdges()));
+    }
+}
@@ -1,12 +1,16 @@
 package com.tinkerpop.blueprints.impls.tg;
 
+import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.EdgeTestSuite;
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Index;
 import com.tinkerpop.blueprints.GraphTestSuite;
 import com.tinkerpop.blueprints.IndexTestSuite;
 import com.tinkerpop.blueprints.IndexableGraphTestSuite;
 import com.tinkerpop.blueprints.KeyIndexableGraphTestSuite;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.Query;
 import com.tinkerpop.blueprints.QueryTestSuite;
 import com.tinkerpop.blueprints.TestSuite;
 import com.tinkerpop.blueprints.Vertex;
@@ -17,7 +21,12 @@ import com.tinkerpop.blueprints.util.io.graphml.GraphMLReaderTestSuite;
 import com.tinkerpop.blueprints.util.io.graphson.GraphSONReaderTestSuite;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Method;
+import java.util.Collection;
 import java.util.UUID;
 
 /**
@@ -178,4 +187,350 @@ public class TinkerGraphTest extends GraphTest {
         }
         printPerformance(graph.toString(), iterations, "iterations of shutdown and restart", this.stopWatch());
     }
+
+    public void testIterationSnapshotsOnlyWhenMutated() {
+        TinkerGraph graph = new TinkerGraph();
+        graph.createKeyIndex("name", Vertex.class);
+        for (int i = 0; i < 10; i++) {
+            graph.addVertex(null).setProperty("name", "marko");
+        }
+
+        Iterable<Vertex> vertices = graph.getVertices();
+        assertTrue(vertices instanceof Collection);
+        assertEquals(10, ((Collection) vertices).size());
+
+        // mutations during iteration are not visible to the open iterator
+        int counter = 0;
+        for (final Vertex vertex : graph.getVertices()) {
+            graph.removeVertex(vertex);
+            graph.addVertex(null);
+            counter++;
+        }
+        assertEquals(10, counter);
+        assertEquals(10, count(graph.getVertices()));
+        assertEquals(0, count(graph.getVertices("name", "marko")));
+
+        for (final Vertex vertex : graph.getVertices()) {
+            vertex.setProperty("name", "josh");
+        }
+        Iterable<Vertex> joshes = graph.getVertices("name", "josh");
+        assertTrue(joshes instanceof Collection);
+        assertEquals(10, ((Collection) joshes).size());
+        counter = 0;
+        for (final Vertex vertex : graph.getVertices("name", "josh")) {
+            vertex.setProperty("name", "peter");
+            counter++;
+        }
+        assertEquals(10, counter);
+        assertEquals(0, count(graph.getVertices("name", "josh")));
+        assertEquals(10, count(graph.getVertices("name", "peter")));
+
+        // the vertices are a snapshot from when they were gotten
+        graph.addVertex(null);
+        assertEquals(10, ((Collection) vertices).size());
+        assertEquals(10, count(vertices));
+        assertEquals(11, count(graph.getVertices()));
+
+        // an abandoned iterator does not keep later mutations from being seen
+        final Vertex first = graph.getVertices().iterator().next();
+        graph.removeVertex(first);
+        assertFalse(((Collection) graph.getVertices()).contains(first));
+        assertEquals(10, count(graph.getVertices()));
+    }
+
+    public void testLegacySerializedGraphIsMigrated() throws Exception {
+        deleteDirectory(new File(getDirectory()));
+        final File directory = new File(getDirectory() + "/legacy");
+        assertTrue(directory.mkdirs());
+        final InputStream input = TinkerGraphTest.class.getResourceAsStream("legacy-tinkergraph.dat");
+        final OutputStream output = new FileOutputStream(new File(directory, "tinkergraph.dat"));
+        final byte[] buffer = new byte[4096];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            output.write(buffer, 0, length);
+        }
+        input.close();
+        output.close();
+
+        for (int i = 0; i < 2; i++) {
+            final TinkerGraph graph = new TinkerGraph(directory.getAbsolutePath());
+            assertEquals(6, count(graph.getVertices()));
+            assertEquals(6, count(graph.getEdges()));
+            assertEquals("marko", graph.getVertex(1).getProperty("name"));
+            assertEquals(0.5f, graph.getEdge(7).getProperty("weight"));
+            assertEquals(3, count(graph.getVertex(1).getEdges(Direction.OUT)));
+            assertEquals(graph.getVertex(4), graph.getEdge(8).getVertex(Direction.IN));
+
+            assertTrue(graph.getIndexedKeys(Vertex.class).contains("name"));
+            assertEquals(graph.getVertex(2), graph.getVertices("name", "vadas").iterator().next());
+
+            final Index<Vertex> people = graph.getIndex("people", Vertex.class);
+            assertEquals(2, count(people.get("type", "person")));
+
+            // elements belong to the loaded graph
+            graph.getVertex(2).remove();
+            assertEquals(5, count(graph.getVertices()));
+            assertEquals(1, count(people.get("type", "person")));
+            assertEquals(0, count(graph.getVertices("name", "vadas")));
+            graph.addVertex(2).setProperty("name", "vadas");
+            people.put("type", "person", graph.getVertex(2));
+            graph.addEdge(7, graph.getVertex(1), graph.getVertex(2), "knows").setProperty("weight", 0.5f);
+
+            graph.shutdown();
+            assertFalse(new File(directory, "tinkergraph.dat").exists());
+            assertTrue(new File(directory, "tinkergraph.bin").exists());
+        }
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testWriteAheadLogIsReplayedAfterCrash() throws Exception {
+        deleteDirectory(new File(getDirectory()));
+        final String directory = getDirectory() + "/crash";
+        TinkerGraph graph = new TinkerGraph(directory);
+        graph.createKeyIndex("name", Vertex.class);
+        final Index<Vertex> index = graph.createIndex("people", Vertex.class);
+        final Vertex marko = graph.addVertex(null);
+        marko.setProperty("name", "marko");
+        final Vertex josh = graph.addVertex(null);
+        josh.setProperty("name", "josh");
+        josh.setProperty("age", 32);
+        graph.addEdge(null, marko, josh, "knows").setProperty("weight", 1.0f);
+        final Vertex peter = graph.addVertex("peter");
+        graph.addEdge(null, peter, josh, "knows");
+        index.put("type", "person", marko);
+        index.put("type", "person", peter);
+        josh.removeProperty("age");
+        peter.remove();
+
+        // simulate a crash once the log has been group committed
+        graph.log.sync();
+        graph.log.close();
+        final RandomAccessFile log = new RandomAccessFile(directory + "/tinkergraph.log", "rw");
+        log.seek(log.length());
+        log.writeInt(42);
+        log.close();
+
+        graph = new TinkerGraph(directory);
+        assertEquals(2, count(graph.getVertices()));
+        assertEquals(1, count(graph.getEdges()));
+        assertNull(graph.getVertex("peter"));
+        assertEquals("marko", graph.getVertex(marko.getId()).getProperty("name"));
+        assertNull(graph.getVertex(josh.getId()).getProperty("age"));
+        assertEquals(1.0f, graph.getVertex(marko.getId()).getEdges(Direction.OUT, "knows").iterator().next().getProperty("weight"));
+        assertEquals(graph.getVertex(josh.getId()), graph.getVertices("name", "josh").iterator().next());
+        assertEquals(1, count(graph.getIndex("people", Vertex.class).get("type", "person")));
+
+        // the torn record is dropped and the log continues after the last valid record
+        final Vertex stephen = graph.addVertex(null);
+        assertFalse(stephen.getId().equals(marko.getId()) || stephen.getId().equals(josh.getId()));
+        graph.log.sync();
+        graph.log.close();
+
+        graph = new TinkerGraph(directory);
+        assertEquals(3, count(graph.getVertices()));
+        graph.shutdown();
+        assertFalse(new File(directory, "tinkergraph.log").exists());
+
+        graph = new TinkerGraph(directory);
+        assertEquals(3, count(graph.getVertices()));
+        assertEquals(1, count(graph.getEdges()));
+        graph.shutdown();
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testWriteAheadLogReportsCorruption() throws Exception {
+        deleteDirectory(new File(getDirectory()));
+        final String directory = getDirectory() + "/corrupt";
+        TinkerGraph graph = new TinkerGraph(directory);
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.log.sync();
+        graph.log.close();
+
+        // damage the type of the first record, which the second record follows
+        final RandomAccessFile log = new RandomAccessFile(directory + "/tinkergraph.log", "rw");
+        log.seek(20);
+        log.writeByte(99);
+        log.close();
+
+        try {
+            new TinkerGraph(directory);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("Corrupt record at offset 12"));
+        }
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testWriteAheadLogHoldsLongStrings() throws Exception {
+        deleteDirectory(new File(getDirectory()));
+        final String directory = getDirectory() + "/long";
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        final String longString = builder.toString();
+        TinkerGraph graph = new TinkerGraph(directory);
+        graph.addVertex(longString).setProperty(longString, longString);
+        graph.log.sync();
+        graph.log.close();
+
+        graph = new TinkerGraph(directory);
+        assertEquals(longString, graph.getVertex(longString).getProperty(longString));
+        graph.shutdown();
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testInterruptedCompactionIsResumed() throws Exception {
+        deleteDirectory(new File(getDirectory()));
+        final String directory = getDirectory() + "/compaction";
+        TinkerGraph graph = new TinkerGraph(directory);
+        graph.addVertex("a");
+        graph.shutdown();
+
+        // simulate a crash after the log was set aside for compaction
+        graph = new TinkerGraph(directory);
+        graph.addVertex("b");
+        graph.log.sync();
+        graph.log.close();
+        assertTrue(new File(directory, "tinkergraph.log").renameTo(new File(directory, "tinkergraph.log.compacting")));
+
+        graph = new TinkerGraph(directory);
+        assertEquals(2, count(graph.getVertices()));
+        graph.addVertex("c");
+        graph.shutdown();
+        assertFalse(new File(directory, "tinkergraph.log.compacting").exists());
+
+        graph = new TinkerGraph(directory);
+        assertEquals(3, count(graph.getVertices()));
+        graph.shutdown();
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testSnapshotSetAsideIsRestored() throws Exception {
+        deleteDirectory(new File(getDirectory()));
+        final String directory = getDirectory() + "/restore";
+        TinkerGraph graph = new TinkerGraph(directory);
+        graph.addVertex("a");
+        graph.shutdown();
+        assertFalse(new File(directory, "tinkergraph.bin.old").exists());
+
+        // simulate a crash after the snapshot was set aside, before the new snapshot took its place
+        graph = new TinkerGraph(directory);
+        graph.addVertex("b");
+        graph.log.sync();
+        graph.log.close();
+        assertTrue(new File(directory, "tinkergraph.bin").renameTo(new File(directory, "tinkergraph.bin.old")));
+
+        graph = new TinkerGraph(directory);
+        assertEquals(2, count(graph.getVertices()));
+        assertFalse(new File(directory, "tinkergraph.bin.old").exists());
+        graph.shutdown();
+
+        graph = new TinkerGraph(directory);
+        assertEquals(2, count(graph.getVertices()));
+        graph.shutdown();
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testSortedKeyIndexRangeQueries() {
+        deleteDirectory(new File(getDirectory()));
+        TinkerGraph graph = (TinkerGraph) this.generateGraph();
+        graph.createKeyIndex("time", Vertex.class, new Parameter<String, String>(TinkerGraph.INDEX_TYPE, TinkerGraph.SORTED_INDEX));
+        for (int i = 0; i < 100; i++) {
+            graph.addVertex(null).setProperty("time", i);
+        }
+        graph.addVertex(null).setProperty("time", 50l);
+        graph.addVertex(null).setProperty("time", "fifty");
+
+        assertEquals(10, count(graph.query().interval("time", 10, 20).vertices()));
+        assertEquals(49, count(graph.query().has("time", Query.Compare.GREATER_THAN, 50).vertices()));
+        assertEquals(51, count(graph.query().has("time", Query.Compare.LESS_THAN_EQUAL, 50).vertices()));
+        assertEquals(1, count(graph.query().has("time", Query.Compare.GREATER_THAN_EQUAL, 40).has("time", Query.Compare.LESS_THAN_EQUAL, 40).vertices()));
+        assertEquals(0, count(graph.query().has("time", Query.Compare.GREATER_THAN, 40).has("time", Query.Compare.LESS_THAN, 41).vertices()));
+        assertEquals(1, count(graph.query().has("time", Query.Compare.GREATER_THAN, 49l).vertices()));
+
+        // ranges are returned in order so a limit only touches the first values
+        int expected = 90;
+        for (final Vertex vertex : graph.query().has("time", Query.Compare.GREATER_THAN_EQUAL, 90).limit(5).vertices()) {
+            assertEquals(expected++, vertex.getProperty("time"));
+        }
+        assertEquals(95, expected);
+
+        // the index can be mutated while a range is iterated
+        for (final Vertex vertex : graph.query().has("time", Query.Compare.LESS_THAN, 10).vertices()) {
+            vertex.setProperty("time", (Integer) vertex.getProperty("time") + 100);
+        }
+        assertEquals(0, count(graph.query().has("time", Query.Compare.LESS_THAN, 10).vertices()));
+        assertEquals(10, count(graph.query().has("time", Query.Compare.GREATER_THAN_EQUAL, 100).vertices()));
+
+        graph.shutdown();
+        graph = (TinkerGraph) this.generateGraph();
+        assertEquals(10, count(graph.query().interval("time", 100, 110).vertices()));
+        graph.dropKeyIndex("time", Vertex.class);
+        assertEquals(1, count(graph.query().has("time", 105).vertices()));
+        graph.shutdown();
+        deleteDirectory(new File(getDirectory()));
+    }
+
+    public void testVertexCentricIndex() {
+        deleteDirectory(new File(getDirectory()));
+        TinkerGraph graph = (TinkerGraph) this.generateGraph();
+        final Vertex user = graph.addVertex(null);
+        final Object userId = user.getId();
+        for (int i = 0; i < 100; i++) {
+            graph.addEdge(null, user, graph.addVertex(null), "rated").setProperty("time", i);
+            graph.addEdge(null, user, graph.addVertex(null), "viewed").setProperty("time", i);
+        }
+        graph.createVertexCentricIndex("rated", "time");
+        assertEquals("time", graph.getVertexCentricKey("rated"));
+        assertNull(graph.getVertexCentricKey("viewed"));
+        for (int i = 100; i < 200; i++) {
+            graph.addEdge(null, user, graph.addVertex(null), "rated").setProperty("time", i);
+        }
+
+        assertEquals(10, count(user.query().labels("rated").interval("time", 50, 60).edges()));
+        assertEquals(10, count(user.query().labels("viewed").interval("time", 50, 60).edges()));
+        assertEquals(10, user.query().direction(Direction.OUT).labels("rated").interval("time", 150, 160).count());
+        assertEquals(0, user.query().direction(Direction.IN).labels("rated").interval("time", 150, 160).count());
+        assertEquals(1, count(user.query().labels("rated").has("time", 42).vertices()));
+        int expected = 190;
+        for (final Edge edge : user.query().labels("rated").has("time", Query.Compare.GREATER_THAN_EQUAL, 190).limit(5).edges()) {
+            assertEquals(expected++, edge.getProperty("time"));
+        }
+        assertEquals(195, expected);
+
+        // the other vertex of an edge is indexed as well
+        final Vertex other = user.query().labels("rated").has("time", 7).vertices().iterator().next();
+        assertEquals(1, other.query().direction(Direction.IN).labels("rated").has("time", Query.Compare.LESS_THAN, 10).count());
+
+        // edges are re-sorted when the key changes and unsorted when they are removed
+        for (final Edge edge : user.query().labels("rated").has("time", Query.Compare.LESS_THAN, 10).edges()) {
+            edge.setProperty("time", 1000);
+        }
+        assertEquals(0, user.query().labels("rated").has("time", Query.Compare.LESS_THAN, 10).count());
+        assertEquals(10, user.query().labels("rated").has("time", 1000).count());
+        for (final Edge edge : user.query().labels("rated").has("time", 1000).edges()) {
+            if (edge.getVertex(Direction.IN).equals(other))
+                edge.removeProperty("time");
+            else
+                graph.removeEdge(edge);
+        }
+        assertEquals(0, user.query().labels("rated").has("time", 1000).count());
+        assertNull(other.getEdges(Direction.IN, "rated").iterator().next().removeProperty(null));
+        assertEquals(191, user.query().labels("rated").count());
+        assertEquals(291, user.query().count());
+        assertEquals(291, user.query().direction(Direction.OUT).count());
+        assertEquals(5, user.query().limit(5).count());
+
+        graph.shutdown();
+        graph = (TinkerGraph) this.generateGraph();
+        assertEquals("time", graph.getVertexCentricKey("rated"));
+        assertEquals(10, graph.getVertex(userId).query().labels("rated").interval("time", 50, 60).count());
+        graph.dropVertexCentricIndex("rated");
+        assertNull(graph.getVertexCentricKey("rated"));
+        assertEquals(10, graph.getVertex(userId).query().labels("rated").interval("time", 50, 60).count());
+        graph.shutdown();
+        deleteDirectory(new File(getDirectory()));
+    }
 }
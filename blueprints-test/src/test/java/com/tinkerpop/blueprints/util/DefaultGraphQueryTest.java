@@ -0,0 +1,99 @@
+package com.tinkerpop.blueprints.util;
+
+import com.tinkerpop.blueprints.BaseTest;
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Query;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.util.wrappers.readonly.ReadOnlyKeyIndexableGraph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class DefaultGraphQueryTest extends BaseTest {
+
+    public void testIntersectionOfIndexedKeys() {
+        final TinkerGraph graph = new TinkerGraph();
+        graph.createKeyIndex("color", Vertex.class);
+        graph.createKeyIndex("size", Vertex.class);
+        for (int i = 0; i < 3000; i++) {
+            final Vertex vertex = graph.addVertex(null);
+            vertex.setProperty("color", i % 2 == 0 ? "red" : "blue");
+            vertex.setProperty("size", i % 100 < 2 ? "large" : "small");
+            vertex.setProperty("age", i);
+        }
+
+        // the index lookups of a TinkerGraph are collections, the ones of the wrapper have to be probed
+        for (final Graph g : new Graph[]{graph, new ReadOnlyKeyIndexableGraph<TinkerGraph>(graph)}) {
+            assertEquals(30, count(new DefaultGraphQuery(g).has("color", "red").has("size", "large").vertices()));
+            assertEquals(30, count(new DefaultGraphQuery(g).has("size", "large").has("color", "red").vertices()));
+            assertEquals(1470, count(new DefaultGraphQuery(g).has("size", "small").has("color", "red").vertices()));
+            assertEquals(0, count(new DefaultGraphQuery(g).has("size", "medium").has("color", "red").vertices()));
+            assertEquals(10, count(new DefaultGraphQuery(g).has("color", "red").has("size", "large").has("age", Query.Compare.LESS_THAN, 1000).vertices()));
+            assertEquals(9, count(new DefaultGraphQuery(g).has("age", Query.Compare.NOT_EQUAL, 0).has("color", "red").has("size", "large").has("age", Query.Compare.LESS_THAN, 1000).vertices()));
+            assertEquals(3, count(new DefaultGraphQuery(g).has("color", "red").has("size", "large").limit(3).vertices()));
+            for (final Vertex vertex : new DefaultGraphQuery(g).has("size", "large").has("color", "blue").vertices()) {
+                assertEquals(1, (Integer) vertex.getProperty("age") % 100);
+            }
+        }
+    }
+
+    public void testProbedLookupsAreClosed() {
+        final TinkerGraph graph = new TinkerGraph();
+        graph.createKeyIndex("color", Vertex.class);
+        graph.createKeyIndex("size", Vertex.class);
+        for (int i = 0; i < 3000; i++) {
+            final Vertex vertex = graph.addVertex(null);
+            vertex.setProperty("color", i % 2 == 0 ? "red" : "blue");
+            vertex.setProperty("size", i % 100 < 2 ? "large" : "small");
+        }
+
+        final List<String> closed = new ArrayList<String>();
+        final Graph wrapper = new ReadOnlyKeyIndexableGraph<TinkerGraph>(graph) {
+            public Iterable<Vertex> getVertices(final String key, final Object value) {
+                final Iterable<Vertex> vertices = super.getVertices(key, value);
+                return new CloseableIterable<Vertex>() {
+                    public Iterator<Vertex> iterator() {
+                        return vertices.iterator();
+                    }
+
+                    public void close() {
+                        closed.add(key);
+                    }
+                };
+            }
+        };
+
+        // a lookup that is read to the end is closed as well as one that is too large to be held
+        assertEquals(30, count(new DefaultGraphQuery(wrapper).has("color", "red").has("size", "large").vertices()));
+        assertTrue(closed.contains("color"));
+        assertTrue(closed.contains("size"));
+    }
+
+    public void testFiltersCompareNumbersAndStrings() {
+        final TinkerGraph graph = new TinkerGraph();
+        for (int i = 0; i < 100; i++) {
+            final Vertex vertex = graph.addVertex(null);
+            vertex.setProperty("age", i);
+            vertex.setProperty("weight", i / 10.0d);
+            vertex.setProperty("name", "name" + (i % 10));
+            if (i % 2 == 0)
+                vertex.setProperty("even", true);
+        }
+
+        assertEquals(10, count(new DefaultGraphQuery(graph).interval("age", 10, 20).vertices()));
+        assertEquals(11, count(new DefaultGraphQuery(graph).has("age", Query.Compare.GREATER_THAN_EQUAL, 10).has("age", Query.Compare.LESS_THAN_EQUAL, 20).vertices()));
+        assertEquals(89, count(new DefaultGraphQuery(graph).has("age", Query.Compare.GREATER_THAN, 10).vertices()));
+        assertEquals(10, count(new DefaultGraphQuery(graph).has("age", Query.Compare.LESS_THAN, 10).vertices()));
+        assertEquals(99, count(new DefaultGraphQuery(graph).has("age", Query.Compare.NOT_EQUAL, 10).vertices()));
+        assertEquals(0, count(new DefaultGraphQuery(graph).has("age", 10l).vertices()));
+        assertEquals(5, count(new DefaultGraphQuery(graph).interval("weight", 1.0d, 1.5d).vertices()));
+        assertEquals(1, count(new DefaultGraphQuery(graph).has("weight", Query.Compare.GREATER_THAN, 9.8d).vertices()));
+        assertEquals(10, count(new DefaultGraphQuery(graph).has("name", Query.Compare.GREATER_THAN_EQUAL, "name9").vertices()));
+        assertEquals(10, count(new DefaultGraphQuery(graph).has("name", "name4").has("even", true).vertices()));
+        assertEquals(50, count(new DefaultGraphQuery(graph).has("even", Query.Compare.NOT_EQUAL, true).vertices()));
+        assertEquals(50, count(new DefaultGraphQuery(graph).has("even", null).vertices()));
+    }
+}
@@ -5,6 +5,7 @@ import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.ConcurrentTinkerGraph;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
 
@@ -103,4 +104,26 @@ public class GraphHelperTest extends BaseTest {
         assertEquals(counter, 5);
     }
 
+    public void testCopyGraphParallel() {
+        Graph g = new TinkerGraph();
+        for (int i = 0; i < 500; i++) {
+            g.addVertex(i).setProperty("index", i);
+        }
+        for (int i = 0; i < 2000; i++) {
+            g.addEdge(i + 500, g.getVertex((i * 7) % 500), g.getVertex((i * 11) % 500), "knows").setProperty("index", i);
+        }
+        Graph h = new ConcurrentTinkerGraph();
+
+        GraphHelper.copyGraph(g, h, 100, 4);
+        assertEquals(count(h.getVertices()), 500);
+        assertEquals(count(h.getEdges()), 2000);
+        for (Edge e : h.getEdges()) {
+            int index = (Integer) e.getProperty("index");
+            assertEquals(e.getId(), String.valueOf(index + 500));
+            assertEquals(e.getVertex(Direction.OUT).getProperty("index"), (index * 7) % 500);
+            assertEquals(e.getVertex(Direction.IN).getProperty("index"), (index * 11) % 500);
+        }
+        assertEquals(h.getVertex("42").getProperty("index"), 42);
+    }
+
 }
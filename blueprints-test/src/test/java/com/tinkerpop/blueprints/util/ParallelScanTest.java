@@ -0,0 +1,79 @@
+package com.tinkerpop.blueprints.util;
+
+import com.tinkerpop.blueprints.BaseTest;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.CompactTinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.util.wrappers.readonly.ReadOnlyGraph;
+
+import java.util.Map;
+
+public class ParallelScanTest extends BaseTest {
+
+    public void testReductions() {
+        for (final Graph graph : new Graph[]{new TinkerGraph(), new CompactTinkerGraph()}) {
+            // more vertices than fit in one batch so that graphs that are not scannable are handed out in batches
+            final int size = ParallelScan.BATCH_SIZE * 2 + 17;
+            Vertex previous = null;
+            for (int i = 0; i < size; i++) {
+                final Vertex vertex = graph.addVertex(null);
+                vertex.setProperty("age", i);
+                if (null != previous)
+                    graph.addEdge(null, previous, vertex, i % 2 == 0 ? "even" : "odd");
+                previous = vertex;
+            }
+            graph.removeVertex(graph.getVertices("age", 0).iterator().next());
+
+            for (final Graph g : new Graph[]{graph, new ReadOnlyGraph<Graph>(graph)}) {
+                for (final int threads : new int[]{1, 3, 8}) {
+                    assertEquals(size - 1, ParallelScan.reduceVertices(g, ParallelScan.count(), threads).longValue());
+                    assertEquals(size - 2, ParallelScan.reduceEdges(g, ParallelScan.count(), threads).longValue());
+
+                    final Map<Long, Long> histogram = ParallelScan.reduceVertices(g, ParallelScan.degreeHistogram(Direction.BOTH), threads);
+                    assertEquals(2, histogram.size());
+                    assertEquals(2l, histogram.get(1l).longValue());
+                    assertEquals(size - 3, histogram.get(2l).longValue());
+                    assertEquals(size / 2, ParallelScan.reduceVertices(g, ParallelScan.degreeHistogram(Direction.OUT, "even"), threads).get(0l).longValue());
+
+                    final ParallelScan.Statistics statistics = ParallelScan.reduceVertices(g, ParallelScan.statistics("age"), threads);
+                    assertEquals(size - 1, statistics.getCount());
+                    assertEquals(1.0d, statistics.getMin());
+                    assertEquals(size - 1.0d, statistics.getMax());
+                    assertEquals(size / 2.0d, statistics.getMean());
+                    assertEquals(0l, ParallelScan.reduceEdges(g, ParallelScan.statistics("age"), threads).getCount());
+                }
+            }
+        }
+    }
+
+    public void testFailuresArePropagated() {
+        final TinkerGraph graph = new TinkerGraph();
+        for (int i = 0; i < 100; i++) {
+            graph.addVertex(null);
+        }
+        for (final Graph g : new Graph[]{graph, new ReadOnlyGraph<Graph>(graph)}) {
+            try {
+                ParallelScan.reduceVertices(g, new ParallelScan.Reducer<Element, Long>() {
+                    public Long newAccumulator() {
+                        return 0l;
+                    }
+
+                    public Long accumulate(final Long accumulator, final Element element) {
+                        throw new IllegalStateException("failed");
+                    }
+
+                    public Long combine(final Long a, final Long b) {
+                        return a + b;
+                    }
+                }, 4);
+                fail();
+            } catch (final IllegalStateException e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+        assertEquals(0l, ParallelScan.reduceEdges(new TinkerGraph(), ParallelScan.count(), 4).longValue());
+    }
+}
@@ -0,0 +1,168 @@
+package com.tinkerpop.blueprints.util.io.binary;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import com.tinkerpop.blueprints.util.io.graphson.GraphSONMode;
+import com.tinkerpop.blueprints.util.io.graphson.GraphSONWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BinaryReaderTest {
+
+    @Test
+    public void inputGraphFullCycle() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("name", "ünïcødé");
+        map.put("nested", Arrays.asList(1L, null, true));
+        graph.getVertex(1).setProperty("map", map);
+        graph.getVertex(1).setProperty("list", Arrays.asList(1, "two", 3.5d, 4.5f, Long.MIN_VALUE));
+        graph.getVertex(1).setProperty("long", Long.MAX_VALUE);
+        graph.getVertex(1).setProperty("negative", -42);
+        graph.getVertex(1).setProperty("flag", false);
+        final Vertex named = graph.addVertex("vertex-a");
+        graph.addEdge("edge-a", named, graph.getVertex(1), "knows").setProperty("since", 2012);
+        graph.addEdge("-5", named, named, "self");
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final BinaryWriter writer = new BinaryWriter(graph);
+        // small blocks to read records across several blocks
+        writer.setBlockSize(32);
+        writer.outputGraph(stream);
+
+        final TinkerGraph read = new TinkerGraph();
+        BinaryReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()));
+        assertSameGraph(graph, read);
+    }
+
+    @Test
+    public void outputGraphSmallerThanGraphSON() throws IOException {
+        final TinkerGraph graph = new TinkerGraph();
+        for (int i = 0; i < 1000; i++) {
+            final Vertex vertex = graph.addVertex(i);
+            vertex.setProperty("name", "vertex" + i);
+            vertex.setProperty("age", i % 100);
+        }
+        for (int i = 0; i < 5000; i++) {
+            final Edge edge = graph.addEdge(i + 1000, graph.getVertex((i * 7) % 1000), graph.getVertex((i * 13) % 1000), "knows");
+            edge.setProperty("weight", (i % 10) / 10.0d);
+        }
+
+        final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryWriter.outputGraph(graph, binary);
+        final ByteArrayOutputStream graphson = new ByteArrayOutputStream();
+        GraphSONWriter.outputGraph(graph, graphson, GraphSONMode.EXTENDED);
+        Assert.assertTrue(binary.size() * 3 < graphson.size());
+
+        final TinkerGraph read = new TinkerGraph();
+        new BinaryReader(read).inputGraph(new ByteArrayInputStream(binary.toByteArray()), 100);
+        assertSameGraph(graph, read);
+    }
+
+    @Test
+    public void inputGraphBeyondStringTable() throws IOException {
+        final TinkerGraph graph = new TinkerGraph();
+        final Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < BinaryTokens.MAX_STRINGS + 10; i++) {
+            map.put("key" + i, i);
+        }
+        final StringBuilder longKey = new StringBuilder();
+        for (int i = 0; i < BinaryTokens.MAX_STRING_LENGTH + 1; i++) {
+            longKey.append('k');
+        }
+        final Vertex vertex = graph.addVertex(1);
+        vertex.setProperty("map", map);
+        // keys after the table is full and keys too long for the table are written in full every time
+        vertex.setProperty(longKey.toString(), 1);
+        vertex.setProperty("late", 2);
+        graph.addEdge(2, vertex, vertex, "late").setProperty(longKey.toString(), 3);
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BinaryWriter.outputGraph(graph, stream);
+
+        final TinkerGraph read = new TinkerGraph();
+        BinaryReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()));
+        assertSameGraph(graph, read);
+    }
+
+    @Test
+    public void inputGraphEmpty() throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BinaryWriter.outputGraph(new TinkerGraph(), stream);
+
+        final TinkerGraph read = new TinkerGraph();
+        BinaryReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()));
+        Assert.assertFalse(read.getVertices().iterator().hasNext());
+    }
+
+    @Test
+    public void outputGraphWithoutType() throws IOException {
+        final TinkerGraph graph = new TinkerGraph();
+        final Vertex vertex = graph.addVertex("1");
+        vertex.setProperty("element", graph.addVertex("2"));
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BinaryWriter.outputGraph(graph, stream);
+        final TinkerGraph read = new TinkerGraph();
+        BinaryReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()));
+        Assert.assertEquals(graph.getVertex("2").toString(), read.getVertex("1").getProperty("element"));
+    }
+
+    @Test(expected = IOException.class)
+    public void outputGraphWithNullMapKey() throws IOException {
+        final TinkerGraph graph = new TinkerGraph();
+        graph.addVertex("1").setProperty("map", Collections.singletonMap(null, 1));
+        BinaryWriter.outputGraph(graph, new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IOException.class)
+    public void inputGraphNotBinary() throws IOException {
+        BinaryReader.inputGraph(new TinkerGraph(), new ByteArrayInputStream("{\"vertices\":[]}".getBytes()));
+    }
+
+    private void assertSameGraph(final Graph expected, final Graph found) {
+        int count = 0;
+        for (Vertex vertex : expected.getVertices()) {
+            assertSameProperties(vertex, found.getVertex(vertex.getId()));
+            count++;
+        }
+        for (Vertex vertex : found.getVertices()) {
+            count--;
+        }
+        Assert.assertEquals(0, count);
+
+        for (Edge edge : expected.getEdges()) {
+            final Edge other = found.getEdge(edge.getId());
+            assertSameProperties(edge, other);
+            Assert.assertEquals(edge.getLabel(), other.getLabel());
+            Assert.assertEquals(edge.getVertex(Direction.OUT).getId(), other.getVertex(Direction.OUT).getId());
+            Assert.assertEquals(edge.getVertex(Direction.IN).getId(), other.getVertex(Direction.IN).getId());
+            count++;
+        }
+        for (Edge edge : found.getEdges()) {
+            count--;
+        }
+        Assert.assertEquals(0, count);
+    }
+
+    private void assertSameProperties(final Element expected, final Element found) {
+        Assert.assertNotNull(found);
+        Assert.assertEquals(expected.getPropertyKeys(), found.getPropertyKeys());
+        for (String key : expected.getPropertyKeys()) {
+            Assert.assertEquals(expected.getProperty(key), found.getProperty(key));
+        }
+    }
+}
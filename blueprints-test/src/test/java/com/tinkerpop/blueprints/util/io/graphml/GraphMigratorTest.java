@@ -0,0 +1,146 @@
+package com.tinkerpop.blueprints.util.io.graphml;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import com.tinkerpop.blueprints.util.wrappers.readonly.ReadOnlyGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GraphMigratorTest {
+
+    @Test
+    public void migrateGraphTinkerGraph() throws Exception {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        final TinkerGraph toGraph = new TinkerGraph();
+        GraphMigrator.migrateGraph(graph, toGraph);
+
+        Assert.assertEquals(6, count(toGraph.getVertices()));
+        Assert.assertEquals(6, count(toGraph.getEdges()));
+        Assert.assertEquals("marko", toGraph.getVertex("1").getProperty("name"));
+        final Edge edge = toGraph.getEdge("7");
+        Assert.assertEquals("knows", edge.getLabel());
+        Assert.assertEquals(0.5f, edge.getProperty("weight"));
+        Assert.assertEquals("1", edge.getVertex(Direction.OUT).getId());
+        Assert.assertEquals("2", edge.getVertex(Direction.IN).getId());
+    }
+
+    @Test
+    public void migrateParallelWithSmallBatches() {
+        final TinkerGraph graph = new TinkerGraph();
+        for (int i = 0; i < 1000; i++) {
+            graph.addVertex(i).setProperty("index", i);
+        }
+        for (int i = 0; i < 3000; i++) {
+            graph.addEdge(i + 1000, graph.getVertex((i * 7) % 1000), graph.getVertex((i * 13) % 1000), "knows").setProperty("index", i);
+        }
+
+        final TinkerGraph toGraph = new TinkerGraph();
+        final GraphMigrator migrator = new GraphMigrator(graph, toGraph);
+        migrator.setReaderThreads(4);
+        migrator.setBatchSize(7);
+        migrator.setQueueSize(2);
+        migrator.setVertexIdKey("sourceId");
+        final AtomicInteger calls = new AtomicInteger(0);
+        migrator.setProgressListener(new GraphMigrator.ProgressListener() {
+            public void progress(final long vertexCount, final long edgeCount, final long elapsedMillis) {
+                calls.incrementAndGet();
+            }
+        }, 500);
+        migrator.migrate();
+
+        Assert.assertEquals(1000, migrator.getVertexCount());
+        Assert.assertEquals(3000, migrator.getEdgeCount());
+        // every 500 elements and once more when the migration is done
+        Assert.assertEquals(9, calls.get());
+        Assert.assertEquals(1000, count(toGraph.getVertices()));
+        Assert.assertEquals(3000, count(toGraph.getEdges()));
+        for (final Edge edge : toGraph.getEdges()) {
+            final int index = (Integer) edge.getProperty("index");
+            Assert.assertEquals((index * 7) % 1000, edge.getVertex(Direction.OUT).getProperty("index"));
+            Assert.assertEquals((index * 13) % 1000, edge.getVertex(Direction.IN).getProperty("index"));
+        }
+        for (final Vertex vertex : toGraph.getVertices()) {
+            Assert.assertEquals(vertex.getProperty("index").toString(), vertex.getProperty("sourceId"));
+        }
+    }
+
+    @Test
+    public void migrateEmptyGraphWithProgress() {
+        final GraphMigrator migrator = new GraphMigrator(new TinkerGraph(), new TinkerGraph());
+        final AtomicInteger calls = new AtomicInteger(0);
+        migrator.setProgressListener(new GraphMigrator.ProgressListener() {
+            public void progress(final long vertexCount, final long edgeCount, final long elapsedMillis) {
+                calls.incrementAndGet();
+            }
+        }, 500);
+        migrator.migrate();
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void migrateFailureDoesNotBlockReaders() throws InterruptedException {
+        final TinkerGraph graph = new TinkerGraph();
+        final Vertex a = graph.addVertex("a");
+        final Vertex b = graph.addVertex("b");
+        final List<Edge> edges = new ArrayList<Edge>();
+        edges.add(graph.addEdge(null, a, a, "self"));
+        for (int i = 0; i < 100; i++) {
+            edges.add(graph.addEdge(null, b, b, "self"));
+        }
+        // the edges after the first refer to a vertex that is never migrated
+        final Graph source = new ReadOnlyGraph<TinkerGraph>(graph) {
+            public Iterable<Vertex> getVertices() {
+                return Collections.singletonList(a);
+            }
+
+            public Iterable<Edge> getEdges() {
+                return edges;
+            }
+        };
+
+        final GraphMigrator migrator = new GraphMigrator(source, new TinkerGraph());
+        migrator.setBatchSize(1);
+        migrator.setQueueSize(1);
+        migrator.setProgressListener(new GraphMigrator.ProgressListener() {
+            public void progress(final long vertexCount, final long edgeCount, final long elapsedMillis) {
+                // the reader fills the queue and waits on it before the migration fails
+                if (edgeCount == 1) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        }, 1);
+        try {
+            migrator.migrate();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+        }
+        // the reader stops instead of waiting for the queue forever
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("graph-migrator")) {
+                thread.join(10000);
+                Assert.assertFalse(thread.isAlive());
+            }
+        }
+    }
+
+    private static int count(final Iterable<?> iterable) {
+        int count = 0;
+        for (final Object object : iterable) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,179 @@
+package com.tinkerpop.blueprints.util.io.graphson;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.ConcurrentTinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class GraphSONAdjacencyReaderTest {
+
+    @Test
+    public void inputGraphFullCycle() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        graph.getVertex(1).setProperty("list", Arrays.asList(1, "two", 3.5d));
+        graph.getVertex(1).setProperty("map", Collections.singletonMap("key", 0.5d));
+
+        for (GraphSONMode mode : GraphSONMode.values()) {
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            GraphSONAdjacencyWriter.outputGraph(graph, stream, mode);
+
+            final String[] lines = stream.toString().split("\n");
+            Assert.assertEquals(6, lines.length);
+
+            final TinkerGraph read = new TinkerGraph();
+            GraphSONAdjacencyReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()), mode);
+            assertSameGraph(graph, read);
+        }
+    }
+
+    @Test
+    public void inputGraphFromLinesInAnyOrder() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GraphSONAdjacencyWriter.outputGraph(graph, stream, GraphSONMode.EXTENDED);
+        final String[] lines = stream.toString().split("\n");
+
+        // vertices that edges point to are added before their own line is read
+        final TinkerGraph read = new TinkerGraph();
+        final GraphSONAdjacencyReader reader = new GraphSONAdjacencyReader(read, GraphSONMode.EXTENDED);
+        for (int i = lines.length - 1; i >= 0; i--) {
+            reader.vertexFromJson(lines[i]);
+        }
+        assertSameGraph(graph, read);
+    }
+
+    @Test
+    public void outputGraphAppended() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GraphSONAdjacencyWriter writer = new GraphSONAdjacencyWriter(stream, GraphSONMode.NORMAL);
+        writer.writeVertex(graph.getVertex(1));
+        writer.close();
+        writer = new GraphSONAdjacencyWriter(stream, GraphSONMode.NORMAL);
+        for (Vertex vertex : graph.getVertices()) {
+            if (!vertex.getId().equals("1")) writer.writeVertex(vertex);
+        }
+        writer.close();
+
+        final TinkerGraph read = new TinkerGraph();
+        GraphSONAdjacencyReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()), GraphSONMode.NORMAL);
+        assertSameGraph(graph, read);
+    }
+
+    @Test
+    public void inputGraphWithPropertyFilter() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GraphSONAdjacencyWriter.outputGraph(graph, stream, GraphSONMode.NORMAL);
+
+        final TinkerGraph read = new TinkerGraph();
+        GraphSONAdjacencyReader.inputGraph(read, new ByteArrayInputStream(stream.toByteArray()), 1000, GraphSONMode.NORMAL,
+                ElementPropertyConfig.IncludeProperties(new HashSet<String>(Arrays.asList("name")), null));
+        Assert.assertEquals("marko", read.getVertex(1).getProperty("name"));
+        Assert.assertNull(read.getVertex(1).getProperty("age"));
+        Assert.assertEquals(0.5f, (Double) read.getEdge(7).getProperty("weight"), 0.0001);
+    }
+
+    @Test
+    public void inputGraphFromFilesInParallel() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        for (GraphSONMode mode : GraphSONMode.values()) {
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            GraphSONAdjacencyWriter.outputGraph(graph, stream, mode);
+            final String[] lines = stream.toString().split("\n");
+
+            // the lines are split over files, so edges point to vertices of other files
+            final List<String> filenames = new ArrayList<String>();
+            for (int i = 0; i < 3; i++) {
+                final File file = File.createTempFile("adjacency", ".json");
+                file.deleteOnExit();
+                final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                for (int j = i; j < lines.length; j += 3) {
+                    writer.write(lines[j]);
+                    writer.write('\n');
+                }
+                writer.close();
+                filenames.add(file.getPath());
+            }
+
+            final ConcurrentTinkerGraph read = new ConcurrentTinkerGraph();
+            GraphSONAdjacencyReader.inputGraph(read, filenames, 2, 2, mode, ElementPropertyConfig.AllProperties);
+            assertSameGraph(graph, read);
+        }
+    }
+
+    @Test
+    public void inputGraphFromFilesWithoutInVertexLine() throws IOException {
+        final TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+        final File file = File.createTempFile("adjacency", ".json");
+        file.deleteOnExit();
+        final GraphSONAdjacencyWriter writer = new GraphSONAdjacencyWriter(new FileOutputStream(file), GraphSONMode.NORMAL);
+        writer.writeVertex(graph.getVertex(1));
+        writer.close();
+
+        try {
+            GraphSONAdjacencyReader.inputGraph(new ConcurrentTinkerGraph(), Arrays.asList(file.getPath()), 10, 2,
+                    GraphSONMode.NORMAL, ElementPropertyConfig.AllProperties);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private void assertSameGraph(final Graph expected, final Graph found) {
+        int count = 0;
+        for (Vertex vertex : expected.getVertices()) {
+            assertSameProperties(vertex, found.getVertex(vertex.getId()));
+            count++;
+        }
+        for (Vertex vertex : found.getVertices()) {
+            count--;
+        }
+        Assert.assertEquals(0, count);
+
+        for (Edge edge : expected.getEdges()) {
+            final Edge other = found.getEdge(edge.getId());
+            assertSameProperties(edge, other);
+            Assert.assertEquals(edge.getLabel(), other.getLabel());
+            Assert.assertEquals(edge.getVertex(Direction.OUT).getId(), other.getVertex(Direction.OUT).getId());
+            Assert.assertEquals(edge.getVertex(Direction.IN).getId(), other.getVertex(Direction.IN).getId());
+            count++;
+        }
+        for (Edge edge : found.getEdges()) {
+            count--;
+        }
+        Assert.assertEquals(0, count);
+    }
+
+    private void assertSameProperties(final Element expected, final Element found) {
+        Assert.assertNotNull(found);
+        Assert.assertEquals(expected.getPropertyKeys(), found.getPropertyKeys());
+        for (String key : expected.getPropertyKeys()) {
+            final Object value = expected.getProperty(key);
+            // floats are written as doubles in the modes without embedded types
+            if (value instanceof Float) {
+                Assert.assertEquals((Float) value, ((Number) found.getProperty(key)).floatValue(), 0.0001);
+            } else {
+                Assert.assertEquals(value, found.getProperty(key));
+            }
+        }
+    }
+}
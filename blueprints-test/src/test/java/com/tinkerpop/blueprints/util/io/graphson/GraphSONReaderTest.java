@@ -1,9 +1,13 @@
 package com.tinkerpop.blueprints.util.io.graphson;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.ConcurrentTinkerGraph;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
 import org.junit.Assert;
@@ -13,6 +17,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -308,6 +314,122 @@ public class GraphSONReaderTest {
 
     }
 
+    @Test
+    public void inputGraphMatchesElementsReadFromTrees() throws IOException {
+        final TinkerGraph graph = new TinkerGraph();
+        final Vertex a = graph.addVertex(1);
+        a.setProperty("name", "a");
+        a.setProperty("int", 1);
+        a.setProperty("long", 10000000000l);
+        a.setProperty("float", 0.1f);
+        a.setProperty("double", 0.4954959595959d);
+        a.setProperty("boolean", true);
+        a.setProperty("list", Arrays.asList(1, "two", Arrays.asList(3l, 4.5d)));
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("nested", Arrays.asList(false, "x"));
+        map.put("number", -7);
+        a.setProperty("map", map);
+        final Vertex b = graph.addVertex("b");
+        b.setProperty("name", "b");
+        final Edge e = graph.addEdge(100, a, b, "knows");
+        e.setProperty("weight", 0.5f);
+        e.setProperty("since", 2004);
+        graph.addEdge("101", b, a, "knows");
+
+        for (GraphSONMode mode : GraphSONMode.values()) {
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            GraphSONWriter.outputGraph(graph, stream, mode);
+            assertSameGraphAsTrees(stream.toString(), null, null);
+            assertSameGraphAsTrees(stream.toString(), new HashSet<String>(Arrays.asList("name", "map")),
+                    new HashSet<String>(Arrays.asList("since")));
+        }
+
+        // the value of a typed property does not have to follow its type
+        assertSameGraphAsTrees("{\"mode\":\"EXTENDED\",\"vertices\":[{\"_id\":1,\"a\":{\"value\":2,\"type\":\"long\"}," +
+                "\"b\":{\"value\":[{\"type\":\"float\",\"value\":1.1}],\"type\":\"list\"},\"c\":{\"type\":\"integer\",\"value\":3}}]," +
+                "\"edges\":[{\"_id\":2,\"_label\":\"self\",\"_outV\":1,\"_inV\":1,\"d\":{\"type\":\"long\",\"value\":4.5}}]}", null, null);
+    }
+
+    @Test
+    public void inputGraphParallelMatchesSequential() throws IOException {
+        final TinkerGraph graph = new TinkerGraph();
+        for (int i = 0; i < 500; i++) {
+            final Vertex v = graph.addVertex(i);
+            v.setProperty("name", "v\"{[" + i);
+            v.setProperty("index", i);
+            v.setProperty("list", Arrays.asList(i, "}]\\"));
+            if (i > 0) {
+                final Edge e = graph.addEdge("e" + i, graph.getVertex(i / 2), v, "parent");
+                e.setProperty("weight", i / 10.0d);
+            }
+        }
+
+        for (GraphSONMode mode : GraphSONMode.values()) {
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            GraphSONWriter.outputGraph(graph, stream, mode);
+
+            final TinkerGraph sequential = new TinkerGraph();
+            GraphSONReader.inputGraph(sequential, new ByteArrayInputStream(stream.toByteArray()));
+
+            // small chunks so that the arrays are split into many of them
+            final TinkerGraph parallel = new ConcurrentTinkerGraph();
+            new ParallelGraphSONReader(parallel, 100, 4, 512, null, null).inputGraph(new ByteArrayInputStream(stream.toByteArray()));
+
+            Assert.assertEquals(500, getIterableCount(parallel.getVertices()));
+            Assert.assertEquals(499, getIterableCount(parallel.getEdges()));
+            for (Vertex expected : sequential.getVertices()) {
+                assertSameProperties(expected, parallel.getVertex(expected.getId()));
+            }
+            for (Edge expected : sequential.getEdges()) {
+                final Edge found = parallel.getEdge(expected.getId());
+                assertSameProperties(expected, found);
+                Assert.assertEquals(expected.getLabel(), found.getLabel());
+                Assert.assertEquals(expected.getVertex(Direction.OUT).getId(), found.getVertex(Direction.OUT).getId());
+                Assert.assertEquals(expected.getVertex(Direction.IN).getId(), found.getVertex(Direction.IN).getId());
+            }
+        }
+    }
+
+    private void assertSameGraphAsTrees(final String json, final Set<String> vertexPropertyKeys,
+                                        final Set<String> edgePropertyKeys) throws IOException {
+        final TinkerGraph streamed = new TinkerGraph();
+        GraphSONReader.inputGraph(streamed, new ByteArrayInputStream(json.getBytes()), 1000, edgePropertyKeys, vertexPropertyKeys);
+
+        final TinkerGraph fromTrees = new TinkerGraph();
+        final JsonNode root = new ObjectMapper().readTree(json);
+        final GraphSONUtility graphson = new GraphSONUtility(GraphSONMode.valueOf(root.get(GraphSONTokens.MODE).textValue()),
+                new GraphElementFactory(fromTrees), vertexPropertyKeys, edgePropertyKeys);
+        for (JsonNode node : root.get(GraphSONTokens.VERTICES)) {
+            graphson.vertexFromJson(node);
+        }
+        for (JsonNode node : root.get(GraphSONTokens.EDGES)) {
+            graphson.edgeFromJson(node,
+                    fromTrees.getVertex(GraphSONUtility.getTypedValueFromJsonNode(node.get(GraphSONTokens._OUT_V))),
+                    fromTrees.getVertex(GraphSONUtility.getTypedValueFromJsonNode(node.get(GraphSONTokens._IN_V))));
+        }
+
+        Assert.assertEquals(getIterableCount(fromTrees.getVertices()), getIterableCount(streamed.getVertices()));
+        Assert.assertEquals(getIterableCount(fromTrees.getEdges()), getIterableCount(streamed.getEdges()));
+        for (Vertex expected : fromTrees.getVertices()) {
+            assertSameProperties(expected, streamed.getVertex(expected.getId()));
+        }
+        for (Edge expected : fromTrees.getEdges()) {
+            final Edge found = streamed.getEdge(expected.getId());
+            assertSameProperties(expected, found);
+            Assert.assertEquals(expected.getLabel(), found.getLabel());
+            Assert.assertEquals(expected.getVertex(Direction.OUT).getId(), found.getVertex(Direction.OUT).getId());
+            Assert.assertEquals(expected.getVertex(Direction.IN).getId(), found.getVertex(Direction.IN).getId());
+        }
+    }
+
+    private void assertSameProperties(final Element expected, final Element found) {
+        Assert.assertNotNull(found);
+        Assert.assertEquals(expected.getPropertyKeys(), found.getPropertyKeys());
+        for (String key : expected.getPropertyKeys()) {
+            Assert.assertEquals(expected.getProperty(key), found.getProperty(key));
+        }
+    }
+
 
     private int getIterableCount(Iterable elements) {
         int counter = 0;
@@ -1,16 +1,31 @@
 package com.tinkerpop.blueprints.util.io.graphson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
 import org.codehaus.jettison.json.JSONException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 public class GraphSONWriterTest {
 
@@ -116,4 +131,91 @@ public class GraphSONWriterTest {
         ArrayNode edges = (ArrayNode) rootNode.get(GraphSONTokens.EDGES);
         Assert.assertEquals(6, edges.size());
     }
+
+    @Test
+    public void outputGraphMatchesWrittenTrees() throws IOException {
+        final TinkerGraph g = TinkerGraphFactory.createTinkerGraph();
+        final Vertex v = g.getVertex(1);
+        v.setProperty("float", 0.1f);
+        v.setProperty("long", 10000000000l);
+        v.setProperty("boolean", false);
+        v.setProperty("list", Arrays.asList(1, 0.5f, "three", Arrays.asList(4l)));
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("nested", Collections.singletonMap("deeper", 1.5d));
+        map.put("list", Arrays.asList(true, "x"));
+        v.setProperty("map", map);
+        v.setProperty("array", new int[]{1, 2});
+        g.getEdge(7).setProperty("other", new StringBuilder("to string"));
+
+        for (GraphSONMode mode : GraphSONMode.values()) {
+            for (Set<String> keys : Arrays.asList(null, new HashSet<String>(Arrays.asList("name", "weight", "list", "_id")))) {
+                final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                final GraphSONUtility graphson = new GraphSONUtility(mode, null, keys, keys);
+                final JsonGenerator jg = new MappingJsonFactory().createJsonGenerator(expected);
+                jg.writeStartObject();
+                jg.writeStringField(GraphSONTokens.MODE, mode.toString());
+                jg.writeArrayFieldStart(GraphSONTokens.VERTICES);
+                for (Vertex vertex : g.getVertices()) {
+                    jg.writeTree(graphson.objectNodeFromElement(vertex));
+                }
+                jg.writeEndArray();
+                jg.writeArrayFieldStart(GraphSONTokens.EDGES);
+                for (Edge edge : g.getEdges()) {
+                    jg.writeTree(graphson.objectNodeFromElement(edge));
+                }
+                jg.writeEndArray();
+                jg.writeEndObject();
+                jg.close();
+
+                final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                new GraphSONWriter(g).outputGraph(stream, keys, keys, mode);
+
+                Assert.assertEquals(expected.toString(), stream.toString());
+            }
+        }
+    }
+
+    @Test
+    public void outputGraphCompressedWithProgress() throws IOException {
+        final Graph g = TinkerGraphFactory.createTinkerGraph();
+        final List<long[]> progress = new ArrayList<long[]>();
+
+        final GraphSONWriter writer = new GraphSONWriter(g);
+        writer.setCompressed(true);
+        writer.setProgressListener(new GraphSONWriter.ProgressListener() {
+            public void progress(final long vertexCount, final long edgeCount) {
+                progress.add(new long[]{vertexCount, edgeCount});
+            }
+        }, 4);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.outputGraph(stream, null, null, GraphSONMode.EXTENDED);
+
+        // after every 4 of the 12 elements and once all of them are written
+        Assert.assertEquals(4, progress.size());
+        Assert.assertArrayEquals(new long[]{4, 0}, progress.get(0));
+        Assert.assertArrayEquals(new long[]{6, 2}, progress.get(1));
+        Assert.assertArrayEquals(new long[]{6, 6}, progress.get(2));
+        Assert.assertArrayEquals(new long[]{6, 6}, progress.get(3));
+
+        final TinkerGraph read = new TinkerGraph();
+        GraphSONReader.inputGraph(read, new GZIPInputStream(new ByteArrayInputStream(stream.toByteArray())));
+        Assert.assertEquals(g.getVertex(1).getProperty("name"), read.getVertex(1).getProperty("name"));
+        Assert.assertEquals(g.getEdge(7).getProperty("weight"), read.getEdge(7).getProperty("weight"));
+    }
+
+    @Test
+    public void outputEmptyGraphWithProgress() throws IOException {
+        final List<long[]> progress = new ArrayList<long[]>();
+
+        final GraphSONWriter writer = new GraphSONWriter(new TinkerGraph());
+        writer.setProgressListener(new GraphSONWriter.ProgressListener() {
+            public void progress(final long vertexCount, final long edgeCount) {
+                progress.add(new long[]{vertexCount, edgeCount});
+            }
+        }, 4);
+        writer.outputGraph(new ByteArrayOutputStream(), null, null, GraphSONMode.NORMAL);
+
+        Assert.assertEquals(1, progress.size());
+        Assert.assertArrayEquals(new long[]{0, 0}, progress.get(0));
+    }
 }
@@ -11,6 +11,9 @@ import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.tg.IgnoreIdTinkerGraph;
 import com.tinkerpop.blueprints.impls.tg.MockTransactionalGraph;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.util.io.graphml.GraphMLReader;
+import com.tinkerpop.blueprints.util.wrappers.batch.cache.OffHeapVertexCache;
+import com.tinkerpop.blueprints.util.wrappers.batch.cache.VertexCache;
 import junit.framework.TestCase;
 
 import java.util.Random;
@@ -63,6 +66,17 @@ public class BatchGraphTest extends TestCase {
         loadingTest(200000, 10000, VertexIDType.URL, new URLLoadingFactory());
     }
 
+    public void testOffHeapLoading() {
+        loadingTest(5000, 100, VertexIDType.NUMBER.getOffHeapVertexCache(0, null), new NumberLoadingFactory());
+        loadingTest(200000, 10000, VertexIDType.NUMBER.getOffHeapVertexCache(0, null), new NumberLoadingFactory());
+        loadingTest(200000, 10000, VertexIDType.STRING.getOffHeapVertexCache(1024 * 1024, null), new StringLoadingFactory());
+        loadingTest(5000, 100, VertexIDType.URL.getOffHeapVertexCache(OffHeapVertexCache.DEFAULT_MEMORY_BUDGET, null), new URLLoadingFactory());
+
+        ignoreIDs = true;
+        loadingTest(50000, 10000, VertexIDType.NUMBER.getOffHeapVertexCache(0, null), new NumberLoadingFactory());
+        ignoreIDs = false;
+    }
+
     public void testQuadLoading() {
         int numEdges = 10000;
         String[][] quads = generateQuads(100, numEdges, new String[]{"knows", "friend"});
@@ -82,6 +96,48 @@ public class BatchGraphTest extends TestCase {
         bgraph.shutdown();
     }
 
+    public void testSortedEdgeLoading() throws Exception {
+        int numEdges = 10000;
+        String[][] quads = generateQuads(100, numEdges, new String[]{"knows", "friend"});
+        TinkerGraph graph = new TinkerGraph();
+        BatchGraph bgraph = new BatchGraph(new WritethroughGraph(graph), VertexIDType.STRING, 1000);
+        // several runs are spilled to disk and merged
+        bgraph.setEdgeSorting(null, 1500, true);
+        for (int i = 0; i < quads.length; i++) {
+            String[] quad = quads[i];
+            Vertex[] vertices = new Vertex[2];
+            for (int j = 0; j < 2; j++) {
+                vertices[j] = bgraph.getVertex(quad[j]);
+                if (vertices[j] == null) vertices[j] = bgraph.addVertex(quad[j]);
+            }
+            Edge edge = bgraph.addEdge("e" + i, vertices[0], vertices[1], quad[2]);
+            edge.setProperty("annotation", quad[3]);
+            assertEquals(quad[3], edge.getProperty("annotation"));
+            assertEquals(quad[0], edge.getVertex(Direction.OUT).getId());
+        }
+        // edges are only added once the load is committed
+        assertEquals(0, BaseTest.count(graph.getEdges()));
+        bgraph.commit();
+        assertEquals(numEdges, BaseTest.count(graph.getEdges()));
+        for (int i = 0; i < quads.length; i++) {
+            Edge edge = graph.getEdge("e" + i);
+            assertEquals(quads[i][0], edge.getVertex(Direction.OUT).getId());
+            assertEquals(quads[i][1], edge.getVertex(Direction.IN).getId());
+            assertEquals(quads[i][2], edge.getLabel());
+            assertEquals(quads[i][3], edge.getProperty("annotation"));
+        }
+        bgraph.shutdown();
+
+        graph = new TinkerGraph();
+        bgraph = new BatchGraph(new WritethroughGraph(graph), VertexIDType.STRING, 2);
+        bgraph.setEdgeSorting();
+        GraphMLReader.inputGraph(bgraph, GraphMLReader.class.getResourceAsStream("graph-example-1.xml"));
+        assertEquals(6, BaseTest.count(graph.getVertices()));
+        assertEquals(6, BaseTest.count(graph.getEdges()));
+        assertEquals(1.0f, graph.getEdge("8").getProperty("weight"));
+        assertEquals("josh", graph.getEdge("8").getVertex(Direction.IN).getProperty("name"));
+    }
+
     public void testLoadingWithExisting1() {
         int numEdges = 1000;
         String[][] quads = generateQuads(100, numEdges, new String[]{"knows", "friend"});
@@ -161,6 +217,10 @@ public class BatchGraphTest extends TestCase {
 
 
     public void loadingTest(int total, int bufferSize, VertexIDType type, LoadingFactory ids) {
+        loadingTest(total, bufferSize, type.getVertexCache(), ids);
+    }
+
+    public void loadingTest(int total, int bufferSize, VertexCache cache, LoadingFactory ids) {
         final VertexEdgeCounter counter = new VertexEdgeCounter();
 
         MockTransactionalGraph tgraph = null;
@@ -171,7 +231,7 @@ public class BatchGraphTest extends TestCase {
         }
 
         BLGraph graph = new BLGraph(tgraph, counter, ids);
-        BatchGraph<BLGraph> loader = new BatchGraph<BLGraph>(graph, type, bufferSize);
+        BatchGraph<BLGraph> loader = new BatchGraph<BLGraph>(graph, cache, bufferSize);
 
         if (assignKeys) {
             loader.setVertexIdKey(vertexIDKey);
@@ -0,0 +1,215 @@
+package com.tinkerpop.blueprints.util.wrappers.batch;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.ConcurrentTinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.MockTransactionalGraph;
+import com.tinkerpop.blueprints.util.wrappers.wrapped.WrappedVertex;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ParallelBatchLoader} by loading a chain of vertices with a number of workers.
+ */
+public class ParallelBatchLoaderTest extends TestCase {
+
+    public void testChainLoading() {
+        for (final VertexIDType type : new VertexIDType[]{VertexIDType.NUMBER, VertexIDType.OBJECT, VertexIDType.STRING}) {
+            for (final ParallelBatchLoader.EdgeOrdering ordering : ParallelBatchLoader.EdgeOrdering.values()) {
+                final ConcurrentTinkerGraph base = new ConcurrentTinkerGraph();
+                final MockTransactionalGraph graph = new MockTransactionalGraph(base);
+                chainTest(graph, base, type, ordering, 20000, 1000, 4);
+                assertTrue(graph.allSuccessful());
+            }
+        }
+        final ConcurrentTinkerGraph graph = new ConcurrentTinkerGraph();
+        chainTest(graph, graph, VertexIDType.NUMBER, ParallelBatchLoader.EdgeOrdering.OUT_VERTEX, 5000, 100, 1);
+    }
+
+    private void chainTest(final Graph graph, final ConcurrentTinkerGraph base, final VertexIDType type, final ParallelBatchLoader.EdgeOrdering ordering, final int length, final long bufferSize, final int threads) {
+        base.createKeyIndex("uid", Vertex.class);
+        final ParallelBatchLoader loader = new ParallelBatchLoader(graph, type, bufferSize, threads);
+        loader.setVertexIdKey("uid");
+        loader.setEdgeIdKey("eid");
+        loader.setEdgeOrdering(ordering);
+        for (int i = 0; i < length; i++) {
+            loader.addVertex(id(type, i), Collections.singletonMap("index", i));
+        }
+        loader.finishVertices();
+        assertEquals(length, loader.getVertexCount());
+        for (int i = 1; i < length; i++) {
+            loader.addEdge("e" + i, id(type, i - 1), id(type, i), "next", Collections.singletonMap("index", i));
+        }
+        loader.close();
+        assertEquals(length - 1, loader.getEdgeCount());
+
+        for (int i = 0; i < length; i++) {
+            final Vertex vertex = base.getVertices("uid", id(type, i)).iterator().next();
+            assertEquals(i, vertex.getProperty("index"));
+            if (i > 0) {
+                final Edge edge = vertex.getEdges(Direction.IN, "next").iterator().next();
+                assertEquals(i, edge.getProperty("index"));
+                assertEquals("e" + i, edge.getProperty("eid"));
+                assertEquals(i - 1, edge.getVertex(Direction.OUT).getProperty("index"));
+            }
+        }
+    }
+
+    private static Object id(final VertexIDType type, final int i) {
+        return type == VertexIDType.NUMBER ? (Object) (long) i : "v" + i;
+    }
+
+    public void testVertexIdsAssignedOnCommit() {
+        final Set<Object> committed = Collections.synchronizedSet(new HashSet<Object>());
+        final ThreadLocal<List<Object>> uncommitted = new ThreadLocal<List<Object>>() {
+            protected List<Object> initialValue() {
+                return new ArrayList<Object>();
+            }
+        };
+        // the vertices only have their final ids once they are committed, like on some backends
+        final MockTransactionalGraph graph = new MockTransactionalGraph(new ConcurrentTinkerGraph()) {
+            public Vertex addVertex(final Object id) {
+                final Vertex vertex = super.addVertex(id);
+                uncommitted.get().add(vertex.getId());
+                return new WrappedVertex(vertex) {
+                    public Object getId() {
+                        final Object id = super.getId();
+                        return committed.contains(id) ? id : "temporary" + id;
+                    }
+                };
+            }
+
+            public void commit() {
+                committed.addAll(uncommitted.get());
+                uncommitted.get().clear();
+                super.commit();
+            }
+        };
+        final ParallelBatchLoader loader = new ParallelBatchLoader(graph, VertexIDType.NUMBER, 7, 3);
+        for (long i = 0; i < 100; i++) {
+            loader.addVertex(i, null);
+        }
+        loader.finishVertices();
+        for (long i = 1; i < 100; i++) {
+            loader.addEdge(null, i - 1, i, "next", null);
+        }
+        loader.close();
+        assertEquals(99, loader.getEdgeCount());
+        assertTrue(graph.allSuccessful());
+    }
+
+    public void testFailures() {
+        ParallelBatchLoader loader = new ParallelBatchLoader(new ConcurrentTinkerGraph(), VertexIDType.NUMBER, 10, 3);
+        for (int i = 0; i < 100; i++) {
+            loader.addVertex(i, null);
+        }
+        loader.addVertex(50, null);
+        try {
+            loader.finishVertices();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            loader.addVertex(101, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            loader.close();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        loader = new ParallelBatchLoader(new ConcurrentTinkerGraph(), VertexIDType.NUMBER, 10, 3);
+        loader.addVertex(1, null);
+        try {
+            loader.addEdge(null, 1, 2, "knows", null);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        loader.finishVertices();
+        loader.addEdge(null, 1, 2, "knows", null);
+        try {
+            loader.close();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            loader.addEdge(null, 1, 1, "knows", null);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testEveryWorkerRollsBackAfterAFailure() {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        final Set<Thread> rolledBack = Collections.synchronizedSet(new HashSet<Thread>());
+        final MockTransactionalGraph graph = new MockTransactionalGraph(new ConcurrentTinkerGraph()) {
+            public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
+                // one worker fails, and rolls back, while the other one holds an uncommitted edge
+                try {
+                    if (label.equals("fail")) {
+                        started.await(10, TimeUnit.SECONDS);
+                        throw new IllegalArgumentException("fail");
+                    }
+                    started.countDown();
+                    failed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return super.addEdge(id, outVertex, inVertex, label);
+            }
+
+            public void rollback() {
+                rolledBack.add(Thread.currentThread());
+                super.rollback();
+                failed.countDown();
+            }
+        };
+        final ParallelBatchLoader loader = new ParallelBatchLoader(graph, VertexIDType.NUMBER, 100, 2);
+        loader.setEdgeOrdering(ParallelBatchLoader.EdgeOrdering.NONE);
+        loader.addVertex(1, null);
+        loader.addVertex(2, null);
+        loader.finishVertices();
+        loader.addEdge(null, 1, 2, "knows", null);
+        loader.addEdge(null, 2, 1, "fail", null);
+        try {
+            loader.close();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(2, rolledBack.size());
+    }
+
+    public void testInterruptedWorkerDoesNotBlockTheLoader() {
+        final MockTransactionalGraph graph = new MockTransactionalGraph(new ConcurrentTinkerGraph()) {
+            public Vertex addVertex(final Object id) {
+                if (id.equals(5l))
+                    Thread.currentThread().interrupt();
+                return super.addVertex(id);
+            }
+        };
+        final ParallelBatchLoader loader = new ParallelBatchLoader(graph, VertexIDType.NUMBER, 100, 1);
+        for (long i = 0; i < 10; i++) {
+            loader.addVertex(i, null);
+        }
+        try {
+            // the interrupted worker stops before or after it commits the vertices
+            loader.finishVertices();
+            loader.close();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+    }
+}